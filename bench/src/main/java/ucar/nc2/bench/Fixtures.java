@@ -0,0 +1,627 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.bench;
+
+import ucar.ma2.*;
+import ucar.nc2.*;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+
+/**
+ * Makes the synthetic files used by the benchmarks, so they dont depend on any test data.
+ * The values are smooth fields plus some noise, so they pack and compress like real data.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class Fixtures {
+
+  /**
+   * Make a temporary directory, deleted on exit.
+   * @return the directory
+   * @throws IOException on error
+   */
+  static public File makeTempDir() throws IOException {
+    File dir = File.createTempFile("cdmBench", "");
+    if (!dir.delete() || !dir.mkdir())
+      throw new IOException("cant create temp dir " + dir);
+    dir.deleteOnExit();
+    return dir;
+  }
+
+  /**
+   * Delete a directory and everything in it.
+   * @param dir delete this
+   */
+  static public void delete(File dir) {
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        if (f.isDirectory()) delete(f);
+        else f.delete();
+      }
+    }
+    dir.delete();
+  }
+
+  static float value(int t, int y, int x) {
+    return (float) (280.0 + 20.0 * Math.sin(y * .05) * Math.cos(x * .03) + t * .1 + ((x * 31 + y * 17) % 7) * .01);
+  }
+
+  ///////////////////////////////////////////////////////////////////////
+  // netCDF-3
+
+  /**
+   * A CF gridded netCDF-3 file, with variable "temperature(time, lat, lon)", float.
+   *
+   * @param dir  in this directory
+   * @param ntimes number of times
+   * @param nlat number of latitudes
+   * @param nlon number of longitudes
+   * @return the file
+   * @throws IOException on error
+   */
+  static public File makeNetcdf3(File dir, int ntimes, int nlat, int nlon) throws IOException {
+    File file = new File(dir, "grid.nc");
+    NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, file.getPath());
+    try {
+      writer.addGroupAttribute(null, new Attribute("Conventions", "CF-1.0"));
+      writer.addDimension(null, "time", ntimes);
+      writer.addDimension(null, "lat", nlat);
+      writer.addDimension(null, "lon", nlon);
+
+      Variable time = writer.addVariable(null, "time", DataType.DOUBLE, "time");
+      writer.addVariableAttribute(time, new Attribute("units", "hours since 2013-10-01T00:00:00Z"));
+      Variable lat = writer.addVariable(null, "lat", DataType.FLOAT, "lat");
+      writer.addVariableAttribute(lat, new Attribute("units", "degrees_north"));
+      Variable lon = writer.addVariable(null, "lon", DataType.FLOAT, "lon");
+      writer.addVariableAttribute(lon, new Attribute("units", "degrees_east"));
+      Variable temp = writer.addVariable(null, "temperature", DataType.FLOAT, "time lat lon");
+      writer.addVariableAttribute(temp, new Attribute("units", "K"));
+      writer.create();
+
+      double dlat = 180.0 / nlat, dlon = 360.0 / nlon;
+      Array timeData = Array.factory(DataType.DOUBLE, new int[]{ntimes});
+      for (int t = 0; t < ntimes; t++) timeData.setDouble(t, 6 * t);
+      Array latData = Array.factory(DataType.FLOAT, new int[]{nlat});
+      for (int y = 0; y < nlat; y++) latData.setFloat(y, (float) (-90.0 + dlat / 2 + y * dlat));
+      Array lonData = Array.factory(DataType.FLOAT, new int[]{nlon});
+      for (int x = 0; x < nlon; x++) lonData.setFloat(x, (float) (dlon / 2 + x * dlon));
+      writer.write(time, timeData);
+      writer.write(lat, latData);
+      writer.write(lon, lonData);
+
+      ArrayFloat.D3 slice = new ArrayFloat.D3(1, nlat, nlon);
+      for (int t = 0; t < ntimes; t++) {
+        for (int y = 0; y < nlat; y++)
+          for (int x = 0; x < nlon; x++)
+            slice.set(0, y, x, value(t, y, x));
+        writer.write(temp, new int[]{t, 0, 0}, slice);
+      }
+
+    } catch (InvalidRangeException e) {
+      throw new IOException(e.getMessage(), e);
+    } finally {
+      writer.close();
+    }
+    return file;
+  }
+
+  ///////////////////////////////////////////////////////////////////////
+  // GRIB
+
+  /**
+   * A GRIB-2 file with one temperature record for each forecast hour, on a lat/lon grid, simple packing.
+   *
+   * @param dir      in this directory
+   * @param nrecords number of records (forecast times)
+   * @param nx       number of longitudes
+   * @param ny       number of latitudes
+   * @return the file
+   * @throws IOException on error
+   */
+  static public File makeGrib2(File dir, int nrecords, int nx, int ny) throws IOException {
+    File file = new File(dir, "simple.grib2");
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try {
+      for (int t = 0; t < nrecords; t++)
+        out.write(makeGrib2Record(t, nx, ny));
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  static private byte[] makeGrib2Record(int t, int nx, int ny) throws IOException {
+    int npts = nx * ny;
+    int nbits = 16, decimalScale = 2;
+    float ref = 250.0f;
+    byte[] packed = pack(t, nx, ny, ref, decimalScale, nbits);
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream sec = new DataOutputStream(bos);
+
+    // section 1: identification
+    sec.writeInt(21);
+    sec.write(1);
+    sec.writeShort(7); // center NCEP
+    sec.writeShort(0); // subcenter
+    sec.write(2);      // master table version
+    sec.write(1);      // local table version
+    sec.write(1);      // significance of reference time : start of forecast
+    sec.writeShort(2013);
+    sec.write(10);
+    sec.write(1);
+    sec.write(0);
+    sec.write(0);
+    sec.write(0);
+    sec.write(0);      // production status
+    sec.write(1);      // type of data : forecast
+
+    // section 3: grid definition, template 3.0 lat/lon
+    sec.writeInt(72);
+    sec.write(3);
+    sec.write(0);
+    sec.writeInt(npts);
+    sec.write(0);
+    sec.write(0);
+    sec.writeShort(0);  // template
+    sec.write(6);       // spherical earth, radius 6371229
+    sec.write(0);
+    sec.writeInt(0);
+    sec.write(0);
+    sec.writeInt(0);
+    sec.write(0);
+    sec.writeInt(0);
+    sec.writeInt(nx);
+    sec.writeInt(ny);
+    sec.writeInt(0);    // basic angle
+    sec.writeInt(-1);   // subdivisions : missing
+    int dx = 100000, dy = 100000; // .1 degree
+    int la1 = 20000000 + (ny - 1) * dy, lo1 = 230000000;
+    sec.writeInt(la1);
+    sec.writeInt(lo1);
+    sec.write(48);      // i and j increments given
+    sec.writeInt(la1 - (ny - 1) * dy);
+    sec.writeInt(lo1 + (nx - 1) * dx);
+    sec.writeInt(dx);
+    sec.writeInt(dy);
+    sec.write(0);       // scan mode : north to south, west to east
+
+    // section 4: product definition, template 4.0
+    sec.writeInt(34);
+    sec.write(4);
+    sec.writeShort(0);
+    sec.writeShort(0);  // template
+    sec.write(0);       // category : temperature
+    sec.write(0);       // parameter : temperature
+    sec.write(2);       // generating process : forecast
+    sec.write(0);
+    sec.write(96);
+    sec.writeShort(0);
+    sec.write(0);
+    sec.write(1);       // time unit : hour
+    sec.writeInt(t);    // forecast time
+    sec.write(1);       // surface
+    sec.write(0);
+    sec.writeInt(0);
+    sec.write(255);     // no second surface
+    sec.write(0);
+    sec.writeInt(0);
+
+    // section 5: data representation, template 5.0 simple packing
+    sec.writeInt(21);
+    sec.write(5);
+    sec.writeInt(npts);
+    sec.writeShort(0);
+    sec.writeFloat(ref);
+    sec.writeShort(0);  // binary scale
+    sec.writeShort(decimalScale);
+    sec.write(nbits);
+    sec.write(0);       // floating point
+
+    // section 6: no bitmap
+    sec.writeInt(6);
+    sec.write(6);
+    sec.write(255);
+
+    // section 7: data
+    sec.writeInt(5 + packed.length);
+    sec.write(7);
+    sec.write(packed);
+
+    // section 8
+    sec.write(new byte[]{'7', '7', '7', '7'});
+    sec.flush();
+    byte[] sections = bos.toByteArray();
+
+    // section 0: indicator
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    DataOutputStream is = new DataOutputStream(result);
+    is.write(new byte[]{'G', 'R', 'I', 'B'});
+    is.writeShort(0);
+    is.write(0);        // discipline : meteorological
+    is.write(2);        // edition
+    is.writeLong(16 + sections.length);
+    is.write(sections);
+    is.flush();
+    return result.toByteArray();
+  }
+
+  /**
+   * A GRIB-1 file with one temperature record for each forecast hour, on a lat/lon grid, simple packing.
+   *
+   * @param dir      in this directory
+   * @param nrecords number of records (forecast times)
+   * @param nx       number of longitudes
+   * @param ny       number of latitudes
+   * @return the file
+   * @throws IOException on error
+   */
+  static public File makeGrib1(File dir, int nrecords, int nx, int ny) throws IOException {
+    File file = new File(dir, "simple.grib1");
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try {
+      for (int t = 0; t < nrecords; t++)
+        out.write(makeGrib1Record(t, nx, ny));
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  static private byte[] makeGrib1Record(int t, int nx, int ny) throws IOException {
+    int nbits = 16, decimalScale = 2;
+    float ref = 250.0f;
+    byte[] packed = pack(t, nx, ny, ref, decimalScale, nbits);
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream sec = new DataOutputStream(bos);
+
+    // product definition section
+    write3(sec, 28);
+    sec.write(2);       // table version
+    sec.write(7);       // center NCEP
+    sec.write(96);      // generating process
+    sec.write(255);     // grid defined by the GDS
+    sec.write(0x80);    // GDS, no BMS
+    sec.write(11);      // temperature
+    sec.write(1);       // surface
+    sec.writeShort(0);
+    sec.write(13);      // year of century
+    sec.write(10);
+    sec.write(1);
+    sec.write(0);
+    sec.write(0);
+    sec.write(1);       // time unit : hour
+    sec.write(t);       // P1
+    sec.write(0);       // P2
+    sec.write(0);       // time range indicator : forecast at P1
+    sec.writeShort(0);
+    sec.write(0);
+    sec.write(21);      // century
+    sec.write(0);       // subcenter
+    sec.writeShort(decimalScale);
+
+    // grid definition section, lat/lon
+    int dx = 100, dy = 100; // millidegrees
+    int la1 = 20000 + (ny - 1) * dy, lo1 = 230000;
+    write3(sec, 32);
+    sec.write(0);
+    sec.write(255);
+    sec.write(0);       // lat/lon
+    sec.writeShort(nx);
+    sec.writeShort(ny);
+    write3(sec, la1);
+    write3(sec, lo1);
+    sec.write(0x80);    // increments given
+    write3(sec, la1 - (ny - 1) * dy);
+    write3(sec, lo1 + (nx - 1) * dx);
+    sec.writeShort(dx);
+    sec.writeShort(dy);
+    sec.write(0);       // scan mode : north to south, west to east
+    sec.writeInt(0);
+
+    // binary data section, padded to an even length
+    int bdsLength = 11 + packed.length;
+    int pad = bdsLength % 2;
+    int unusedBits = 8 * packed.length - nx * ny * nbits + 8 * pad;
+    write3(sec, bdsLength + pad);
+    sec.write(unusedBits & 0x0f);  // grid point, simple packing, float
+    sec.writeShort(0);              // binary scale
+    sec.writeInt(ibmFloat(ref));
+    sec.write(nbits);
+    sec.write(packed);
+    if (pad > 0) sec.write(0);
+
+    sec.write(new byte[]{'7', '7', '7', '7'});
+    sec.flush();
+    byte[] sections = bos.toByteArray();
+
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    DataOutputStream is = new DataOutputStream(result);
+    is.write(new byte[]{'G', 'R', 'I', 'B'});
+    write3(is, 8 + sections.length);
+    is.write(1);        // edition
+    is.write(sections);
+    is.flush();
+    return result.toByteArray();
+  }
+
+  // pack one field with simple packing: Y * 10^D = R + X * 2^E, E = 0
+  static private byte[] pack(int t, int nx, int ny, float ref, int decimalScale, int nbits) {
+    double scale = Math.pow(10, decimalScale);
+    BitWriter bits = new BitWriter();
+    for (int y = 0; y < ny; y++) {
+      for (int x = 0; x < nx; x++) {
+        long packed = Math.round(value(t, y, x) * scale - ref);
+        bits.write(Math.max(0, Math.min(packed, (1L << nbits) - 1)), nbits);
+      }
+    }
+    return bits.toByteArray();
+  }
+
+  // IBM single precision: sign, 7 bit base 16 exponent excess 64, 24 bit fraction
+  static int ibmFloat(float val) {
+    if (val == 0) return 0;
+    int sign = (val < 0) ? 0x80000000 : 0;
+    double mant = Math.abs(val);
+    int exp = 64;
+    while (mant >= 1.0) {
+      mant /= 16;
+      exp++;
+    }
+    while (mant < 0.0625) {
+      mant *= 16;
+      exp--;
+    }
+    return sign | (exp << 24) | (int) Math.round(mant * (1 << 24));
+  }
+
+  static private void write3(DataOutputStream out, int val) throws IOException {
+    out.write((val >>> 16) & 0xff);
+    out.write((val >>> 8) & 0xff);
+    out.write(val & 0xff);
+  }
+
+  static private class BitWriter {
+    private final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    private long buffer;
+    private int nbuffered;
+
+    void write(long val, int nbits) {
+      for (int i = nbits - 1; i >= 0; i--) {
+        buffer = (buffer << 1) | ((val >>> i) & 1);
+        if (++nbuffered == 8) {
+          bos.write((int) buffer);
+          buffer = 0;
+          nbuffered = 0;
+        }
+      }
+    }
+
+    byte[] toByteArray() {
+      if (nbuffered > 0) {
+        bos.write((int) (buffer << (8 - nbuffered)));
+        buffer = 0;
+        nbuffered = 0;
+      }
+      return bos.toByteArray();
+    }
+  }
+
+  ///////////////////////////////////////////////////////////////////////
+  // BUFR
+
+  // descriptor, bit width
+  static private final int[][] bufrDescriptors = {
+          {0, 1, 1, 7},    // WMO block number
+          {0, 1, 2, 10},   // WMO station number
+          {0, 4, 1, 12},   // year
+          {0, 4, 2, 4},    // month
+          {0, 4, 3, 6},    // day
+          {0, 4, 4, 5},    // hour
+          {0, 4, 5, 6},    // minute
+          {0, 5, 1, 25},   // latitude (high accuracy), scale 5, reference -9000000
+          {0, 6, 1, 26},   // longitude (high accuracy), scale 5, reference -18000000
+          {0, 12, 101, 16} // temperature, scale 2
+  };
+
+  /**
+   * A BUFR edition 4 file of surface observations, uncompressed, several subsets per message.
+   *
+   * @param dir       in this directory
+   * @param nmessages number of messages
+   * @param nsubsets  number of observations in each message
+   * @return the file
+   * @throws IOException on error
+   */
+  static public File makeBufr(File dir, int nmessages, int nsubsets) throws IOException {
+    File file = new File(dir, "obs.bufr");
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try {
+      for (int m = 0; m < nmessages; m++)
+        out.write(makeBufrMessage(m, nsubsets));
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  static private byte[] makeBufrMessage(int m, int nsubsets) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream sec = new DataOutputStream(bos);
+
+    // section 1: identification
+    write3(sec, 22);
+    sec.write(0);       // master table
+    sec.writeShort(7);  // center
+    sec.writeShort(0);  // subcenter
+    sec.write(0);       // update sequence
+    sec.write(0);       // no section 2
+    sec.write(0);       // surface data - land
+    sec.write(0);
+    sec.write(0);
+    sec.write(16);      // master table version
+    sec.write(0);       // local table version
+    sec.writeShort(2013);
+    sec.write(10);
+    sec.write(1);
+    sec.write(m % 24);
+    sec.write(0);
+    sec.write(0);
+
+    // section 3: data description
+    write3(sec, 7 + 2 * bufrDescriptors.length);
+    sec.write(0);
+    sec.writeShort(nsubsets);
+    sec.write(0x80);    // observed, not compressed
+    for (int[] d : bufrDescriptors)
+      sec.writeShort((d[0] << 14) | (d[1] << 8) | d[2]);
+
+    // section 4: data, one subset after another
+    BitWriter bits = new BitWriter();
+    for (int i = 0; i < nsubsets; i++) {
+      int station = i % 1000;
+      double lat = 20.0 + (i % 300) * .1;
+      double lon = -130.0 + (i / 300) * .1;
+      long[] vals = {72, station, 2013, 10, 1, m % 24, 0,
+              Math.round(lat * 1e5) + 9000000,
+              Math.round(lon * 1e5) + 18000000,
+              Math.round(value(m, i % 300, i / 300) * 100)};
+      for (int k = 0; k < vals.length; k++)
+        bits.write(vals[k], bufrDescriptors[k][3]);
+    }
+    byte[] data = bits.toByteArray();
+    write3(sec, 4 + data.length);
+    sec.write(0);
+    sec.write(data);
+
+    // section 5
+    sec.write(new byte[]{'7', '7', '7', '7'});
+    sec.flush();
+    byte[] sections = bos.toByteArray();
+
+    // section 0: indicator
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    DataOutputStream is = new DataOutputStream(result);
+    is.write(new byte[]{'B', 'U', 'F', 'R'});
+    write3(is, 8 + sections.length);
+    is.write(4);        // edition
+    is.write(sections);
+    is.flush();
+    return result.toByteArray();
+  }
+
+  ///////////////////////////////////////////////////////////////////////
+  // catalogs
+
+  /**
+   * A THREDDS catalog with nested datasets, each with an access element.
+   *
+   * @param ndatasets number of datasets
+   * @return the catalog as a String
+   */
+  static public String makeCatalog(int ndatasets) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    sb.append("<catalog xmlns=\"http://www.unidata.ucar.edu/namespaces/thredds/InvCatalog/v1.0\" ");
+    sb.append("xmlns:xlink=\"http://www.w3.org/1999/xlink\" name=\"bench\" version=\"1.0.1\">\n");
+    sb.append("  <service name=\"all\" serviceType=\"Compound\" base=\"\">\n");
+    sb.append("    <service name=\"odap\" serviceType=\"OpenDAP\" base=\"/thredds/dodsC/\"/>\n");
+    sb.append("    <service name=\"http\" serviceType=\"HTTPServer\" base=\"/thredds/fileServer/\"/>\n");
+    sb.append("  </service>\n");
+    sb.append("  <dataset name=\"bench\" ID=\"bench\">\n");
+    sb.append("    <metadata inherited=\"true\">\n");
+    sb.append("      <serviceName>all</serviceName>\n");
+    sb.append("      <dataType>Grid</dataType>\n");
+    sb.append("      <dataFormat>NetCDF</dataFormat>\n");
+    sb.append("    </metadata>\n");
+    for (int i = 0; i < ndatasets; i++) {
+      sb.append("    <dataset name=\"grid").append(i).append(".nc\" ID=\"bench/grid").append(i).append("\" urlPath=\"bench/grid").append(i).append(".nc\">\n");
+      sb.append("      <dataSize units=\"Mbytes\">").append(10 + i % 90).append("</dataSize>\n");
+      sb.append("      <date type=\"modified\">2013-10-").append(String.format("%02d", 1 + i % 28)).append("T00:00:00Z</date>\n");
+      sb.append("    </dataset>\n");
+    }
+    sb.append("  </dataset>\n");
+    sb.append("</catalog>\n");
+    return sb.toString();
+  }
+
+  ///////////////////////////////////////////////////////////////////////
+  // check that the fixtures can be read
+
+  public static void main(String[] args) throws Exception {
+    File dir = makeTempDir();
+    try {
+      List<File> files = new ArrayList<File>();
+      files.add(makeNetcdf3(dir, 4, 90, 180));
+      files.add(makeGrib2(dir, 4, 100, 50));
+      files.add(makeGrib1(dir, 4, 100, 50));
+      files.add(makeBufr(dir, 3, 500));
+
+      for (File f : files) {
+        NetcdfFile ncfile = NetcdfFile.open(f.getPath());
+        try {
+          System.out.printf("%s%n", f.getName());
+          for (Variable v : ncfile.getVariables()) {
+            if (v instanceof Structure) {
+              Formatter first = new Formatter();
+              int count = 0;
+              StructureDataIterator iter = ((Structure) v).getStructureIterator();
+              while (iter.hasNext()) {
+                StructureData sdata = iter.next();
+                if (count++ == 0)
+                  for (StructureMembers.Member member : sdata.getMembers())
+                    if (member.getDataType() != DataType.STRING)
+                      first.format("%s=%s ", member.getName(), sdata.getScalarObject(member));
+              }
+              System.out.printf("  %s nrecords=%d first= %s%n", v.getNameAndDimensions(), count, first);
+            } else {
+              Array data = v.read();
+              MAMath.MinMax minmax = MAMath.getMinMax(data);
+              System.out.printf("  %s min=%f max=%f%n", v.getNameAndDimensions(), minmax.min, minmax.max);
+            }
+          }
+        } finally {
+          ncfile.close();
+        }
+      }
+    } finally {
+      delete(dir);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ucar.nc2.grib.grib1.Grib1Record;
+import ucar.nc2.grib.grib1.Grib1RecordScanner;
+import ucar.nc2.grib.grib2.Grib2Record;
+import ucar.nc2.grib.grib2.Grib2RecordScanner;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding GRIB records, without the collection and index layers. Measures bit unpacking of simple packed data.
+ * There is no JPEG2000 encoder available to make a fixture, so complex packings are not covered.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class GribDecodeBenchmark {
+
+  @Param({"1", "2"})
+  public int edition;
+
+  private File dir;
+  private RandomAccessFile raf;
+  private List<Grib1Record> records1 = new ArrayList<Grib1Record>();
+  private List<Grib2Record> records2 = new ArrayList<Grib2Record>();
+
+  @Setup
+  public void setup() throws IOException {
+    dir = Fixtures.makeTempDir();
+    if (edition == 1) {
+      File file = Fixtures.makeGrib1(dir, 8, 360, 181);
+      raf = new RandomAccessFile(file.getPath(), "r");
+      Grib1RecordScanner scan = new Grib1RecordScanner(raf);
+      while (scan.hasNext())
+        records1.add(scan.next());
+
+    } else {
+      File file = Fixtures.makeGrib2(dir, 8, 360, 181);
+      raf = new RandomAccessFile(file.getPath(), "r");
+      Grib2RecordScanner scan = new Grib2RecordScanner(raf);
+      while (scan.hasNext())
+        records2.add(scan.next());
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    raf.close();
+    Fixtures.delete(dir);
+  }
+
+  @Benchmark
+  public void decode(Blackhole bh) throws IOException {
+    for (Grib1Record gr : records1)
+      bh.consume(gr.readData(raf));
+    for (Grib2Record gr : records2)
+      bh.consume(gr.readData(raf));
+  }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ucar.nc2.NetcdfFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to open a file and read its header, for each of the formats we can make fixtures for.
+ * For GRIB, the index (gbx9 and ncx) is built in setup, so this measures loading an existing index.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class OpenBenchmark {
+
+  @Param({"netcdf3", "grib1", "grib2", "bufr"})
+  public String format;
+
+  private File dir;
+  private String location;
+
+  @Setup
+  public void setup() throws IOException {
+    dir = Fixtures.makeTempDir();
+    File file;
+    if (format.equals("netcdf3"))
+      file = Fixtures.makeNetcdf3(dir, 24, 181, 360);
+    else if (format.equals("grib1"))
+      file = Fixtures.makeGrib1(dir, 24, 360, 181);
+    else if (format.equals("grib2"))
+      file = Fixtures.makeGrib2(dir, 24, 360, 181);
+    else if (format.equals("bufr"))
+      file = Fixtures.makeBufr(dir, 10, 500);
+    else
+      throw new IllegalArgumentException("unknown format " + format);
+    location = file.getPath();
+
+    // the first open writes the GRIB indexes
+    NetcdfFile ncfile = NetcdfFile.open(location);
+    ncfile.close();
+  }
+
+  @TearDown
+  public void tearDown() {
+    Fixtures.delete(dir);
+  }
+
+  @Benchmark
+  public int open() throws IOException {
+    NetcdfFile ncfile = NetcdfFile.open(location);
+    try {
+      return ncfile.getVariables().size();
+    } finally {
+      ncfile.close();
+    }
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.nc2.Variable;
+import ucar.nc2.dt.GridDatatype;
+import ucar.nc2.dt.grid.GeoGrid;
+import ucar.nc2.dt.grid.GridDataset;
+import ucar.unidata.geoloc.LatLonPointImpl;
+import ucar.unidata.geoloc.LatLonRect;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading data from an open file: Variable.read(section) for a horizontal slice and for a time series at one point,
+ * and GeoGrid.subset() by lat/lon box followed by a read.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ReadBenchmark {
+
+  @Param({"netcdf3", "grib2"})
+  public String format;
+
+  private File dir;
+  private GridDataset gds;
+  private GeoGrid grid;
+  private Variable v;
+  private Section slice, series;
+  private LatLonRect bbox;
+
+  @Setup
+  public void setup() throws IOException, InvalidRangeException {
+    dir = Fixtures.makeTempDir();
+    File file;
+    if (format.equals("netcdf3"))
+      file = Fixtures.makeNetcdf3(dir, 24, 181, 360);
+    else if (format.equals("grib2"))
+      file = Fixtures.makeGrib2(dir, 24, 360, 181);
+    else
+      throw new IllegalArgumentException("unknown format " + format);
+
+    gds = GridDataset.open(file.getPath());
+    GridDatatype gdt = gds.getGrids().get(0);
+    grid = (GeoGrid) gdt;
+    v = grid.getVariable();
+
+    // time is the outer dimension, y and x the inner two
+    int rank = v.getRank();
+    int[] shape = v.getShape();
+    int[] origin = new int[rank];
+    int[] sliceShape = new int[rank];
+    int[] seriesShape = new int[rank];
+    for (int i = 0; i < rank; i++) {
+      sliceShape[i] = (i >= rank - 2) ? shape[i] : 1;
+      seriesShape[i] = (i == 0) ? shape[i] : 1;
+    }
+    slice = new Section(origin, sliceShape);
+    int[] seriesOrigin = new int[rank];
+    seriesOrigin[rank - 2] = shape[rank - 2] / 2;
+    seriesOrigin[rank - 1] = shape[rank - 1] / 2;
+    series = new Section(seriesOrigin, seriesShape);
+
+    // the middle quarter of the grid
+    LatLonRect llbb = grid.getCoordinateSystem().getLatLonBoundingBox();
+    double dlat = llbb.getHeight() / 4;
+    double dlon = llbb.getWidth() / 4;
+    LatLonPointImpl lowerLeft = llbb.getLowerLeftPoint();
+    bbox = new LatLonRect(new LatLonPointImpl(lowerLeft.getLatitude() + dlat, lowerLeft.getLongitude() + dlon), 2 * dlat, 2 * dlon);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    gds.close();
+    Fixtures.delete(dir);
+  }
+
+  @Benchmark
+  public Array readSlice() throws IOException, InvalidRangeException {
+    return v.read(slice);
+  }
+
+  @Benchmark
+  public Array readTimeSeries() throws IOException, InvalidRangeException {
+    return v.read(series);
+  }
+
+  @Benchmark
+  public Array gridSubset() throws IOException, InvalidRangeException {
+    GeoGrid subset = grid.subset(null, null, bbox, 1, 1, 1);
+    return subset.readVolumeData(0);
+  }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.iosp.hdf5;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * The HDF5 chunk filter pipeline: inflate, then unshuffle.
+ * We cant write netCDF-4 files without the C library, so this calls the filters directly on a synthetic chunk,
+ * shuffled and deflated the way the library does it.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class H5ChunkBenchmark {
+
+  /** chunk size in bytes */
+  @Param({"65536", "1048576"})
+  public int chunkSize;
+
+  /** deflate level */
+  @Param({"1", "6"})
+  public int level;
+
+  private byte[] compressed;
+  private int compressedLen;
+
+  @Setup
+  public void setup() {
+    int nfloats = chunkSize / 4;
+    int nx = 360;
+    ByteBuffer bb = ByteBuffer.allocate(nfloats * 4);
+    for (int i = 0; i < nfloats; i++)
+      bb.putFloat((float) (280.0 + 20.0 * Math.sin((i / nx) * .05) * Math.cos((i % nx) * .03)));
+    byte[] raw = bb.array();
+
+    // shuffle: all the first bytes, then all the second bytes, etc
+    byte[] shuffled = new byte[raw.length];
+    for (int i = 0; i < nfloats; i++)
+      for (int k = 0; k < 4; k++)
+        shuffled[k * nfloats + i] = raw[i * 4 + k];
+
+    Deflater deflater = new Deflater(level);
+    deflater.setInput(shuffled);
+    deflater.finish();
+    compressed = new byte[raw.length + 1024];
+    compressedLen = deflater.deflate(compressed);
+    deflater.end();
+  }
+
+  @Benchmark
+  public byte[] inflate() throws IOException {
+    return H5tiledLayoutBB.inflate(compressed, compressedLen, chunkSize);
+  }
+
+  @Benchmark
+  public byte[] inflateAndUnshuffle() throws IOException {
+    byte[] data = H5tiledLayoutBB.inflate(compressed, compressedLen, chunkSize);
+    H5tiledLayoutBB.unshuffle(data, chunkSize, 4);
+    return data;
+  }
+
+}
@@ -293,6 +293,18 @@ public abstract class Array {
       return;
     }
 
+    if (arrayDst instanceof ArrayDirect) { // storage is a ByteBuffer
+      Array src = (arraySrc.getIndexPrivate().isFastIterator()) ? arraySrc : arraySrc.copy();
+      if (arrayDst.getElementType() == long.class) {
+        for (int i = 0; i < len; i++)
+          arrayDst.setLong(dstPos + i, src.getLong(srcPos + i));
+      } else {
+        for (int i = 0; i < len; i++)
+          arrayDst.setDouble(dstPos + i, src.getDouble(srcPos + i));
+      }
+      return;
+    }
+
     Object src = arraySrc.get1DJavaArray(arraySrc.getElementType()); // ensure canonical order
     Object dst = arrayDst.getStorage();
     try {
@@ -0,0 +1,648 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.ma2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Concrete implementation of Array for numeric types, with storage in a ByteBuffer, typically a direct (off-heap)
+ * or memory mapped buffer. IOSPs can read straight into the buffer, and servers can write it out
+ * to a channel without copying it into the java heap.
+ * <p/>
+ * Supports BYTE, SHORT, INT, LONG, FLOAT, DOUBLE. Element i of the (canonical) storage is at byte
+ * i * dataType.getSize() of the buffer, in the buffer's byte order.
+ * Index, IndexIterator and the typed getters and setters work as for the heap Arrays;
+ * getStorage() returns the ByteBuffer, not a java array.
+ * <p/>
+ * Arrays made with factory(DataType, int[]) come from DirectBufferPool.getDefault(); call release() when done
+ * so the buffer can be reused. Views (section, slice, etc) share the buffer and do not own it.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class ArrayDirect extends Array {
+
+  /**
+   * Does ArrayDirect support this data type?
+   * @param dataType the data type
+   * @return true for BYTE, SHORT, INT, LONG, FLOAT, DOUBLE
+   */
+  static public boolean isSupported(DataType dataType) {
+    switch (dataType) {
+      case BYTE:
+      case SHORT:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Create a new ArrayDirect with storage from the default DirectBufferPool. Contents are undefined.
+   *
+   * @param dataType numeric data type
+   * @param shape    shape of the array
+   * @return new ArrayDirect; call release() when done.
+   */
+  static public ArrayDirect factory(DataType dataType, int[] shape) {
+    return factory(dataType, shape, ByteOrder.BIG_ENDIAN);
+  }
+
+  /**
+   * Create a new ArrayDirect with storage from the default DirectBufferPool, with the given byte order.
+   * Contents are undefined.
+   *
+   * @param dataType numeric data type
+   * @param shape    shape of the array
+   * @param order    byte order of the storage
+   * @return new ArrayDirect; call release() when done.
+   */
+  static public ArrayDirect factory(DataType dataType, int[] shape, ByteOrder order) {
+    checkType(dataType);
+    Index index = Index.factory(shape);
+    long nbytes = index.getSize() * dataType.getSize();
+    if (nbytes > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("ArrayDirect too large = " + nbytes);
+    DirectBufferPool pool = DirectBufferPool.getDefault();
+    ByteBuffer storage = pool.acquire((int) nbytes);
+    storage.order(order);
+    return new ArrayDirect(dataType, index, storage, pool);
+  }
+
+  /**
+   * Wrap an existing ByteBuffer, eg a MappedByteBuffer. Storage starts at the buffer's position, in the buffer's order.
+   *
+   * @param dataType numeric data type
+   * @param shape    shape of the array
+   * @param bb       the data; must have at least size * dataType.getSize() remaining bytes
+   * @return new ArrayDirect, sharing bb
+   */
+  static public ArrayDirect factory(DataType dataType, int[] shape, ByteBuffer bb) {
+    checkType(dataType);
+    Index index = Index.factory(shape);
+    long nbytes = index.getSize() * dataType.getSize();
+    if (bb.remaining() < nbytes)
+      throw new IllegalArgumentException("ByteBuffer has " + bb.remaining() + " bytes, need " + nbytes);
+    ByteOrder order = bb.order();
+    ByteBuffer storage = bb.slice();
+    storage.limit((int) nbytes);
+    storage.order(order);
+    return new ArrayDirect(dataType, index, storage, null);
+  }
+
+  static private void checkType(DataType dataType) {
+    if (!isSupported(dataType))
+      throw new IllegalArgumentException("ArrayDirect does not support " + dataType);
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////
+  private final DataType dataType;
+  private final ByteBuffer storage;  // only absolute get/put, so position and limit never change
+  private final int shift;           // log2 of element size
+  private DirectBufferPool pool;     // owner of storage, null if not pooled or a view
+
+  ArrayDirect(DataType dataType, Index index, ByteBuffer storage, DirectBufferPool pool) {
+    super(index);
+    this.dataType = dataType;
+    this.storage = storage;
+    this.shift = Integer.numberOfTrailingZeros(dataType.getSize());
+    this.pool = pool;
+  }
+
+  protected Array createView(Index index) {
+    Array result = new ArrayDirect(dataType, index, storage, null);
+    result.setUnsigned(isUnsigned());
+    return result;
+  }
+
+  /**
+   * The backing store.
+   * @return the ByteBuffer, not a java array
+   */
+  public Object getStorage() {
+    return storage;
+  }
+
+  /**
+   * A duplicate of the backing store, with position 0 and limit at the end of the data.
+   * The order of elements is canonical only if the Index is (eg not for a section).
+   * @return duplicate of the backing ByteBuffer
+   */
+  public ByteBuffer getByteBuffer() {
+    ByteBuffer bb = storage.duplicate();
+    bb.order(storage.order());
+    bb.clear();
+    bb.limit(storage.limit());
+    return bb;
+  }
+
+  public DataType getDataType() {
+    return dataType;
+  }
+
+  public Class getElementType() {
+    return dataType.getPrimitiveClassType();
+  }
+
+  /**
+   * Return the storage to the pool it came from. The Array, and any views of it, must not be used afterwards.
+   * Does nothing if the storage is not pooled.
+   */
+  public void release() {
+    DirectBufferPool p = pool;
+    pool = null;
+    if (p != null) p.release(storage);
+  }
+
+  /**
+   * Write the data in canonical order and big endian byte order.
+   * If the array is in canonical order and the storage is big endian, the buffer is written without copying.
+   *
+   * @param out write to here
+   * @return number of bytes written
+   * @throws IOException on write error
+   */
+  public long writeTo(WritableByteChannel out) throws IOException {
+    ByteBuffer bb;
+    if (indexCalc.isFastIterator() && (storage.order() == ByteOrder.BIG_ENDIAN || dataType == DataType.BYTE)) {
+      bb = getByteBuffer();
+      bb.limit((int) getSize() << shift);
+    } else {
+      bb = getDataAsByteBuffer();
+    }
+
+    long count = 0;
+    while (bb.hasRemaining())
+      count += out.write(bb);
+    return count;
+  }
+
+  // copy from javaArray to storage using the iterator: used by factory( Object);
+  protected void copyFrom1DJavaArray(IndexIterator iter, Object javaArray) {
+    int n = java.lang.reflect.Array.getLength(javaArray);
+    switch (dataType) {
+      case BYTE: {
+        byte[] ja = (byte[]) javaArray;
+        for (int i = 0; i < n; i++) iter.setByteNext(ja[i]);
+        break;
+      }
+      case SHORT: {
+        short[] ja = (short[]) javaArray;
+        for (int i = 0; i < n; i++) iter.setShortNext(ja[i]);
+        break;
+      }
+      case INT: {
+        int[] ja = (int[]) javaArray;
+        for (int i = 0; i < n; i++) iter.setIntNext(ja[i]);
+        break;
+      }
+      case LONG: {
+        long[] ja = (long[]) javaArray;
+        for (int i = 0; i < n; i++) iter.setLongNext(ja[i]);
+        break;
+      }
+      case FLOAT: {
+        float[] ja = (float[]) javaArray;
+        for (int i = 0; i < n; i++) iter.setFloatNext(ja[i]);
+        break;
+      }
+      case DOUBLE: {
+        double[] ja = (double[]) javaArray;
+        for (int i = 0; i < n; i++) iter.setDoubleNext(ja[i]);
+        break;
+      }
+    }
+  }
+
+  // copy to javaArray from storage using the iterator: used by copyToNDJavaArray;
+  protected void copyTo1DJavaArray(IndexIterator iter, Object javaArray) {
+    int n = java.lang.reflect.Array.getLength(javaArray);
+    switch (dataType) {
+      case BYTE: {
+        byte[] ja = (byte[]) javaArray;
+        for (int i = 0; i < n; i++) ja[i] = iter.getByteNext();
+        break;
+      }
+      case SHORT: {
+        short[] ja = (short[]) javaArray;
+        for (int i = 0; i < n; i++) ja[i] = iter.getShortNext();
+        break;
+      }
+      case INT: {
+        int[] ja = (int[]) javaArray;
+        for (int i = 0; i < n; i++) ja[i] = iter.getIntNext();
+        break;
+      }
+      case LONG: {
+        long[] ja = (long[]) javaArray;
+        for (int i = 0; i < n; i++) ja[i] = iter.getLongNext();
+        break;
+      }
+      case FLOAT: {
+        float[] ja = (float[]) javaArray;
+        for (int i = 0; i < n; i++) ja[i] = iter.getFloatNext();
+        break;
+      }
+      case DOUBLE: {
+        double[] ja = (double[]) javaArray;
+        for (int i = 0; i < n; i++) ja[i] = iter.getDoubleNext();
+        break;
+      }
+    }
+  }
+
+  /**
+   * Copy the data into a java array of the wanted type, in canonical order.
+   * Unlike the heap Arrays, this always copies.
+   *
+   * @param wantType returned object will be an array of this type. This must be convertible to it.
+   * @return java array of type want
+   */
+  @Override
+  public Object get1DJavaArray(Class wantType) {
+    if (wantType != getElementType())
+      return super.get1DJavaArray(wantType);
+    if (!indexCalc.isFastIterator())
+      return copy().getStorage(); // heap copy in canonical order
+
+    // bulk copy
+    ByteBuffer bb = getByteBuffer();
+    int n = (int) getSize();
+    switch (dataType) {
+      case BYTE: {
+        byte[] ja = new byte[n];
+        bb.get(ja);
+        return ja;
+      }
+      case SHORT: {
+        short[] ja = new short[n];
+        bb.asShortBuffer().get(ja);
+        return ja;
+      }
+      case INT: {
+        int[] ja = new int[n];
+        bb.asIntBuffer().get(ja);
+        return ja;
+      }
+      case LONG: {
+        long[] ja = new long[n];
+        bb.asLongBuffer().get(ja);
+        return ja;
+      }
+      case FLOAT: {
+        float[] ja = new float[n];
+        bb.asFloatBuffer().get(ja);
+        return ja;
+      }
+      default: {
+        double[] ja = new double[n];
+        bb.asDoubleBuffer().get(ja);
+        return ja;
+      }
+    }
+  }
+
+  @Override
+  public Object copyTo1DJavaArray() {
+    return get1DJavaArray(getElementType());
+  }
+
+  /**
+   * Get the data as a big endian heap ByteBuffer, in canonical order.
+   * Always copies, so callers may use array().
+   *
+   * @return heap ByteBuffer
+   */
+  @Override
+  public ByteBuffer getDataAsByteBuffer() {
+    int n = (int) getSize();
+    ByteBuffer result = ByteBuffer.allocate(n << shift);
+    if (indexCalc.isFastIterator() && (storage.order() == ByteOrder.BIG_ENDIAN || dataType == DataType.BYTE)) {
+      ByteBuffer bb = getByteBuffer();
+      bb.limit(n << shift);
+      result.put(bb);
+      result.flip();
+      return result;
+    }
+
+    IndexIterator iter = getIndexIterator();
+    switch (dataType) {
+      case BYTE:
+        while (iter.hasNext()) result.put(iter.getByteNext());
+        break;
+      case SHORT:
+        while (iter.hasNext()) result.putShort(iter.getShortNext());
+        break;
+      case INT:
+        while (iter.hasNext()) result.putInt(iter.getIntNext());
+        break;
+      case LONG:
+        while (iter.hasNext()) result.putLong(iter.getLongNext());
+        break;
+      case FLOAT:
+        while (iter.hasNext()) result.putFloat(iter.getFloatNext());
+        break;
+      case DOUBLE:
+        while (iter.hasNext()) result.putDouble(iter.getDoubleNext());
+        break;
+    }
+    result.flip();
+    return result;
+  }
+
+  @Override
+  public Array reshapeNoCopy(int[] shape) {
+    if (!indexCalc.isFastIterator())
+      return reshape(shape);
+    Index index = Index.factory(shape);
+    if (index.getSize() != getSize())
+      throw new IllegalArgumentException("reshape arrays must have same total size");
+    Array result = new ArrayDirect(dataType, index, storage, null);
+    result.setUnsigned(isUnsigned());
+    return result;
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////
+  // element access
+
+  // integer types, respecting unsigned
+  private long getIntegral(int pos) {
+    switch (dataType) {
+      case BYTE: {
+        byte val = storage.get(pos);
+        return unsigned ? (val & 0xff) : val;
+      }
+      case SHORT: {
+        short val = storage.getShort(pos);
+        return unsigned ? (val & 0xffff) : val;
+      }
+      case INT: {
+        int val = storage.getInt(pos);
+        return unsigned ? (val & 0xffffffffL) : val;
+      }
+      default:
+        return storage.getLong(pos);
+    }
+  }
+
+  public double getDouble(int elem) {
+    int pos = elem << shift;
+    switch (dataType) {
+      case FLOAT:
+        return storage.getFloat(pos);
+      case DOUBLE:
+        return storage.getDouble(pos);
+      default:
+        return (double) getIntegral(pos);
+    }
+  }
+
+  public float getFloat(int elem) {
+    int pos = elem << shift;
+    switch (dataType) {
+      case FLOAT:
+        return storage.getFloat(pos);
+      case DOUBLE:
+        return (float) storage.getDouble(pos);
+      default:
+        return (float) getIntegral(pos);
+    }
+  }
+
+  public long getLong(int elem) {
+    int pos = elem << shift;
+    switch (dataType) {
+      case FLOAT:
+        return (long) storage.getFloat(pos);
+      case DOUBLE:
+        return (long) storage.getDouble(pos);
+      default:
+        return getIntegral(pos);
+    }
+  }
+
+  public int getInt(int elem) {
+    return (int) getLong(elem);
+  }
+
+  public short getShort(int elem) {
+    return (short) getLong(elem);
+  }
+
+  public byte getByte(int elem) {
+    return (byte) getLong(elem);
+  }
+
+  public char getChar(int elem) {
+    return (char) getLong(elem);
+  }
+
+  public boolean getBoolean(int elem) {
+    throw new ForbiddenConversionException();
+  }
+
+  public Object getObject(int elem) {
+    int pos = elem << shift;
+    switch (dataType) {
+      case BYTE:
+        return storage.get(pos);
+      case SHORT:
+        return storage.getShort(pos);
+      case INT:
+        return storage.getInt(pos);
+      case LONG:
+        return storage.getLong(pos);
+      case FLOAT:
+        return storage.getFloat(pos);
+      default:
+        return storage.getDouble(pos);
+    }
+  }
+
+  public void setDouble(int elem, double value) {
+    int pos = elem << shift;
+    switch (dataType) {
+      case FLOAT:
+        storage.putFloat(pos, (float) value);
+        break;
+      case DOUBLE:
+        storage.putDouble(pos, value);
+        break;
+      default:
+        setIntegral(pos, (long) value);
+    }
+  }
+
+  public void setFloat(int elem, float value) {
+    setDouble(elem, value);
+  }
+
+  public void setLong(int elem, long value) {
+    int pos = elem << shift;
+    switch (dataType) {
+      case FLOAT:
+        storage.putFloat(pos, (float) value);
+        break;
+      case DOUBLE:
+        storage.putDouble(pos, (double) value);
+        break;
+      default:
+        setIntegral(pos, value);
+    }
+  }
+
+  private void setIntegral(int pos, long value) {
+    switch (dataType) {
+      case BYTE:
+        storage.put(pos, (byte) value);
+        break;
+      case SHORT:
+        storage.putShort(pos, (short) value);
+        break;
+      case INT:
+        storage.putInt(pos, (int) value);
+        break;
+      default:
+        storage.putLong(pos, value);
+    }
+  }
+
+  public void setInt(int elem, int value) {
+    setLong(elem, value);
+  }
+
+  public void setShort(int elem, short value) {
+    setLong(elem, value);
+  }
+
+  public void setByte(int elem, byte value) {
+    setLong(elem, value);
+  }
+
+  public void setChar(int elem, char value) {
+    setLong(elem, value);
+  }
+
+  public void setBoolean(int elem, boolean value) {
+    throw new ForbiddenConversionException();
+  }
+
+  public void setObject(int elem, Object value) {
+    if (dataType == DataType.FLOAT || dataType == DataType.DOUBLE)
+      setDouble(elem, ((Number) value).doubleValue());
+    else
+      setLong(elem, ((Number) value).longValue());
+  }
+
+  // Index versions
+
+  public double getDouble(Index i) {
+    return getDouble(i.currentElement());
+  }
+
+  public void setDouble(Index i, double value) {
+    setDouble(i.currentElement(), value);
+  }
+
+  public float getFloat(Index i) {
+    return getFloat(i.currentElement());
+  }
+
+  public void setFloat(Index i, float value) {
+    setFloat(i.currentElement(), value);
+  }
+
+  public long getLong(Index i) {
+    return getLong(i.currentElement());
+  }
+
+  public void setLong(Index i, long value) {
+    setLong(i.currentElement(), value);
+  }
+
+  public int getInt(Index i) {
+    return getInt(i.currentElement());
+  }
+
+  public void setInt(Index i, int value) {
+    setInt(i.currentElement(), value);
+  }
+
+  public short getShort(Index i) {
+    return getShort(i.currentElement());
+  }
+
+  public void setShort(Index i, short value) {
+    setShort(i.currentElement(), value);
+  }
+
+  public byte getByte(Index i) {
+    return getByte(i.currentElement());
+  }
+
+  public void setByte(Index i, byte value) {
+    setByte(i.currentElement(), value);
+  }
+
+  public char getChar(Index i) {
+    return getChar(i.currentElement());
+  }
+
+  public void setChar(Index i, char value) {
+    setChar(i.currentElement(), value);
+  }
+
+  public boolean getBoolean(Index i) {
+    throw new ForbiddenConversionException();
+  }
+
+  public void setBoolean(Index i, boolean value) {
+    throw new ForbiddenConversionException();
+  }
+
+  public Object getObject(Index i) {
+    return getObject(i.currentElement());
+  }
+
+  public void setObject(Index i, Object value) {
+    setObject(i.currentElement(), value);
+  }
+
+}
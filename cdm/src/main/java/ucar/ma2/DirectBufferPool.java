@@ -0,0 +1,161 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.ma2;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Formatter;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct (off-heap) ByteBuffers, used as the backing store of ArrayDirect.
+ * Buffers are kept in power-of-two size classes; a released buffer goes back on the free list of its class,
+ * as long as the total pooled bytes stays under maxPooled. Requests whose size class is larger than maxBufferSize
+ * get a buffer of exactly the requested size, which is not pooled.
+ * Thread safe.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class DirectBufferPool {
+  static private final int MIN_SHIFT = 10;  // smallest class is 1K
+  static private final int MAX_SHIFT = 30;  // largest class is 1G
+
+  static private DirectBufferPool defaultPool = new DirectBufferPool(64 << 20, 16 << 20);
+
+  /**
+   * Get the default pool, used by ArrayDirect.factory().
+   * @return the default pool
+   */
+  static public DirectBufferPool getDefault() {
+    return defaultPool;
+  }
+
+  /**
+   * Replace the default pool.
+   * @param maxPooled     max number of bytes kept on the free lists
+   * @param maxBufferSize requests whose size class is bigger than this are allocated but never pooled
+   */
+  static public void setDefault(long maxPooled, int maxBufferSize) {
+    defaultPool = new DirectBufferPool(maxPooled, maxBufferSize);
+  }
+
+  ////////////////////////////////////////////////////////////
+
+  private final long maxPooled;
+  private final int maxBufferSize;
+  private final ConcurrentLinkedQueue<ByteBuffer>[] free;
+  private final AtomicLong pooled = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Constructor.
+   * @param maxPooled     max number of bytes kept on the free lists
+   * @param maxBufferSize requests whose size class is bigger than this are allocated but never pooled
+   */
+  @SuppressWarnings("unchecked")
+  public DirectBufferPool(long maxPooled, int maxBufferSize) {
+    this.maxPooled = maxPooled;
+    this.maxBufferSize = maxBufferSize;
+    free = new ConcurrentLinkedQueue[MAX_SHIFT + 1];
+    for (int i = MIN_SHIFT; i <= MAX_SHIFT; i++)
+      free[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+  }
+
+  /**
+   * Get a direct buffer with at least nbytes capacity.
+   * The buffer has position 0, limit nbytes, and BIG_ENDIAN order; its contents are undefined.
+   *
+   * @param nbytes number of bytes needed
+   * @return direct ByteBuffer
+   */
+  public ByteBuffer acquire(int nbytes) {
+    if (nbytes < 0) throw new IllegalArgumentException("nbytes < 0");
+    int shift = sizeClass(nbytes);
+    if (shift > MAX_SHIFT || (1 << shift) > maxBufferSize) { // release() would not take it back
+      misses.incrementAndGet();
+      return ByteBuffer.allocateDirect(nbytes);
+    }
+
+    ByteBuffer bb = free[shift].poll();
+    if (bb != null) {
+      pooled.addAndGet(-bb.capacity());
+      hits.incrementAndGet();
+    } else {
+      misses.incrementAndGet();
+      bb = ByteBuffer.allocateDirect(1 << shift);
+    }
+    bb.clear();
+    bb.limit(nbytes);
+    bb.order(ByteOrder.BIG_ENDIAN);
+    return bb;
+  }
+
+  /**
+   * Return a buffer obtained from acquire() to the pool. The caller must not use it afterwards.
+   * Buffers not from this pool are ignored.
+   *
+   * @param bb return this buffer
+   */
+  public void release(ByteBuffer bb) {
+    if (bb == null || !bb.isDirect()) return;
+    int cap = bb.capacity();
+    if (cap > maxBufferSize || cap > (1 << MAX_SHIFT) || cap < (1 << MIN_SHIFT) || Integer.bitCount(cap) != 1) return; // not ours
+    if (pooled.addAndGet(cap) > maxPooled) {
+      pooled.addAndGet(-cap); // let the GC have it
+      return;
+    }
+    free[Integer.numberOfTrailingZeros(cap)].add(bb);
+  }
+
+  /**
+   * Number of bytes currently held on the free lists.
+   * @return pooled bytes
+   */
+  public long getPooledBytes() {
+    return pooled.get();
+  }
+
+  public void showStats(Formatter f) {
+    f.format("DirectBufferPool: pooled=%d bytes (max %d) hits=%d misses=%d%n", pooled.get(), maxPooled, hits.get(), misses.get());
+  }
+
+  // smallest power of two >= nbytes, but at least 1 << MIN_SHIFT
+  private int sizeClass(int nbytes) {
+    int shift = (nbytes <= 1) ? 0 : 32 - Integer.numberOfLeadingZeros(nbytes - 1);
+    return Math.max(shift, MIN_SHIFT);
+  }
+
+}
@@ -33,10 +33,20 @@
 package ucar.nc2;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Formatter;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import ucar.ma2.*;
 import ucar.nc2.jni.netcdf.Nc4Chunking;
@@ -62,6 +72,30 @@ public class FileWriter2 {
   static private final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FileWriter2.class);
   static private final long maxSize = 50 * 1000 * 1000; // 50 Mbytes
   static private boolean debug = false, debugWrite = false, debugChunk = false;
+  static private int defaultReadThreads = 0;
+  static private long defaultMemoryBudget = maxSize;
+
+  /**
+   * Set the default number of threads that read the data while it is being written.
+   * 0 means read and write in turn, in the calling thread.
+   * 1 reads the next chunk while the previous one is written.
+   * More than 1 reads chunks, from the same or different variables, in parallel; only use this if the
+   * input files support concurrent reads.
+   *
+   * @param n number of read threads, default 0
+   */
+  public static void setDefaultReadThreads(int n) {
+    defaultReadThreads = Math.max(0, n);
+  }
+
+  /**
+   * Set the default bound on the bytes of data that have been read but not yet written.
+   *
+   * @param bytes memory budget, default 50 Mbytes
+   */
+  public static void setDefaultMemoryBudget(long bytes) {
+    defaultMemoryBudget = bytes;
+  }
 
   /**
    * Set debugging flags
@@ -84,6 +118,8 @@ public class FileWriter2 {
   private final Map<String, Dimension> gdimHash = new HashMap<String, Dimension>(); // name, newDim : global dimensions (classic mode)
 
   private Nc4Chunking chunker = new Nc4ChunkingStrategyImpl();
+  private int readThreads = defaultReadThreads;
+  private long memoryBudget = defaultMemoryBudget;
 
   /**
    * Use this constructor to copy entire file. Use this.write() to do actual copy.
@@ -111,6 +147,26 @@ public class FileWriter2 {
     return writer;
   }
 
+  /**
+   * Set the number of threads that read the data while it is being written, see setDefaultReadThreads().
+   *
+   * @param readThreads number of read threads; 0 means read and write in turn, in the calling thread.
+   */
+  public void setReadThreads(int readThreads) {
+    this.readThreads = Math.max(0, readThreads);
+  }
+
+  /**
+   * Set the bound on the bytes of data that have been read but not yet written.
+   * Large variables are copied in chunks of at most this, or half of this when there are read threads,
+   * so that one chunk can be read while another is written.
+   *
+   * @param memoryBudget in bytes
+   */
+  public void setMemoryBudget(long memoryBudget) {
+    this.memoryBudget = memoryBudget;
+  }
+
   /////////////////////////////////////////////////////////////////////////////////////////////
   // might be better to push these next up int NetcdfCFWriter, but we want to use copyVarData
 
@@ -359,7 +415,7 @@ public class FileWriter2 {
 
   /**
    * Write data from varList into new file. Read/Write a maximum of  maxSize bytes at a time.
-   * When theres a record variable, its much more efficient to use it.
+   * When theres a record variable, its much more efficient to use it. Its data is copied last, in slabs of whole records.
    *
    * @param oldVars   list of variables from the original file, with data in them
    * @param recordVar the record variable from the original file, or null means dont use record variables
@@ -371,9 +427,8 @@ public class FileWriter2 {
 
     boolean useRecordDimension = (recordVar != null);
 
-    // write non-record data
-    double total = 0;
-    int countVars = 0;
+    long chunkSize = Math.max(1, Math.min(maxSize, (readThreads > 0) ? memoryBudget / 2 : memoryBudget));
+    List<CopyTask> tasks = new ArrayList<CopyTask>();
     for (Variable oldVar : oldVars) {
       if (useRecordDimension && oldVar.isUnlimited())
         continue; // skip record variables
@@ -382,49 +437,17 @@ public class FileWriter2 {
 
       if (debug)
         System.out.println("write var= " + oldVar.getShortName() + " size = " + oldVar.getSize() + " type=" + oldVar.getDataType());
-      if (cancel != null)
-        cancel.setProgress("writing " + oldVar.getShortName(), countVars++);
-
-      long size = oldVar.getSize() * oldVar.getElementSize();
-      total += size;
-
-      if (size <= maxSize) {
-        copyAll(oldVar, varMap.get(oldVar));
-      } else {
-        copySome(oldVar, varMap.get(oldVar), maxSize, cancel);
-      }
-
-      if (cancel != null && cancel.isCancel()) return total;
+      addCopyTasks(tasks, oldVar, varMap.get(oldVar), chunkSize);
     }
 
-    // write record data
+    // record data, after the non-record data; writing the structure only writes the members that are in the new file
     if (useRecordDimension) {
-      int[] origin = new int[]{0};
-      int[] size = new int[]{1};
-
-      int nrecs = (int) recordVar.getSize();
-      int sdataSize = recordVar.getElementSize();
-      Variable recordVarNew = varMap.get(recordVar);
-
-      double totalRecordBytes = 0;
-      for (int count = 0; count < nrecs; count++) {
-        origin[0] = count;
-        try {
-          Array recordData = recordVar.read(origin, size);
-          writer.write(recordVarNew, origin, recordData);  // rather magic here - only writes the ones in ncfile !!
-          if (debug && (count == 0)) System.out.println("write record size = " + sdataSize);
-        } catch (InvalidRangeException e) {
-          e.printStackTrace();
-          break;
-        }
-        totalRecordBytes += sdataSize;
-        if (cancel != null && cancel.isCancel()) return total;
-      }
-      total += totalRecordBytes;
-      totalRecordBytes /= 1000 * 1000;
-      if (debug) System.out.println("write record var; total = " + totalRecordBytes + " Mbytes # recs=" + nrecs);
+      if (debug)
+        System.out.println("write record var; # recs=" + recordVar.getSize() + " record size = " + recordVar.getElementSize());
+      addCopyTasks(tasks, recordVar, varMap.get(recordVar), chunkSize);
     }
-    return total;
+
+    return (readThreads > 0) ? copyPipelined(tasks, cancel) : copyInTurn(tasks, cancel);
   }
 
   // copy all the data in oldVar to the newVar
@@ -444,61 +467,187 @@ public class FileWriter2 {
     }
   }
 
+  // one read and write of the data of a variable, or of a contiguous chunk of it
+  private static class CopyTask {
+    final Variable oldVar, newVar;
+    final int[] origin, shape; // null means all of the data
+    final long nbytes;
+
+    CopyTask(Variable oldVar, Variable newVar, int[] origin, int[] shape, long nbytes) {
+      this.oldVar = oldVar;
+      this.newVar = newVar;
+      this.origin = origin;
+      this.shape = shape;
+      this.nbytes = nbytes;
+    }
+
+    Array read() throws IOException, InvalidRangeException {
+      return (origin == null) ? oldVar.read() : oldVar.read(origin, shape);
+    }
+
+    @Override
+    public String toString() {
+      if (origin == null) return oldVar.getShortName();
+      Formatter f = new Formatter();
+      f.format("%s(", oldVar.getShortName());
+      for (int i = 0; i < origin.length; i++)
+        f.format("%s%d:%d", (i == 0) ? "" : ",", origin[i], origin[i] + shape[i] - 1);
+      f.format(")");
+      return f.toString();
+    }
+  }
+
   /**
-   * Copies data from {@code oldVar} to {@code newVar}. The writes are done in a series of chunks no larger than
+   * Divide the copy of {@code oldVar} to {@code newVar} into contiguous chunks no larger than
    * {@code maxChunkSize} bytes.
-   *
-   * @param oldVar       a variable from the original file to copy data from.
-   * @param newVar       a variable from the original file to copy data from.
-   * @param maxChunkSize the size, <b>in bytes</b>, of the largest chunk to write.
-   * @param cancel      allow user to cancel, may be null.
-   * @throws IOException if an I/O error occurs.
    */
-  private void copySome(Variable oldVar, Variable newVar, long maxChunkSize, CancelTask cancel) throws IOException {
-    long maxChunkElems = maxChunkSize / oldVar.getElementSize();
-    long byteWriteTotal = 0;
+  private void addCopyTasks(List<CopyTask> tasks, Variable oldVar, Variable newVar, long maxChunkSize) {
+    long size = oldVar.getSize() * oldVar.getElementSize();
+    if (size <= maxChunkSize) {
+      tasks.add(new CopyTask(oldVar, newVar, null, null, size));
+      return;
+    }
 
+    long maxChunkElems = Math.max(1, maxChunkSize / oldVar.getElementSize());
     ChunkingIndex index = new ChunkingIndex(oldVar.getShape());
     while (index.currentElement() < index.getSize()) {
-      try {
-        int[] chunkOrigin = index.getCurrentCounter();
-        int[] chunkShape = index.computeChunkShape(maxChunkElems);
-
-        if (cancel != null) cancel.setProgress("Reading chunk "+new Section(chunkOrigin, chunkShape)+" from variable: " + oldVar.getShortName(), -1);
-        /* writeProgressEvent.setWriteStatus("Reading chunk from variable: " + oldVar.getShortName());
-        if (progressListeners != null) {
-          for (FileWriterProgressListener listener : progressListeners) {
-            listener.writeProgress(writeProgressEvent);
-          }
-        } */
-
-        Array data = oldVar.read(chunkOrigin, chunkShape);
-        if (!version.isNetdf4format() && oldVar.getDataType() == DataType.STRING) {
-          data = convertToChar(newVar, data);
-        }
+      int[] chunkOrigin = index.getCurrentCounter();
+      int[] chunkShape = index.computeChunkShape(maxChunkElems);
+      long nelems = Index.computeSize(chunkShape);
+      tasks.add(new CopyTask(oldVar, newVar, chunkOrigin, chunkShape, nelems * oldVar.getElementSize()));
+      index.setCurrentCounter(index.currentElement() + (int) nelems);
+    }
+  }
 
-        if (data.getSize() > 0) {// zero when record dimension = 0
-          if (cancel != null) cancel.setProgress("Writing chunk "+new Section(chunkOrigin, chunkShape)+" from variable: " + oldVar.getShortName(), -1);
+  // read, then write, each task in the calling thread
+  private long copyInTurn(List<CopyTask> tasks, CancelTask cancel) throws IOException {
+    long totalBytes = totalBytes(tasks);
+    long start = System.currentTimeMillis();
+    long done = 0;
+    for (CopyTask task : tasks) {
+      try {
+        write(task, task.read());
+      } catch (InvalidRangeException e) {
+        throw new IOException(e.getMessage() + " for Variable " + task.oldVar.getFullName());
+      }
+      done += task.nbytes;
+      showProgress(cancel, task, done, totalBytes, start);
+      if (cancel != null && cancel.isCancel()) break;
+    }
+    return done;
+  }
 
-          writer.write(newVar, chunkOrigin, data);
-          if (debugWrite)
-            System.out.println(" write " + data.getSize() + " bytes at " + new Section(chunkOrigin, chunkShape));
+  /*
+   * The calling thread writes the tasks in order, while readThreads read the following tasks.
+   * The bytes read but not yet written are kept within memoryBudget, except that the next task is always read.
+   */
+  private long copyPipelined(List<CopyTask> tasks, CancelTask cancel) throws IOException {
+    long totalBytes = totalBytes(tasks);
+    long start = System.currentTimeMillis();
+    long done = 0;
+
+    ExecutorService exec = Executors.newFixedThreadPool(readThreads);
+    LinkedList<Future<Array>> inFlight = new LinkedList<Future<Array>>();
+    long inFlightBytes = 0;
+    int next = 0;
+    try {
+      for (int i = 0; i < tasks.size(); i++) {
+        while (next < tasks.size() && (next == i || inFlightBytes + tasks.get(next).nbytes <= memoryBudget)) {
+          final CopyTask readTask = tasks.get(next++);
+          inFlight.add(exec.submit(new Callable<Array>() {
+            public Array call() throws Exception {
+              return readTask.read();
+            }
+          }));
+          inFlightBytes += readTask.nbytes;
+        }
 
-          byteWriteTotal += data.getSize();
+        CopyTask task = tasks.get(i);
+        Array data = getResult(inFlight.removeFirst(), task);
+        try {
+          write(task, data);
+        } catch (InvalidRangeException e) {
+          throw new IOException(e.getMessage() + " for Variable " + task.oldVar.getFullName());
         }
+        inFlightBytes -= task.nbytes;
+        done += task.nbytes;
+        showProgress(cancel, task, done, totalBytes, start);
+        if (cancel != null && cancel.isCancel()) break;
+      }
 
-        index.setCurrentCounter(index.currentElement() + (int) Index.computeSize(chunkShape));
-        if (cancel != null && cancel.isCancel()) return;
+    } finally {
+      // dont interrupt the reads: an interrupted FileChannel read closes the channel, ie the input file
+      for (Future<Array> f : inFlight) f.cancel(false);
+      exec.shutdown();
+      awaitTermination(exec);
+    }
+    return done;
+  }
 
-      } catch (InvalidRangeException e) {
-        e.printStackTrace();
-        throw new IOException(e.getMessage());
+  // wait for the reads that have started to finish
+  private void awaitTermination(ExecutorService exec) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        if (exec.awaitTermination(1, TimeUnit.SECONDS)) break;
+      } catch (InterruptedException e) {
+        interrupted = true;
       }
     }
+    if (interrupted) Thread.currentThread().interrupt();
+  }
+
+  private Array getResult(Future<Array> f, CopyTask task) throws IOException {
+    try {
+      return f.get();
+
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException("interrupted reading " + task);
+
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      throw new IOException(cause.getMessage() + " for Variable " + task.oldVar.getFullName(), cause);
+    }
+  }
+
+  private void write(CopyTask task, Array data) throws IOException, InvalidRangeException {
+    int[] origin = task.origin;
+    if (!version.isNetdf4format() && task.oldVar.getDataType() == DataType.STRING) {
+      data = convertToChar(task.newVar, data);
+      if (origin != null) origin = Arrays.copyOf(origin, origin.length + 1); // the char dimension
+    }
+    if (data.getSize() == 0) return; // zero when record dimension = 0
+
+    if (origin == null)
+      writer.write(task.newVar, data);
+    else
+      writer.write(task.newVar, origin, data);
+    if (debugWrite)
+      System.out.println(" write " + data.getSize() + " elements of " + task);
+  }
+
+  private long totalBytes(List<CopyTask> tasks) {
+    long total = 0;
+    for (CopyTask task : tasks) total += task.nbytes;
+    return total;
+  }
+
+  private void showProgress(CancelTask cancel, CopyTask task, long done, long totalBytes, long start) {
+    if (cancel == null) return;
+    double secs = (System.currentTimeMillis() - start) / 1000.0;
+    double mbytes = done / 1000.0 / 1000.0;
+    String rate = (secs > 0) ? String.format("%.1f", mbytes / secs) : "-";
+    cancel.setProgress(String.format("wrote %s: %.1f of %.1f Mbytes, %s Mbytes/sec", task, mbytes, totalBytes / 1000.0 / 1000.0, rate),
+            (totalBytes == 0) ? 100 : (int) (100 * done / totalBytes));
   }
 
   private Array convertToChar(Variable newVar, Array oldData) {
-    ArrayChar newData = (ArrayChar) Array.factory(DataType.CHAR, newVar.getShape());
+    int[] shape = Arrays.copyOf(oldData.getShape(), oldData.getRank() + 1); // may be a chunk of newVar
+    shape[oldData.getRank()] = newVar.getShape(newVar.getRank() - 1);
+    ArrayChar newData = (ArrayChar) Array.factory(DataType.CHAR, shape);
     Index ima = newData.getIndex();
     IndexIterator ii = oldData.getIndexIterator();
     while (ii.hasNext()) {
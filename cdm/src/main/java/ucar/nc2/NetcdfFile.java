@@ -39,6 +39,7 @@ import ucar.ma2.*;
 import ucar.nc2.util.rc.RC;
 import ucar.unidata.io.UncompressInputStream;
 import ucar.unidata.io.InMemoryRandomAccessFile;
+import ucar.unidata.io.MMapRandomAccessFile;
 import ucar.unidata.io.bzip2.CBZip2InputStream;
 import ucar.nc2.util.DiskCache;
 import ucar.nc2.util.CancelTask;
@@ -403,6 +404,7 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable {
    *                    <li>local netcdf-4 filename (with a file: prefix or no prefix)
    *                    <li>local hdf-5 filename (with a file: prefix or no prefix)
    *                    <li>local iosp filename (with a file: prefix or no prefix)
+   *                    <li>local filename with a mmap: prefix, to memory map the file (see ucar.unidata.io.MMapRandomAccessFile)
    *                    </ol>  http://thredds.ucar.edu/thredds/fileServer/grib/NCEP/GFS/Alaska_191km/files/GFS_Alaska_191km_20130416_0600.grib1
    *                    If file ends with ".Z", ".zip", ".gzip", ".gz", or ".bz2", it will uncompress/unzip and write to new file without the suffix,
    *                    then use the uncompressed file. It will look for the uncompressed file before it does any of that. Generally it prefers to
@@ -497,7 +499,7 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable {
 
     if (bufferSize <= 0)
       bufferSize = default_buffersize;
-    ucar.unidata.io.RandomAccessFile raf = new ucar.unidata.io.RandomAccessFile(uriString, "r", bufferSize);
+    ucar.unidata.io.RandomAccessFile raf = ucar.unidata.io.RandomAccessFile.openReadOnly(uriString, bufferSize);
 
     NetcdfFile result = new NetcdfFile(spi, raf, location, cancelTask);
 
@@ -529,6 +531,12 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable {
       raf = new InMemoryRandomAccessFile(uriString, contents);
 
     } else {
+      boolean mmap = MMapRandomAccessFile.getUseMMap();
+      if (uriString.startsWith("mmap:")) { // memory map this file
+        uriString = uriString.substring(5);
+        mmap = true;
+      }
+
       // get rid of crappy microsnot \ replace with happy /
       uriString = StringUtil2.replace(uriString, '\\', "/");
 
@@ -547,13 +555,13 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable {
 
       if (uncompressedFileName != null) {
         // open uncompressed file as a RandomAccessFile.
-        raf = new ucar.unidata.io.RandomAccessFile(uncompressedFileName, "r", buffer_size);
-        //raf = new ucar.unidata.io.MMapRandomAccessFile(uncompressedFileName, "r");
+        raf = mmap ? new MMapRandomAccessFile(uncompressedFileName, buffer_size) :
+                new ucar.unidata.io.RandomAccessFile(uncompressedFileName, "r", buffer_size);
 
       } else {
         // normal case - not compressed
-        raf = new ucar.unidata.io.RandomAccessFile(uriString, "r", buffer_size);
-        //raf = new ucar.unidata.io.MMapRandomAccessFile(uriString, "r");
+        raf = mmap ? new MMapRandomAccessFile(uriString, buffer_size) :
+                new ucar.unidata.io.RandomAccessFile(uriString, "r", buffer_size);
       }
     }
 
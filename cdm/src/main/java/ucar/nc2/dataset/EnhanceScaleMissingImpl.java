@@ -36,7 +36,11 @@ import ucar.ma2.*;
 import ucar.nc2.*;
 import ucar.nc2.constants.CDM;
 
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Implementation of EnhanceScaleMissing for missing data, unsigned, and scale/offset packed data.
@@ -78,6 +82,20 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
 
   private boolean isUnsigned;
 
+  // converted value, or NaN if missing, for each bit pattern of byte data; index is 1 if unsigned
+  private AtomicReferenceArray<double[]> lookup = new AtomicReferenceArray<double[]>(2);
+  // what the short tables depend on, so that variables with the same packing share them; index is 1 if unsigned
+  private AtomicReferenceArray<LookupKey> shortLookupKeys = new AtomicReferenceArray<LookupKey>(2);
+  static private final int SHORT_LOOKUP_MIN = 16 * 1024; // dont bother building the 64K short table for smaller arrays
+
+  // the 64K short tables (512 KB each) are shared by all variables, and only the most recently used are kept
+  static private final int SHORT_LOOKUP_MAX = 16;
+  static private final Map<LookupKey, double[]> shortLookups = new LinkedHashMap<LookupKey, double[]>(16, .75f, true) {
+    protected boolean removeEldestEntry(Map.Entry<LookupKey, double[]> eldest) {
+      return size() > SHORT_LOOKUP_MAX;
+    }
+  };
+
 
   /**
    * Constructor, when you dont want anything done.
@@ -430,6 +448,7 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
    */
   public void setUseNaNs(boolean useNaNs) {
     this.useNaNs = useNaNs;
+    resetLookup();
   }
 
   /**
@@ -444,6 +463,7 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
    */
   public void setFillValueIsMissing(boolean b) {
     this.fillValueIsMissing = b;
+    resetLookup();
   }
 
   /**
@@ -451,6 +471,7 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
    */
   public void setInvalidDataIsMissing(boolean b) {
     this.invalidDataIsMissing = b;
+    resetLookup();
   }
 
   /**
@@ -458,6 +479,7 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
    */
   public void setMissingDataIsMissing(boolean b) {
     this.missingDataIsMissing = b;
+    resetLookup();
   }
 
   /**
@@ -631,6 +653,9 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
     if (debugRead) System.out.println("convertScaleOffset ");
 
     Array out = Array.factory(convertedDataType.getPrimitiveClassType(), in.getShape());
+    if (convertScaleOffsetFast(in, out))
+      return out;
+
     IndexIterator iterIn = in.getIndexIterator();
     IndexIterator iterOut = out.getIndexIterator();
 
@@ -651,6 +676,194 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
     return out;
   }
 
+  /*
+   * Tight loops over the backing java arrays, for numeric data converted to float or double.
+   * Byte data, and large enough short data, is converted through a lookup table, which already has the missing values
+   * set to NaN. Otherwise the invariant tests on the output type and checkMissing get hoisted out of the loops by the JIT.
+   * @return false if not handled
+   */
+  private boolean convertScaleOffsetFast(Array in, Array out) {
+    Object outStorage = out.getStorage();
+    double[] dout = (outStorage instanceof double[]) ? (double[]) outStorage : null;
+    float[] fout = (outStorage instanceof float[]) ? (float[]) outStorage : null;
+    if (dout == null && fout == null) return false;
+
+    Class inType = in.getElementType();
+    boolean unsigned = isUnsigned || in.isUnsigned();
+    boolean checkMissing = useNaNs && hasMissing();
+    int n = (int) in.getSize();
+
+    if (inType == byte.class) {
+      byte[] src = (byte[]) in.get1DJavaArray(byte.class);
+      double[] table = getByteLookup(unsigned);
+      if (dout != null) {
+        for (int i = 0; i < n; i++)
+          dout[i] = table[src[i] & 0xff];
+      } else {
+        for (int i = 0; i < n; i++)
+          fout[i] = (float) table[src[i] & 0xff];
+      }
+
+    } else if (inType == short.class) {
+      short[] src = (short[]) in.get1DJavaArray(short.class);
+      double[] table = getShortLookup(unsigned, n >= SHORT_LOOKUP_MIN);
+      if (table != null) {
+        if (dout != null) {
+          for (int i = 0; i < n; i++)
+            dout[i] = table[src[i] & 0xffff];
+        } else {
+          for (int i = 0; i < n; i++)
+            fout[i] = (float) table[src[i] & 0xffff];
+        }
+      } else {
+        for (int i = 0; i < n; i++) {
+          double val = scale * (unsigned ? (src[i] & 0xffff) : src[i]) + offset;
+          if (checkMissing && isMissing_(val)) val = Double.NaN;
+          if (dout != null) dout[i] = val;
+          else fout[i] = (float) val;
+        }
+      }
+
+    } else if (inType == int.class) {
+      int[] src = (int[]) in.get1DJavaArray(int.class);
+      for (int i = 0; i < n; i++) {
+        double val = scale * (unsigned ? (src[i] & 0xffffffffL) : src[i]) + offset;
+        if (checkMissing && isMissing_(val)) val = Double.NaN;
+        if (dout != null) dout[i] = val;
+        else fout[i] = (float) val;
+      }
+
+    } else if (inType == long.class) {
+      long[] src = (long[]) in.get1DJavaArray(long.class);
+      for (int i = 0; i < n; i++) {
+        double val = scale * src[i] + offset;
+        if (checkMissing && isMissing_(val)) val = Double.NaN;
+        if (dout != null) dout[i] = val;
+        else fout[i] = (float) val;
+      }
+
+    } else if (inType == float.class) {
+      float[] src = (float[]) in.get1DJavaArray(float.class);
+      for (int i = 0; i < n; i++) {
+        double val = scale * src[i] + offset;
+        if (checkMissing && isMissing_(val)) val = Double.NaN;
+        if (dout != null) dout[i] = val;
+        else fout[i] = (float) val;
+      }
+
+    } else if (inType == double.class) {
+      double[] src = (double[]) in.get1DJavaArray(double.class);
+      for (int i = 0; i < n; i++) {
+        double val = scale * src[i] + offset;
+        if (checkMissing && isMissing_(val)) val = Double.NaN;
+        if (dout != null) dout[i] = val;
+        else fout[i] = (float) val;
+      }
+
+    } else {
+      return false;
+    }
+
+    return true;
+  }
+
+  // converted value, or NaN if missing, for every byte bit pattern
+  private double[] getByteLookup(boolean unsigned) {
+    int which = unsigned ? 1 : 0;
+    double[] table = lookup.get(which);
+    if (table == null) {
+      table = makeLookup(false, unsigned);
+      lookup.set(which, table);
+    }
+    return table;
+  }
+
+  /*
+   * Converted value, or NaN if missing, for every short bit pattern.
+   * The table is shared with all variables that convert the same way.
+   * @param build build the table if its not already there, else return null
+   */
+  double[] getShortLookup(boolean unsigned, boolean build) {
+    int which = unsigned ? 1 : 0;
+    LookupKey key = shortLookupKeys.get(which);
+    if (key == null) {
+      key = makeLookupKey(unsigned);
+      shortLookupKeys.set(which, key);
+    }
+
+    synchronized (shortLookups) {
+      double[] table = shortLookups.get(key);
+      if (table != null || !build) return table;
+    }
+
+    double[] table = makeLookup(true, unsigned); // outside the lock; another thread may build the same one
+    synchronized (shortLookups) {
+      shortLookups.put(key, table);
+    }
+    return table;
+  }
+
+  private double[] makeLookup(boolean isShort, boolean unsigned) {
+    boolean checkMissing = useNaNs && hasMissing();
+    int size = isShort ? 1 << 16 : 1 << 8;
+    double[] table = new double[size];
+    for (int bits = 0; bits < size; bits++) {
+      int raw;
+      if (unsigned) raw = bits;
+      else raw = isShort ? (short) bits : (byte) bits;
+      double val = scale * raw + offset;
+      table[bits] = (checkMissing && isMissing_(val)) ? Double.NaN : val;
+    }
+    return table;
+  }
+
+  // everything that makeLookup() depends on
+  private LookupKey makeLookupKey(boolean unsigned) {
+    boolean checkMissing = useNaNs && hasMissing();
+    boolean useMissing = checkMissing && missingDataIsMissing && hasMissingValue;
+    boolean useFill = checkMissing && fillValueIsMissing && hasFillValue;
+    boolean useValid = checkMissing && invalidDataIsMissing;
+
+    double[] params = new double[11 + (useMissing ? missingValue.length : 0)];
+    params[0] = unsigned ? 1 : 0;
+    params[1] = scale;
+    params[2] = offset;
+    params[3] = useFill ? 1 : 0;
+    params[4] = useFill ? fillValue : 0;
+    params[5] = useValid && hasValidRange ? 1 : 0;
+    params[6] = useValid && hasValidMin ? 1 : 0;
+    params[7] = useValid && hasValidMax ? 1 : 0;
+    params[8] = useValid ? valid_min : 0;
+    params[9] = useValid ? valid_max : 0;
+    params[10] = useMissing ? 1 : 0;
+    if (useMissing)
+      System.arraycopy(missingValue, 0, params, 11, missingValue.length);
+    return new LookupKey(params);
+  }
+
+  private void resetLookup() {
+    lookup = new AtomicReferenceArray<double[]>(2);
+    shortLookupKeys = new AtomicReferenceArray<LookupKey>(2);
+  }
+
+  static private class LookupKey {
+    private final double[] params;
+
+    LookupKey(double[] params) {
+      this.params = params;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return (o instanceof LookupKey) && Arrays.equals(params, ((LookupKey) o).params);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(params);
+    }
+  }
+
   private void convertScaleOffsetUnsignedByte(IndexIterator iterIn, IndexIterator iterOut) {
     boolean checkMissing = useNaNs && hasMissing();
     while (iterIn.hasNext()) {
@@ -682,24 +895,27 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
    * Translate missing data to NaNs. Data must be DOUBLE or FLOAT
    *
    * @param in convert this array
-   * @return same array, with missing values replaced by NaNs
+   * @return same array (or a copy in canonical order), with missing values replaced by NaNs
    */
   private Array convertMissing(Array in) {
     if (debugRead) System.out.println("convertMissing ");
 
-    IndexIterator iterIn = in.getIndexIterator();
+    // tight loops over the data in canonical order; if that had to be copied, return the copy
     if (in.getElementType() == double.class) {
-      while (iterIn.hasNext()) {
-        double val = iterIn.getDoubleNext();
-        if (isMissing_(val))
-          iterIn.setDoubleCurrent(Double.NaN);
+      double[] vals = (double[]) in.get1DJavaArray(double.class);
+      for (int i = 0; i < vals.length; i++) {
+        if (isMissing_(vals[i]))
+          vals[i] = Double.NaN;
       }
+      return (vals == in.getStorage()) ? in : Array.factory(double.class, in.getShape(), vals);
+
     } else if (in.getElementType() == float.class) {
-      while (iterIn.hasNext()) {
-        float val = iterIn.getFloatNext();
-        if (isMissing_(val))
-          iterIn.setFloatCurrent(Float.NaN);
+      float[] vals = (float[]) in.get1DJavaArray(float.class);
+      for (int i = 0; i < vals.length; i++) {
+        if (isMissing_(vals[i]))
+          vals[i] = Float.NaN;
       }
+      return (vals == in.getStorage()) ? in : Array.factory(float.class, in.getShape(), vals);
     }
     return in;
   }
@@ -312,7 +312,7 @@ public class GridCoordSys extends CoordinateSystem implements ucar.nc2.dt.GridCo
 
   /////////////////////////////////////////////////////////////////////////////
   private ProjectionImpl proj;
-  private GridCoordinate2D g2d;
+  private volatile GridCoordinate2D g2d; // lazy, only for 2D horiz axes
   private CoordinateAxis horizXaxis, horizYaxis;
   private CoordinateAxis1D vertZaxis, ensembleAxis;
   private CoordinateAxis1DTime timeTaxis, runTimeAxis;
@@ -840,6 +840,19 @@ public class GridCoordSys extends CoordinateSystem implements ucar.nc2.dt.GridCo
     this.horizStaggerType = horizStaggerType;
   }
 
+  // shared by all threads, so that the CellIndex is built only once
+  private GridCoordinate2D getGridCoordinate2D() {
+    GridCoordinate2D result = g2d;
+    if (result == null) {
+      synchronized (this) {
+        if (g2d == null)
+          g2d = new GridCoordinate2D((CoordinateAxis2D) horizYaxis, (CoordinateAxis2D) horizXaxis);
+        result = g2d;
+      }
+    }
+    return result;
+  }
+
   /**
    * Given a point in x,y coordinate space, find the x,y index in the coordinate system.
    *
@@ -859,8 +872,7 @@ public class GridCoordSys extends CoordinateSystem implements ucar.nc2.dt.GridCo
       return result;
 
     } else if ((horizXaxis instanceof CoordinateAxis2D) && (horizYaxis instanceof CoordinateAxis2D)) {
-      if (g2d == null)
-        g2d = new GridCoordinate2D((CoordinateAxis2D) horizYaxis, (CoordinateAxis2D) horizXaxis);
+      GridCoordinate2D g2d = getGridCoordinate2D();
       int[] result2 = new int[2];
       boolean found = g2d.findCoordElement(y_coord, x_coord, result2);
       if (found) {
@@ -897,8 +909,7 @@ public class GridCoordSys extends CoordinateSystem implements ucar.nc2.dt.GridCo
       return result;
 
     } else if ((horizXaxis instanceof CoordinateAxis2D) && (horizYaxis instanceof CoordinateAxis2D)) {
-      if (g2d == null)
-        g2d = new GridCoordinate2D((CoordinateAxis2D) horizYaxis, (CoordinateAxis2D) horizXaxis);
+      GridCoordinate2D g2d = getGridCoordinate2D();
 
       int[] result2 = new int[2];
       g2d.findCoordElement(y_coord, x_coord, result2); // returns best guess
@@ -927,6 +938,46 @@ public class GridCoordSys extends CoordinateSystem implements ucar.nc2.dt.GridCo
     return findXYindexFromCoord(pp.getX(), pp.getY(), result);
   }
 
+  /**
+   * Given many lat,lon points, find the x,y index of each in the coordinate system.
+   * When the horizontal axes are 2D, this is much faster than calling findXYindexFromLatLon() for each point.
+   *
+   * @param lat    latitude positions.
+   * @param lon    longitude positions, same length as lat.
+   * @param xindex put the x index of each point here, -1 if out of range. same length as lat.
+   * @param yindex put the y index of each point here, -1 if out of range. same length as lat.
+   * @return number of points inside the grid
+   */
+  public int findXYindexFromLatLon(double[] lat, double[] lon, int[] xindex, int[] yindex) {
+    Projection dataProjection = getProjection();
+    int n = lat.length;
+    double[] x = new double[n];
+    double[] y = new double[n];
+    LatLonPointImpl llpt = new LatLonPointImpl();
+    ProjectionPointImpl pp = new ProjectionPointImpl();
+    for (int i = 0; i < n; i++) {
+      llpt.set(lat[i], lon[i]);
+      dataProjection.latLonToProj(llpt, pp);
+      x[i] = pp.getX();
+      y[i] = pp.getY();
+    }
+
+    if ((horizXaxis instanceof CoordinateAxis2D) && (horizYaxis instanceof CoordinateAxis2D)) {
+      GridCoordinate2D g2d = getGridCoordinate2D();
+      return g2d.findCoordElements(y, x, yindex, xindex);
+    }
+
+    int count = 0;
+    int[] result = new int[2];
+    for (int i = 0; i < n; i++) {
+      findXYindexFromCoord(x[i], y[i], result);
+      xindex[i] = result[0];
+      yindex[i] = result[1];
+      if ((result[0] >= 0) && (result[1] >= 0)) count++;
+    }
+    return count;
+  }
+
   /**
    * Given a lat,lon point, find the x,y index in the coordinate system.
    * If outside the range, the closest point is returned
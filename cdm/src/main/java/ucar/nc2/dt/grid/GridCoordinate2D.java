@@ -43,8 +43,9 @@ import java.io.IOException;
 /**
  * 2D Coordinate System has lat(x,y) and lon(x,y).
  * This class implements finding the index (i,j) from (lat, lon) coord.
- * This is for "one-off" computation, not a systematic lookup table for all points in a pixel array.
- * Hueristic search of the 2D space for the cell that contains the point.
+ * The first lookup builds a table of which cells are near each (lat, lon), so that each point after that
+ * is checked against only a few cells. Use findCoordElements() for many points at once, eg all the points in a pixel array.
+ * If no cell contains the point, a hueristic search of the 2D space gives the best guess.
  *
  * @author caron
  * @since Jul 10, 2009
@@ -58,7 +59,9 @@ public class GridCoordinate2D {
   private final CoordinateAxis2D latCoord, lonCoord;
   private final int nrows, ncols;
   private ArrayDouble.D2 latEdge, lonEdge;
-  private MAMath.MinMax latMinMax, lonMinMax;
+  private MAMath.MinMax latMinMax;
+  private volatile MAMath.MinMax lonMinMax; // set last
+  private volatile CellIndex cellIndex;     // lazy
 
   GridCoordinate2D(CoordinateAxis2D latCoord, CoordinateAxis2D lonCoord) {
     this.latCoord = latCoord;
@@ -75,12 +78,15 @@ public class GridCoordinate2D {
   private void findBounds() {
     if (lonMinMax != null) return;
 
-    lonEdge = lonCoord.getXEdges();
-    latEdge = latCoord.getYEdges();
+    synchronized (this) {
+      if (lonMinMax != null) return;
+      lonEdge = lonCoord.getXEdges();
+      latEdge = latCoord.getYEdges();
 
-    // assume missing values have been converted to NaNs
-    latMinMax = MAMath.getMinMax(latEdge);
-    lonMinMax = MAMath.getMinMax(lonEdge);
+      // assume missing values have been converted to NaNs
+      latMinMax = MAMath.getMinMax(latEdge);
+      lonMinMax = MAMath.getMinMax(lonEdge);
+    }
 
     if (debug)
       System.out.printf("Bounds (%d %d): lat= (%f,%f) lon = (%f,%f) %n", nrows, ncols, latMinMax.min, latMinMax.max, lonMinMax.min, lonMinMax.max);
@@ -112,9 +118,20 @@ public class GridCoordinate2D {
     return false;
   }
 
+  /**
+   * Find the index of the cell that contains the given lat,lon point.
+   * @param wantLat   lat of point
+   * @param wantLon   lon of point
+   * @param rectIndex return (row,col) index, or best guess here. may not be null
+   *
+   * @return false if not in the grid.
+   */
   public boolean findCoordElement(double wantLat, double wantLon, int[] rectIndex) {
-    return findCoordElementNoForce(wantLat, wantLon,rectIndex);
-  }  
+    findBounds();
+    if (getCellIndex().find(wantLat, wantLon, rectIndex))
+      return true;
+    return findCoordElementNoForce(wantLat, wantLon,rectIndex); // best guess
+  }
 
 
   /**
@@ -162,6 +179,205 @@ public class GridCoordinate2D {
     }
   }
 
+  /**
+   * Find the (row, col) index of many points at once.
+   * Neighboring points are often in the same cell, so the cell of the previous point is tried first;
+   * a point on the shared edge of two cells may get either one.
+   *
+   * @param wantLat  lat of the points
+   * @param wantLon  lon of the points, same length as wantLat
+   * @param rowIndex return the row index of each point here, or -1 if not in the grid. same length as wantLat
+   * @param colIndex return the col index of each point here, or -1 if not in the grid. same length as wantLat
+   * @return number of points found in the grid
+   */
+  public int findCoordElements(double[] wantLat, double[] wantLon, int[] rowIndex, int[] colIndex) {
+    findBounds();
+    CellIndex index = getCellIndex();
+    int[] rectIndex = new int[2];
+    int lastRow = -1, lastCol = -1;
+    int count = 0;
+
+    for (int i = 0; i < wantLat.length; i++) {
+      boolean found = false;
+      if (lastRow >= 0) {
+        rectIndex[0] = lastRow;
+        rectIndex[1] = lastCol;
+        found = contains(wantLat[i], wantLon[i], rectIndex);
+      }
+      if (!found)
+        found = index.find(wantLat[i], wantLon[i], rectIndex);
+
+      if (found) {
+        rowIndex[i] = lastRow = rectIndex[0];
+        colIndex[i] = lastCol = rectIndex[1];
+        count++;
+      } else {
+        rowIndex[i] = -1;
+        colIndex[i] = -1;
+      }
+    }
+    return count;
+  }
+
+  private CellIndex getCellIndex() {
+    CellIndex result = cellIndex;
+    if (result == null) {
+      synchronized (this) {
+        if (cellIndex == null)
+          cellIndex = new CellIndex();
+        result = cellIndex;
+      }
+    }
+    return result;
+  }
+
+  /*
+   * Lookup table from (lat, lon) to the cells that may contain it.
+   * The lat/lon bounding box of the grid is divided into about one bucket per cell, and each cell is listed in all the buckets
+   * its own bounding box touches. A point is then checked only against the few cells in its bucket.
+   * Cells that touch too many buckets (eg ones that wrap around in longitude) are checked for every point.
+   * Cells are listed in row-major order, so the cell found is the same one findCoordElementForce() finds.
+   * Cells with a missing corner are not listed.
+   */
+  private class CellIndex {
+    static private final int maxBucketsPerCell = 64;
+
+    private double latMin = Double.MAX_VALUE, latMax = -Double.MAX_VALUE;
+    private double lonMin = Double.MAX_VALUE, lonMax = -Double.MAX_VALUE;
+    private final int nbLat, nbLon;
+    private final double dLat, dLon;
+    private final int[] start;    // cells in bucket b are cells[start[b]] .. cells[start[b+1]-1]
+    private final int[] cells;    // row * ncols + col
+    private final int[] bigCells; // touch more than maxBucketsPerCell buckets
+
+    CellIndex() {
+      for (int row = 0; row <= nrows; row++) {
+        for (int col = 0; col <= ncols; col++) {
+          double lat = latEdge.get(row, col);
+          double lon = lonEdge.get(row, col);
+          if (Double.isNaN(lat) || Double.isNaN(lon)) continue;
+          latMin = Math.min(latMin, lat);
+          latMax = Math.max(latMax, lat);
+          lonMin = Math.min(lonMin, lon);
+          lonMax = Math.max(lonMax, lon);
+        }
+      }
+
+      // about one bucket per cell, roughly square in lat/lon
+      int ncells = nrows * ncols;
+      int target = Math.max(1, ncells);
+      double latRange = Math.max(latMax - latMin, 1.0e-6);
+      double lonRange = Math.max(lonMax - lonMin, 1.0e-6);
+      nbLat = (int) Math.max(1, Math.min(target, Math.round(Math.sqrt(target * latRange / lonRange))));
+      nbLon = Math.max(1, target / nbLat);
+      dLat = latRange / nbLat;
+      dLon = lonRange / nbLon;
+
+      // count, then fill
+      int nbuckets = nbLat * nbLon;
+      start = new int[nbuckets + 1];
+      int nbig = 0;
+      int[] box = new int[4];
+      for (int cell = 0; cell < ncells; cell++) {
+        if (!cellBuckets(cell, box)) continue;
+        if ((box[1] - box[0] + 1) * (box[3] - box[2] + 1) > maxBucketsPerCell) {
+          nbig++;
+          continue;
+        }
+        for (int blat = box[0]; blat <= box[1]; blat++)
+          for (int blon = box[2]; blon <= box[3]; blon++)
+            start[blat * nbLon + blon + 1]++;
+      }
+      for (int b = 0; b < nbuckets; b++)
+        start[b + 1] += start[b];
+
+      cells = new int[start[nbuckets]];
+      bigCells = new int[nbig];
+      int[] next = new int[nbuckets];
+      System.arraycopy(start, 0, next, 0, nbuckets);
+      nbig = 0;
+      for (int cell = 0; cell < ncells; cell++) {
+        if (!cellBuckets(cell, box)) continue;
+        if ((box[1] - box[0] + 1) * (box[3] - box[2] + 1) > maxBucketsPerCell) {
+          bigCells[nbig++] = cell;
+          continue;
+        }
+        for (int blat = box[0]; blat <= box[1]; blat++)
+          for (int blon = box[2]; blon <= box[3]; blon++)
+            cells[next[blat * nbLon + blon]++] = cell;
+      }
+
+      if (debug)
+        System.out.printf("CellIndex (%d %d): %d x %d buckets, %d entries, %d big cells%n", nrows, ncols, nbLat, nbLon, cells.length, bigCells.length);
+    }
+
+    // range of buckets touched by the cell's bounding box: latBucket min, max, lonBucket min, max
+    private boolean cellBuckets(int cell, int[] box) {
+      int row = cell / ncols;
+      int col = cell % ncols;
+      double cLatMin = Double.MAX_VALUE, cLatMax = -Double.MAX_VALUE;
+      double cLonMin = Double.MAX_VALUE, cLonMax = -Double.MAX_VALUE;
+      for (int i = row; i <= row + 1; i++) {
+        for (int j = col; j <= col + 1; j++) {
+          double lat = latEdge.get(i, j);
+          double lon = lonEdge.get(i, j);
+          if (Double.isNaN(lat) || Double.isNaN(lon)) return false;
+          cLatMin = Math.min(cLatMin, lat);
+          cLatMax = Math.max(cLatMax, lat);
+          cLonMin = Math.min(cLonMin, lon);
+          cLonMax = Math.max(cLonMax, lon);
+        }
+      }
+      box[0] = latBucket(cLatMin);
+      box[1] = latBucket(cLatMax);
+      box[2] = lonBucket(cLonMin);
+      box[3] = lonBucket(cLonMax);
+      return true;
+    }
+
+    private int latBucket(double lat) {
+      int b = (int) ((lat - latMin) / dLat);
+      return (b < 0) ? 0 : (b >= nbLat) ? nbLat - 1 : b;
+    }
+
+    private int lonBucket(double lon) {
+      int b = (int) ((lon - lonMin) / dLon);
+      return (b < 0) ? 0 : (b >= nbLon) ? nbLon - 1 : b;
+    }
+
+    boolean find(double wantLat, double wantLon, int[] rectIndex) {
+      if (!(wantLat >= latMin && wantLat <= latMax && wantLon >= lonMin && wantLon <= lonMax)) return false; // also NaN
+
+      // first cell in row-major order that contains the point
+      int found = Integer.MAX_VALUE;
+      int b = latBucket(wantLat) * nbLon + lonBucket(wantLon);
+      for (int i = start[b]; i < start[b + 1]; i++) {
+        if (inCell(wantLat, wantLon, cells[i], rectIndex)) {
+          found = cells[i];
+          break;
+        }
+      }
+      for (int cell : bigCells) {
+        if (cell >= found) break;
+        if (inCell(wantLat, wantLon, cell, rectIndex)) {
+          found = cell;
+          break;
+        }
+      }
+
+      if (found == Integer.MAX_VALUE) return false;
+      rectIndex[0] = found / ncols;
+      rectIndex[1] = found % ncols;
+      return true;
+    }
+
+    private boolean inCell(double wantLat, double wantLon, int cell, int[] rectIndex) {
+      rectIndex[0] = cell / ncols;
+      rectIndex[1] = cell % ncols;
+      return contains(wantLat, wantLon, rectIndex);
+    }
+  }
+
   /**
    * Is the point (lat,lon) contained in the (row, col) rectangle ?
    *
@@ -43,12 +43,14 @@ import java.io.IOException;
 /**
  * Helper class for Station Collections.
  * This assumes that calling getData( Station s) is reletively cheap, ie that theres no cheaper filtering to do.
+ * Spatial queries use a StationIndex, built the first time it is needed after the stations change.
  * @author caron
  * @since Feb 5, 2008
  */
 public class StationHelper {
   private List<Station> stations;
   private Map<String, Station> stationHash;
+  private StationIndex index; // lazy
   private boolean debug = false;
 
   public StationHelper() {
@@ -56,16 +58,24 @@ public class StationHelper {
     stationHash = new HashMap<String, Station>();
   }
 
-  public void addStation( Station s) {
+  public synchronized void addStation( Station s) {
     stations.add(s);
     stationHash.put(s.getName(), s);
+    index = null;
   }
 
-  public void setStations( List<Station> nstations) {
+  public synchronized void setStations( List<Station> nstations) {
     stations = new ArrayList<Station>();
     stationHash = new HashMap<String, Station>();
     for (Station s : nstations)
       addStation(s);
+    index = new StationIndex(stations);
+  }
+
+  private synchronized StationIndex getIndex() {
+    if (index == null)
+      index = new StationIndex(stations);
+    return index;
   }
 
   private LatLonRect rect;
@@ -98,15 +108,40 @@ public class StationHelper {
 
   public List<Station> getStations(LatLonRect boundingBox) throws IOException {
     if (boundingBox == null) return stations;
-    
-    LatLonPointImpl latlonPt = new LatLonPointImpl();
-    List<Station> result = new ArrayList<Station>();
-    for (Station s : stations) {
-      latlonPt.set(s.getLatitude(), s.getLongitude());
-      if (boundingBox.contains(latlonPt))
-        result.add(s);
-    }
-    return result;
+    return getIndex().getStations(boundingBox);
+  }
+
+  /**
+   * Find the stations nearest to a point, using great circle distance.
+   *
+   * @param pt find stations near this point
+   * @param n  maximum number of stations to return
+   * @return up to n stations, nearest first; stations with missing lat/lon are never returned
+   */
+  public List<Station> getNearestStations(LatLonPoint pt, int n) {
+    return getIndex().getNearest(pt, n);
+  }
+
+  /**
+   * Find the station nearest to a point, using great circle distance.
+   *
+   * @param pt find station near this point
+   * @return nearest station, or null if there are none
+   */
+  public Station getNearestStation(LatLonPoint pt) {
+    List<Station> result = getIndex().getNearest(pt, 1);
+    return result.isEmpty() ? null : result.get(0);
+  }
+
+  /**
+   * Find the stations within a great circle distance of a point.
+   *
+   * @param pt       find stations near this point
+   * @param radiusKm distance in km
+   * @return stations within radiusKm of pt, nearest first
+   */
+  public List<Station> getStationsWithinRadius(LatLonPoint pt, double radiusKm) {
+    return getIndex().getWithinRadius(pt, radiusKm);
   }
 
   public Station getStation(String name) {
@@ -0,0 +1,365 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.ft.point;
+
+import ucar.unidata.geoloc.Earth;
+import ucar.unidata.geoloc.LatLonPoint;
+import ucar.unidata.geoloc.LatLonPointImpl;
+import ucar.unidata.geoloc.LatLonRect;
+import ucar.unidata.geoloc.Station;
+
+import java.util.*;
+
+/**
+ * A static k-d tree over a list of stations, for bounding box, nearest and within radius queries.
+ * Each station is placed on the unit sphere as an (x,y,z) point, so the dateline and the poles need no special handling,
+ * and the straight line distance between two points orders them the same as the great circle distance.
+ * Stations with a missing lat or lon are not in the tree; they are only checked by bounding box queries,
+ * to keep the same answer as a scan of all the stations.
+ * Immutable after construction, so safe to share between threads.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+class StationIndex {
+  static private final double eps = 1.0e-8; // LatLonRect.contains() allows 1.0e-9 degrees in latitude
+
+  private final Station[] stations; // in tree order
+  private final int[] order;        // original position of each station, in tree order
+  private final Station[] byOrder;  // in original order
+  private final int[] missing;      // original position of the stations that are not in the tree
+  private final double[][] coords;  // coords[axis][i], in tree order
+  private final byte[] splitAxis;   // node at i splits on this axis; left subtree is [lo, i), right is (i, hi)
+
+  StationIndex(List<Station> stnList) {
+    byOrder = stnList.toArray(new Station[stnList.size()]);
+    List<Integer> indexed = new ArrayList<Integer>(byOrder.length);
+    List<Integer> notIndexed = new ArrayList<Integer>();
+    for (int i = 0; i < byOrder.length; i++) {
+      Station s = byOrder[i];
+      if (isMissing(s.getLatitude()) || isMissing(s.getLongitude())) notIndexed.add(i);
+      else indexed.add(i);
+    }
+    missing = new int[notIndexed.size()];
+    for (int i = 0; i < missing.length; i++) missing[i] = notIndexed.get(i);
+
+    int n = indexed.size();
+    stations = new Station[n];
+    coords = new double[3][n];
+    splitAxis = new byte[n];
+    order = new int[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = indexed.get(i);
+      Station s = stations[i] = byOrder[order[i]];
+      double lat = Math.toRadians(LatLonPointImpl.latNormal(s.getLatitude()));
+      double lon = Math.toRadians(s.getLongitude());
+      coords[0][i] = Math.cos(lat) * Math.cos(lon);
+      coords[1][i] = Math.cos(lat) * Math.sin(lon);
+      coords[2][i] = Math.sin(lat);
+    }
+    build(0, n);
+  }
+
+  private boolean isMissing(double val) {
+    return Double.isNaN(val) || Double.isInfinite(val);
+  }
+
+  // put the median of the widest axis at the middle of [lo, hi), then recurse on each side
+  private void build(int lo, int hi) {
+    if (hi - lo < 1) return;
+    int axis = widestAxis(lo, hi);
+    int mid = (lo + hi) >>> 1;
+    select(coords[axis], lo, hi - 1, mid);
+    splitAxis[mid] = (byte) axis;
+    build(lo, mid);
+    build(mid + 1, hi);
+  }
+
+  private int widestAxis(int lo, int hi) {
+    int best = 0;
+    double bestWidth = -1;
+    for (int axis = 0; axis < 3; axis++) {
+      double[] c = coords[axis];
+      double min = c[lo], max = c[lo];
+      for (int i = lo + 1; i < hi; i++) {
+        if (c[i] < min) min = c[i];
+        else if (c[i] > max) max = c[i];
+      }
+      if (max - min > bestWidth) {
+        bestWidth = max - min;
+        best = axis;
+      }
+    }
+    return best;
+  }
+
+  // quickselect on c, so that c[k] is in sorted position in [left, right], and everything is moved along with it.
+  // three-way partition, so that many stations with the same coordinate dont make it quadratic
+  private void select(double[] c, int left, int right, int k) {
+    while (right > left) {
+      // [left, lt) < pivot, [lt, gt] == pivot, (gt, right] > pivot
+      double pivot = c[(left + right) >>> 1];
+      int lt = left, gt = right, i = left;
+      while (i <= gt) {
+        if (c[i] < pivot) swap(lt++, i++);
+        else if (c[i] > pivot) swap(i, gt--);
+        else i++;
+      }
+      if (k < lt) right = lt - 1;
+      else if (k > gt) left = gt + 1;
+      else return;
+    }
+  }
+
+  private void swap(int i, int j) {
+    if (i == j) return;
+    Station s = stations[i];
+    stations[i] = stations[j];
+    stations[j] = s;
+    int o = order[i];
+    order[i] = order[j];
+    order[j] = o;
+    for (double[] c : coords) {
+      double t = c[i];
+      c[i] = c[j];
+      c[j] = t;
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////
+  // bounding box
+
+  /**
+   * Find the stations inside the bounding box.
+   * @param bb the bounding box; may cross the dateline
+   * @return the stations for which bb.contains() is true, in their original order
+   */
+  List<Station> getStations(LatLonRect bb) {
+    // a box in (x,y,z) that surely holds every point of the lat/lon rectangle
+    double latMin = Math.toRadians(bb.getLatMin()), latMax = Math.toRadians(bb.getLatMax());
+    double lonMin = bb.getLonMin(), lonMax = lonMin + bb.getWidth();
+
+    double cosLatMin = Math.min(Math.cos(latMin), Math.cos(latMax));
+    double cosLatMax = (latMin <= 0 && latMax >= 0) ? 1.0 : Math.max(Math.cos(latMin), Math.cos(latMax));
+    double[] cosLon = lonRange(lonMin, lonMax, 0.0, true);
+    double[] sinLon = lonRange(lonMin, lonMax, 90.0, false);
+
+    double[] min = new double[3];
+    double[] max = new double[3];
+    productRange(cosLatMin, cosLatMax, cosLon, min, max, 0);
+    productRange(cosLatMin, cosLatMax, sinLon, min, max, 1);
+    min[2] = Math.sin(latMin) - eps;
+    max[2] = Math.sin(latMax) + eps;
+
+    List<Integer> found = new ArrayList<Integer>();
+    rangeSearch(0, stations.length, min, max, bb, found);
+    for (int m : missing) {
+      if (contains(bb, byOrder[m])) found.add(m);
+    }
+
+    int[] want = new int[found.size()];
+    for (int i = 0; i < want.length; i++) want[i] = found.get(i);
+    Arrays.sort(want);
+    List<Station> result = new ArrayList<Station>(want.length);
+    for (int w : want) result.add(byOrder[w]);
+    return result;
+  }
+
+  // range of cos(lon) (or sin(lon)) over [lonMin, lonMax] degrees; the max is reached at peak + 360*k, the min at peak + 180 + 360*k
+  private double[] lonRange(double lonMin, double lonMax, double peak, boolean isCos) {
+    double a = Math.toRadians(lonMin), b = Math.toRadians(lonMax);
+    double va = isCos ? Math.cos(a) : Math.sin(a);
+    double vb = isCos ? Math.cos(b) : Math.sin(b);
+    double min = Math.min(va, vb), max = Math.max(va, vb);
+    if (containsAngle(lonMin, lonMax, peak)) max = 1.0;
+    if (containsAngle(lonMin, lonMax, peak + 180.0)) min = -1.0;
+    return new double[] {min, max};
+  }
+
+  // is angle + 360*k in [lonMin, lonMax] for some k
+  private boolean containsAngle(double lonMin, double lonMax, double angle) {
+    double k = Math.ceil((lonMin - angle) / 360.0);
+    return angle + 360.0 * k <= lonMax;
+  }
+
+  // range of c * v, where c is in [cmin, cmax], c >= 0 and v is in range
+  private void productRange(double cmin, double cmax, double[] range, double[] min, double[] max, int axis) {
+    double p1 = cmin * range[0], p2 = cmin * range[1], p3 = cmax * range[0], p4 = cmax * range[1];
+    min[axis] = Math.min(Math.min(p1, p2), Math.min(p3, p4)) - eps;
+    max[axis] = Math.max(Math.max(p1, p2), Math.max(p3, p4)) + eps;
+  }
+
+  private void rangeSearch(int lo, int hi, double[] min, double[] max, LatLonRect bb, List<Integer> found) {
+    while (hi > lo) {
+      int mid = (lo + hi) >>> 1;
+      int axis = splitAxis[mid];
+      double v = coords[axis][mid];
+
+      if (coords[0][mid] >= min[0] && coords[0][mid] <= max[0] && coords[1][mid] >= min[1] && coords[1][mid] <= max[1] &&
+          coords[2][mid] >= min[2] && coords[2][mid] <= max[2]) {
+        if (contains(bb, stations[mid]))
+          found.add(order[mid]);
+      }
+
+      boolean goLeft = min[axis] <= v;
+      boolean goRight = max[axis] >= v;
+      if (goLeft && goRight) {
+        rangeSearch(lo, mid, min, max, bb, found);
+        lo = mid + 1;
+      } else if (goLeft) {
+        hi = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+  }
+
+  // same as LatLonPointImpl.set() then bb.contains()
+  private boolean contains(LatLonRect bb, Station s) {
+    return bb.contains(LatLonPointImpl.latNormal(s.getLatitude()), LatLonPointImpl.lonNormal(s.getLongitude()));
+  }
+
+  ////////////////////////////////////////////////////////////////////
+  // nearest
+
+  /**
+   * Find the n stations nearest to a point.
+   * @param pt the point
+   * @param n max number of stations
+   * @return up to n stations, nearest first
+   */
+  List<Station> getNearest(LatLonPoint pt, int n) {
+    if (n <= 0 || stations.length == 0) return new ArrayList<Station>();
+    double[] q = toXYZ(pt);
+
+    // max-heap on distance, so the farthest of the n best is on top
+    PriorityQueue<Neighbor> best = new PriorityQueue<Neighbor>(Math.min(n, stations.length) + 1, Collections.reverseOrder());
+    nearestSearch(0, stations.length, q, n, best);
+
+    Neighbor[] sorted = best.toArray(new Neighbor[best.size()]);
+    Arrays.sort(sorted);
+    List<Station> result = new ArrayList<Station>(sorted.length);
+    for (Neighbor nb : sorted) result.add(stations[nb.index]);
+    return result;
+  }
+
+  private void nearestSearch(int lo, int hi, double[] q, int n, PriorityQueue<Neighbor> best) {
+    if (hi <= lo) return;
+    int mid = (lo + hi) >>> 1;
+    double d2 = dist2(q, mid);
+    if (best.size() < n) {
+      best.add(new Neighbor(mid, d2));
+    } else if (d2 < best.peek().dist2) {
+      best.poll();
+      best.add(new Neighbor(mid, d2));
+    }
+
+    int axis = splitAxis[mid];
+    double diff = q[axis] - coords[axis][mid];
+    boolean leftFirst = diff < 0;
+    if (leftFirst) nearestSearch(lo, mid, q, n, best);
+    else nearestSearch(mid + 1, hi, q, n, best);
+
+    // the other side can only have something nearer if the splitting plane is nearer than the worst of the best
+    if (best.size() < n || diff * diff < best.peek().dist2) {
+      if (leftFirst) nearestSearch(mid + 1, hi, q, n, best);
+      else nearestSearch(lo, mid, q, n, best);
+    }
+  }
+
+  /**
+   * Find the stations within a distance of a point.
+   * @param pt the point
+   * @param radiusKm great circle distance, in km
+   * @return the stations within the distance, nearest first
+   */
+  List<Station> getWithinRadius(LatLonPoint pt, double radiusKm) {
+    double angle = Math.min(Math.PI, radiusKm * 1000.0 / Earth.getRadius());
+    double chord = 2.0 * Math.sin(angle / 2.0) + eps;
+    double[] q = toXYZ(pt);
+
+    List<Neighbor> found = new ArrayList<Neighbor>();
+    radiusSearch(0, stations.length, q, chord * chord, found);
+
+    Collections.sort(found);
+    List<Station> result = new ArrayList<Station>(found.size());
+    for (Neighbor nb : found) result.add(stations[nb.index]);
+    return result;
+  }
+
+  private void radiusSearch(int lo, int hi, double[] q, double r2, List<Neighbor> found) {
+    while (hi > lo) {
+      int mid = (lo + hi) >>> 1;
+      double d2 = dist2(q, mid);
+      if (d2 <= r2) found.add(new Neighbor(mid, d2));
+
+      int axis = splitAxis[mid];
+      double diff = q[axis] - coords[axis][mid];
+      boolean goLeft = diff <= 0 || diff * diff <= r2;
+      boolean goRight = diff >= 0 || diff * diff <= r2;
+      if (goLeft && goRight) {
+        radiusSearch(lo, mid, q, r2, found);
+        lo = mid + 1;
+      } else if (goLeft) {
+        hi = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+  }
+
+  static private double[] toXYZ(LatLonPoint pt) {
+    double lat = Math.toRadians(pt.getLatitude());
+    double lon = Math.toRadians(pt.getLongitude());
+    return new double[] {Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat)};
+  }
+
+  private double dist2(double[] q, int i) {
+    double dx = q[0] - coords[0][i], dy = q[1] - coords[1][i], dz = q[2] - coords[2][i];
+    return dx * dx + dy * dy + dz * dz;
+  }
+
+  static private class Neighbor implements Comparable<Neighbor> {
+    final int index;
+    final double dist2;
+
+    Neighbor(int index, double dist2) {
+      this.index = index;
+      this.dist2 = dist2;
+    }
+
+    public int compareTo(Neighbor o) {
+      return Double.compare(dist2, o.dist2);
+    }
+  }
+}
@@ -37,6 +37,7 @@ import ucar.nc2.constants.FeatureType;
 import ucar.nc2.time.CalendarDateRange;
 import ucar.nc2.units.DateRange;
 import ucar.nc2.VariableSimpleIF;
+import ucar.unidata.geoloc.LatLonPoint;
 import ucar.unidata.geoloc.LatLonRect;
 import ucar.unidata.geoloc.Station;
 
@@ -185,6 +186,21 @@ public abstract class StationTimeSeriesCollectionImpl extends OneNestedPointColl
     return stationHelper.getStation(name);
   }
 
+  public List<Station> getNearestStations(LatLonPoint pt, int n) {
+    if (stationHelper == null) initStationHelper();
+    return stationHelper.getNearestStations(pt, n);
+  }
+
+  public Station getNearestStation(LatLonPoint pt) {
+    if (stationHelper == null) initStationHelper();
+    return stationHelper.getNearestStation(pt);
+  }
+
+  public List<Station> getStationsWithinRadius(LatLonPoint pt, double radiusKm) {
+    if (stationHelper == null) initStationHelper();
+    return stationHelper.getStationsWithinRadius(pt, radiusKm);
+  }
+
   public LatLonRect getBoundingBox() {
     if (stationHelper == null) initStationHelper();
     return stationHelper.getBoundingBox();
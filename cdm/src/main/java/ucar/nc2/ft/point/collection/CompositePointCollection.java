@@ -42,17 +42,42 @@ import ucar.nc2.VariableSimpleIF;
 import ucar.unidata.geoloc.LatLonRect;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.Iterator;
-import java.util.Formatter;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
- * PointCollection composed of other PointCollections
+ * PointCollection composed of other PointCollections.
+ * If an Executor is set, the iterator opens the next few datasets in the background while the current one is read.
  *
  * @author caron
  * @since May 19, 2009
  */
 public class CompositePointCollection extends PointCollectionImpl implements UpdateableCollection {
+
+  // experimental multithreading
+  static private Executor executor;
+  static private int prefetchDatasets = 2;
+  static private int prefetchFeatures = 1000;
+
+  /**
+   * Open the datasets of an iteration ahead of the reader, using this Executor.
+   * @param exec use this Executor, or null to open the datasets one at a time in the reading thread (default)
+   */
+  static public void setExecutor(Executor exec) {
+    executor = exec;
+  }
+
+  /**
+   * Limit how much is read ahead.
+   * @param ndatasets max number of datasets opened ahead of the one being read, for any one iteration
+   * @param nfeatures max number of features read ahead from each of those datasets
+   */
+  static public void setPrefetch(int ndatasets, int nfeatures) {
+    prefetchDatasets = Math.max(1, ndatasets);
+    prefetchFeatures = Math.max(0, nfeatures);
+  }
+
   private TimedCollection pointCollections;
   protected List<VariableSimpleIF> dataVariables;
 
@@ -100,7 +125,7 @@ public class CompositePointCollection extends PointCollectionImpl implements Upd
   }
 
   public PointFeatureIterator getPointFeatureIterator(int bufferSize) throws IOException {
-    CompositePointFeatureIterator iter = new CompositePointFeatureIterator();
+    PointIteratorAbstract iter = (executor != null) ? new CompositePointFeatureIteratorMultithreaded() : new CompositePointFeatureIterator();
     if ((boundingBox == null) || (dateRange == null) || (npts < 0))
       iter.setCalculateBounds(this);
     return iter;
@@ -183,56 +208,90 @@ public class CompositePointCollection extends PointCollectionImpl implements Upd
     }
   }
 
+  // opens the next datasets in the executor, ahead of the reader, and reads their first features
   private class CompositePointFeatureIteratorMultithreaded extends PointIteratorAbstract {
     private boolean finished = false;
     private int bufferSize = -1;
     private Iterator<TimedCollection.Dataset> iter;
+    private final LinkedList<Prefetch> pending = new LinkedList<Prefetch>(); // in time order
+    private final Object lock = new Object();
+    private boolean cancelled = false; // guarded by lock
     private FeatureDatasetPoint currentDataset;
     private PointFeatureIterator pfIter = null;
+    private Iterator<PointFeature> readAhead; // features of pfIter already read by the prefetch
+    private boolean more;                     // pfIter may have more features past readAhead
 
     CompositePointFeatureIteratorMultithreaded() {
       iter = pointCollections.getDatasets().iterator();
     }
 
-    private PointFeatureIterator getNextIterator() throws IOException {
-      if (!iter.hasNext()) return null;
-      TimedCollection.Dataset td = iter.next();
-      Formatter errlog = new Formatter();
-      currentDataset = (FeatureDatasetPoint) FeatureDatasetFactoryManager.open(FeatureType.POINT, td.getLocation(), null, errlog);
-      if (CompositeDatasetFactory.debug)
-        System.out.printf("CompositePointFeatureIterator open dataset %s%n", td.getLocation());
-      List<FeatureCollection> fcList = currentDataset.getPointFeatureCollectionList();
-      PointFeatureCollection pc = (PointFeatureCollection) fcList.get(0);
-      return pc.getPointFeatureIterator(bufferSize);
+    // keep prefetchDatasets datasets in the works
+    private void fill() {
+      while (pending.size() < prefetchDatasets && iter.hasNext()) {
+        Prefetch p = new Prefetch(iter.next(), bufferSize);
+        pending.add(p);
+        executor.execute(p.task);
+      }
     }
 
-    public boolean hasNext() throws IOException {
+    private boolean getNextIterator() throws IOException {
+      fill();
+      if (pending.isEmpty()) return false;
+      Prefetch p = pending.removeFirst();
+      fill();
+
+      Prefetched result = p.waitFor();
+      currentDataset = result.dataset;
+      pfIter = result.pfIter;
+      readAhead = result.first.iterator();
+      more = result.more;
+      return true;
+    }
 
-      if (pfIter == null) {
-        pfIter = getNextIterator();
+    public boolean hasNext() throws IOException {
+      while (!finished) {
         if (pfIter == null) {
-          finish();
-          return false;
+          if (!getNextIterator()) {
+            finish();
+            return false;
+          }
         }
-      }
 
-      if (!pfIter.hasNext()) {
+        if (readAhead.hasNext() || (more && pfIter.hasNext()))
+          return true;
+
         pfIter.finish();
+        if (CompositeDatasetFactory.debug)
+          System.out.printf("CompositePointFeatureIteratorMultithreaded close dataset %s%n", currentDataset.getLocation());
         currentDataset.close();
-        pfIter = getNextIterator();
-        return hasNext();
+        currentDataset = null;
+        pfIter = null;
       }
-
-      return true;
+      return false;
     }
 
     public PointFeature next() throws IOException {
-      return pfIter.next();
+      return readAhead.hasNext() ? readAhead.next() : pfIter.next();
     }
 
     public void finish() {
       if (finished) return;
 
+      // datasets opened ahead and not yet used are closed, by whoever gets there last
+      synchronized (lock) {
+        cancelled = true;
+      }
+      for (Prefetch p : pending) {
+        p.task.cancel(false);
+        Prefetched r;
+        synchronized (lock) {
+          r = p.result;
+          p.result = null;
+        }
+        if (r != null) r.close();
+      }
+      pending.clear();
+
       if (pfIter != null)
         pfIter.finish();
       finishCalcBounds();
@@ -250,6 +309,105 @@ public class CompositePointCollection extends PointCollectionImpl implements Upd
     public void setBufferSize(int bytes) {
       bufferSize = bytes;
     }
+
+    private class Prefetch implements Callable<Prefetched> {
+      final TimedCollection.Dataset td;
+      final int bufferSize;
+      final FutureTask<Prefetched> task;
+      Prefetched result; // guarded by lock; set when done, unless cancelled
+
+      Prefetch(TimedCollection.Dataset td, int bufferSize) {
+        this.td = td;
+        this.bufferSize = bufferSize;
+        this.task = new FutureTask<Prefetched>(this);
+      }
+
+      public Prefetched call() throws IOException {
+        Formatter errlog = new Formatter();
+        FeatureDatasetPoint dataset = (FeatureDatasetPoint) FeatureDatasetFactoryManager.open(FeatureType.POINT, td.getLocation(), null, errlog);
+        if (dataset == null)
+          throw new IOException("CompositePointCollection cant open " + td.getLocation() + ": " + errlog);
+        if (CompositeDatasetFactory.debug)
+          System.out.printf("CompositePointFeatureIteratorMultithreaded open dataset %s%n", td.getLocation());
+
+        Prefetched r = new Prefetched(dataset);
+        boolean ok = false;
+        try {
+          List<FeatureCollection> fcList = dataset.getPointFeatureCollectionList();
+          PointFeatureCollection pc = (PointFeatureCollection) fcList.get(0);
+          r.pfIter = pc.getPointFeatureIterator(bufferSize);
+          while (r.first.size() < prefetchFeatures && !isCancelled()) {
+            if (!r.pfIter.hasNext()) {
+              r.more = false;
+              break;
+            }
+            r.first.add(r.pfIter.next());
+          }
+          ok = true;
+
+        } finally {
+          if (!ok) r.close();
+        }
+
+        synchronized (lock) {
+          if (!cancelled) {
+            result = r;
+            return r;
+          }
+        }
+        r.close(); // finish() was called while we were working
+        return null;
+      }
+
+      private boolean isCancelled() {
+        synchronized (lock) {
+          return cancelled;
+        }
+      }
+
+      // only called by the reader, after this has been removed from pending
+      Prefetched waitFor() throws IOException {
+        try {
+          Prefetched r = task.get();
+          synchronized (lock) {
+            result = null;
+          }
+          return r;
+
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("CompositePointCollection interrupted opening " + td.getLocation());
+
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof IOException) throw (IOException) cause;
+          if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+          if (cause instanceof Error) throw (Error) cause;
+          throw new IOException(cause);
+        }
+      }
+    }
+  }
+
+  // an open dataset, and the first features of its iterator
+  static private class Prefetched {
+    final FeatureDatasetPoint dataset;
+    PointFeatureIterator pfIter;
+    final List<PointFeature> first = new ArrayList<PointFeature>();
+    boolean more = true;
+
+    Prefetched(FeatureDatasetPoint dataset) {
+      this.dataset = dataset;
+    }
+
+    void close() {
+      try {
+        if (pfIter != null) pfIter.finish();
+        dataset.close();
+      } catch (Throwable t) {
+        // ignore
+      }
+    }
   }
 
 }
@@ -0,0 +1,26 @@
+package ucar.nc2.ft.point.remote;
+
+import ucar.nc2.ft.PointFeature;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * A FeatureMaker that can also deserialize a PointStream.MessageType.PointFeatureBatch.
+ * A FeatureMaker that is not a FeatureBatchMaker only gets one PointFeature message at a time.
+ *
+ * @author agent
+ * @since 10/18/2026
+ * @see RemotePointFeatureIterator
+ */
+public interface FeatureBatchMaker extends FeatureMaker {
+
+  /**
+   * Read a batch of PointFeatures, the rest of a PointStream.MessageType.PointFeatureBatch message.
+   * @param in read from here, positioned after the magic bytes
+   * @return the features, in order
+   * @throws IOException on read error
+   */
+  List<PointFeature> makeBatch(InputStream in) throws IOException;
+}
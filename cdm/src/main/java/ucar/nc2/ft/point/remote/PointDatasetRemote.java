@@ -50,6 +50,17 @@ import java.util.List;
  * @since Feb 16, 2009
  */
 public class PointDatasetRemote extends PointDatasetImpl {
+  static private int batchSize = 1000;
+
+  /**
+   * Ask the server to send the point features in batches of this size, column-wise.
+   * Servers that dont know about batches ignore this, and send one feature at a time.
+   *
+   * @param n number of features in a batch; 0 means one feature at a time.
+   */
+  static public void setBatchSize(int n) {
+    batchSize = n;
+  }
 
   public PointDatasetRemote(FeatureType wantFeatureType, String uri, List<VariableSimpleIF> vars, LatLonRect bb,
       CalendarDateRange dr) throws IOException {
@@ -104,6 +115,7 @@ public class PointDatasetRemote extends PointDatasetImpl {
     }
 
     if (!needamp) query.append("all");
+    if (batchSize > 0) query.append("&batch=").append(batchSize);
     return query.toString();
   }
 
@@ -33,20 +33,25 @@
 
 package ucar.nc2.ft.point.remote;
 
+import ucar.nc2.constants.CDM;
 import ucar.nc2.ft.PointFeature;
 import ucar.nc2.ft.point.PointFeatureImpl;
 import ucar.nc2.iosp.IospHelper;
 import ucar.nc2.units.DateUnit;
 import ucar.nc2.stream.NcStream;
+import ucar.nc2.stream.NcStreamProto;
 import ucar.unidata.geoloc.EarthLocation;
 import ucar.unidata.geoloc.EarthLocationImpl;
 import ucar.unidata.geoloc.Station;
 import ucar.ma2.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 import com.google.protobuf.ByteString;
@@ -64,12 +69,13 @@ import com.google.protobuf.InvalidProtocolBufferException;
 public class PointStream {
   public enum MessageType {
     Start, Header, Data, End, Error, Eos,
-    StationList, PointFeatureCollection, PointFeature
+    StationList, PointFeatureCollection, PointFeature, PointFeatureBatch
   }
 
   static private final byte[] MAGIC_StationList = new byte[]{(byte) 0xfe, (byte) 0xfe, (byte) 0xef, (byte) 0xef};
   static private final byte[] MAGIC_PointFeatureCollection = new byte[]{(byte) 0xfa, (byte) 0xfa, (byte) 0xaf, (byte) 0xaf};
   static private final byte[] MAGIC_PointFeature = new byte[]{(byte) 0xf0, (byte) 0xf0, (byte) 0x0f, (byte) 0x0f};
+  static private final byte[] MAGIC_PointFeatureBatch = new byte[]{(byte) 0xf1, (byte) 0xf1, (byte) 0x1f, (byte) 0x1f};
 
   static private final boolean debug = false;
 
@@ -79,6 +85,7 @@ public class PointStream {
     if (done != 4) return MessageType.Eos;
 
     if (test(b, MAGIC_PointFeature)) return MessageType.PointFeature;
+    if (test(b, MAGIC_PointFeatureBatch)) return MessageType.PointFeatureBatch;
     if (test(b, MAGIC_PointFeatureCollection)) return MessageType.PointFeatureCollection;
     if (test(b, MAGIC_StationList)) return MessageType.StationList;
     if (test(b, NcStream.MAGIC_START)) return MessageType.Start;
@@ -93,6 +100,8 @@ public class PointStream {
     switch (type) {
       case PointFeature:
         return NcStream.writeBytes(out, PointStream.MAGIC_PointFeature);
+      case PointFeatureBatch:
+        return NcStream.writeBytes(out, PointStream.MAGIC_PointFeatureBatch);
       case PointFeatureCollection:
         return NcStream.writeBytes(out, PointStream.MAGIC_PointFeatureCollection);
       case StationList:
@@ -176,6 +185,248 @@ public class PointStream {
     return builder.build();
   }
 
+  /**
+   * Can these members be written by a PointFeatureBatchWriter?
+   * @param sm the members of the point feature data
+   * @return false if there are nested Structures or Sequences
+   */
+  static public boolean canBatch(StructureMembers sm) {
+    for (StructureMembers.Member m : sm.getMembers()) {
+      switch (m.getDataType()) {
+        case STRUCTURE:
+        case SEQUENCE:
+        case OPAQUE:
+        case OBJECT:
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes PointFeatures in batches, column-wise, as MessageType.PointFeatureBatch:
+   * <pre>
+   *   MAGIC_PointFeatureBatch, vint nfeatures,
+   *   column for time, lat, lon, alt, nomTime (doubles), then a column for each member, in order. Each column is:
+   *     vint len, NcStreamProto.Data, vint nbytes, nbytes of big-endian values
+   * </pre>
+   * A String column is a vint length and the UTF-8 bytes for each String.
+   * The columns are reused for each batch, so there is no allocation per feature, except for non-scalar members.
+   * A feature whose members dont match the batch members (missing, or a different type or shape) ends the current
+   * batch and is written by itself as a MessageType.PointFeature, as if batches had not been asked for.
+   * Not thread safe.
+   */
+  static public class PointFeatureBatchWriter {
+    private final OutputStream out;
+    private final int batchSize;
+    private final double[] time, lat, lon, alt, nomTime;
+    private final StructureMembers sm;
+    private final ByteBuffer[] columns;
+    private final List<String>[] stringColumns;
+    private StructureMembers lastSm;            // members of the last StructureData
+    private StructureMembers.Member[] lastMembers;  // its members, in the order of sm, or null if they dont match
+    private int count;
+
+    /**
+     * Constructor
+     * @param out write to here
+     * @param sm the members of the point feature data, as sent in the PointFeatureCollection message
+     * @param batchSize max number of features in a batch
+     */
+    @SuppressWarnings("unchecked")
+    public PointFeatureBatchWriter(OutputStream out, StructureMembers sm, int batchSize) {
+      if (!canBatch(sm))
+        throw new IllegalArgumentException("cant write nested structures in a PointFeatureBatch");
+      this.out = out;
+      this.sm = sm;
+      this.batchSize = batchSize;
+      time = new double[batchSize];
+      lat = new double[batchSize];
+      lon = new double[batchSize];
+      alt = new double[batchSize];
+      nomTime = new double[batchSize];
+
+      List<StructureMembers.Member> members = sm.getMembers();
+      columns = new ByteBuffer[members.size()];
+      stringColumns = new List[members.size()];
+      for (int i = 0; i < members.size(); i++) {
+        StructureMembers.Member m = members.get(i);
+        if (m.getDataType() == DataType.STRING)
+          stringColumns[i] = new ArrayList<String>(batchSize * m.getSize());
+        else
+          columns[i] = ByteBuffer.allocate(batchSize * m.getSize() * m.getDataType().getSize());  // big endian
+      }
+    }
+
+    /**
+     * Add a PointFeature, writing the batch if its full.
+     * If its members dont match, the batch so far is written, then the feature by itself.
+     * @param pf add this
+     * @throws IOException on read or write error
+     */
+    public void add(PointFeature pf) throws IOException {
+      StructureData sdata = pf.getData();
+      StructureMembers.Member[] members = findMembers(sdata.getStructureMembers());
+      if (members == null) {
+        flush();
+        byte[] b = encodePointFeature(pf).toByteArray();
+        writeMagic(out, MessageType.PointFeature);
+        NcStream.writeVInt(out, b.length);
+        out.write(b);
+        return;
+      }
+
+      time[count] = pf.getObservationTime();
+      nomTime[count] = pf.getNominalTime();
+      EarthLocation loc = pf.getLocation();
+      lat[count] = loc.getLatitude();
+      lon[count] = loc.getLongitude();
+      alt[count] = loc.getAltitude();
+
+      for (int i = 0; i < members.length; i++) {
+        if (stringColumns[i] != null)
+          addStrings(stringColumns[i], sdata, members[i]);
+        else
+          addValues(columns[i], sdata, members[i]);
+      }
+
+      count++;
+      if (count == batchSize)
+        flush();
+    }
+
+    /**
+     * Write the features not yet written, if any.
+     * @throws IOException on write error
+     */
+    public void flush() throws IOException {
+      if (count == 0) return;
+
+      writeMagic(out, MessageType.PointFeatureBatch);
+      NcStream.writeVInt(out, count);
+      writeColumn("time", time);
+      writeColumn("lat", lat);
+      writeColumn("lon", lon);
+      writeColumn("alt", alt);
+      writeColumn("nomTime", nomTime);
+
+      List<StructureMembers.Member> members = sm.getMembers();
+      for (int i = 0; i < members.size(); i++) {
+        StructureMembers.Member m = members.get(i);
+        if (stringColumns[i] != null) {
+          ByteArrayOutputStream bout = new ByteArrayOutputStream(stringColumns[i].size() * 16);
+          for (String s : stringColumns[i]) {
+            byte[] b = (s == null) ? new byte[0] : s.getBytes(CDM.utf8Charset);
+            NcStream.writeVInt(bout, b.length);
+            bout.write(b);
+          }
+          writeColumn(m, bout.toByteArray(), bout.size());
+          stringColumns[i].clear();
+
+        } else {
+          ByteBuffer bb = columns[i];
+          writeColumn(m, bb.array(), bb.position());
+          bb.clear();
+        }
+      }
+      count = 0;
+    }
+
+    // match the members of this StructureData to sm; null if one is missing or has a different type or size
+    private StructureMembers.Member[] findMembers(StructureMembers have) {
+      if (have != lastSm) {
+        lastSm = have;
+        List<StructureMembers.Member> members = sm.getMembers();
+        lastMembers = new StructureMembers.Member[members.size()];
+        for (int i = 0; i < members.size(); i++) {
+          StructureMembers.Member want = members.get(i);
+          StructureMembers.Member m = have.findMember(want.getName());
+          if (m == null || m.getDataType() != want.getDataType() || m.getSize() != want.getSize()) {
+            lastMembers = null;
+            break;
+          }
+          lastMembers[i] = m;
+        }
+      }
+      return lastMembers;
+    }
+
+    private void addStrings(List<String> column, StructureData sdata, StructureMembers.Member m) {
+      if (m.isScalar())
+        column.add(sdata.getScalarString(m));
+      else
+        for (String s : sdata.getJavaArrayString(m)) column.add(s);
+    }
+
+    private void addValues(ByteBuffer bb, StructureData sdata, StructureMembers.Member m) {
+      boolean scalar = m.isScalar();
+      switch (m.getDataType()) {
+        case DOUBLE:
+          if (scalar) bb.putDouble(sdata.getScalarDouble(m));
+          else for (double v : sdata.getJavaArrayDouble(m)) bb.putDouble(v);
+          break;
+        case FLOAT:
+          if (scalar) bb.putFloat(sdata.getScalarFloat(m));
+          else for (float v : sdata.getJavaArrayFloat(m)) bb.putFloat(v);
+          break;
+        case LONG:
+          if (scalar) bb.putLong(sdata.getScalarLong(m));
+          else for (long v : sdata.getJavaArrayLong(m)) bb.putLong(v);
+          break;
+        case INT:
+          if (scalar) bb.putInt(sdata.getScalarInt(m));
+          else for (int v : sdata.getJavaArrayInt(m)) bb.putInt(v);
+          break;
+        case SHORT:
+          if (scalar) bb.putShort(sdata.getScalarShort(m));
+          else for (short v : sdata.getJavaArrayShort(m)) bb.putShort(v);
+          break;
+        case BYTE:
+          if (scalar) bb.put(sdata.getScalarByte(m));
+          else bb.put(sdata.getJavaArrayByte(m));
+          break;
+        case CHAR:
+          if (scalar) bb.put((byte) sdata.getScalarChar(m));
+          else for (char v : sdata.getJavaArrayChar(m)) bb.put((byte) v);
+          break;
+        default: { // enums
+          Array data = sdata.getArray(m);
+          for (int i = 0; i < data.getSize(); i++) {
+            if (m.getDataType() == DataType.ENUM1) bb.put(data.getByte(i));
+            else if (m.getDataType() == DataType.ENUM2) bb.putShort(data.getShort(i));
+            else bb.putInt(data.getInt(i));
+          }
+        }
+      }
+    }
+
+    private void writeColumn(String name, double[] values) throws IOException {
+      ByteBuffer bb = ByteBuffer.allocate(8 * count);
+      bb.asDoubleBuffer().put(values, 0, count);
+      writeColumn(name, DataType.DOUBLE, new int[]{count}, bb.array(), bb.capacity());
+    }
+
+    private void writeColumn(StructureMembers.Member m, byte[] b, int nbytes) throws IOException {
+      int[] mshape = m.getShape();
+      int[] shape = new int[mshape.length + 1];
+      shape[0] = count;
+      System.arraycopy(mshape, 0, shape, 1, mshape.length);
+      writeColumn(m.getName(), m.getDataType(), shape, b, nbytes);
+    }
+
+    private void writeColumn(String name, DataType dataType, int[] shape, byte[] b, int nbytes) throws IOException {
+      NcStreamProto.Data.Builder builder = NcStreamProto.Data.newBuilder();
+      builder.setVarName(name);
+      builder.setDataType(NcStream.encodeDataType(dataType));
+      builder.setSection(NcStream.encodeSection(new Section(shape)));
+      byte[] proto = builder.build().toByteArray();
+      NcStream.writeVInt(out, proto.length);
+      out.write(proto);
+      NcStream.writeVInt(out, nbytes);
+      out.write(b, 0, nbytes);
+    }
+  }
+
   static public PointStreamProto.StationList encodeStations(List<Station> stnList) throws IOException {
     PointStreamProto.StationList.Builder stnBuilder = PointStreamProto.StationList.newBuilder();
     for (Station loc : stnList) {
@@ -201,7 +452,7 @@ public class PointStream {
   // decoding
   // makes a PointFeature from the raw bytes of the protobuf message
 
-  static class ProtobufPointFeatureMaker implements FeatureMaker {
+  static class ProtobufPointFeatureMaker implements FeatureBatchMaker {
     private DateUnit dateUnit;
     private StructureMembers sm;
 
@@ -222,6 +473,61 @@ public class PointStream {
       ArrayStructureBB.setOffsets(sm);
     }
 
+    /**
+     * Read the rest of a PointFeatureBatch message, after the magic bytes.
+     * The member data is kept column-wise in an ArrayStructureMA.
+     */
+    public List<PointFeature> makeBatch(InputStream in) throws IOException {
+      int n = NcStream.readVInt(in);
+      double[] time = (double[]) readColumn(in, DataType.DOUBLE, new int[]{n}).getStorage();
+      double[] lat = (double[]) readColumn(in, DataType.DOUBLE, new int[]{n}).getStorage();
+      double[] lon = (double[]) readColumn(in, DataType.DOUBLE, new int[]{n}).getStorage();
+      double[] alt = (double[]) readColumn(in, DataType.DOUBLE, new int[]{n}).getStorage();
+      double[] nomTime = (double[]) readColumn(in, DataType.DOUBLE, new int[]{n}).getStorage();
+
+      StructureMembers batchSm = new StructureMembers(sm);  // the member data arrays are different for each batch
+      ArrayStructureMA as = new ArrayStructureMA(batchSm, new int[]{n});
+      for (StructureMembers.Member m : batchSm.getMembers()) {
+        int[] mshape = m.getShape();
+        int[] shape = new int[mshape.length + 1];
+        shape[0] = n;
+        System.arraycopy(mshape, 0, shape, 1, mshape.length);
+        as.setMemberArray(m.getName(), readColumn(in, m.getDataType(), shape));
+      }
+
+      List<PointFeature> result = new ArrayList<PointFeature>(n);
+      for (int i = 0; i < n; i++) {
+        EarthLocationImpl location = new EarthLocationImpl(lat[i], lon[i], alt[i]);
+        double nom = Double.isNaN(nomTime[i]) ? time[i] : nomTime[i];
+        result.add(new BatchPointFeature(location, time[i], nom, dateUnit, as, i));
+      }
+      return result;
+    }
+
+    private Array readColumn(InputStream in, DataType dataType, int[] shape) throws IOException {
+      byte[] proto = new byte[NcStream.readVInt(in)];
+      NcStream.readFully(in, proto);
+      NcStreamProto.Data dproto = NcStreamProto.Data.parseFrom(proto);
+      if (NcStream.decodeDataType(dproto.getDataType()) != dataType)
+        throw new IOException("PointFeatureBatch column " + dproto.getVarName() + " has type " + dproto.getDataType() + " expected " + dataType);
+
+      byte[] b = new byte[NcStream.readVInt(in)];
+      NcStream.readFully(in, b);
+
+      if (dataType == DataType.STRING) {
+        ByteArrayInputStream bin = new ByteArrayInputStream(b);
+        String[] sa = new String[(int) Index.computeSize(shape)];
+        for (int i = 0; i < sa.length; i++) {
+          byte[] sb = new byte[NcStream.readVInt(bin)];
+          NcStream.readFully(bin, sb);
+          sa[i] = new String(sb, CDM.utf8Charset);
+        }
+        return Array.factory(DataType.STRING, shape, sa);
+      }
+
+      return Array.factory(dataType, shape, ByteBuffer.wrap(b));
+    }
+
     public PointFeature make(byte[] rawBytes) throws InvalidProtocolBufferException {
       PointStreamProto.PointFeature pfp = PointStreamProto.PointFeature.parseFrom(rawBytes);
       PointStreamProto.Location locp = pfp.getLoc();
@@ -249,6 +555,25 @@ public class PointStream {
         return location + " obs=" + obsTime + " nom=" + nomTime;
       }
     }
+
+    private class BatchPointFeature extends PointFeatureImpl {
+      ArrayStructure as;
+      int index;
+
+      BatchPointFeature(EarthLocation location, double obsTime, double nomTime, DateUnit timeUnit, ArrayStructure as, int index) {
+        super(location, obsTime, nomTime, timeUnit);
+        this.as = as;
+        this.index = index;
+      }
+
+      public StructureData getData() throws IOException {
+        return as.getStructureData(index);
+      }
+
+      public String toString() {
+        return location + " obs=" + obsTime + " nom=" + nomTime;
+      }
+    }
   }
 
 }
@@ -7,9 +7,10 @@ import ucar.nc2.ft.point.PointIteratorAbstract;
 
 import java.io.InputStream;
 import java.io.IOException;
+import java.util.List;
 
 /**
- * Iterate through a stream of PointStream.MessageType.PointFeature until PointStream.MessageType.End
+ * Iterate through a stream of PointStream.MessageType.PointFeature or PointFeatureBatch until PointStream.MessageType.End
  *
  * @author caron
  * @since May 14, 2009
@@ -21,6 +22,8 @@ public class RemotePointFeatureIterator extends PointIteratorAbstract {
   private FeatureMaker featureMaker;
 
   private PointFeature pf;
+  private List<PointFeature> batch;   // current PointFeatureBatch
+  private int batchIndex;
   private boolean finished = false;
 
   RemotePointFeatureIterator(InputStream in, FeatureMaker featureMaker) throws IOException {
@@ -40,6 +43,14 @@ public class RemotePointFeatureIterator extends PointIteratorAbstract {
   public boolean hasNext() throws IOException {
     if (finished) return false;
 
+    if (batch != null) {
+      if (batchIndex < batch.size()) {
+        pf = batch.get(batchIndex++);
+        return true;
+      }
+      batch = null;
+    }
+
     PointStream.MessageType mtype = PointStream.readMagic(in);
     if (mtype == PointStream.MessageType.PointFeature) {
       int len = NcStream.readVInt(in);
@@ -52,6 +63,13 @@ public class RemotePointFeatureIterator extends PointIteratorAbstract {
       pf = featureMaker.make(b);
       return true;
 
+    } else if (mtype == PointStream.MessageType.PointFeatureBatch) {
+      if (!(featureMaker instanceof FeatureBatchMaker))
+        throw new IOException("PointFeatureBatch message, but "+featureMaker.getClass().getName()+" cant read batches");
+      batch = ((FeatureBatchMaker) featureMaker).makeBatch(in);
+      batchIndex = 0;
+      return hasNext();
+
     } else if (mtype == PointStream.MessageType.End) {
       pf = null;
       finish();
@@ -95,21 +95,33 @@ public abstract class AbstractIOServiceProvider implements IOServiceProvider {
           throws java.io.IOException, ucar.ma2.InvalidRangeException {
 
     Array data = readData(v2, section);
-    return IospHelper.copyToByteChannel(data,  channel);
+    try {
+      return IospHelper.copyToByteChannel(data,  channel);
+    } finally {
+      if (data instanceof ArrayDirect) ((ArrayDirect) data).release(); // only used here, so recycle it
+    }
   }
 
   public long readToOutputStream(ucar.nc2.Variable v2, Section section, OutputStream out)
           throws java.io.IOException, ucar.ma2.InvalidRangeException {
 
     Array data = readData(v2, section);
-    return IospHelper.copyToOutputStream(data,  out);
+    try {
+      return IospHelper.copyToOutputStream(data,  out);
+    } finally {
+      if (data instanceof ArrayDirect) ((ArrayDirect) data).release(); // only used here, so recycle it
+    }
   }
 
   public long streamToByteChannel(ucar.nc2.Variable v2, Section section, WritableByteChannel channel)
       throws java.io.IOException, ucar.ma2.InvalidRangeException {
 
     Array data = readData(v2, section);
-    return IospHelper.copyToByteChannel(data,  channel);
+    try {
+      return IospHelper.copyToByteChannel(data,  channel);
+    } finally {
+      if (data instanceof ArrayDirect) ((ArrayDirect) data).release(); // only used here, so recycle it
+    }
   }
 
   @Override
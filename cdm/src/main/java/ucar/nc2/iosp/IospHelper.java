@@ -86,6 +86,68 @@ public class IospHelper {
     return readData(raf, index, dataType, arr, byteOrder, convertChar);
   }
 
+  /**
+   * Read data subset from RandomAccessFile into an off-heap ArrayDirect, bypassing the java heap.
+   * Reading is controlled by the Layout object. The bytes are copied as is, so byteOrder must be the order of
+   * the data in the file. Data past the end of the file is set to zero.
+   *
+   * @param raf       read from here.
+   * @param layout    handles skipping around in the file.
+   * @param dataType  dataType of the variable, must be ArrayDirect.isSupported()
+   * @param shape     shape of the result, must have Layout.getTotalNelems elements
+   * @param byteOrder byte order of the data in the file
+   * @return ArrayDirect with data read in; caller should release() it when done
+   * @throws java.io.IOException on read error
+   */
+  static public ArrayDirect readDataDirect(RandomAccessFile raf, Layout layout, DataType dataType, int[] shape,
+                                           ByteOrder byteOrder) throws java.io.IOException {
+    ArrayDirect result = ArrayDirect.factory(dataType, shape, byteOrder);
+    int elemSize = dataType.getSize();
+    ByteBuffer bb = result.getByteBuffer();
+    ByteBufferChannel dest = new ByteBufferChannel(bb);
+    try {
+      while (layout.hasNext()) {
+        Layout.Chunk chunk = layout.next();
+        int start = (int) chunk.getDestElem() * elemSize;
+        int nbytes = chunk.getNelems() * elemSize;
+        bb.limit(bb.capacity());
+        bb.position(start);
+        bb.limit(start + nbytes);
+        raf.readToByteChannel(dest, chunk.getSrcPos(), nbytes);
+        while (bb.hasRemaining()) bb.put((byte) 0); // past EOF
+      }
+    } catch (IOException e) {
+      result.release();
+      throw e;
+    }
+    return result;
+  }
+
+  // a channel that writes into the remaining space of a ByteBuffer
+  static private class ByteBufferChannel implements WritableByteChannel {
+    private final ByteBuffer bb;
+
+    ByteBufferChannel(ByteBuffer bb) {
+      this.bb = bb;
+    }
+
+    public int write(ByteBuffer src) {
+      int n = Math.min(src.remaining(), bb.remaining());
+      int saveLimit = src.limit();
+      src.limit(src.position() + n);
+      bb.put(src);
+      src.limit(saveLimit);
+      return n;
+    }
+
+    public boolean isOpen() {
+      return true;
+    }
+
+    public void close() {
+    }
+  }
+
   /**
    * Read data subset from RandomAccessFile, place in given primitive array.
    * Reading is controlled by the Layout object.
@@ -407,6 +469,9 @@ public class IospHelper {
   public static long copyToByteChannel(Array data, WritableByteChannel channel) throws java.io.IOException {
     Class classType = data.getElementType();
 
+    if (data instanceof ArrayDirect) // write the buffer without copying
+      return ((ArrayDirect) data).writeTo(channel);
+
     if (data instanceof ArrayStructure) { // use NcStream encoding
       DataOutputStream os = new DataOutputStream(Channels.newOutputStream(channel));
       return NcStream.encodeArrayStructure((ArrayStructure) data, os);
@@ -509,6 +574,11 @@ public class IospHelper {
       return NcStream.encodeArrayStructure((ArrayStructure) data, dataOut);
     }
 
+    if (data instanceof ArrayDirect) {
+      dataOut.flush();
+      return ((ArrayDirect) data).writeTo(Channels.newChannel(dataOut));
+    }
+
     IndexIterator iterA = data.getIndexIterator();
 
     if (classType == double.class) {
@@ -86,6 +86,17 @@ public class H5iosp extends AbstractIOServiceProvider {
     H4header.setDebugFlags(debugFlag);
   }
 
+  /**
+   * Set the maximum size of the decoded chunks of compressed variables kept for all open files, so that overlapping
+   * reads don't decompress the same chunks again. A file's chunks are released when it is closed.
+   * Default is 0, which turns it off.
+   *
+   * @param maxBytes maximum bytes of decoded chunks for all files
+   */
+  static public void setChunkCacheSize(long maxBytes) {
+    H5tiledLayoutBB.setChunkCacheSize(maxBytes);
+  }
+
   public boolean isValidFile(ucar.unidata.io.RandomAccessFile raf) throws IOException {
     return H5header.isValidFile(raf);
   }
@@ -489,6 +500,7 @@ public class H5iosp extends AbstractIOServiceProvider {
    */
   public void close() throws IOException {
     if (raf != null) {
+      H5tiledLayoutBB.releaseChunks(raf);
       raf.close();
       // log.warn("H5iosp.close called on "+myRaf.getLocation()+" for ncfile="+ncfile.hashCode()+" for iosp="+this.hashCode());
     }
@@ -38,14 +38,18 @@ import ucar.ma2.Section;
 import ucar.nc2.iosp.LayoutBB;
 import ucar.nc2.iosp.LayoutBBTiled;
 import ucar.nc2.Variable;
-import ucar.nc2.util.IO;
 import ucar.unidata.io.RandomAccessFile;
 
 import java.io.IOException;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 /**
  * Iterator to read/write subsets of an array.
@@ -56,6 +60,38 @@ import java.nio.ByteOrder;
  * @author caron
  */
 class H5tiledLayoutBB implements LayoutBB {
+  static private ChunkCache chunkCache = null; // decoded chunks of all files, off by default
+
+  // Inflaters are reused; at most this many are kept when not in use
+  static private final BlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<Inflater>(16);
+
+  // scratch arrays for unshuffle are reused the same way
+  static private final BlockingQueue<byte[]> shuffleBuffers = new ArrayBlockingQueue<byte[]>(16);
+
+  /**
+   * Set the maximum size of the decoded chunks kept for all files, or 0 to turn the cache off.
+   * This replaces the current cache.
+   *
+   * @param maxBytes maximum bytes of decoded chunks
+   */
+  static synchronized void setChunkCacheSize(long maxBytes) {
+    chunkCache = (maxBytes > 0) ? new ChunkCache(maxBytes) : null;
+  }
+
+  static synchronized ChunkCache getChunkCache() {
+    return chunkCache;
+  }
+
+  /**
+   * Remove the decoded chunks of a file from the cache, when it is closed.
+   *
+   * @param raf the file
+   */
+  static void releaseChunks(RandomAccessFile raf) {
+    ChunkCache cache = getChunkCache();
+    if (cache != null) cache.release(raf);
+  }
+
   private LayoutBBTiled delegate;
 
   private RandomAccessFile raf;
@@ -66,6 +102,8 @@ class H5tiledLayoutBB implements LayoutBB {
   private int[] chunkSize; // from the StorageLayout message (exclude the elemSize)
   private int elemSize; // last dimension of the StorageLayout message
   private int nChunkDims;
+  private int chunkBytes; // size of an uncompressed chunk
+  private ChunkCache cache; // may be null
 
   private boolean debug = false;
 
@@ -106,6 +144,12 @@ class H5tiledLayoutBB implements LayoutBB {
     System.arraycopy(vinfo.storageSize, 0, chunkSize, 0, nChunkDims);
     this.elemSize = vinfo.storageSize[vinfo.storageSize.length - 1]; // last one is always the elements size
 
+    long nbytes = 1;
+    for (int len : vinfo.storageSize) nbytes *= len;
+    this.chunkBytes = (int) Math.min(nbytes, Integer.MAX_VALUE);
+
+    this.cache = getChunkCache();
+
     // create the data chunk iterator
     DataBTree.DataChunkIterator iter = vinfo.btree.getDataChunkIteratorFilter(this.want);
     DataChunkIterator dcIter = new DataChunkIterator(iter);
@@ -176,10 +220,24 @@ class H5tiledLayoutBB implements LayoutBB {
     }
 
     public ByteBuffer getByteBuffer() throws IOException {
+      ByteBuffer result = (cache == null) ? null : cache.get(raf, delegate.filePos);
+      if (result == null) {
+        result = readChunk();
+        if (cache != null) cache.put(raf, delegate.filePos, result);
+      }
+
+      // each reader gets its own position; duplicate() does not keep the byte order
+      ByteBuffer bb = result.duplicate();
+      bb.order(byteOrder);
+      return bb;
+    }
+
+    private ByteBuffer readChunk() throws IOException {
       // read the data
       byte[] data = new byte[delegate.size];
       raf.seek(delegate.filePos);
       raf.readFully(data);
+      int len = data.length; // may be less than data.length, after checkfletcher32
 
       // apply filters backwards
       for (int i = filters.length - 1; i >= 0; i--) {
@@ -189,78 +247,171 @@ class H5tiledLayoutBB implements LayoutBB {
           continue;
         }
         if (f.id == 1) {
-          data = inflate(data);
+          data = inflate(data, len, chunkBytes);
+          len = data.length;
         } else if (f.id == 2) {
-          data = shuffle(data, f.data[0]);
+          if (debug) System.out.println(" shuffle bytes in= " + len + " n= " + f.data[0]);
+          unshuffle(data, len, f.data[0]);
         } else if (f.id == 3) {
-          data = checkfletcher32(data);
+          // just strip off the 4-byte fletcher32 checksum at the end
+          len -= 4;
+          if (debug) System.out.println(" checkfletcher32 bytes out= " + len);
         } else
           throw new RuntimeException("Unknown filter type="+f.id);
       }
 
-      ByteBuffer result = ByteBuffer.wrap(data);
-      result.order(byteOrder);
-      return result;
+      return ByteBuffer.wrap(data, 0, len);
     }
 
-    /**
-     * inflate data
-     *
-     * @param compressed compressed data
-     * @return uncompressed data
-     * @throws IOException on I/O error
-     */
-    private byte[] inflate(byte[] compressed) throws IOException {
-      // run it through the Inflator
-      ByteArrayInputStream in = new ByteArrayInputStream(compressed);
-      java.util.zip.InflaterInputStream inflater = new java.util.zip.InflaterInputStream(in);
-      ByteArrayOutputStream out = new ByteArrayOutputStream(8 * compressed.length);
-      IO.copy(inflater, out);
-
-      byte[] uncomp = out.toByteArray();
-      if (debug) System.out.println(" inflate bytes in= " + compressed.length + " bytes out= " + uncomp.length);
-      return uncomp;
+    boolean isBitSet(int val, int bitno) {
+      return ((val >>> bitno) & 1) != 0;
     }
 
-    // just strip off the 4-byte fletcher32 checksum at the end
-    private byte[] checkfletcher32(byte[] org) throws IOException {
-      byte[] result = new byte[org.length-4];
-      System.arraycopy(org, 0, result, 0, result.length);
-      if (debug) System.out.println(" checkfletcher32 bytes in= " + org.length + " bytes out= " + result.length);
-      return result;
+  }
+
+
+
+  /**
+   * inflate data
+   *
+   * @param compressed compressed data
+   * @param len number of compressed bytes
+   * @param expectedSize expected size of the uncompressed data
+   * @return uncompressed data
+   * @throws IOException on I/O error
+   */
+  static byte[] inflate(byte[] compressed, int len, int expectedSize) throws IOException {
+    Inflater inflater = inflaters.poll();
+    if (inflater == null) inflater = new Inflater();
+    try {
+      return inflate(inflater, compressed, len, expectedSize);
+    } finally {
+      inflater.reset();
+      if (!inflaters.offer(inflater))
+        inflater.end(); // enough in the pool already
     }
+  }
 
-    private byte[] shuffle(byte[] data, int n) throws IOException {
-      if (debug) System.out.println(" shuffle bytes in= " + data.length + " n= " + n);
+  static private byte[] inflate(Inflater inflater, byte[] compressed, int len, int expectedSize) throws IOException {
+    inflater.setInput(compressed, 0, len);
+
+    byte[] result = new byte[Math.max(expectedSize, 1)];
+    int pos = 0;
+    try {
+      while (!inflater.finished()) {
+        if (pos == result.length)
+          result = Arrays.copyOf(result, 2 * result.length); // bigger than expected
+        int n = inflater.inflate(result, pos, result.length - pos);
+        if ((n == 0) && (inflater.needsInput() || inflater.needsDictionary()))
+          throw new IOException("Unexpected end of compressed chunk");
+        pos += n;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException(e.getMessage(), e);
+    }
 
-      assert data.length % n == 0;
-      if (n <= 1) return data;
+    return (pos == result.length) ? result : Arrays.copyOf(result, pos);
+  }
 
-      int m = data.length / n;
-      int[] count = new int[n];
-      for (int k = 0; k < n; k++) count[k] = k * m;
+  /**
+   * Undo the HDF5 shuffle filter, in place.
+   * Any bytes past the last whole element were not shuffled, and are left alone.
+   *
+   * @param data shuffled data
+   * @param len  number of bytes of data
+   * @param n    element size
+   */
+  static void unshuffle(byte[] data, int len, int n) {
+    if (n <= 1) return;
+    int m = len / n;
+
+    byte[] org = shuffleBuffers.poll();
+    if (org == null || org.length < m * n)
+      org = new byte[m * n]; // a smaller one is dropped
+    System.arraycopy(data, 0, org, 0, m * n);
+
+    // the jth bytes of all the elements are together, starting at j * m
+    for (int j = 0; j < n; j++) {
+      int start = j * m;
+      for (int i = 0; i < m; i++)
+        data[i * n + j] = org[start + i];
+    }
 
-      byte[] result = new byte[data.length];
-      /* for (int i = 0; i < data.length; i += n) {
-        for (int k = 0; k < n; k++) {
-          result[count[k]++] = data[i + k];
-        }
-      } */
+    shuffleBuffers.offer(org); // dropped if enough in the pool already
+  }
 
-      for (int i = 0; i < m; i++) {
-        for (int j = 0; j < n; j++) {
-          result[i*n+j] = data[i + count[j]];
-        }
+  /**
+   * The decoded chunks of all open files, so that overlapping reads dont decode the same chunk again.
+   * A chunk is identified by its file and its position in the file.
+   * The least recently used chunks are dropped when the total size is more than maxBytes.
+   */
+  static class ChunkCache {
+    private final long maxBytes;
+    private final LinkedHashMap<Key, ByteBuffer> map = new LinkedHashMap<Key, ByteBuffer>(16, .75f, true); // access order
+    private long bytes;
+
+    ChunkCache(long maxBytes) {
+      this.maxBytes = maxBytes;
+    }
+
+    synchronized ByteBuffer get(RandomAccessFile raf, long filePos) {
+      return map.get(new Key(raf, filePos));
+    }
+
+    synchronized void put(RandomAccessFile raf, long filePos, ByteBuffer bb) {
+      if (bb.limit() > maxBytes) return;
+      ByteBuffer old = map.put(new Key(raf, filePos), bb);
+      if (old != null) bytes -= old.limit();
+      bytes += bb.limit();
+
+      Iterator<ByteBuffer> iter = map.values().iterator();
+      while ((bytes > maxBytes) && iter.hasNext()) {
+        bytes -= iter.next().limit();
+        iter.remove();
       }
+    }
 
-      return result;
+    synchronized void release(RandomAccessFile raf) {
+      Iterator<java.util.Map.Entry<Key, ByteBuffer>> iter = map.entrySet().iterator();
+      while (iter.hasNext()) {
+        java.util.Map.Entry<Key, ByteBuffer> entry = iter.next();
+        if (entry.getKey().raf == raf) {
+          bytes -= entry.getValue().limit();
+          iter.remove();
+        }
+      }
     }
 
-    boolean isBitSet(int val, int bitno) {
-      return ((val >>> bitno) & 1) != 0;
+    synchronized int size() {
+      return map.size();
     }
 
+    synchronized long getBytes() {
+      return bytes;
+    }
   }
 
+  // identity of the file, so that the cache does not depend on RandomAccessFile.equals()
+  static private class Key {
+    private final RandomAccessFile raf;
+    private final long filePos;
+
+    Key(RandomAccessFile raf, long filePos) {
+      this.raf = raf;
+      this.filePos = filePos;
+    }
 
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      Key key = (Key) o;
+      return (raf == key.raf) && (filePos == key.filePos);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(raf) + (int) (filePos ^ (filePos >>> 32));
+    }
+  }
 }
\ No newline at end of file
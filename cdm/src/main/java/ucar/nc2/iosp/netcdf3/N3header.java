@@ -38,6 +38,10 @@ import ucar.nc2.constants.CDM;
 import ucar.unidata.io.RandomAccessFile;
 
 import java.util.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 
 
@@ -320,7 +324,11 @@ public class N3header {
       }
     }
 
-    // check for truncated files
+    checkTruncation(actualSize);
+  }
+
+  // check for truncated files
+  private void checkTruncation(long actualSize) throws IOException {
     // theres a "wart" that allows a file to be up to 3 bytes smaller than you expect.
     long calcSize = dataStart + nonRecordDataSize + recsize * numrecs;
     if (calcSize > actualSize + 3) {
@@ -331,7 +339,85 @@ public class N3header {
         raf.setExtendMode();
       }
     }
+  }
+
+  /**
+   * The layout of the data in the file, after read(). Stored in the header cache along with the metadata.
+   *
+   * @return layout, to be passed to restore()
+   * @throws IOException on write error
+   */
+  byte[] getLayout() throws IOException {
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bout);
+    out.writeBoolean(useLongOffset);
+    out.writeBoolean(isStreaming);
+    out.writeInt(numrecs);
+    out.writeLong(recsize);
+    out.writeLong(recStart);
+    out.writeLong(nonRecordDataSize);
+    out.writeLong(dataStart);
+    out.writeLong(globalAttsPos);
+
+    List<Variable> vars = ncfile.getRootGroup().getVariables();
+    out.writeInt(vars.size());
+    for (Variable v : vars) {
+      Vinfo vinfo = (Vinfo) v.getSPobject();
+      out.writeLong(vinfo.vsize);
+      out.writeLong(vinfo.begin);
+      out.writeBoolean(vinfo.isRecord);
+      out.writeLong(vinfo.attsPos);
+    }
+    out.close();
+    return bout.toByteArray();
+  }
 
+  /**
+   * Instead of read(), use the metadata and layout from the header cache. The ncfile already has the metadata.
+   *
+   * @param raf    read from this file
+   * @param ncfile has the metadata from the header cache
+   * @param layout from getLayout()
+   * @throws IOException on read error, or if the layout doesnt match the metadata
+   */
+  void restore(ucar.unidata.io.RandomAccessFile raf, ucar.nc2.NetcdfFile ncfile, byte[] layout) throws IOException {
+    this.raf = raf;
+    this.ncfile = ncfile;
+
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(layout));
+    useLongOffset = in.readBoolean();
+    isStreaming = in.readBoolean();
+    numrecs = in.readInt();
+    recsize = in.readLong();
+    recStart = in.readLong();
+    nonRecordDataSize = in.readLong();
+    dataStart = in.readLong();
+    globalAttsPos = in.readLong();
+
+    List<Variable> vars = ncfile.getRootGroup().getVariables();
+    int nvars = in.readInt();
+    if (nvars != vars.size())
+      throw new IOException("Header cache has "+nvars+" variables, expected "+vars.size()+" for "+raf.getLocation());
+    for (Variable v : vars) {
+      Vinfo vinfo = new Vinfo(in.readLong(), in.readLong(), in.readBoolean(), in.readLong());
+      v.setSPobject(vinfo);
+      if (vinfo.isRecord) uvars.add(v);
+    }
+
+    for (Dimension dim : ncfile.getRootGroup().getDimensions())
+      if (dim.isUnlimited()) udim = dim;
+
+    checkTruncation(raf.length());
+  }
+
+  /**
+   * The number of bytes in the header, after read(): everything before the data.
+   * Includes numrecs, so the header cache sees a change in the number of records.
+   *
+   * @return header size in bytes
+   */
+  int getHeaderSize() {
+    return (int) Math.min(dataStart, Integer.MAX_VALUE);
   }
 
   long calcFileSize() {
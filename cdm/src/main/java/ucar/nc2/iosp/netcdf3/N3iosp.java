@@ -38,11 +38,13 @@ import ucar.nc2.constants.CDM;
 import ucar.unidata.io.RandomAccessFile;
 import ucar.nc2.*;
 import ucar.nc2.iosp.*;
+import ucar.nc2.stream.NcStreamHeaderCache;
 
 import java.util.*;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 import java.io.*;
+import java.nio.ByteOrder;
 import java.nio.channels.WritableByteChannel;
 
 /**
@@ -112,11 +114,13 @@ public abstract class N3iosp extends AbstractIOServiceProvider implements IOServ
   static public final int MAX_NUMRECS = Integer.MAX_VALUE;
 
   static private boolean syncExtendOnly = false;
+  static private boolean directArrays = false;
 
   /**
    * Set a static property.
    * Supported static properties: <ul>
    * <li> syncExtendOnly = "true" : assume all file changes are syncExtend only.
+   * <li> directArrays = "true" : read numeric variables of files opened read-only into off-heap ArrayDirect.
    * </ul>
    *
    * @param name  property name
@@ -125,6 +129,8 @@ public abstract class N3iosp extends AbstractIOServiceProvider implements IOServ
   static public void setProperty(String name, String value) {
     if (name.equalsIgnoreCase("syncExtendOnly"))
       syncExtendOnly = value.equalsIgnoreCase("true");
+    else if (name.equalsIgnoreCase("directArrays"))
+      directArrays = value.equalsIgnoreCase("true");
   }
 
 /*
@@ -401,12 +407,14 @@ public String NC_check_name(String name) {
   public void openForWriting(ucar.unidata.io.RandomAccessFile raf, ucar.nc2.NetcdfFile ncfile,
                    ucar.nc2.util.CancelTask cancelTask) throws IOException {
     open(raf, ncfile, cancelTask);
+    readonly = false;
   }
 
   public void open(ucar.unidata.io.RandomAccessFile raf, ucar.nc2.NetcdfFile ncfile,
                    ucar.nc2.util.CancelTask cancelTask) throws IOException {
     super.open(raf, ncfile, cancelTask);
     this.ncfile = ncfile;
+    this.readonly = true;
 
     String location = raf.getLocation();
     if (!location.startsWith("http:")) {
@@ -419,7 +427,23 @@ public String NC_check_name(String name) {
     raf.order(RandomAccessFile.BIG_ENDIAN);
     header = new N3header();
 
-    header.read(raf, ncfile, null); // read header here
+    byte[] layout = NcStreamHeaderCache.read(raf, ncfile, getFileTypeId());
+    if (layout != null) {
+      try {
+        header.restore(raf, ncfile, layout); // header already parsed, from the cache
+      } catch (Exception e) {
+        log.warn("N3iosp cant use cached header for " + raf.getLocation() + " " + e.getMessage());
+        NcStreamHeaderCache.invalidate(raf, ncfile);
+        header = new N3header();
+        layout = null;
+      }
+    }
+
+    if (layout == null) {
+      header.read(raf, ncfile, null); // read header here
+      if (NcStreamHeaderCache.isEnabled())
+        NcStreamHeaderCache.write(raf, ncfile, getFileTypeId(), header.getLayout(), header.getHeaderSize());
+    }
     //numrecs = header.numrecs;
     //recsize = header.recsize;
     //recStart = header.recStart;
@@ -456,6 +480,10 @@ public String NC_check_name(String name) {
       return Array.factory(dataType.getPrimitiveClassType(), section.getShape());
     }
 
+    // read straight into an off-heap buffer; only when read-only, since it bypasses the raf buffer
+    if (directArrays && readonly && ArrayDirect.isSupported(dataType))
+      return IospHelper.readDataDirect(raf, layout, dataType, section.getShape(), ByteOrder.BIG_ENDIAN);
+
     Object data = readData(layout, dataType);
     return Array.factory(dataType.getPrimitiveClassType(), section.getShape(), data);
   }
@@ -36,6 +36,8 @@ import ucar.ma2.*;
 import ucar.nc2.constants.CDM;
 import ucar.nc2.iosp.Layout;
 import ucar.nc2.iosp.IospHelper;
+import ucar.unidata.io.MMapRandomAccessFile;
+import ucar.unidata.io.ViewRandomAccessFile;
 
 import java.nio.channels.WritableByteChannel;
 
@@ -46,8 +48,13 @@ import java.nio.channels.WritableByteChannel;
  */
 
 public class N3raf extends N3iosp  {
+  // use thread safe positional reads for data when reading a local file, so concurrent reads can share the file.
+  // Note that a thread interrupted during a positional read closes the file for all users; see RandomAccessFile.pread_()
+  private boolean positionalReads = false;
 
   protected void _open(ucar.unidata.io.RandomAccessFile raf) throws java.io.IOException {
+    // remote and in-memory files have no local file underneath, and rely on the read buffer
+    positionalReads = (raf.getRandomAccessFile() != null) || (raf instanceof MMapRandomAccessFile);
   }
 
   protected void _create(ucar.unidata.io.RandomAccessFile raf) throws java.io.IOException {
@@ -60,6 +67,16 @@ public class N3raf extends N3iosp  {
    * @return primitive array with data read in
    */
  protected Object readData( Layout index, DataType dataType) throws java.io.IOException {
+   if (positionalReads) {
+     // a view for each read has its own buffer, so small chunks (eg small records) are read a buffer at a time as usual,
+     // but through positional reads of the shared file
+     ViewRandomAccessFile view = new ViewRandomAccessFile(raf, raf.getBufferSize());
+     try {
+       return IospHelper.readDataFill(view, index, dataType, null, -1);
+     } finally {
+       view.close();
+     }
+   }
    return IospHelper.readDataFill(raf, index, dataType, null, -1);
  }
 
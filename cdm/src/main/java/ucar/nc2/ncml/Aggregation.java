@@ -123,6 +123,12 @@ public abstract class Aggregation {
     executor = exec;
   }
 
+  // maximum number of nested datasets that one section read has in progress at once
+  static protected int maxReadTasks = 8;
+  static public void setMaxReadTasks(int max) {
+    maxReadTasks = Math.max(1, max);
+  }
+
   static public void setTypicalDatasetMode(String mode) {
     if (mode.equalsIgnoreCase("random"))
       typicalDatasetMode = TypicalDataset.RANDOM;
@@ -40,6 +40,7 @@ import ucar.nc2.units.DateFromString;
 import ucar.ma2.*;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -275,8 +276,10 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
 
     if (debug) System.out.println("   agg wants range=" + mainv.getFullName() + "(" + joinRange + ")");
 
-    // LOOK: could multithread here
     List<Dataset> nestedDatasets = getDatasets();
+    if (useExecutor())
+      return readSectionConcurrent(mainv, section, nestedDatasets, dtype, sectionData, cancelTask);
+
     for (Dataset nested : nestedDatasets) {
       DatasetOuterDimension dod = (DatasetOuterDimension) nested;
       Range nestedJoinRange = dod.getNestedJoinRange(joinRange);
@@ -304,6 +307,114 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
     return sectionData;
   }
 
+  // true while this thread is running a SectionReaderTask
+  static private final ThreadLocal<Boolean> inReadTask = new ThreadLocal<Boolean>();
+
+  // A nested dataset that is itself an aggregation is read serially on the thread that reads it.
+  // Otherwise outer tasks would wait on inner tasks in the same executor, which deadlocks when it is full of outer tasks.
+  private boolean useExecutor() {
+    return (executor != null) && (inReadTask.get() == null);
+  }
+
+  // read the nested datasets in parallel, at most maxReadTasks at a time, each copied into its own part of sectionData
+  private Array readSectionConcurrent(Variable mainv, Section section, List<Dataset> nestedDatasets, DataType dtype,
+                                      Array sectionData, CancelTask cancelTask) throws IOException, InvalidRangeException {
+    List<Range> ranges = section.getRanges();
+    Range joinRange = section.getRange(0);
+    List<Range> innerSection = ranges.subList(1, ranges.size());
+    long innerSize = 1;
+    for (Range r : innerSection) innerSize *= r.length();
+
+    // find which nested datasets are needed, and where their data goes
+    List<SectionReaderTask> tasks = new ArrayList<SectionReaderTask>();
+    long destPos = 0;
+    for (Dataset nested : nestedDatasets) {
+      DatasetOuterDimension dod = (DatasetOuterDimension) nested;
+      Range nestedJoinRange = dod.getNestedJoinRange(joinRange);
+      if (nestedJoinRange == null)
+        continue;
+
+      List<Range> nestedSection;
+      if ((type == Type.joinNew) || (type == Type.forecastModelRunCollection)) {
+        nestedSection = innerSection;
+      } else {
+        nestedSection = new ArrayList<Range>(ranges);
+        nestedSection.set(0, nestedJoinRange);
+      }
+      long size = nestedJoinRange.length() * innerSize;
+      if (destPos + size > sectionData.getSize())
+        throw new IllegalStateException("readSection " + mainv.getFullName() + ": nested data at " + destPos + " size " + size
+                + " exceeds result size " + sectionData.getSize());
+      tasks.add(new SectionReaderTask(dod, mainv, nestedSection, cancelTask, destPos));
+      destPos += size;
+    }
+
+    CompletionService<Result> completionService = new ExecutorCompletionService<Result>(executor);
+    List<Future<Result>> futures = new ArrayList<Future<Result>>(tasks.size());
+    int nextTask = 0;
+    try {
+      while (nextTask < tasks.size() && nextTask < maxReadTasks)
+        futures.add(completionService.submit(tasks.get(nextTask++)));
+
+      for (int i = 0; i < tasks.size(); i++) {
+        Result r = completionService.take().get();
+        if ((cancelTask != null) && cancelTask.isCancel())
+          return null;
+        if (nextTask < tasks.size())
+          futures.add(completionService.submit(tasks.get(nextTask++)));
+
+        Array varData = MAMath.convert(r.data, dtype); // just in case it need to be converted
+        if (r.index + varData.getSize() > sectionData.getSize())
+          throw new IllegalStateException("readSection " + mainv.getFullName() + ": nested data at " + r.index + " size "
+                  + varData.getSize() + " exceeds result size " + sectionData.getSize());
+        Array.arraycopy(varData, 0, sectionData, (int) r.index, (int) varData.getSize());
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("readSection interrupted " + mainv.getFullName());
+
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof InvalidRangeException) throw (InvalidRangeException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new IOException(cause.getMessage(), cause);
+
+    } finally {
+      for (Future<Result> f : futures) f.cancel(false); // no-op if already done
+    }
+
+    return sectionData;
+  }
+
+  // reads one nested dataset; Result.index is the position in the result array
+  private class SectionReaderTask implements Callable<Result> {
+    DatasetOuterDimension dod;
+    Variable mainv;
+    List<Range> nestedSection;
+    CancelTask cancelTask;
+    long destPos;
+
+    SectionReaderTask(DatasetOuterDimension dod, Variable mainv, List<Range> nestedSection, CancelTask cancelTask, long destPos) {
+      this.dod = dod;
+      this.mainv = mainv;
+      this.nestedSection = nestedSection;
+      this.cancelTask = cancelTask;
+      this.destPos = destPos;
+    }
+
+    public Result call() throws Exception {
+      inReadTask.set(Boolean.TRUE);
+      try {
+        Array data = dod.read(mainv, cancelTask, nestedSection);
+        return new Result(data, destPos);
+      } finally {
+        inReadTask.remove();
+      }
+    }
+  }
+
   /**
    * Read an aggregation variable: A variable whose data spans multiple files.
    * This is an implementation of ProxyReader, so must fulfill that contract.
@@ -345,27 +456,12 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
     int destPos = 0;
 
     List<Dataset> nestedDatasets = getDatasets();
-    if (executor != null) {
-      CompletionService<Result> completionService = new ExecutorCompletionService<Result>(executor);
-
-      int count = 0;
-      for (Dataset vnested : nestedDatasets)
-        completionService.submit(new ReaderTask(vnested, mainv, cancelTask, count++));
-
+    if (useExecutor()) {
       try {
-        int n = nestedDatasets.size();
-        for (int i = 0; i < n; ++i) {
-          Result r = completionService.take().get();
-          r.data = MAMath.convert(r.data, dtype); // just in case it need to be converted
-          if (r != null) {
-            int size = (int) r.data.getSize();
-            Array.arraycopy(r.data, 0, allData, size * r.index, size);
-          }
-        }
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-      } catch (ExecutionException e) {
-        throw new IOException(e.getMessage());
+        return readSectionConcurrent(mainv, mainv.getShapeAsSection(), nestedDatasets, dtype, allData, cancelTask);
+      } catch (InvalidRangeException e) {
+        logger.error("readAgg " + getLocation(), e);
+        throw new IllegalArgumentException("readAgg " + getLocation(), e);
       }
 
     } else {
@@ -384,30 +480,11 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
     return allData;
   }
 
-  private class ReaderTask implements Callable<Result> {
-    Dataset ds;
-    Variable mainv;
-    CancelTask cancelTask;
-    int index;
-
-    ReaderTask(Dataset ds, Variable mainv, CancelTask cancelTask, int index) {
-      this.ds = ds;
-      this.mainv = mainv;
-      this.cancelTask = cancelTask;
-      this.index = index;
-    }
-
-    public Result call() throws Exception {
-      Array data = ds.read(mainv, cancelTask);
-      return new Result(data, index);
-    }
-  }
-
   private class Result {
     Array data;
-    int index;
+    long index;
 
-    Result(Array data, int index) {
+    Result(Array data, long index) {
       this.data = data;
       this.index = index;
     }
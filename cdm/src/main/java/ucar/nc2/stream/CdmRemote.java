@@ -60,11 +60,20 @@ public class CdmRemote extends ucar.nc2.NetcdfFile {
 
   static private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CdmRemote.class);
   static private boolean showRequest = false;
+  static private boolean deflate = false;
 
   static public void setDebugFlags(ucar.nc2.util.DebugFlags debugFlag) {
     showRequest = debugFlag.isSet("CdmRemote/showRequest");
   }
 
+  /**
+   * Ask the server to deflate the data it sends back. Worth it on slow networks, the server compresses as it reads.
+   * @param b true to ask for deflated data, default false
+   */
+  static public void setDeflate(boolean b) {
+    deflate = b;
+  }
+
   /**
    * Create the canonical form of the URL.
    * If the urlName starts with "http:", change it to start with "cdmremote:", otherwise
@@ -158,6 +167,7 @@ public class CdmRemote extends ucar.nc2.NetcdfFile {
       f.format("(%s)", section.toString());
     }
     sbuff.append( URLEncoder.encode(f.toString(), "UTF-8")); // % escape entire thing varname and section
+    if (deflate) sbuff.append("&deflate=true");
 
     if (showRequest)
       System.out.println(" CdmRemote data request for variable: " + v.getFullName() + " section= " + section + " url=" + sbuff);
@@ -174,7 +184,7 @@ public class CdmRemote extends ucar.nc2.NetcdfFile {
         throw new IOException(method.getPath() + " " + method.getStatusLine());
 
       Header h = method.getResponseHeader("Content-Length");
-      if (h != null) {
+      if (h != null && !deflate) {
         String s = h.getValue();
         int readLen = Integer.parseInt(s);
         if (showRequest)
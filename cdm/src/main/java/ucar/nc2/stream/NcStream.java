@@ -74,6 +74,12 @@ public class NcStream {
   static public final byte[] MAGIC_ERR = new byte[]{(byte) 0xab, (byte) 0xad, (byte) 0xba, (byte) 0xda};
   static public final byte[] MAGIC_END = new byte[]{(byte) 0xed, (byte) 0xed, (byte) 0xde, (byte) 0xde};
 
+  /**
+   * Data message version where deflated data is sent as it is compressed, as a sequence of chunks
+   * (vint len, len bytes), ending with a zero length chunk. Earlier versions send vint len, then all the deflated bytes.
+   */
+  static public final int DATA_VERSION_CHUNKED = 3;
+
   static NcStreamProto.Group.Builder encodeGroup(Group g, int sizeToCache) throws IOException {
     NcStreamProto.Group.Builder groupBuilder = NcStreamProto.Group.newBuilder();
     groupBuilder.setName(g.getShortName());
@@ -169,8 +175,8 @@ public class NcStream {
       builder.addAtts(encodeAtt(att));
     }
 
-    // put small amounts of data in header "immediate mode"
-    if (var.isCaching() && var.getDataType().isNumeric()) {
+    // put small amounts of data in header "immediate mode", sizeToCache < 0 means never
+    if (sizeToCache >= 0 && var.isCaching() && var.getDataType().isNumeric()) {
       if (var.isCoordinateVariable() || var.getSize() * var.getElementSize() < sizeToCache) {
         Array data = var.read();
         ByteBuffer bb = data.getDataAsByteBuffer();
@@ -218,7 +224,7 @@ public class NcStream {
       builder.setUncompressedSize(uncompressedLength);
     }
     if (var.isVariableLength()) builder.setVdata(true);
-    builder.setVersion(2);
+    builder.setVersion(deflate ? DATA_VERSION_CHUNKED : 2);
     return builder.build();
   }
 
@@ -376,6 +382,7 @@ public class NcStream {
       } else {
         writeByte(out, (byte) ((value & 0x7F) | 0x80));
         value >>>= 7;
+        count++;
       }
     }
 
@@ -392,6 +399,7 @@ public class NcStream {
       } else {
         out.write((byte) ((value & 0x7F) | 0x80));
         value >>>= 7;
+        count++;
       }
     }
 
@@ -497,6 +505,118 @@ public class NcStream {
     return true;
   }
 
+  /**
+   * Writes the bytes written to it as chunks: vint len, then len bytes.
+   * finish() writes any buffered bytes and the zero length chunk that ends the sequence. The underlying stream is not closed.
+   */
+  static class ChunkedOutputStream extends OutputStream {
+    private final OutputStream out;
+    private final byte[] buff;
+    private int n;
+    private long count;  // bytes written to out
+
+    ChunkedOutputStream(OutputStream out, int chunkSize) {
+      this.out = out;
+      this.buff = new byte[chunkSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (n == buff.length) writeChunk();
+      buff[n++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        if (n == buff.length) writeChunk();
+        int want = Math.min(len, buff.length - n);
+        System.arraycopy(b, off, buff, n, want);
+        n += want;
+        off += want;
+        len -= want;
+      }
+    }
+
+    private void writeChunk() throws IOException {
+      if (n == 0) return;
+      count += writeVInt(out, n);
+      out.write(buff, 0, n);
+      count += n;
+      n = 0;
+    }
+
+    void finish() throws IOException {
+      writeChunk();
+      count += writeVInt(out, 0);
+    }
+
+    long getCount() {
+      return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+      finish();
+    }
+  }
+
+  /**
+   * Reads the bytes in a sequence of chunks written by ChunkedOutputStream, returning -1 after the zero length chunk.
+   * The underlying stream is left positioned after it, once this returns -1. The underlying stream is not closed.
+   */
+  static class ChunkedInputStream extends InputStream {
+    private final InputStream in;
+    private int remaining;  // in the current chunk
+    private boolean eof;
+
+    ChunkedInputStream(InputStream in) {
+      this.in = in;
+    }
+
+    private boolean nextChunk() throws IOException {
+      while (!eof && remaining == 0) {
+        remaining = readVInt(in);
+        if (remaining < 0) throw new IOException("ncstream truncated in chunked data");
+        if (remaining == 0) eof = true;
+      }
+      return !eof;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (!nextChunk()) return -1;
+      int b = in.read();
+      if (b < 0) throw new IOException("ncstream truncated in chunked data");
+      remaining--;
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) return 0;
+      if (!nextChunk()) return -1;
+      int nread = in.read(b, off, Math.min(len, remaining));
+      if (nread < 0) throw new IOException("ncstream truncated in chunked data");
+      remaining -= nread;
+      return nread;
+    }
+
+    /**
+     * Skip to the end of the chunks.
+     * @throws IOException on read error
+     */
+    void drain() throws IOException {
+      byte[] skip = new byte[1024];
+      while (read(skip, 0, skip.length) >= 0) ;
+    }
+
+    @Override
+    public void close() throws IOException {
+      drain();
+    }
+  }
+
   static public String decodeErrorMessage(NcStreamProto.Error err) {
     return err.getMessage();
   }
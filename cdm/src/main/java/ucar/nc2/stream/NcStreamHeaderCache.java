@@ -0,0 +1,357 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.nc2.stream;
+
+import ucar.nc2.Group;
+import ucar.nc2.NetcdfFile;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Formatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent cache of parsed file headers, so that reopening a file can skip parsing its header.
+ * The CDM metadata is stored as an ncStream header message, along with the layout of the data in the file,
+ * which is opaque to the cache and supplied by the IOSP.
+ * An entry is valid only for the same file path, last modified time and length, and the same checksum of the
+ * header bytes at the start of the file, since the modified time may only be good to the second.
+ * The total size of the cache files is bounded; the least recently used files are removed when it is exceeded.
+ * <p/>
+ * Off by default. An IOSP uses it like:
+ * <pre>
+ *   byte[] layout = NcStreamHeaderCache.read(raf, ncfile, iospId);
+ *   if (layout != null)
+ *     restore layout, ncfile already has the metadata
+ *     if that fails: NcStreamHeaderCache.invalidate(raf, ncfile), then parse as below
+ *   else {
+ *     parse header
+ *     NcStreamHeaderCache.write(raf, ncfile, iospId, layout, headerSize);
+ *   }
+ * </pre>
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class NcStreamHeaderCache {
+  static private org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(NcStreamHeaderCache.class);
+  static private final int VERSION = 2;
+  static private final String SUFFIX = ".ncsh";
+
+  static private volatile File cacheDir;
+  static private long maxSize;
+  static private final AtomicLong totalSize = new AtomicLong();
+  static private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+
+  /**
+   * Turn on the header cache.
+   *
+   * @param dir     store cache files in this directory, created if needed
+   * @param maxSizeBytes bound the total size of the cache files
+   */
+  static public synchronized void enable(String dir, long maxSizeBytes) {
+    File d = new File(dir);
+    if (!d.exists() && !d.mkdirs()) {
+      log.error("NcStreamHeaderCache cant create directory " + dir);
+      return;
+    }
+    maxSize = maxSizeBytes;
+    long total = 0;
+    File[] files = d.listFiles();
+    if (files != null) {
+      for (File f : files)
+        if (f.getName().endsWith(SUFFIX)) total += f.length();
+    }
+    totalSize.set(total);
+    cacheDir = d;
+  }
+
+  /**
+   * Turn off the header cache. The cache files are left in place.
+   */
+  static public synchronized void disable() {
+    cacheDir = null;
+  }
+
+  static public boolean isEnabled() {
+    return cacheDir != null;
+  }
+
+  static long getHits() {
+    return hits.get();
+  }
+
+  static long getMisses() {
+    return misses.get();
+  }
+
+  static public void showCache(Formatter f) {
+    File dir = cacheDir;
+    if (dir == null) {
+      f.format("NcStreamHeaderCache is off%n");
+      return;
+    }
+    f.format("NcStreamHeaderCache dir=%s size=%d maxSize=%d hits=%d misses=%d%n", dir, totalSize.get(), maxSize, hits.get(), misses.get());
+  }
+
+  /**
+   * Look for a valid cached header. If found, add the metadata to the (empty) ncfile.
+   * A stale or corrupt entry counts as a miss, and the ncfile is left empty.
+   *
+   * @param raf    the file being opened
+   * @param ncfile add metadata to this
+   * @param iospId identifies the IOSP, whose layout this is
+   * @return the IOSP layout, or null if not in the cache
+   */
+  static public byte[] read(RandomAccessFile raf, NetcdfFile ncfile, String iospId) {
+    File dir = cacheDir;
+    if (dir == null) return null;
+    File file = getDataFile(raf);
+    if (file == null) return null;
+
+    File cacheFile = getCacheFile(dir, file);
+    if (!cacheFile.exists()) {
+      misses.incrementAndGet();
+      return null;
+    }
+
+    NcStreamProto.Header proto;
+    byte[] layout;
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+      if (in.readInt() != VERSION || !in.readUTF().equals(file.getPath()) || in.readLong() != file.lastModified() ||
+              in.readLong() != file.length() || !in.readUTF().equals(iospId)) {
+        misses.incrementAndGet();
+        return null; // stale, will get overwritten
+      }
+      int headerSize = in.readInt();
+      if (in.readLong() != checksum(raf, headerSize)) { // changed within the same second, with the same length
+        misses.incrementAndGet();
+        return null;
+      }
+      byte[] b = new byte[in.readInt()];
+      in.readFully(b);
+      proto = NcStreamProto.Header.parseFrom(b);
+      layout = new byte[in.readInt()];
+      in.readFully(layout);
+
+    } catch (IOException ioe) {
+      log.warn("NcStreamHeaderCache failed to read " + cacheFile.getPath() + " " + ioe.getMessage());
+      misses.incrementAndGet();
+      return null;
+
+    } finally {
+      if (in != null) try {
+        in.close();
+      } catch (IOException ioe) {
+      }
+    }
+
+    try {
+      NcStream.readGroup(proto.getRoot(), ncfile, ncfile.getRootGroup());
+    } catch (Exception e) {
+      log.warn("NcStreamHeaderCache corrupt file " + cacheFile.getPath() + " " + e.getMessage());
+      invalidate(raf, ncfile);
+      misses.incrementAndGet();
+      return null;
+    }
+    if (proto.hasId()) ncfile.setId(proto.getId());
+    if (proto.hasTitle()) ncfile.setTitle(proto.getTitle());
+
+    cacheFile.setLastModified(System.currentTimeMillis()); // for LRU
+    hits.incrementAndGet();
+    return layout;
+  }
+
+  /**
+   * Store the parsed header in the cache. Does nothing if the cache is not enabled.
+   *
+   * @param raf    the file being opened
+   * @param ncfile its metadata, as parsed by the IOSP
+   * @param iospId identifies the IOSP, whose layout this is
+   * @param layout the layout of the data in the file, opaque to the cache
+   * @param headerSize the header is in this many bytes at the start of the file; their checksum is part of the entry
+   */
+  static public void write(RandomAccessFile raf, NetcdfFile ncfile, String iospId, byte[] layout, int headerSize) {
+    File dir = cacheDir;
+    if (dir == null) return;
+    File file = getDataFile(raf);
+    if (file == null) return;
+
+    File cacheFile = getCacheFile(dir, file);
+    File tmpFile = new File(dir, cacheFile.getName() + "." + Thread.currentThread().getId() + ".tmp");
+    DataOutputStream out = null;
+    try {
+      NcStreamProto.Header.Builder headerBuilder = NcStreamProto.Header.newBuilder();
+      headerBuilder.setLocation(file.getPath());
+      if (ncfile.getTitle() != null) headerBuilder.setTitle(ncfile.getTitle());
+      if (ncfile.getId() != null) headerBuilder.setId(ncfile.getId());
+      headerBuilder.setRoot(NcStream.encodeGroup(ncfile.getRootGroup(), -1)); // no data in the header
+      byte[] b = headerBuilder.build().toByteArray();
+      long checksum = checksum(raf, headerSize);
+
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+      out.writeInt(VERSION);
+      out.writeUTF(file.getPath());
+      out.writeLong(file.lastModified());
+      out.writeLong(file.length());
+      out.writeUTF(iospId);
+      out.writeInt(headerSize);
+      out.writeLong(checksum);
+      out.writeInt(b.length);
+      out.write(b);
+      out.writeInt(layout.length);
+      out.write(layout);
+      out.close();
+      out = null;
+
+      long oldSize = cacheFile.exists() ? cacheFile.length() : 0;
+      if (cacheFile.exists() && !cacheFile.delete()) return; // someone else has it
+      if (!tmpFile.renameTo(cacheFile)) return;
+      if (totalSize.addAndGet(cacheFile.length() - oldSize) > maxSize)
+        evict(dir);
+
+    } catch (IOException ioe) {
+      log.warn("NcStreamHeaderCache failed to write " + cacheFile.getPath() + " " + ioe.getMessage());
+
+    } finally {
+      if (out != null) try {
+        out.close();
+      } catch (IOException ioe) {
+      }
+      if (tmpFile.exists()) tmpFile.delete();
+    }
+  }
+
+  /**
+   * The cached header could not be used, eg the IOSP layout doesnt match the metadata.
+   * Remove whatever metadata was added to the ncfile, and delete the entry. The IOSP then parses the header
+   * and writes a new entry.
+   *
+   * @param raf    the file being opened
+   * @param ncfile remove all metadata from this
+   */
+  static public void invalidate(RandomAccessFile raf, NetcdfFile ncfile) {
+    ncfile.empty();
+    Group root = ncfile.getRootGroup();
+    root.getVariables().clear();
+    root.getDimensions().clear();
+    root.getAttributes().clear();
+    root.getEnumTypedefs().clear();
+    root.getGroups().clear();
+    ncfile.setId(null);
+    ncfile.setTitle(null);
+
+    File dir = cacheDir;
+    if (dir == null) return;
+    File file = getDataFile(raf);
+    if (file == null) return;
+    File cacheFile = getCacheFile(dir, file);
+    long len = cacheFile.length();
+    if (cacheFile.delete())
+      totalSize.addAndGet(-len);
+  }
+
+  // CRC32 of the first nbytes of the file
+  static private long checksum(RandomAccessFile raf, int nbytes) throws IOException {
+    if (nbytes < 0 || nbytes > raf.length())
+      return -1; // cant match a CRC32, which is never negative
+    byte[] b = new byte[nbytes];
+    raf.seek(0);
+    raf.readFully(b);
+    CRC32 crc = new CRC32();
+    crc.update(b);
+    return crc.getValue();
+  }
+
+  // remove least recently used files until under 80% of maxSize
+  static private synchronized void evict(File dir) {
+    File[] files = dir.listFiles(new FilenameFilter() {
+      public boolean accept(File dir, String name) {
+        return name.endsWith(SUFFIX);
+      }
+    });
+    if (files == null) return;
+
+    long total = 0;
+    for (File f : files) total += f.length();
+    Arrays.sort(files, new Comparator<File>() {
+      public int compare(File o1, File o2) {
+        long m1 = o1.lastModified(), m2 = o2.lastModified();
+        return (m1 < m2) ? -1 : ((m1 == m2) ? 0 : 1);
+      }
+    });
+
+    long want = maxSize * 8 / 10;
+    for (File f : files) {
+      if (total <= want) break;
+      long len = f.length();
+      if (f.delete()) total -= len;
+    }
+    totalSize.set(total);
+  }
+
+  // only local files can be cached
+  static private File getDataFile(RandomAccessFile raf) {
+    String location = raf.getLocation();
+    if (location == null || location.startsWith("http:") || location.startsWith("https:")) return null;
+    File file = new File(location);
+    if (!file.exists()) return null;
+    return file.getAbsoluteFile();
+  }
+
+  static private File getCacheFile(File dir, File file) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("MD5");
+      byte[] digest = md.digest(file.getPath().getBytes("UTF-8"));
+      StringBuilder sbuff = new StringBuilder();
+      for (byte b : digest)
+        sbuff.append(String.format("%02x", b));
+      sbuff.append(SUFFIX);
+      return new File(dir, sbuff.toString());
+
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
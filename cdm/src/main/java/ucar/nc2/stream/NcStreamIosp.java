@@ -44,6 +44,7 @@ import ucar.ma2.*;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
@@ -176,7 +177,7 @@ public class NcStreamIosp extends AbstractIOServiceProvider {
     int size;
     long filePos;
     Section section;
-    boolean isVlen, isDeflate;
+    boolean isVlen, isDeflate, isChunked;
     int nelems, uncompressedLen;
 
     @Override
@@ -186,7 +187,8 @@ public class NcStreamIosp extends AbstractIOServiceProvider {
               ", section=" + section +
               ", nelems=" + nelems +
               ", isVlen=" + isVlen +
-              ", isDeflate=" + isDeflate;
+              ", isDeflate=" + isDeflate +
+              ", isChunked=" + isChunked;
     }
   }
 
@@ -204,7 +206,8 @@ public class NcStreamIosp extends AbstractIOServiceProvider {
         raf.read(data);
 
         if (dataStorage.isDeflate) {
-          ByteArrayInputStream bin = new ByteArrayInputStream(data);
+          InputStream bin = new ByteArrayInputStream(data);
+          if (dataStorage.isChunked) bin = new NcStream.ChunkedInputStream(bin);
           InflaterInputStream in = new InflaterInputStream(bin);
           ByteArrayOutputStream bout = new ByteArrayOutputStream(data.length * 7);
           IO.copy(in, bout);
@@ -344,14 +347,30 @@ public class NcStreamIosp extends AbstractIOServiceProvider {
         v.setSPobject(storage);
       }
 
-      if (!dproto.getVdata()) { // regular data
+      boolean isDeflate = dproto.getCompress() == NcStreamProto.Compress.DEFLATE;
+      if (!dproto.getVdata() && isDeflate && dproto.getVersion() >= NcStream.DATA_VERSION_CHUNKED) { // deflated in chunks
+        DataStorage dataStorage = new DataStorage();
+        dataStorage.filePos = raf.getFilePointer();
+        int chunkSize;
+        while ((chunkSize = readVInt(raf)) > 0)
+          raf.skipBytes(chunkSize);
+        dataStorage.size = (int) (raf.getFilePointer() - dataStorage.filePos); // includes the chunk lengths
+        dataStorage.section = NcStream.decodeSection(dproto.getSection());
+        dataStorage.nelems = (int) dataStorage.section.computeSize();
+        dataStorage.isDeflate = true;
+        dataStorage.isChunked = true;
+        dataStorage.uncompressedLen = dproto.getUncompressedSize();
+        if (ncm != null) ncm.add(new NcsMess(dataStorage.filePos, dataStorage.size, dataStorage));
+        storage.add(dataStorage);
+
+      } else if (!dproto.getVdata()) { // regular data
         int dsize = readVInt(raf);
         DataStorage dataStorage = new DataStorage();
         dataStorage.size = dsize;
         dataStorage.filePos = raf.getFilePointer();
         dataStorage.section = NcStream.decodeSection(dproto.getSection());
         dataStorage.nelems = (int) dataStorage.section.computeSize();
-        dataStorage.isDeflate = dproto.getCompress() == NcStreamProto.Compress.DEFLATE;
+        dataStorage.isDeflate = isDeflate;
         if (dataStorage.isDeflate)
           dataStorage.uncompressedLen = dproto.getUncompressedSize();
         if (ncm != null) ncm.add(new NcsMess(dataStorage.filePos, dsize, dataStorage));
@@ -36,9 +36,13 @@ import ucar.nc2.NetcdfFile;
 import ucar.nc2.Structure;
 import ucar.ma2.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import com.google.protobuf.InvalidProtocolBufferException;
 import ucar.nc2.constants.CDM;
@@ -128,6 +132,39 @@ public class NcStreamReader {
     DataType dataType = NcStream.decodeDataType(dproto.getDataType());
     Section section = (dataType == DataType.SEQUENCE) ? new Section() : NcStream.decodeSection(dproto.getSection());
 
+    if (dproto.getCompress() == NcStreamProto.Compress.DEFLATE) {
+      if (dproto.getVersion() >= NcStream.DATA_VERSION_CHUNKED) {
+        // inflate as we read the chunks
+        NcStream.ChunkedInputStream cin = new NcStream.ChunkedInputStream(is);
+        Inflater inflater = new Inflater();
+        try {
+          DataResult result = readData(new InflaterInputStream(cin, inflater, 8 * 1024), dproto, dataType, section, ncfile);
+          cin.drain(); // position is at the end of the message
+          return result;
+        } finally {
+          inflater.end();
+        }
+
+      } else {
+        int csize = NcStream.readVInt(is);
+        byte[] compressed = new byte[csize];
+        NcStream.readFully(is, compressed);
+        Inflater inflater = new Inflater();
+        try {
+          return readData(new InflaterInputStream(new ByteArrayInputStream(compressed), inflater), dproto, dataType, section, ncfile);
+        } finally {
+          inflater.end();
+        }
+      }
+    }
+
+    return readData(is, dproto, dataType, section, ncfile);
+  }
+
+  // is: the uncompressed data
+  private DataResult readData(InputStream is, NcStreamProto.Data dproto, DataType dataType, Section section, NetcdfFile ncfile) throws IOException {
+    boolean deflate = (dproto.getCompress() == NcStreamProto.Compress.DEFLATE);
+
     // special cases
     if (dataType == DataType.STRING) {
       Array data = Array.factory(dataType, section.getShape());
@@ -154,10 +191,25 @@ public class NcStreamReader {
     } 
 
     // otherwise read data message
-    int dsize = NcStream.readVInt(is);
-    if (debug) System.out.println("  readData data len= " + dsize);
-    byte[] datab = new byte[dsize];
-    NcStream.readFully(is, datab);
+    byte[] datab;
+    if (!deflate) {
+      int dsize = NcStream.readVInt(is);
+      if (debug) System.out.println("  readData data len= " + dsize);
+      datab = new byte[dsize];
+      NcStream.readFully(is, datab);
+
+    } else if (dataType == DataType.STRUCTURE) { // uncompressed size not known
+      ByteArrayOutputStream bout = new ByteArrayOutputStream();
+      byte[] buff = new byte[8 * 1024];
+      int n;
+      while ((n = is.read(buff)) >= 0)
+        bout.write(buff, 0, n);
+      datab = bout.toByteArray();
+
+    } else {
+      datab = new byte[dproto.getUncompressedSize()];
+      NcStream.readFully(is, datab);
+    }
 
     if (dataType == DataType.STRUCTURE) {
       Structure s = (Structure) ncfile.findVariable(dproto.getVarName());
@@ -37,9 +37,9 @@ import ucar.nc2.*;
 import ucar.nc2.constants.CDM;
 import ucar.nc2.iosp.IospHelper;
 
-import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
 import java.io.IOException;
+import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 
 /**
@@ -50,6 +50,7 @@ import java.util.zip.DeflaterOutputStream;
  */
 public class NcStreamWriter {
   static private long maxChunk = 1 * 1000 * 1000; // 1 MByte
+  static private int deflateChunkSize = 64 * 1000; // size of the deflated chunks written to the stream
   static private int sizeToCache = 100; // when to store a variable's data in the header, ie "immediate" mode
   static private int currentVersion = 1;
 
@@ -131,29 +132,52 @@ public class NcStreamWriter {
 
     // regular arrays
     if (deflate) {
-      ByteArrayOutputStream bout = new ByteArrayOutputStream();
-      DeflaterOutputStream dout = new DeflaterOutputStream(bout);
-      v.readToStream(section, dout); // write to internal buffer
-
-      // write internal buffer to output stream
-      dout.close();
-      int deflatedSize = bout.size();
-      size += NcStream.writeVInt(out, deflatedSize);
-      bout.writeTo(out);
-      size += deflatedSize;
-      if (show) System.out.printf("  %s proto=%d dataSize=%d len=%d%n", v.getFullName(), datab.length, deflatedSize, uncompressedLength);
+      // compress as we read, sending the deflated bytes in chunks, so the array is never held in memory
+      NcStream.ChunkedOutputStream cout = new NcStream.ChunkedOutputStream(out, deflateChunkSize);
+      Deflater deflater = new Deflater();
+      try {
+        DeflaterOutputStream dout = new DeflaterOutputStream(cout, deflater, 8 * 1024);
+        readToStream(v, section, dout);
+        dout.finish();
+        cout.finish();
+      } finally {
+        deflater.end();
+      }
+      size += cout.getCount();
+      if (show) System.out.printf("  %s proto=%d dataSize=%d len=%d%n", v.getFullName(), datab.length, cout.getCount(), uncompressedLength);
 
     }  else {
 
       size += NcStream.writeVInt(out, (int) uncompressedLength); // data len or number of objects
       if (show) System.out.printf("  %s proto=%d data=%d%n", v.getFullName(), datab.length, uncompressedLength);
 
-      size += v.readToStream(section, out); // try to do a direct transfer
+      size += readToStream(v, section, out); // try to do a direct transfer
     }
 
     return size;
   }
 
+  // read fixed size types in slabs of at most maxChunk bytes, so that the iosp never reads the whole section at once
+  private long readToStream(Variable v, Section section, OutputStream out) throws IOException, InvalidRangeException {
+    DataType dt = v.getDataType();
+    boolean fixedSize = (dt != DataType.STRING) && (dt != DataType.OPAQUE) && (dt != DataType.STRUCTURE) && !v.isVariableLength();
+    if (!fixedSize || section.computeSize() * v.getElementSize() <= maxChunk)
+      return v.readToStream(section, out);
+
+    section = Section.fill(section, v.getShape());
+    long maxChunkElems = Math.max(1, maxChunk / v.getElementSize());
+    FileWriter2.ChunkingIndex index = new FileWriter2.ChunkingIndex(section.getShape());
+    long size = 0;
+    while (index.currentElement() < index.getSize()) {
+      int[] slabOrigin = index.getCurrentCounter();
+      int[] slabShape = index.computeChunkShape(maxChunkElems);
+      Section slab = section.compose(new Section(slabOrigin, slabShape)); // relative to the section
+      size += v.readToStream(slab, out);
+      index.setCurrentCounter(index.currentElement() + (int) Index.computeSize(slabShape));
+    }
+    return size;
+  }
+
   /* public long sendData(WritableByteChannel out, StructureData sdata) throws IOException {
     long size = 0;
     ByteBuffer bb = IospHelper.copyToByteBuffer(sdata);
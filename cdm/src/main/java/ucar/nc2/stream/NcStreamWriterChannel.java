@@ -43,6 +43,8 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.WritableByteChannel;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 /**
  * Not used
@@ -53,6 +55,7 @@ import java.nio.channels.WritableByteChannel;
 public class NcStreamWriterChannel {
   static private long maxChunk = 1 * 1000 * 1000; // 1 MByte
   static private int sizeToCache = 100; // when to store a variable's data in the header, ie "immediate" mode
+  static private int deflateChunkSize = 64 * 1000; // size of the deflated chunks written to the channel
 
   private NetcdfFile ncfile;
   private NcStreamProto.Header header;
@@ -98,9 +101,14 @@ public class NcStreamWriterChannel {
   public long sendData(Variable v, Section section, WritableByteChannel wbc, boolean deflate) throws IOException, InvalidRangeException {
     if (show) System.out.printf(" %s section=%s%n", v.getFullName(), section);
 
+    // length of data uncompressed
+    long len = section.computeSize();
+    if ((v.getDataType() != DataType.STRING) && (v.getDataType() != DataType.OPAQUE) && !v.isVariableLength())
+      len *= v.getElementSize(); // nelems for vdata, else nbytes
+
     long size = 0;
     size += writeBytes(wbc, NcStream.MAGIC_DATA); // magic
-    NcStreamProto.Data dataProto = NcStream.encodeDataProto(v, section, deflate, 0);
+    NcStreamProto.Data dataProto = NcStream.encodeDataProto(v, section, deflate, (int) len);
     byte[] datab = dataProto.toByteArray();
     size += NcStream.writeVInt(wbc, datab.length); // dataProto len
     size += writeBytes(wbc, datab); // dataProto
@@ -126,9 +134,22 @@ public class NcStreamWriterChannel {
     }
 
     // regular arrays
-    long len = section.computeSize();
-    if ((v.getDataType() != DataType.STRING) && (v.getDataType() != DataType.OPAQUE) && !v.isVariableLength())
-      len *= v.getElementSize(); // nelems for vdata, else nbytes
+    if (deflate) {
+      // compress as we read, sending the deflated bytes in chunks
+      NcStream.ChunkedOutputStream cout = new NcStream.ChunkedOutputStream(Channels.newOutputStream(wbc), deflateChunkSize);
+      Deflater deflater = new Deflater();
+      try {
+        DeflaterOutputStream dout = new DeflaterOutputStream(cout, deflater, 8 * 1024);
+        v.readToByteChannel(section, Channels.newChannel(dout));
+        dout.finish();
+        cout.finish();
+      } finally {
+        deflater.end();
+      }
+      size += cout.getCount();
+      if (show) System.out.printf("  %s proto=%d dataSize=%d len=%d%n", v.getFullName(), datab.length, cout.getCount(), len);
+      return size;
+    }
 
     size += NcStream.writeVInt(wbc, (int) len); // data len or number of objects
     if (show) System.out.printf("  %s proto=%d data=%d%n", v.getFullName(), datab.length, len);
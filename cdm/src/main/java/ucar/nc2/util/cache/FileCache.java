@@ -39,6 +39,7 @@ import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 import java.io.IOException;
 
 import ucar.nc2.util.CancelTask;
@@ -73,7 +74,9 @@ import ucar.nc2.util.CancelTask;
  * NetcdfDataset.shutdown();  // when terminating the application
  * </pre>
  * All methods are thread safe.
- * Cleanup is done automatically in a background thread, using LRU algorithm.
+ * Acquiring a file that is already open takes no locks: idle copies are checked out with a compare-and-set on the copy.
+ * Only threads adding a copy of the same key synchronize with each other.
+ * Cleanup is done automatically in a background thread, using a clock (second chance) algorithm, which never blocks acquirers.
  *
  * @author caron
  * @since May 30, 2008
@@ -106,11 +109,16 @@ public class FileCache {
   private final ConcurrentHashMap<FileCacheable, CacheElement.CacheFile> files; // list of all files in the cache
   private final AtomicBoolean hasScheduled = new AtomicBoolean(false); // a cleanup is scheduled
   private final AtomicBoolean disabled = new AtomicBoolean(false);  // cache is disabled
+  private final ReentrantLock cleanupLock = new ReentrantLock(); // one cleanup or clearCache at a time; acquire never waits on it
+  private final Queue<CacheElement.CacheFile> clock = new ConcurrentLinkedQueue<CacheElement.CacheFile>(); // the hand is at the head
 
   // debugging and stats
   private final AtomicInteger cleanups = new AtomicInteger();  // how many cleanups
+  private final AtomicInteger cleanupsSkipped = new AtomicInteger();  // hard limit cleanups skipped because one was running
   private final AtomicInteger hits = new AtomicInteger();
   private final AtomicInteger miss = new AtomicInteger();
+  private final AtomicInteger contention = new AtomicInteger(); // in cache, but all copies were in use
+  private final AtomicInteger evictions = new AtomicInteger();
 
   /**
    * Constructor.
@@ -150,8 +158,8 @@ public class FileCache {
     this.softLimit = softLimit;
     this.hardLimit = hardLimit;
 
-    cache = new ConcurrentHashMap<Object, CacheElement>(2 * softLimit, 0.75f, 8);
-    files = new ConcurrentHashMap<FileCacheable, CacheElement.CacheFile>(4 * softLimit, 0.75f, 8);
+    cache = new ConcurrentHashMap<Object, CacheElement>(2 * softLimit, 0.75f, 16);
+    files = new ConcurrentHashMap<FileCacheable, CacheElement.CacheFile>(4 * softLimit, 0.75f, 16);
 
     if (period > 0) {
       if (exec == null)
@@ -234,45 +242,43 @@ public class FileCache {
 
     if (disabled.get()) return ncfile;
 
-    // see if cache element already exists
-    // must synchronize to avoid race condition with other puts; gets are ok
-    CacheElement elem;
-    synchronized (cache) {
-      elem = cache.get(hashKey);
-      if (elem == null) cache.put(hashKey, new CacheElement(ncfile, hashKey)); // new element
-    }
-
-    // already exists, add to list
-    if (elem != null) {
-      synchronized (elem) {
-        elem.addFile(ncfile); // add to existing list
+    // add to the cache element for this key, creating it if needed
+    // only threads adding a copy of the same key contend here
+    while (true) {
+      CacheElement elem = cache.get(hashKey);
+      if (elem == null) {
+        CacheElement newElem = new CacheElement(hashKey);
+        elem = cache.putIfAbsent(hashKey, newElem);
+        if (elem == null) elem = newElem;
       }
+      if (elem.addFile(ncfile) != null) break;
+      cache.remove(hashKey, elem); // elem was emptied and retired by another thread; try again with a new one
     }
 
-    // increment the number of files in the cache
-    //int count = counter.incrementAndGet();
-
     // do we need a cleanup ??
     boolean needHard = false;
     boolean needSoft = false;
-    synchronized (hasScheduled) {
-      if (!hasScheduled.get()) {
-        int count = files.size();
-        if ((count > hardLimit) && (hardLimit > 0)) {
-          needHard = true;
-          hasScheduled.getAndSet(true); // tell other threads not to schedule another cleanup
-
-        } else if ((count > softLimit) && (exec != null)) { // && (softLimit > 0)) {
-          hasScheduled.getAndSet(true); // tell other threads not to schedule another cleanup
-          needSoft = true;
-        }
-      }
+    int count = files.size();
+    if ((count > hardLimit) && (hardLimit > 0)) {
+      needHard = hasScheduled.compareAndSet(false, true); // tell other threads not to schedule another cleanup
+
+    } else if ((count > softLimit) && (exec != null)) { // && (softLimit > 0)) {
+      needSoft = hasScheduled.compareAndSet(false, true); // tell other threads not to schedule another cleanup
     }
 
     if (needHard) {
       if (debugCleanup)
         System.out.println("CleanupTask due to hard limit time=" + new Date().getTime()); // +" Thread="+Thread.currentThread().hashCode()
-      cleanup(hardLimit);
+      if (cleanupLock.tryLock()) {
+        try {
+          cleanup(hardLimit);
+        } finally {
+          cleanupLock.unlock();
+        }
+      } else { // a cleanup is already running, dont wait for it
+        cleanupsSkipped.incrementAndGet();
+        hasScheduled.set(false);
+      }
 
     } else if (needSoft) {
       exec.schedule(new CleanupTask(), 100, TimeUnit.MILLISECONDS); // immediate cleanup in 100 msec
@@ -296,15 +302,16 @@ public class FileCache {
     if (wantCacheElem == null) return null;  // not found in cache
 
     CacheElement.CacheFile want = null;
-    synchronized (wantCacheElem) { // synch in order to traverse the list
-      for (CacheElement.CacheFile file : wantCacheElem.list) {
-        if (file.isLocked.compareAndSet(false, true)) {
-          want = file;
-          break;
-        }
+    for (CacheElement.CacheFile file : wantCacheElem.list) { // copy-on-write list, no need to synch
+      if (file.isLocked.compareAndSet(false, true)) {
+        want = file;
+        break;
       }
     }
-    if (want == null) return null; // no unlocked file in cache
+    if (want == null) {  // no unlocked file in cache
+      if (!wantCacheElem.list.isEmpty()) contention.incrementAndGet();
+      return null;
+    }
 
     /* DISABLED 2/26/2013 JCARON use getLastModified()
      sync the file when you want to use it again : needed for grib growing index, netcdf-3 record growing, etc
@@ -330,6 +337,7 @@ public class FileCache {
       if (changed) {
         want.remove();
         files.remove(want.ncfile);
+        clock.remove(want);
         want.ncfile.setFileCache(null);
         try {
           want.ncfile.close();
@@ -354,21 +362,20 @@ public class FileCache {
      CacheElement wantCacheElem = cache.get(hashKey);
      if (wantCacheElem == null) return;
 
-     synchronized (wantCacheElem) { // synch in order to traverse the list
-       for (CacheElement.CacheFile want : wantCacheElem.list) {
-          files.remove(want.ncfile);
-          want.ncfile.setFileCache(null); // unhook the caching
-          try {
-            want.ncfile.close();  // really close the file
-            log.debug("close "+want.ncfile.getLocation());
-          } catch (IOException e) {
-            log.error("close failed on "+want.ncfile.getLocation(), e);
-          }
-          want.ncfile = null;
-       }
-       wantCacheElem.list.clear();
+     for (CacheElement.CacheFile want : wantCacheElem.list) {
+        want.remove(); // retires the element when the last one is removed
+        if (want.ncfile == null) continue; // already removed
+        files.remove(want.ncfile);
+        clock.remove(want);
+        want.ncfile.setFileCache(null); // unhook the caching
+        try {
+          want.ncfile.close();  // really close the file
+          log.debug("close "+want.ncfile.getLocation());
+        } catch (IOException e) {
+          log.error("close failed on "+want.ncfile.getLocation(), e);
+        }
+        want.ncfile = null;
      }
-    cache.remove(hashKey);
    }
 
   /**
@@ -396,6 +403,7 @@ public class FileCache {
       }
       file.lastAccessed = System.currentTimeMillis();
       file.countAccessed++;
+      file.referenced.set(true); // give it a second chance on the next cleanup sweep
       file.isLocked.set(false);
       if (cacheLog.isDebugEnabled()) cacheLog.debug("FileCache " + name + " release " + ncfile.getLocation()+"; hash= "+ncfile.hashCode());
       if (debugPrint) System.out.println("  FileCache " + name + " release " + ncfile.getLocation());
@@ -451,49 +459,38 @@ public class FileCache {
     return cache;
   }
 
+  // debug
+  int getClockSize() {
+    return clock.size();
+  }
+
   /**
    * Remove all cache entries.
    *
    * @param force if true, remove them even if they are currently locked.
    */
-  public synchronized void clearCache(boolean force) {
-    List<CacheElement.CacheFile> deleteList = new ArrayList<CacheElement.CacheFile>(2 * cache.size());
-
-    if (force) {
-      cache.clear(); // deletes everything from the cache
-      deleteList.addAll(files.values());  // add everything to the delete list
-      files.clear();
-      // counter.set(0);
-
-    } else {
-
-      // add unlocked files to the delete list, remove from files hash
-      Iterator<CacheElement.CacheFile> iter = files.values().iterator();
-      while (iter.hasNext()) {
-        CacheElement.CacheFile file = iter.next();
-        if (file.isLocked.compareAndSet(false, true)) {
+  public void clearCache(boolean force) {
+    List<CacheElement.CacheFile> deleteList = new ArrayList<CacheElement.CacheFile>(files.size());
+
+    cleanupLock.lock();
+    try {
+      // take files out of the cache; empty cache elements are retired as the last file is removed
+      for (CacheElement.CacheFile file : files.values()) {
+        if (force || file.isLocked.compareAndSet(false, true)) {
           file.remove(); // remove from the containing CacheElement
+          files.remove(file.ncfile);
           deleteList.add(file);
-          iter.remove();
-        }
-      }
-
-      // remove empty cache elements
-      synchronized (cache) {
-        for (CacheElement elem : cache.values()) {
-          synchronized (elem) {
-            if (elem.list.size() == 0)
-              cache.remove(elem.hashKey);
-          }
         }
       }
+      clock.removeAll(new HashSet<CacheElement.CacheFile>(deleteList)); // CacheFile uses identity
+    } finally {
+      cleanupLock.unlock();
     }
 
     // close all files in deleteList
     for (CacheElement.CacheFile file : deleteList) {
       if (force && file.isLocked.get())
         cacheLog.warn("FileCache " + name + " force close locked file= " + file);
-      //counter.decrementAndGet();
 
       try {
         file.ncfile.setFileCache(null);
@@ -504,7 +501,6 @@ public class FileCache {
       }
     }
     cacheLog.debug("*FileCache " + name + " clearCache force= " + force + " deleted= " + deleteList.size() + " left=" + files.size());
-    //System.out.println("\n*NetcdfFileCache.clearCache force= " + force + " deleted= " + deleteList.size() + " left=" + counter.get());
   }
 
   /**
@@ -515,9 +511,7 @@ public class FileCache {
   public void showCache(Formatter format) {
     ArrayList<CacheElement.CacheFile> allFiles = new ArrayList<CacheElement.CacheFile>(files.size());
     for (CacheElement elem : cache.values()) {
-      synchronized (elem) {
-        allFiles.addAll(elem.list);
-      }
+      allFiles.addAll(elem.list);
     }
     Collections.sort(allFiles); // sort so oldest are on top
 
@@ -532,9 +526,7 @@ public class FileCache {
   public List<String> showCache() {
     ArrayList<CacheElement.CacheFile> allFiles = new ArrayList<CacheElement.CacheFile>(files.size());
     for (CacheElement elem : cache.values()) {
-      synchronized (elem) {
-        allFiles.addAll(elem.list);
-      }
+      allFiles.addAll(elem.list);
     }
     Collections.sort(allFiles); // sort so oldest are on top
 
@@ -548,31 +540,35 @@ public class FileCache {
 
   /**
    * Add stat report (hits, misses, etc) to formatter.
+   * contention counts acquires that found the file in the cache but with every copy in use, so had to open another.
    *
    * @param format add to this
    */
   public void showStats(Formatter format) {
     format.format("  hits= %d miss= %d nfiles= %d elems= %d\n", hits.get(), miss.get(), files.size(), cache.values().size());
+    format.format("  contention= %d evictions= %d cleanups= %d cleanupsSkipped= %d\n", contention.get(), evictions.get(),
+            cleanups.get(), cleanupsSkipped.get());
   }
 
   /**
    * Cleanup the cache, bringing it down to minimum number.
-   * Will close the LRU (least recently used) ones first. Will not close locked files.
+   * Uses the clock (second chance) algorithm. The files are kept in a ring, and the hand carries on from where the last
+   * cleanup stopped. When the hand reaches an unlocked file that was released since the hand last passed it, its
+   * referenced bit is cleared and it is skipped; otherwise it is checked out (so no one else can acquire it) and closed.
+   * Locked files are skipped. The hand goes around at most once to reach minElements, and only goes further if needed
+   * to get down to maxElements.
    * Normally this is done in a background thread, you dont need to call.
    * <p/>
-   * We have to synchronize because of clearCache()
+   * Only one cleanup or clearCache() runs at a time; acquire() never waits for it.
    */
-  synchronized void cleanup(int maxElements) {
+  void cleanup(int maxElements) {
     if (disabled.get()) return;
 
+    ArrayList<CacheElement.CacheFile> deleteList;
+    int size;
+    cleanupLock.lock();
     try {
-      /* int size = counter.get();
-      int fsize = files.size();
-      if (debug && (size != fsize)) {
-        log.warn("FileCache " + name + " counter " + size + " doesnt match files().size=" + fsize);
-      } */
-
-      int size = files.size();
+      size = files.size();
       if (size <= minElements) return;
 
       cacheLog.debug(" FileCache " + name + " cleanup started at " + new Date() + " for cleanup maxElements=" + maxElements);
@@ -581,100 +577,104 @@ public class FileCache {
 
       cleanups.incrementAndGet();
 
-      // add unlocked files to the all list
-      ArrayList<CacheElement.CacheFile> allFiles = new ArrayList<CacheElement.CacheFile>(size + 10);
-      for (CacheElement.CacheFile file : files.values()) {
-        if (!file.isLocked.get()) allFiles.add(file);
-      }
-      Collections.sort(allFiles); // sort so oldest are on top
-
-      // take oldest ones and put on delete list
       int need2delete = size - minElements;
       int minDelete = size - maxElements;
-      ArrayList<CacheElement.CacheFile> deleteList = new ArrayList<CacheElement.CacheFile>(need2delete);
-
-      int count = 0;
-      Iterator<CacheElement.CacheFile> iter = allFiles.iterator();
-      while (iter.hasNext() && (count < need2delete)) {
-        CacheElement.CacheFile file = iter.next();
+      deleteList = new ArrayList<CacheElement.CacheFile>(need2delete);
+
+      // files added during the sweep go behind the hand
+      int ring = clock.size();
+      int moved = 0;
+      while (deleteList.size() < need2delete) {
+        if (moved >= ring && deleteList.size() >= minDelete) break; // been around once
+        if (moved >= 2 * ring) break; // been around twice, the rest are locked
+        CacheElement.CacheFile file = clock.poll();
+        if (file == null) break;
+        moved++;
+
+        FileCacheable ncfile = file.ncfile;
+        if (ncfile == null || files.get(ncfile) != file) continue; // already removed from the cache, drop from the ring
+
+        if (file.isLocked.get() || file.referenced.getAndSet(false)) { // in use, or gets a second chance
+          clock.add(file);
+          continue;
+        }
         if (file.isLocked.compareAndSet(false, true)) { // lock it so it isnt used anywhere else
           file.remove(); // remove from the containing element
+          files.remove(ncfile);
           deleteList.add(file);
-          count++;
+        } else {
+          clock.add(file);
         }
       }
+
+      int count = deleteList.size();
       if (count < minDelete) {
         cacheLog.warn("FileCache " + name + " cleanup couldnt remove enough to keep under the maximum= " + maxElements + " due to locked files; currently at = " + (size - count));
         if (debugCleanup)
           System.out.println("FileCache " + name + "cleanup couldnt remove enough to keep under the maximum= " + maxElements + " due to locked files; currently at = " + (size - count));
       }
 
-      // remove empty cache elements
-      synchronized (cache) {
-        for (CacheElement elem : cache.values()) {
-          synchronized (elem) {
-            if (elem.list.size() == 0)
-              cache.remove(elem.hashKey);
-          }
-        }
-      }
-
-      // now actually close the files
-      long start = System.currentTimeMillis();
-      for (CacheElement.CacheFile file : deleteList) {
-        //counter.decrementAndGet();
-        files.remove(file.ncfile);
-        try {
-          file.ncfile.setFileCache(null);
-          file.ncfile.close();
-          file.ncfile = null; // help the gc
-        } catch (IOException e) {
-          log.error("FileCache " + name + " close failed on " + file.getCacheName());
-        }
-      }
-
-      long took = System.currentTimeMillis() - start;
-      cacheLog.debug(" FileCache " + name + " cleanup had= " + size + " removed= " + deleteList.size() + " took=" + took + " msec");
-      if (debugCleanup)
-        System.out.println(" FileCache " + name + "cleanup had= " + size + " removed= " + deleteList.size() + " took=" + took + " msec");
-
     } finally {
+      cleanupLock.unlock();
       // allow scheduling again
       hasScheduled.set(false);
     }
+
+    // now actually close the files
+    long start = System.currentTimeMillis();
+    for (CacheElement.CacheFile file : deleteList) {
+      try {
+        file.ncfile.setFileCache(null);
+        file.ncfile.close();
+        file.ncfile = null; // help the gc
+      } catch (IOException e) {
+        log.error("FileCache " + name + " close failed on " + file.getCacheName());
+      }
+    }
+    evictions.addAndGet(deleteList.size());
+
+    long took = System.currentTimeMillis() - start;
+    cacheLog.debug(" FileCache " + name + " cleanup had= " + size + " removed= " + deleteList.size() + " took=" + took + " msec");
+    if (debugCleanup)
+      System.out.println(" FileCache " + name + "cleanup had= " + size + " removed= " + deleteList.size() + " took=" + took + " msec");
   }
 
   // not private for testing
   class CacheElement {
-    @GuardedBy("this")
-    final List<CacheFile> list = new LinkedList<CacheFile>(); // may have multiple copies of the same file opened
+    final List<CacheFile> list = new CopyOnWriteArrayList<CacheFile>(); // may have multiple copies of the same file opened
     final Object hashKey;
+    @GuardedBy("this")
+    private boolean retired; // removed from the cache, no more files may be added
 
-    CacheElement(FileCacheable ncfile, Object hashKey) {
+    CacheElement(Object hashKey) {
       this.hashKey = hashKey;
-      CacheFile file = new CacheFile(ncfile);
-      list.add(file);
-      if (debug) {
-        if (files.get(ncfile) != null)
-          cacheLog.error("files already has " + hashKey + " " + name);
-      }
-      files.put(ncfile, file);
       if (cacheLog.isDebugEnabled()) cacheLog.debug("CacheElement add to cache " + hashKey + " " + name);
     }
 
-    CacheFile addFile(FileCacheable ncfile) {
+    /**
+     * Add a newly opened file to this element.
+     * @return the CacheFile, or null if this element has been retired
+     */
+    synchronized CacheFile addFile(FileCacheable ncfile) {
+      if (retired) return null;
       CacheFile file = new CacheFile(ncfile);
-      synchronized (this) {
-        list.add(file);
-      }
+      list.add(file);
       if (debug) {
         if (files.get(ncfile) != null)
-          cacheLog.error("files (2) already has " + hashKey + " " + name);
+          cacheLog.error("files already has " + hashKey + " " + name);
       }
       files.put(ncfile, file);
+      clock.add(file); // just behind the hand
       return file;
     }
 
+    // called when a file is removed; take the element out of the cache if it is now empty
+    private synchronized void retireIfEmpty() {
+      if (!list.isEmpty()) return;
+      retired = true;
+      cache.remove(hashKey, this);
+    }
+
     public String toString() {
       return hashKey + " count=" + list.size();
     }
@@ -682,6 +682,7 @@ public class FileCache {
     class CacheFile implements Comparable<CacheFile> {
       FileCacheable ncfile; // actually final, but we null it out for gc
       final AtomicBoolean isLocked = new AtomicBoolean(true);
+      final AtomicBoolean referenced = new AtomicBoolean(false); // clock bit, set on release, cleared by cleanup
       int countAccessed = 1;
       long lastModified = 0;
       long lastAccessed = 0;
@@ -702,10 +703,9 @@ public class FileCache {
       }
 
       void remove() {
-        synchronized (CacheElement.this) {
-          if (!list.remove(this))
-            cacheLog.warn("FileCache " + name + " could not remove " + ncfile.getLocation());
-        }
+        if (!list.remove(this))
+          cacheLog.warn("FileCache " + name + " could not remove " + ncfile.getLocation());
+        retireIfEmpty();
         if (cacheLog.isDebugEnabled()) cacheLog.debug("FileCache " + name + " remove " + ncfile.getLocation());
         if (debugPrint) System.out.println("  FileCache " + name + " remove " + ncfile.getLocation());
       }
@@ -715,7 +715,7 @@ public class FileCache {
       }
 
       public int compareTo(CacheFile o) {
-        return (int) (lastAccessed - o.lastAccessed);
+        return (lastAccessed < o.lastAccessed) ? -1 : ((lastAccessed == o.lastAccessed) ? 0 : 1);
       }
     }
   }
@@ -725,5 +725,4 @@ public class FileCache {
       cleanup(softLimit);
     }
   }
-
-}
\ No newline at end of file
+}
@@ -84,6 +84,12 @@ public class InMemoryRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
     return len;
   }
 
+  @Override
+  protected int pread_(long pos, byte[] b, int offset, int len) throws IOException {
+    if (pos >= buffer.length) return -1;
+    return read_(pos, b, offset, len); // only reads the array, so thread safe
+  }
+
   @Override
   public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
     return dest.write(ByteBuffer.wrap(buffer, (int) offset, (int) nbytes));
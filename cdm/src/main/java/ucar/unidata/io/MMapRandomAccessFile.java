@@ -32,104 +32,218 @@
  */
 package ucar.unidata.io;
 
+import net.jcip.annotations.NotThreadSafe;
+
 import java.io.*;
-import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
- * Use NIO MappedByteBuffer to implement a RandomAccessFile.
- * Limited to 2G size. Not currently used - NOT UP TO DATE DO NOT USE
+ * Use NIO MappedByteBuffer to implement a read-only RandomAccessFile.
+ * The file is mapped in segments of up to 1 Gbyte, so there is no 2 Gbyte limit.
+ * Reads are copied directly out of the mapping (ie from the OS page cache), and the primitive array reads
+ * convert directly from it, so the RandomAccessFile buffer is only used by searchForward().
+ * The file descriptor is closed as soon as the file is mapped; the mapping goes away when this object is garbage collected.
+ * <p/>
+ * The file is always opened with mode "r", so it cannot be written.
+ * The file is assumed not to change while it is open. If it does, FileCache will discard it based on getLastModified().
+ * <p/>
+ * Use is controlled by setUseMMap(), or the system property "ucar.unidata.io.mmap"; see RandomAccessFile.openReadOnly().
+ *
  * @author john
  */
-class MMapRandomAccessFile extends RandomAccessFile {
+@NotThreadSafe
+public class MMapRandomAccessFile extends RandomAccessFile {
+  static private final int defaultSegmentSize = 1 << 30;
+  static private boolean useMMap = Boolean.getBoolean("ucar.unidata.io.mmap");
 
-  private MappedByteBuffer source;
+  /**
+   * Set whether RandomAccessFile.openReadOnly() uses memory mapping.
+   * The default is the value of the system property "ucar.unidata.io.mmap", or false if not set.
+   *
+   * @param b true to memory map files opened with RandomAccessFile.openReadOnly()
+   */
+  static public void setUseMMap(boolean b) {
+    useMMap = b;
+  }
 
   /**
-    * Constructor for in-memory "files"
-    * @param location used as a name
-    * @param mode the open mode
-    * @throws java.io.IOException on error
-    */
-  MMapRandomAccessFile(String location, String mode ) throws IOException {
-    super(location, mode, 1);
-    FileChannel channel = file.getChannel();
-    source = channel.map( readonly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, (long) 0, channel.size());
-    channel.close();
-
-    bufferStart = 0;
-	  dataSize = (int) channel.size();
-	  dataEnd = channel.size();
-    filePosition = 0;
-    buffer = null;
-    endOfFile = false;
+   * Get whether RandomAccessFile.openReadOnly() uses memory mapping.
+   *
+   * @return true if files opened with RandomAccessFile.openReadOnly() are memory mapped
+   */
+  static public boolean getUseMMap() {
+    return useMMap;
   }
 
+  ////////////////////////////////////////////////////////////////////
 
-  public void flush() throws IOException {
-    if (bufferModified) {
-      source.force();
-      bufferModified = false;
+  private MappedByteBuffer[] segments;
+  private final int segmentSize;
+  private final long fileLength;
+
+  /**
+   * Open and memory map a file for reading.
+   *
+   * @param location   location of the file
+   * @param bufferSize size of buffer used by searchForward()
+   * @throws java.io.IOException on error
+   */
+  public MMapRandomAccessFile(String location, int bufferSize) throws IOException {
+    this(location, bufferSize, defaultSegmentSize);
+  }
+
+  // segmentSize is settable for testing
+  MMapRandomAccessFile(String location, int bufferSize, int segmentSize) throws IOException {
+    super(location, "r", bufferSize);
+    this.segmentSize = segmentSize;
+
+    try {
+      FileChannel channel = file.getChannel();
+      fileLength = channel.size();
+      int nsegs = (int) ((fileLength + segmentSize - 1) / segmentSize);
+      segments = new MappedByteBuffer[nsegs];
+      for (int i = 0; i < nsegs; i++) {
+        long start = (long) i * segmentSize;
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, fileLength - start));
+      }
+    } finally {
+      // the mapping remains valid after the file is closed
+      file.close();
+      file = null;
     }
   }
 
+  // a view of the segment containing pos, positioned at pos
+  private ByteBuffer view(long pos) {
+    int seg = (int) (pos / segmentSize);
+    ByteBuffer bb = segments[seg].duplicate();
+    bb.position((int) (pos - (long) seg * segmentSize));
+    return bb;
+  }
+
+  @Override
   public void close() throws IOException {
     if (fileCache != null) {
       fileCache.release(this);
       return;
     }
 
-    if (!readonly) flush();
-    source = null;
+    segments = null; // unmapped when garbage collected
+    super.close();
   }
 
-  public long length( ) {
-    return dataEnd;
+  @Override
+  public long length() {
+    return fileLength;
   }
 
-  public void seek( long pos ) {
-    filePosition = pos;
-    if( filePosition < dataEnd )
-      source.position((int) filePosition);
-    else
-      endOfFile = true;
+  @Override
+  public boolean isAtEndOfFile() {
+    return filePosition >= fileLength;
   }
 
-   public void unread( ) {
-     seek( filePosition-1);
-   }
+  @Override
+  public void seek(long pos) throws IOException {
+    if (pos < 0)
+      throw new java.io.IOException("Negative seek offset");
+    filePosition = pos;
+  }
 
+  @Override
   public int read() throws IOException {
-    // If the file position is within the data, return the byte...
-    if( filePosition < dataEnd ) {
-      filePosition++;
-      return source.get() & 0xff;
+    if (filePosition >= fileLength)
+      return -1;
 
-    } else {
-       return -1;
+    int seg = (int) (filePosition / segmentSize);
+    byte b = segments[seg].get((int) (filePosition - (long) seg * segmentSize));
+    filePosition++;
+    return b & 0xff;
+  }
+
+  @Override
+  protected int readBytes(byte b[], int off, int len) throws IOException {
+    int n = read_(filePosition, b, off, len);
+    if (n > 0)
+      filePosition += n;
+    return n;
+  }
+
+  @Override
+  protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+    if (pos >= fileLength)
+      return -1;
+
+    len = (int) Math.min(len, fileLength - pos);
+    int done = 0;
+    while (done < len) {
+      ByteBuffer bb = view(pos + done);
+      int n = Math.min(len - done, bb.remaining());
+      bb.get(b, offset + done, n);
+      done += n;
     }
+    return len;
+  }
+
+  @Override
+  protected ByteBuffer readBulk(int nbytes, BulkScratch scratch) throws IOException {
+    if (filePosition + nbytes > fileLength)
+      return super.readBulk(nbytes, scratch); // throws EOFException
+
+    ByteBuffer bb = view(filePosition);
+    if (bb.remaining() < nbytes)
+      return super.readBulk(nbytes, scratch); // spans two segments, so copy
+
+    bb.limit(bb.position() + nbytes);
+    filePosition += nbytes;
+    return bb.order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
   }
 
-   protected int readBytes( byte dst[], int offset, int length ) throws IOException {
-     if( endOfFile ) return -1;
+  @Override
+  protected int pread_(long pos, byte[] b, int offset, int len) throws IOException {
+    return read_(pos, b, offset, len); // uses its own view of the mapping, so thread safe
+  }
+
+  @Override
+  protected ByteBuffer readBulk(long pos, int nbytes, BulkScratch scratch) throws IOException {
+    if (pos + nbytes > fileLength)
+      return super.readBulk(pos, nbytes, scratch); // throws EOFException
+
+    ByteBuffer bb = view(pos);
+    if (bb.remaining() < nbytes)
+      return super.readBulk(pos, nbytes, scratch); // spans two segments, so copy
+
+    bb.limit(bb.position() + nbytes);
+    return bb.order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+  }
 
-     length = (int) Math.min( length, dataEnd - filePosition);
-     if (length > 0) {
-       source.get(dst, offset, length);
-       filePosition += length;
-     }
-     return length;
-   }
+  @Override
+  public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
+    long done = 0;
+    while ((done < nbytes) && (offset + done < fileLength)) {
+      ByteBuffer bb = view(offset + done);
+      int n = (int) Math.min(nbytes - done, bb.remaining());
+      bb.limit(bb.position() + n);
+      while (bb.hasRemaining())
+        done += dest.write(bb);
+    }
+    return done;
+  }
 
-  public void write( int b ) throws IOException {
-     source.put( (byte)b);
-     filePosition++;
-     bufferModified = true;
+  @Override
+  public boolean searchForward(KMPMatch match, int maxBytes) throws IOException {
+    readBuffer(filePosition); // the buffer is not kept in sync with the file position
+    return super.searchForward(match, maxBytes);
   }
 
-  public void writeBytes( byte dst[], int offset, int length ) throws IOException {
-    source.put(dst, offset, length);
-    filePosition += length;
+  // As for any RandomAccessFile opened with mode "r", writes go to the buffer and fail when it is flushed.
+  @Override
+  public void flush() throws IOException {
+    if (bufferModified)
+      throw new IOException("MMapRandomAccessFile is opened read-only: " + location);
   }
 
-}
\ No newline at end of file
+}
@@ -38,6 +38,7 @@ import ucar.nc2.util.cache.FileCache;
 import ucar.nc2.util.cache.FileCacheable;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -163,6 +164,47 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable {
    */
   protected static final int defaultBufferSize = 8092;
 
+  /**
+   * Maximum number of bytes converted at a time by the primitive array reads.
+   */
+  protected static final int bulkBufferSize = 256 * 1024;
+
+  /**
+   * Scratch array for the bulk reads of one primitive array read, allocated when first needed
+   * and reused for all of its chunks. Not kept after the call, and not shared between threads.
+   */
+  protected static final class BulkScratch {
+    private final int size;
+    private byte[] b;
+
+    BulkScratch(long nbytes) {
+      this.size = (int) Math.min(nbytes, bulkBufferSize);
+    }
+
+    /**
+     * @return the scratch array, at least as big as any chunk of the call
+     */
+    public byte[] get() {
+      if (b == null) b = new byte[size];
+      return b;
+    }
+  }
+
+  /**
+   * Open a local file for reading only. If MMapRandomAccessFile.getUseMMap() is true, the file is memory mapped
+   * with a MMapRandomAccessFile, otherwise a normal buffered RandomAccessFile is used.
+   *
+   * @param location   location of the file
+   * @param bufferSize size of buffer to use.
+   * @return RandomAccessFile opened with mode "r"
+   * @throws IOException on open error
+   */
+  static public RandomAccessFile openReadOnly(String location, int bufferSize) throws IOException {
+    if (MMapRandomAccessFile.getUseMMap())
+      return new MMapRandomAccessFile(location, bufferSize);
+    return new RandomAccessFile(location, "r", bufferSize);
+  }
+
   /////////////////////////////////////////////////////////////////////////////////////////////
 
   /**
@@ -640,7 +682,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable {
     long need = nbytes;
     while (need > 0) {
       long count = fileChannel.transferTo(offset, need, dest);
-      //if (count == 0) break;  // LOOK not sure what the EOF condition is
+      if (count == 0) break;  // transferTo returns 0 when offset is past EOF
       need -= count;
       offset += count;
     }
@@ -793,6 +835,220 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable {
     filePosition--;
   }
 
+  //////////////////////////////////////////////////////////////////////////////////////////////
+  // Positional reads.
+  // These read at an explicit file position, and do not use or change the file position or the buffer.
+  // They may be called concurrently from multiple threads, so that one open file can be shared.
+  // The byte order is whatever was last set with order(), so set that once, before sharing.
+
+  /**
+   * Read directly from the file at the given position, without using or changing the file position or the buffer.
+   * All positional reading goes through here. This implementation uses FileChannel.read(ByteBuffer, long), which is thread safe.
+   * Subclasses without an underlying file serialize on read_(); they should override if read_() is thread safe.
+   * <p/>
+   * A FileChannel is interruptible: if a thread is interrupted while in a positional read, the channel and so this file
+   * are closed (ClosedByInterruptException), for every thread sharing it, eg through FileCache.
+   * So do not interrupt threads that may be reading a shared file; eg use Future.cancel(false), not cancel(true),
+   * and ExecutorService.shutdown(), not shutdownNow().
+   *
+   * @param pos    start here in the file
+   * @param b      put data into this buffer
+   * @param offset buffer offset
+   * @param len    this number of bytes
+   * @return actual number of bytes read, or -1 if pos is at or past the end of the file
+   * @throws IOException on io error
+   */
+  protected int pread_(long pos, byte[] b, int offset, int len) throws IOException {
+    if (file == null) {
+      synchronized (this) {
+        return read_(pos, b, offset, len);
+      }
+    }
+
+    if (bufferModified) // unwritten data; only happens when writing, which is never shared
+      flush();
+
+    if (fileChannel == null) // benign race: getChannel() always returns the same channel
+      fileChannel = file.getChannel();
+
+    ByteBuffer bb = ByteBuffer.wrap(b, offset, len);
+    int n = 0;
+    while (n < len) {
+      int count = fileChannel.read(bb, pos + n);
+      if (count < 0) break;
+      n += count;
+    }
+    if (debugAccess) {
+      if (showRead)
+        System.out.println(" **pread_ " + location + " = " + len + " bytes at " + pos);
+      debug_nseeks.incrementAndGet();
+      debug_nbytes.addAndGet(len);
+    }
+
+    if (extendMode && (n < len))
+      n = len;
+    return (n == 0 && len > 0) ? -1 : n;
+  }
+
+  /**
+   * Read up to <code>len</code> bytes at the given file position, without using or changing the file position.
+   * Thread safe.
+   *
+   * @param pos start here in the file
+   * @param b   the byte array to receive the bytes.
+   * @param off the offset in the array where copying will start.
+   * @param len the number of bytes to copy.
+   * @return the actual number of bytes read, or -1 if pos is at or past the end of the file.
+   * @throws IOException if an I/O error occurrs.
+   */
+  public final int read(long pos, byte b[], int off, int len) throws IOException {
+    return pread_(pos, b, off, len);
+  }
+
+  /**
+   * Reads exactly <code>len</code> bytes at the given file position, without using or changing the file position.
+   * Thread safe.
+   *
+   * @param pos start here in the file
+   * @param b   the buffer into which the data is read.
+   * @param off the start offset of the data.
+   * @param len the number of bytes to read.
+   * @throws EOFException if this file reaches the end before reading all the bytes.
+   * @throws IOException  if an I/O error occurs.
+   */
+  public final void readFully(long pos, byte b[], int off, int len) throws IOException {
+    int n = 0;
+    while (n < len) {
+      int count = pread_(pos + n, b, off + n, len - n);
+      if (count < 0) {
+        throw new EOFException("Reading "+location+" at "+(pos + n)+" file length = "+length());
+      }
+      n += count;
+    }
+  }
+
+  /**
+   * Read an array of shorts at the given file position, without using or changing the file position.
+   * Thread safe.
+   *
+   * @param pos   start here in the file
+   * @param pa    read into this array
+   * @param start starting at pa[start]
+   * @param n     read this many elements
+   * @throws IOException on read error
+   */
+  public final void readShort(long pos, short[] pa, int start, int n) throws IOException {
+    BulkScratch scratch = new BulkScratch(2L * n);
+    while (n > 0) {
+      int count = Math.min(n, bulkBufferSize / 2);
+      readBulk(pos, 2 * count, scratch).asShortBuffer().get(pa, start, count);
+      pos += 2 * count;
+      start += count;
+      n -= count;
+    }
+  }
+
+  /**
+   * Read an array of ints at the given file position, without using or changing the file position.
+   * Thread safe.
+   *
+   * @param pos   start here in the file
+   * @param pa    read into this array
+   * @param start starting at pa[start]
+   * @param n     read this many elements
+   * @throws IOException on read error
+   */
+  public final void readInt(long pos, int[] pa, int start, int n) throws IOException {
+    BulkScratch scratch = new BulkScratch(4L * n);
+    while (n > 0) {
+      int count = Math.min(n, bulkBufferSize / 4);
+      readBulk(pos, 4 * count, scratch).asIntBuffer().get(pa, start, count);
+      pos += 4 * count;
+      start += count;
+      n -= count;
+    }
+  }
+
+  /**
+   * Read an array of longs at the given file position, without using or changing the file position.
+   * Thread safe.
+   *
+   * @param pos   start here in the file
+   * @param pa    read into this array
+   * @param start starting at pa[start]
+   * @param n     read this many elements
+   * @throws IOException on read error
+   */
+  public final void readLong(long pos, long[] pa, int start, int n) throws IOException {
+    BulkScratch scratch = new BulkScratch(8L * n);
+    while (n > 0) {
+      int count = Math.min(n, bulkBufferSize / 8);
+      readBulk(pos, 8 * count, scratch).asLongBuffer().get(pa, start, count);
+      pos += 8 * count;
+      start += count;
+      n -= count;
+    }
+  }
+
+  /**
+   * Read an array of floats at the given file position, without using or changing the file position.
+   * Thread safe.
+   *
+   * @param pos   start here in the file
+   * @param pa    read into this array
+   * @param start starting at pa[start]
+   * @param n     read this many elements
+   * @throws IOException on read error
+   */
+  public final void readFloat(long pos, float[] pa, int start, int n) throws IOException {
+    BulkScratch scratch = new BulkScratch(4L * n);
+    while (n > 0) {
+      int count = Math.min(n, bulkBufferSize / 4);
+      readBulk(pos, 4 * count, scratch).asFloatBuffer().get(pa, start, count);
+      pos += 4 * count;
+      start += count;
+      n -= count;
+    }
+  }
+
+  /**
+   * Read an array of doubles at the given file position, without using or changing the file position.
+   * Thread safe.
+   *
+   * @param pos   start here in the file
+   * @param pa    read into this array
+   * @param start starting at pa[start]
+   * @param n     read this many elements
+   * @throws IOException on read error
+   */
+  public final void readDouble(long pos, double[] pa, int start, int n) throws IOException {
+    BulkScratch scratch = new BulkScratch(8L * n);
+    while (n > 0) {
+      int count = Math.min(n, bulkBufferSize / 8);
+      readBulk(pos, 8 * count, scratch).asDoubleBuffer().get(pa, start, count);
+      pos += 8 * count;
+      start += count;
+      n -= count;
+    }
+  }
+
+  /**
+   * Read nbytes at the given file position, and return them as a ByteBuffer using the current byte order,
+   * for conversion by the positional primitive array reads. Thread safe.
+   * Subclasses with their own storage may override.
+   *
+   * @param pos     start here in the file
+   * @param nbytes  number of bytes to read, must be <= bulkBufferSize
+   * @param scratch read into this if needed; it belongs to the calling thread
+   * @return ByteBuffer positioned at the start of the bytes, with the limit at the end
+   * @throws IOException on read error
+   */
+  protected ByteBuffer readBulk(long pos, int nbytes, BulkScratch scratch) throws IOException {
+    byte[] b = scratch.get();
+    readFully(pos, b, 0, nbytes);
+    return ByteBuffer.wrap(b, 0, nbytes).order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+  }
+
   //
   // Write primitives.
   //
@@ -1034,8 +1290,12 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable {
    * @throws IOException on read error
    */
   public final void readShort(short[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readShort();
+    BulkScratch scratch = new BulkScratch(2L * n);
+    while (n > 0) {
+      int count = Math.min(n, bulkBufferSize / 2);
+      readBulk(2 * count, scratch).asShortBuffer().get(pa, start, count);
+      start += count;
+      n -= count;
     }
   }
 
@@ -1187,8 +1447,12 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable {
    * @throws IOException on read error
    */
   public final void readInt(int[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readInt();
+    BulkScratch scratch = new BulkScratch(4L * n);
+    while (n > 0) {
+      int count = Math.min(n, bulkBufferSize / 4);
+      readBulk(4 * count, scratch).asIntBuffer().get(pa, start, count);
+      start += count;
+      n -= count;
     }
   }
 
@@ -1253,8 +1517,12 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable {
    * @throws IOException on read error
    */
   public final void readLong(long[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readLong();
+    BulkScratch scratch = new BulkScratch(8L * n);
+    while (n > 0) {
+      int count = Math.min(n, bulkBufferSize / 8);
+      readBulk(8 * count, scratch).asLongBuffer().get(pa, start, count);
+      start += count;
+      n -= count;
     }
   }
 
@@ -1290,8 +1558,12 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable {
    * @throws IOException on read error
    */
   public final void readFloat(float[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = Float.intBitsToFloat(readInt());
+    BulkScratch scratch = new BulkScratch(4L * n);
+    while (n > 0) {
+      int count = Math.min(n, bulkBufferSize / 4);
+      readBulk(4 * count, scratch).asFloatBuffer().get(pa, start, count);
+      start += count;
+      n -= count;
     }
   }
 
@@ -1327,9 +1599,39 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable {
    * @throws IOException on read error
    */
   public final void readDouble(double[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = Double.longBitsToDouble(readLong());
+    BulkScratch scratch = new BulkScratch(8L * n);
+    while (n > 0) {
+      int count = Math.min(n, bulkBufferSize / 8);
+      readBulk(8 * count, scratch).asDoubleBuffer().get(pa, start, count);
+      start += count;
+      n -= count;
+    }
+  }
+
+  /**
+   * Read nbytes starting at the current file position, and return them as a ByteBuffer
+   * using the current byte order, for conversion by the primitive array reads.
+   * If the bytes are already in the buffer, they are wrapped without copying; otherwise they are read
+   * with readFully() into the scratch array of the call, which bypasses the buffer for large reads.
+   * The returned ByteBuffer is only valid until the next read.
+   * Subclasses with their own storage may override.
+   *
+   * @param nbytes  number of bytes to read, must be <= bulkBufferSize
+   * @param scratch read into this if needed
+   * @return ByteBuffer positioned at the start of the bytes, with the limit at the end
+   * @throws IOException on read error
+   */
+  protected ByteBuffer readBulk(int nbytes, BulkScratch scratch) throws IOException {
+    ByteBuffer bb;
+    if ((filePosition >= bufferStart) && (filePosition + nbytes <= dataEnd)) {
+      bb = ByteBuffer.wrap(buffer, (int) (filePosition - bufferStart), nbytes);
+      filePosition += nbytes;
+    } else {
+      byte[] b = scratch.get();
+      readFully(b, 0, nbytes);
+      bb = ByteBuffer.wrap(b, 0, nbytes);
     }
+    return bb.order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
   }
 
   /**
@@ -0,0 +1,116 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.unidata.io;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A read-only view of another RandomAccessFile, with its own file position, byte order and buffer,
+ * that reads through the positional (thread safe) reads of the other file.
+ * Use one of these per thread, to share a single open file among threads, eg when the reading code
+ * needs the usual seek() and read() methods.
+ * Closing the view does not close the shared file.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+@NotThreadSafe
+public class ViewRandomAccessFile extends RandomAccessFile {
+  private final RandomAccessFile shared;
+
+  /**
+   * Constructor.
+   *
+   * @param shared     the shared file, which must stay open while this view is in use
+   * @param bufferSize size of the buffer for this view
+   */
+  public ViewRandomAccessFile(RandomAccessFile shared, int bufferSize) {
+    super(bufferSize);
+    this.shared = shared;
+    this.location = shared.getLocation();
+    this.bigEndian = shared.bigEndian;
+  }
+
+  /**
+   * Get the shared RandomAccessFile that this is a view of.
+   *
+   * @return the shared RandomAccessFile
+   */
+  public RandomAccessFile getSharedFile() {
+    return shared;
+  }
+
+  @Override
+  protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+    return shared.pread_(pos, b, offset, len);
+  }
+
+  @Override
+  protected int pread_(long pos, byte[] b, int offset, int len) throws IOException {
+    return shared.pread_(pos, b, offset, len);
+  }
+
+  @Override
+  public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
+    return shared.readToByteChannel(dest, offset, nbytes);
+  }
+
+  @Override
+  public long length() throws IOException {
+    return shared.length();
+  }
+
+  @Override
+  public long getLastModified() {
+    return shared.getLastModified();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (fileCache != null) {
+      fileCache.release(this);
+    }
+    // does not close the shared file
+  }
+
+  // As for any RandomAccessFile opened with mode "r", writes go to the buffer and fail when it is flushed.
+  @Override
+  public void flush() throws IOException {
+    if (bufferModified)
+      throw new IOException("ViewRandomAccessFile is read-only: " + location);
+  }
+
+}
@@ -43,26 +43,73 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.channels.WritableByteChannel;
 import java.nio.ByteBuffer;
+import java.util.Formatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Gives access to files over HTTP, using "Accept-Ranges" HTTP header to do random access.
  * This version uses a single instance of HttpClient, following performance guidelines at
  * http://jakarta.apache.org/commons/httpclient/performance.html
  * Plus other improvements.
+ * <p/>
+ * If the block cache is turned on with setBlockCacheSize(), reads are done in blocks of blockSize bytes, which are
+ * kept in a cache shared by all open files. Blocks are keyed by url, length, ETag or Last-Modified, and block number,
+ * and the blocks of an older version of the file are dropped when it is opened again. Block requests send If-Range,
+ * so a file that changes while it is open is not mixed with the old blocks; the read fails instead.
+ * Files whose server sends neither ETag nor Last-Modified are not cached.
+ * When reading sequentially, the number of blocks fetched ahead doubles on each request, up to maxReadAhead.
+ * Missing blocks that are close together are fetched with a single Range request.
  *
  * @author John Caron, based on work by Donald Denbo
  */
 
 public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
   static public int defaultHTTPBufferSize = 20000;
+  static public int blockSize = 64 * 1024;   // unit of caching and of Range requests
+  static public int maxReadAhead = 16;       // max number of blocks to read ahead when reading sequentially
+  static public int maxGap = 2;              // fetch missing blocks in one request if at most this many cached blocks are between them
+  static private volatile BlockCache blockCache = null;
+
+  /**
+   * Set the maximum size of the block cache, shared by all HTTPRandomAccessFiles.
+   * The cached blocks are discarded. Default is 0.
+   *
+   * @param maxBytes max size in bytes; 0 means dont cache, and read exactly what is asked for.
+   */
+  static public void setBlockCacheSize(int maxBytes) {
+    blockCache = (maxBytes > 0) ? new BlockCache(maxBytes) : null;
+  }
+
+  /**
+   * Discard all cached blocks, eg if the remote files may have changed.
+   */
+  static public void clearBlockCache() {
+    BlockCache cache = blockCache;
+    if (cache != null) cache.clear();
+  }
+
+  static public void showBlockCache(Formatter f) {
+    BlockCache cache = blockCache;
+    if (cache == null)
+      f.format("HTTPRandomAccessFile block cache is off%n");
+    else
+      cache.show(f);
+  }
 
   ///////////////////////////////////////////////////////////////////////////////////
 
   private String url;
   private HTTPSession session = null;
   private long total_length = 0;
+  private String validator; // strong ETag, else Last-Modified, from the HEAD request; may be null
+  private String version;   // identifies this version of the remote file in the block cache; null if not cacheable
   private boolean debug = false, debugDetails = false;
 
+  // adaptive read ahead; only a heuristic, so races dont matter
+  private volatile long lastReadEnd = -1;
+  private volatile int readAhead = 0;
+
   public HTTPRandomAccessFile(String url) throws IOException {
     this(url, defaultHTTPBufferSize);
     location = url;
@@ -109,6 +156,17 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
         throw new IOException("Server has malformed Content-Length header");
       }
 
+      // If-Range only accepts strong ETags
+      head = method.getResponseHeader("ETag");
+      if ((head != null) && !head.getValue().startsWith("W/")) {
+        validator = head.getValue();
+      } else {
+        head = method.getResponseHeader("Last-Modified");
+        if (head != null) validator = head.getValue();
+      }
+      if (validator != null)
+        version = total_length + " " + validator;
+
     } finally {
       if (method != null) method.close();
     }
@@ -116,6 +174,10 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
     if (needtest && !rangeOk(url))
       throw new IOException("Server does not support byte Ranges");
 
+    BlockCache cache = blockCache;
+    if ((cache != null) && (version != null))
+      cache.invalidate(url, version); // drop blocks of any other version
+
     if (debugLeaks) openFiles.add(location);
   }
 
@@ -191,28 +253,132 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
    * @param buff   put data into this buffer
    * @param offset buffer offset
    * @param len    this number of bytes
-   * @return actual number of bytes read
+   * @return actual number of bytes read, or -1 if pos is at or past the end of the file
    * @throws IOException on io error
    */
   @Override
   protected int read_(long pos, byte[] buff, int offset, int len) throws IOException {
-    long end = pos + len - 1;
-    if (end >= total_length)
-      end = total_length - 1;
+    if (pos >= total_length) return -1;
+    len = (int) Math.min(len, total_length - pos);
+    if (len <= 0) return 0;
 
-    if (debug) System.out.println(" HTTPRandomAccessFile bytes=" + pos + "-" + end + ": ");
+    BlockCache cache = getBlockCache();
+    if (cache == null)
+      return readRange(pos, buff, offset, len);
+
+    byte[][] blocks = getBlocks(cache, pos, len);
+    int bpos = (int) (pos % blockSize);
+    int done = 0;
+    for (byte[] block : blocks) {
+      int n = Math.min(block.length - bpos, len - done);
+      System.arraycopy(block, bpos, buff, offset + done, n);
+      done += n;
+      bpos = 0;
+    }
+    return done;
+  }
+
+  /*
+   * Get the blocks covering len bytes starting at pos, fetching the missing ones, plus any read ahead.
+   * Return only the blocks covering the request.
+   */
+  private byte[][] getBlocks(BlockCache cache, long pos, int len) throws IOException {
+    long first = pos / blockSize;
+    long last = (pos + len - 1) / blockSize;
+    int nwant = (int) (last - first + 1);
+
+    // double the read ahead while reading sequentially
+    if (pos == lastReadEnd)
+      readAhead = Math.min(Math.max(1, 2 * readAhead), maxReadAhead);
+    else
+      readAhead = 0;
+    lastReadEnd = pos + len;
+
+    long lastBlock = (total_length - 1) / blockSize;
+    long fetchLast = Math.min(last + readAhead, lastBlock);
+    byte[][] blocks = new byte[(int) (fetchLast - first + 1)][];
+    for (int i = 0; i < blocks.length; i++) {
+      byte[] block = cache.get(url, version, first + i);
+      blocks[i] = (block != null && block.length == blockLength(first + i)) ? block : null; // refetch if wrong size
+    }
+
+    // fetch runs of missing blocks, joining runs separated by no more than maxGap cached blocks
+    int start = 0;
+    while (start < blocks.length) {
+      if (blocks[start] != null) {
+        start++;
+        continue;
+      }
+      int end = start;    // last missing block of this request
+      int next = start + 1;
+      while (next < blocks.length) {
+        if (blocks[next] == null) {
+          end = next++;
+        } else {
+          int gapEnd = next;
+          while (gapEnd < blocks.length && blocks[gapEnd] != null) gapEnd++;
+          if (gapEnd == blocks.length || gapEnd - next > maxGap) break;
+          end = gapEnd;
+          next = gapEnd + 1;
+        }
+      }
+
+      // dont fetch read ahead blocks unless the read itself needs a request
+      if (start >= nwant) break;
+
+      fetchBlocks(cache, first + start, first + end, blocks, start);
+      start = end + 1;
+    }
+
+    if (blocks.length == nwant) return blocks;
+    byte[][] result = new byte[nwant][];
+    System.arraycopy(blocks, 0, result, 0, nwant);
+    return result;
+  }
+
+  // fetch blocks firstBlock to lastBlock inclusive in one request, into blocks[] starting at index, and into the cache
+  private void fetchBlocks(BlockCache cache, long firstBlock, long lastBlock, byte[][] blocks, int index) throws IOException {
+    long pos = firstBlock * blockSize;
+    long end = Math.min((lastBlock + 1) * blockSize, total_length);
 
     HTTPMethod method = null;
     try {
-      method = HTTPMethod.Get(session);
-      method.setFollowRedirects(true);
-      method.setRequestHeader("Range", "bytes=" + pos + "-" + end);
-      doConnect(method);
+      method = rangeRequest(pos, end - 1, validator);
+      if (method.getStatusCode() != 206) { // If-Range failed
+        cache.invalidate(url, null);
+        throw new IOException(url + " has changed since it was opened");
+      }
+      InputStream is = method.getResponseAsStream();
 
-      int code = method.getStatusCode();
-      if (code != 206)
-        throw new IOException("Server does not support Range requests, code= " + code);
+      for (long b = firstBlock; b <= lastBlock; b++) {
+        int blen = blockLength(b);
+        byte[] block = new byte[blen];
+        if (copy(is, block, 0, blen) != blen)
+          throw new IOException(url + " Range response too short at block " + b);
+        cache.put(url, version, b, block);
+        blocks[index++] = block;
+      }
+
+    } finally {
+      if (method != null) method.close();
+    }
+  }
 
+  // size of block b; only the last block of the file is short
+  private int blockLength(long b) {
+    return (int) (Math.min((b + 1) * blockSize, total_length) - b * blockSize);
+  }
+
+  // the block cache, or null if it is off or this file cant be cached
+  private BlockCache getBlockCache() {
+    return (version == null) ? null : blockCache;
+  }
+
+  // read exactly the given range, without the cache
+  private int readRange(long pos, byte[] buff, int offset, int len) throws IOException {
+    HTTPMethod method = null;
+    try {
+      method = rangeRequest(pos, pos + len - 1, null);
       String s = method.getResponseHeader("Content-Length").getValue();
       if (s == null)
         throw new IOException("Server does not send Content-Length header");
@@ -221,14 +387,39 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
       readLen = Math.min(len, readLen);
 
       InputStream is = method.getResponseAsStream();
-      readLen = copy(is, buff, offset, readLen);
-      return readLen;
+      return copy(is, buff, offset, readLen);
 
     } finally {
       if (method != null) method.close();
     }
   }
 
+  // Range GET for bytes pos to end inclusive; caller must close the method.
+  // If ifRange is not null, it is sent as If-Range, and a 200 response (file has changed) is returned to the caller.
+  private HTTPMethod rangeRequest(long pos, long end, String ifRange) throws IOException {
+    if (debug) System.out.println(" HTTPRandomAccessFile bytes=" + pos + "-" + end + ": ");
+
+    HTTPMethod method = HTTPMethod.Get(session);
+    try {
+      method.setFollowRedirects(true);
+      method.setRequestHeader("Range", "bytes=" + pos + "-" + end);
+      if (ifRange != null)
+        method.setRequestHeader("If-Range", ifRange);
+      doConnect(method);
+
+      int code = method.getStatusCode();
+      if ((code == 200) && (ifRange != null))
+        return method;
+      if (code != 206)
+        throw new IOException("Server does not support Range requests, code= " + code);
+      return method;
+
+    } catch (IOException e) {
+      method.close();
+      throw e;
+    }
+  }
+
   private int copy(InputStream in, byte[] buff, int offset, int want) throws IOException {
     int done = 0;
     while (want > 0) {
@@ -242,13 +433,57 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
 
   @Override
   public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
-    int n = (int) nbytes;
-    byte[] buff = new byte[n];
-    int done = read_(offset, buff, 0, n);
-    dest.write(ByteBuffer.wrap(buff));
+    nbytes = Math.max(0, Math.min(nbytes, total_length - offset));
+    BlockCache cache = getBlockCache();
+    if (cache == null)
+      return readRangeToByteChannel(dest, offset, nbytes);
+
+    // write directly from the cached blocks, a read ahead window at a time
+    long done = 0;
+    while (done < nbytes) {
+      long pos = offset + done;
+      int len = (int) Math.min(nbytes - done, (long) (maxReadAhead + 1) * blockSize - pos % blockSize);
+      byte[][] blocks = getBlocks(cache, pos, len);
+      int bpos = (int) (pos % blockSize);
+      int want = len;
+      for (byte[] block : blocks) {
+        int n = Math.min(block.length - bpos, want);
+        ByteBuffer bb = ByteBuffer.wrap(block, bpos, n);
+        while (bb.hasRemaining())
+          dest.write(bb);
+        want -= n;
+        bpos = 0;
+      }
+      done += len;
+    }
     return done;
   }
 
+  // stream the range from the response to dest, without the cache
+  private long readRangeToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
+    if (nbytes == 0) return 0;
+
+    HTTPMethod method = null;
+    try {
+      method = rangeRequest(offset, offset + nbytes - 1, null);
+      InputStream is = method.getResponseAsStream();
+      byte[] buff = new byte[(int) Math.min(nbytes, blockSize)];
+      long done = 0;
+      while (done < nbytes) {
+        int n = is.read(buff, 0, (int) Math.min(buff.length, nbytes - done));
+        if (n == -1) break;
+        ByteBuffer bb = ByteBuffer.wrap(buff, 0, n);
+        while (bb.hasRemaining())
+          dest.write(bb);
+        done += n;
+      }
+      return done;
+
+    } finally {
+      if (method != null) method.close();
+    }
+  }
+
   // override selected RandomAccessFile public methods
 
   @Override
@@ -260,5 +495,94 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
       return fileLength;
   }
 
-}
+  ///////////////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Blocks of remote files, keyed by url, version (length and ETag or Last-Modified) and block number.
+   * The least recently used blocks are dropped when the total size is more than maxBytes.
+   */
+  static private class BlockCache {
+    private final int maxBytes;
+    private final LinkedHashMap<BlockKey, byte[]> map = new LinkedHashMap<BlockKey, byte[]>(16, .75f, true); // access order
+    private long bytes;
+    private int hits, misses, evictions;
+
+    BlockCache(int maxBytes) {
+      this.maxBytes = maxBytes;
+    }
+
+    synchronized byte[] get(String url, String version, long block) {
+      byte[] result = map.get(new BlockKey(url, version, block));
+      if (result == null) misses++;
+      else hits++;
+      return result;
+    }
+
+    synchronized void put(String url, String version, long block, byte[] data) {
+      if (data.length > maxBytes) return;
+      byte[] old = map.put(new BlockKey(url, version, block), data);
+      if (old != null) bytes -= old.length;
+      bytes += data.length;
+
+      java.util.Iterator<Map.Entry<BlockKey, byte[]>> iter = map.entrySet().iterator();
+      while (bytes > maxBytes && iter.hasNext()) {
+        bytes -= iter.next().getValue().length;
+        iter.remove();
+        evictions++;
+      }
+    }
+
+    synchronized void clear() {
+      map.clear();
+      bytes = 0;
+    }
+
+    // remove the blocks of url that are not of the given version; all of them if version is null
+    synchronized void invalidate(String url, String version) {
+      java.util.Iterator<Map.Entry<BlockKey, byte[]>> iter = map.entrySet().iterator();
+      while (iter.hasNext()) {
+        Map.Entry<BlockKey, byte[]> entry = iter.next();
+        BlockKey key = entry.getKey();
+        if (key.url.equals(url) && !key.version.equals(version)) {
+          bytes -= entry.getValue().length;
+          iter.remove();
+        }
+      }
+    }
+
+    synchronized void show(Formatter f) {
+      int total = hits + misses;
+      f.format("HTTPRandomAccessFile block cache: %d blocks, %d / %d bytes; hits=%d misses=%d evictions=%d hitRatio=%.3f%n",
+              map.size(), bytes, maxBytes, hits, misses, evictions, (total == 0) ? 0.0 : ((double) hits) / total);
+    }
+  }
+
+  static private class BlockKey {
+    final String url;
+    final String version;
+    final long block;
+
+    BlockKey(String url, String version, long block) {
+      this.url = url;
+      this.version = version;
+      this.block = block;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof BlockKey)) return false;
+      BlockKey that = (BlockKey) o;
+      return block == that.block && url.equals(that.url) && version.equals(that.version);
+    }
 
+    @Override
+    public int hashCode() {
+      int result = url.hashCode();
+      result = 31 * result + version.hashCode();
+      result = 31 * result + (int) (block ^ (block >>> 32));
+      return result;
+    }
+  }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.ma2;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.iosp.IospHelper;
+import ucar.nc2.iosp.netcdf3.N3iosp;
+import ucar.unidata.test.util.TestDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+
+/**
+ * Test ArrayDirect and DirectBufferPool.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestArrayDirect {
+
+  private ArrayDirect makeRamp(DataType dt, int[] shape) {
+    ArrayDirect a = ArrayDirect.factory(dt, shape);
+    IndexIterator ii = a.getIndexIterator();
+    int count = 0;
+    while (ii.hasNext())
+      ii.setDoubleNext(count++);
+    return a;
+  }
+
+  @Test
+  public void testTypes() {
+    DataType[] types = new DataType[]{DataType.BYTE, DataType.SHORT, DataType.INT, DataType.LONG, DataType.FLOAT, DataType.DOUBLE};
+    for (DataType dt : types) {
+      ArrayDirect a = makeRamp(dt, new int[]{3, 4, 5});
+      assertEquals(dt.getPrimitiveClassType(), a.getElementType());
+      assertEquals(60, a.getSize());
+
+      Array heap = Array.factory(dt, new int[]{3, 4, 5});
+      MAMath.copy(heap, a);
+      assertTrue(dt.toString(), MAMath.isEqual(heap, a));
+
+      Index ima = a.getIndex();
+      assertEquals(dt.toString(), 2 * 20 + 3 * 5 + 4, a.getInt(ima.set(2, 3, 4)));
+      a.setDouble(ima, 17);
+      assertEquals(17.0, a.getDouble(ima), 0.0);
+
+      Object ja = a.get1DJavaArray(dt.getPrimitiveClassType());
+      assertEquals(dt.getPrimitiveClassType(), ja.getClass().getComponentType());
+      assertEquals(17.0, ((Number) java.lang.reflect.Array.get(ja, 59)).doubleValue(), 0.0);
+      a.release();
+    }
+  }
+
+  @Test
+  public void testUnsigned() {
+    ArrayDirect a = ArrayDirect.factory(DataType.BYTE, new int[]{2});
+    a.setByte(0, (byte) -1);
+    a.setByte(1, (byte) 3);
+    assertEquals(-1, a.getInt(0));
+    a.setUnsigned(true);
+    assertEquals(255, a.getInt(0));
+    assertEquals(255.0, a.getDouble(0), 0.0);
+    assertEquals(3, a.getShort(1));
+    a.release();
+  }
+
+  @Test
+  public void testSections() throws InvalidRangeException {
+    ArrayDirect a = makeRamp(DataType.FLOAT, new int[]{4, 6});
+    Array sec = a.section(new int[]{1, 2}, new int[]{2, 3});
+    assertTrue(sec instanceof ArrayDirect);
+    assertEquals(8.0f, sec.getFloat(sec.getIndex().set(0, 0)), 0.0f);
+    assertEquals(16.0f, sec.getFloat(sec.getIndex().set(1, 2)), 0.0f);
+
+    float[] f = (float[]) sec.copyTo1DJavaArray();
+    assertArrayEquals(new float[]{8, 9, 10, 14, 15, 16}, f, 0.0f);
+
+    Array t = a.transpose(0, 1);
+    assertEquals(6.0f, t.getFloat(t.getIndex().set(0, 1)), 0.0f);
+
+    Array r = a.reshapeNoCopy(new int[]{24});
+    assertEquals(23.0f, r.getFloat(23), 0.0f);
+
+    // arraycopy into direct storage
+    ArrayDirect dest = ArrayDirect.factory(DataType.FLOAT, new int[]{6});
+    Array.arraycopy(sec, 0, dest, 0, 6);
+    assertEquals(16.0f, dest.getFloat(5), 0.0f);
+
+    // data as ByteBuffer is in canonical big endian order
+    ByteBuffer bb = sec.getDataAsByteBuffer();
+    assertEquals(24, bb.limit());
+    assertEquals(9.0f, bb.getFloat(4), 0.0f);
+    a.release();
+    dest.release();
+  }
+
+  @Test
+  public void testWrap() {
+    ByteBuffer bb = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < 10; i++) bb.putInt(i * 10);
+    bb.flip();
+    bb.position(8);
+    ArrayDirect a = ArrayDirect.factory(DataType.INT, new int[]{2, 4}, bb);
+    assertEquals(20, a.getInt(0));
+    assertEquals(90, a.getInt(7));
+
+    // written as big endian
+    ByteBuffer out = a.getDataAsByteBuffer();
+    assertEquals(ByteOrder.BIG_ENDIAN, out.order());
+    assertEquals(90, out.getInt(28));
+    a.release(); // not pooled, does nothing
+  }
+
+  @Test
+  public void testPool() {
+    DirectBufferPool pool = new DirectBufferPool(1000 * 1000, 100 * 1000);
+    ByteBuffer bb = pool.acquire(3000);
+    assertTrue(bb.isDirect());
+    assertEquals(3000, bb.limit());
+    assertEquals(4096, bb.capacity());
+    pool.release(bb);
+    assertEquals(4096, pool.getPooledBytes());
+
+    ByteBuffer bb2 = pool.acquire(2500);
+    assertSame(bb, bb2);
+    assertEquals(2500, bb2.limit());
+    assertEquals(0, pool.getPooledBytes());
+
+    ByteBuffer big = pool.acquire(200 * 1000);
+    assertEquals(200 * 1000, big.capacity());
+    pool.release(big);
+    assertEquals(0, pool.getPooledBytes());
+
+    // under maxBufferSize, but its size class (128K) is over
+    ByteBuffer odd = pool.acquire(80 * 1000);
+    assertEquals(80 * 1000, odd.capacity());
+    pool.release(odd);
+    assertEquals(0, pool.getPooledBytes());
+
+    // the largest size class under maxBufferSize is pooled
+    ByteBuffer most = pool.acquire(60 * 1000);
+    assertEquals(64 * 1024, most.capacity());
+    pool.release(most);
+    assertEquals(64 * 1024, pool.getPooledBytes());
+  }
+
+  @Test
+  public void testZeroCopyWrite() throws IOException {
+    ArrayDirect a = makeRamp(DataType.SHORT, new int[]{10, 10});
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    long n = IospHelper.copyToByteChannel(a, Channels.newChannel(bos));
+    assertEquals(200, n);
+    ByteBuffer bb = ByteBuffer.wrap(bos.toByteArray());
+    assertEquals(200, bb.limit());
+    assertEquals(99, bb.getShort(198));
+    a.release();
+  }
+
+  @Test
+  public void testN3Direct() throws IOException, InvalidRangeException {
+    for (String name : new String[]{"jan.nc", "testWriteRecord.nc"}) {
+      String filename = TestDir.cdmLocalTestDataDir + name;
+      NetcdfFile heapFile = NetcdfFile.open(filename);
+      N3iosp.setProperty("directArrays", "true");
+      NetcdfFile directFile = NetcdfFile.open(filename);
+      try {
+        int ndirect = 0;
+        for (Variable v : heapFile.getVariables()) {
+          Variable dv = directFile.findVariable(v.getFullNameEscaped());
+          dv.setCaching(false);
+          Array heap = v.read();
+          Array direct = dv.read();
+          if (direct instanceof ArrayDirect) ndirect++;
+          assertTrue(v.getFullName(), MAMath.isEqual(heap, direct) || v.getDataType() == DataType.CHAR);
+
+          if (v.getRank() > 0 && v.getShape(0) > 1) {
+            Section s = new Section(v.getShapeAsSection()).replaceRange(0, new Range(1, v.getShape(0) - 1));
+            assertTrue(v.getFullName(), MAMath.isEqual(v.read(s), dv.read(s)) || v.getDataType() == DataType.CHAR);
+          }
+        }
+        assertTrue(ndirect > 0);
+      } finally {
+        N3iosp.setProperty("directArrays", "false");
+        heapFile.close();
+        directFile.close();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.nc2;
+
+import static org.junit.Assert.*;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import ucar.ma2.*;
+import ucar.nc2.util.CancelTask;
+import ucar.nc2.util.CompareNetcdf2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Formatter;
+
+/**
+ * Test FileWriter2 copying in chunks, with reads pipelined and in parallel.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestFileWriter2Pipelined {
+  static private File fileIn;
+
+  @BeforeClass
+  static public void makeFile() throws IOException, InvalidRangeException {
+    fileIn = File.createTempFile("TestFileWriter2Pipelined", ".nc");
+    NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, fileIn.getPath());
+    writer.addDimension(null, "x", 200);
+    writer.addDimension(null, "y", 1000);
+    Variable big = writer.addVariable(null, "big", DataType.FLOAT, "x y");
+    Variable small = writer.addVariable(null, "small", DataType.SHORT, "y");
+    Variable other = writer.addVariable(null, "other", DataType.DOUBLE, "x y");
+    writer.create();
+
+    writer.write(big, fill(big, 0));
+    writer.write(small, fill(small, 1));
+    writer.write(other, fill(other, 2));
+    writer.close();
+  }
+
+  static private Array fill(Variable v, int offset) {
+    Array data = Array.factory(v.getDataType(), v.getShape());
+    IndexIterator ii = data.getIndexIterator();
+    int count = offset;
+    while (ii.hasNext()) ii.setDoubleNext(count++ % 9999);
+    return data;
+  }
+
+  @AfterClass
+  static public void cleanup() {
+    if (fileIn != null) fileIn.delete();
+  }
+
+  private void copyAndCompare(int readThreads, long memoryBudget, CancelTask cancel) throws IOException {
+    File fileOut = File.createTempFile("TestFileWriter2Pipelined", ".nc");
+    NetcdfFile ncIn = NetcdfFile.open(fileIn.getPath());
+    try {
+      FileWriter2 writer = new FileWriter2(ncIn, fileOut.getPath(), NetcdfFileWriter.Version.netcdf3, null);
+      writer.setReadThreads(readThreads);
+      writer.setMemoryBudget(memoryBudget);
+      NetcdfFile ncOut = writer.write(cancel);
+      ncOut.close();
+
+      ncOut = NetcdfFile.open(fileOut.getPath());
+      try {
+        Formatter f = new Formatter();
+        assertTrue(f.toString(), CompareNetcdf2.compareFiles(ncIn, ncOut, f, true, false, false));
+      } finally {
+        ncOut.close();
+      }
+
+    } finally {
+      ncIn.close();
+      fileOut.delete();
+    }
+  }
+
+  @Test
+  public void testInTurn() throws IOException {
+    copyAndCompare(0, 200 * 1000, null);
+  }
+
+  @Test
+  public void testPipelined() throws IOException {
+    copyAndCompare(1, 200 * 1000, null);
+  }
+
+  @Test
+  public void testParallelReads() throws IOException {
+    copyAndCompare(4, 500 * 1000, null);
+  }
+
+  @Test
+  public void testBudgetSmallerThanChunk() throws IOException {
+    copyAndCompare(2, 1000, null); // chunks are a single row
+  }
+
+  // reads in progress are not interrupted, which would close the input file
+  @Test
+  public void testCancelKeepsInputOpen() throws IOException {
+    File fileOut = File.createTempFile("TestFileWriter2Pipelined", ".nc");
+    NetcdfFile ncIn = NetcdfFile.open(fileIn.getPath());
+    try {
+      FileWriter2 writer = new FileWriter2(ncIn, fileOut.getPath(), NetcdfFileWriter.Version.netcdf3, null);
+      writer.setReadThreads(4);
+      writer.setMemoryBudget(8000);
+      final int[] count = new int[1];
+      NetcdfFile ncOut = writer.write(new CancelTask() {
+        public boolean isCancel() {
+          return count[0] > 0;
+        }
+
+        public void setError(String msg) {
+        }
+
+        public void setProgress(String msg, int progress) {
+          count[0]++;
+        }
+      });
+      assertNull(ncOut); // cancelled
+      assertEquals(1, count[0]);
+
+      Array data = ncIn.findVariable("other").read();
+      assertEquals(2.0, data.getDouble(0), 0.0);
+
+    } finally {
+      ncIn.close();
+      fileOut.delete();
+    }
+  }
+
+  @Test
+  public void testProgress() throws IOException {
+    final int[] lastProgress = new int[1];
+    final String[] lastMsg = new String[1];
+    copyAndCompare(1, 200 * 1000, new CancelTask() {
+      public boolean isCancel() {
+        return false;
+      }
+
+      public void setError(String msg) {
+      }
+
+      public void setProgress(String msg, int progress) {
+        lastMsg[0] = msg;
+        lastProgress[0] = progress;
+      }
+    });
+    assertEquals(100, lastProgress[0]);
+    assertTrue(lastMsg[0], lastMsg[0].contains("Mbytes/sec"));
+  }
+}
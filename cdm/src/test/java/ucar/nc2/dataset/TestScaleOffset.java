@@ -144,4 +144,71 @@ public class TestScaleOffset {
 
     ncd.close();
   }
+
+  // the array conversion (tight loops and lookup tables) must agree with the scalar conversion
+  @Test
+  public void testConvertArray() {
+    for (boolean isUnsigned : new boolean[] {false, true}) {
+      checkConvert(DataType.BYTE, 256, isUnsigned, 0.5f);
+      checkConvert(DataType.SHORT, 1000, isUnsigned, 0.5f);   // computed
+      checkConvert(DataType.SHORT, 65536, isUnsigned, 0.5f);  // lookup table
+      checkConvert(DataType.SHORT, 65536, isUnsigned, 0.25);  // double result
+      checkConvert(DataType.INT, 5000, isUnsigned, 0.5f);
+    }
+    checkConvert(DataType.FLOAT, 5000, false, 2.0);
+    checkConvert(DataType.DOUBLE, 5000, false, 2.0f);
+  }
+
+  // variables that convert the same way share the short lookup table
+  @Test
+  public void testShareShortLookup() {
+    EnhanceScaleMissingImpl sm1 = makeScaleMissing(DataType.SHORT, 10, false, 0.5f);
+    EnhanceScaleMissingImpl sm2 = makeScaleMissing(DataType.SHORT, 20, false, 0.5f);
+    EnhanceScaleMissingImpl sm3 = makeScaleMissing(DataType.SHORT, 10, false, 0.25f);
+
+    double[] table = sm1.getShortLookup(false, true);
+    assert sm2.getShortLookup(false, false) == table;
+    assert sm3.getShortLookup(false, true) != table;
+    assert sm1.getShortLookup(true, true) != table; // unsigned
+
+    sm2.setInvalidDataIsMissing(false);
+    assert sm2.getShortLookup(false, true) != table;
+  }
+
+  private void checkConvert(DataType dt, int n, boolean isUnsigned, Number scale) {
+    EnhanceScaleMissingImpl sm = makeScaleMissing(dt, n, isUnsigned, scale);
+
+    Array packed = Array.factory(dt, new int[] {n});
+    for (int i = 0; i < n; i++)
+      packed.setLong(i, i - n / 2);
+
+    Array unpacked = sm.convertScaleOffsetMissing(packed);
+    assert unpacked.getSize() == n;
+    int nmissing = 0;
+    for (int i = 0; i < n; i++) {
+      double want;
+      if (dt == DataType.BYTE) want = sm.convertScaleOffsetMissing(packed.getByte(i));
+      else if (dt == DataType.SHORT) want = sm.convertScaleOffsetMissing(packed.getShort(i));
+      else if (dt == DataType.INT) want = sm.convertScaleOffsetMissing(packed.getInt(i));
+      else want = sm.convertScaleOffsetMissing(packed.getDouble(i));
+      if (unpacked.getElementType() == float.class) want = (float) want;
+
+      double got = unpacked.getDouble(i);
+      if (Double.isNaN(want)) nmissing++;
+      assert Double.compare(want, got) == 0 : dt + " " + isUnsigned + " " + i + ": " + want + " != " + got;
+    }
+    assert nmissing > 0 : dt + " no missing";
+  }
+
+  private EnhanceScaleMissingImpl makeScaleMissing(DataType dt, int n, boolean isUnsigned, Number scale) {
+    NetcdfDataset ncd = new NetcdfDataset();
+    ncd.addDimension(null, new Dimension("x", n));
+    VariableDS v = new VariableDS(ncd, null, null, "packed", dt, "x", null, null);
+    v.addAttribute(new Attribute(CDM.SCALE_FACTOR, scale));
+    v.addAttribute(new Attribute(CDM.ADD_OFFSET, 10));
+    v.addAttribute(new Attribute(CDM.MISSING_VALUE, 3)); // packed values
+    v.addAttribute(new Attribute("valid_min", -50));
+    if (isUnsigned) v.addAttribute(new Attribute(CDM.UNSIGNED, "true"));
+    return new EnhanceScaleMissingImpl(v, true, true, true, true);
+  }
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.dt.grid;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import ucar.ma2.ArrayDouble;
+import ucar.ma2.DataType;
+import ucar.nc2.Dimension;
+import ucar.nc2.dataset.CoordinateAxis2D;
+import ucar.nc2.dataset.NetcdfDataset;
+import ucar.nc2.dataset.VariableDS;
+
+import java.util.Random;
+
+/**
+ * Compare the GridCoordinate2D lookups with a brute force search, on a rotated and curved grid.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestGridCoordinate2D {
+  private final int ny = 60, nx = 80;
+
+  private GridCoordinate2D makeGrid(double rotate) {
+    NetcdfDataset ds = new NetcdfDataset();
+    ds.addDimension(null, new Dimension("y", ny));
+    ds.addDimension(null, new Dimension("x", nx));
+
+    ArrayDouble.D2 lat = new ArrayDouble.D2(ny, nx);
+    ArrayDouble.D2 lon = new ArrayDouble.D2(ny, nx);
+    double cos = Math.cos(Math.toRadians(rotate)), sin = Math.sin(Math.toRadians(rotate));
+    for (int j = 0; j < ny; j++) {
+      for (int i = 0; i < nx; i++) {
+        double x = 0.1 * i, y = 0.1 * j;
+        lon.set(j, i, -70.0 + x * cos - y * sin + 0.02 * y * y);
+        lat.set(j, i, 30.0 + x * sin + y * cos + 0.01 * x * x);
+      }
+    }
+
+    VariableDS latv = new VariableDS(ds, null, null, "lat", DataType.DOUBLE, "y x", "degrees_north", null);
+    latv.setCachedData(lat, false);
+    VariableDS lonv = new VariableDS(ds, null, null, "lon", DataType.DOUBLE, "y x", "degrees_east", null);
+    lonv.setCachedData(lon, false);
+    return new GridCoordinate2D(new CoordinateAxis2D(ds, latv), new CoordinateAxis2D(ds, lonv));
+  }
+
+  @Test
+  public void testSameAsBruteForce() {
+    Random random = new Random(1234);
+    for (double rotate : new double[] {0.0, 30.0, -60.0}) {
+      GridCoordinate2D g2d = makeGrid(rotate);
+      int[] want = new int[2];
+      int[] got = new int[2];
+      int nfound = 0;
+
+      for (int k = 0; k < 2000; k++) {
+        double lat = 25.0 + random.nextDouble() * 20.0;
+        double lon = -80.0 + random.nextDouble() * 20.0;
+        boolean isFound = g2d.findCoordElementForce(lat, lon, want);
+        assertEquals(lat + " " + lon, isFound, g2d.findCoordElement(lat, lon, got));
+        if (isFound) {
+          assertArrayEquals(lat + " " + lon, want, got);
+          nfound++;
+        }
+      }
+      assertTrue(nfound > 100);
+    }
+  }
+
+  @Test
+  public void testBatch() {
+    GridCoordinate2D g2d = makeGrid(30.0);
+    int n = 500;
+    double[] lats = new double[n];
+    double[] lons = new double[n];
+    for (int k = 0; k < n; k++) { // a scan line, so neighbors share cells
+      lats[k] = 33.0;
+      lons[k] = -75.0 + 0.02 * k;
+    }
+    lats[7] = Double.NaN;
+
+    int[] rows = new int[n];
+    int[] cols = new int[n];
+    int count = g2d.findCoordElements(lats, lons, rows, cols);
+
+    int[] want = new int[2];
+    int nfound = 0;
+    for (int k = 0; k < n; k++) {
+      if (g2d.findCoordElementForce(lats[k], lons[k], want)) {
+        assertEquals(want[0], rows[k]);
+        assertEquals(want[1], cols[k]);
+        nfound++;
+      } else {
+        assertEquals(-1, rows[k]);
+        assertEquals(-1, cols[k]);
+      }
+    }
+    assertEquals(nfound, count);
+    assertTrue(count > 0);
+  }
+}
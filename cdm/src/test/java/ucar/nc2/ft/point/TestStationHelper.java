@@ -0,0 +1,177 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.ft.point;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import ucar.unidata.geoloc.*;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Compare the StationHelper spatial queries with a brute force scan of all the stations.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestStationHelper {
+  private final Random random = new Random(17);
+
+  private List<Station> makeStations(int n) {
+    List<Station> result = new ArrayList<Station>(n);
+    for (int i = 0; i < n; i++) {
+      double lat = random.nextDouble() * 180.0 - 90.0;
+      double lon = random.nextDouble() * 360.0 - 180.0;
+      if (i % 7 == 0) lon += 360.0;  // some in 0-360
+      result.add(new StationImpl("stn" + i, null, null, lat, lon, 0.0));
+    }
+    // edge cases
+    result.add(new StationImpl("northPole", null, null, 90.0, 0.0, 0.0));
+    result.add(new StationImpl("dateline", null, null, 10.0, 180.0, 0.0));
+    result.add(new StationImpl("missing", null, null, Double.NaN, Double.NaN, 0.0));
+    return result;
+  }
+
+  private List<Station> bruteForce(List<Station> stations, LatLonRect bb) {
+    LatLonPointImpl latlonPt = new LatLonPointImpl();
+    List<Station> result = new ArrayList<Station>();
+    for (Station s : stations) {
+      latlonPt.set(s.getLatitude(), s.getLongitude());
+      if (bb.contains(latlonPt))
+        result.add(s);
+    }
+    return result;
+  }
+
+  // great circle distance in radians
+  private double distance(LatLonPoint pt, Station s) {
+    double lat1 = Math.toRadians(pt.getLatitude()), lat2 = Math.toRadians(s.getLatitude());
+    double dlon = Math.toRadians(pt.getLongitude() - s.getLongitude());
+    double c = Math.sin(lat1) * Math.sin(lat2) + Math.cos(lat1) * Math.cos(lat2) * Math.cos(dlon);
+    return Math.acos(Math.max(-1.0, Math.min(1.0, c)));
+  }
+
+  @Test
+  public void testBoundingBox() throws IOException {
+    List<Station> stations = makeStations(5000);
+    StationHelper helper = new StationHelper();
+    helper.setStations(stations);
+
+    List<LatLonRect> boxes = new ArrayList<LatLonRect>();
+    boxes.add(new LatLonRect(new LatLonPointImpl(30, -100), 20, 30));
+    boxes.add(new LatLonRect(new LatLonPointImpl(-10, 170), 30, 25));    // crosses dateline
+    boxes.add(new LatLonRect(new LatLonPointImpl(60, -180), 30, 360));   // polar cap
+    boxes.add(new LatLonRect(new LatLonPointImpl(-90, -180), 180, 360)); // everything
+    boxes.add(new LatLonRect(new LatLonPointImpl(5, 179), 10, 2));       // around the dateline station
+    for (int i = 0; i < 200; i++) {
+      double lat = random.nextDouble() * 170.0 - 90.0;
+      double lon = random.nextDouble() * 360.0 - 180.0;
+      boxes.add(new LatLonRect(new LatLonPointImpl(lat, lon), random.nextDouble() * (90.0 - lat), random.nextDouble() * 200.0));
+    }
+
+    for (LatLonRect bb : boxes)
+      assertEquals(bb.toString2(), bruteForce(stations, bb), helper.getStations(bb));
+  }
+
+  @Test
+  public void testNearest() {
+    List<Station> stations = makeStations(3000);
+    StationHelper helper = new StationHelper();
+    for (Station s : stations)
+      helper.addStation(s); // index is built on first use
+
+    for (int i = 0; i < 200; i++) {
+      LatLonPoint pt = new LatLonPointImpl(random.nextDouble() * 180.0 - 90.0, random.nextDouble() * 360.0 - 180.0);
+      List<Station> nearest = helper.getNearestStations(pt, 5);
+      assertEquals(5, nearest.size());
+
+      // nobody outside the result is nearer than the farthest in it
+      double last = distance(pt, nearest.get(4));
+      for (int j = 1; j < 5; j++)
+        assertTrue(distance(pt, nearest.get(j - 1)) <= distance(pt, nearest.get(j)) + 1.0e-12);
+      for (Station s : stations) {
+        if (Double.isNaN(s.getLatitude()) || nearest.contains(s)) continue;
+        assertTrue(s.getName(), distance(pt, s) >= last - 1.0e-12);
+      }
+      assertSame(nearest.get(0), helper.getNearestStation(pt));
+    }
+
+    // across the dateline
+    assertEquals("dateline", helper.getNearestStation(new LatLonPointImpl(10.0, -179.999)).getName());
+  }
+
+  @Test
+  public void testWithinRadius() {
+    List<Station> stations = makeStations(3000);
+    StationHelper helper = new StationHelper();
+    helper.setStations(stations);
+    double radiusKm = 500.0;
+    double radius = radiusKm * 1000.0 / Earth.getRadius();
+
+    for (int i = 0; i < 200; i++) {
+      LatLonPoint pt = new LatLonPointImpl(random.nextDouble() * 180.0 - 90.0, random.nextDouble() * 360.0 - 180.0);
+      Set<Station> want = new HashSet<Station>();
+      for (Station s : stations) {
+        if (!Double.isNaN(s.getLatitude()) && distance(pt, s) <= radius) want.add(s);
+      }
+      List<Station> result = helper.getStationsWithinRadius(pt, radiusKm);
+      assertEquals(want, new HashSet<Station>(result));
+    }
+  }
+
+  // many stations at the same place, eg a ship or buoy reporting under different ids
+  @Test(timeout = 10000)
+  public void testSameLocation() throws IOException {
+    List<Station> stations = new ArrayList<Station>();
+    for (int i = 0; i < 100000; i++)
+      stations.add(new StationImpl("same" + i, null, null, 40.0, -105.0, 0.0));
+    for (int i = 0; i < 100; i++)
+      stations.add(new StationImpl("other" + i, null, null, 40.0 + i * .1, -105.0 - i * .1, 0.0));
+    StationHelper helper = new StationHelper();
+    helper.setStations(stations);
+
+    LatLonRect bb = new LatLonRect(new LatLonPointImpl(39.95, -105.05), .1, .1);
+    assertEquals(100001, helper.getStations(bb).size());
+    assertEquals(bruteForce(stations, bb), helper.getStations(bb));
+    assertEquals(-105.0, helper.getNearestStation(new LatLonPointImpl(40.01, -105.01)).getLongitude(), 0.0);
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    StationHelper helper = new StationHelper();
+    assertNull(helper.getNearestStation(new LatLonPointImpl(0, 0)));
+    assertEquals(0, helper.getStations(new LatLonRect(new LatLonPointImpl(-10, -10), 20, 20)).size());
+  }
+}
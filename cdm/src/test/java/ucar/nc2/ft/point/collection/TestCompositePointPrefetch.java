@@ -0,0 +1,141 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.ft.point.collection;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Test;
+import thredds.inventory.MFileCollectionManager;
+import ucar.nc2.constants.FeatureType;
+import ucar.nc2.ft.*;
+import ucar.nc2.util.IO;
+import ucar.unidata.test.util.TestDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Read a CompositePointCollection with and without opening the datasets ahead of the reader.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestCompositePointPrefetch {
+  static private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(TestCompositePointPrefetch.class);
+  static private final int nfiles = 12;
+
+  @After
+  public void reset() {
+    CompositePointCollection.setExecutor(null);
+    CompositePointCollection.setPrefetch(2, 1000);
+  }
+
+  // each file has 3 points, with data values that increase through the collection
+  private File makeCollectionDir() throws IOException {
+    String template = IO.readFile(TestDir.cdmLocalTestDataDir + "point/point.ncml");
+    File dir = new File(TestDir.temporaryLocalDataDir + "TestCompositePointPrefetch/");
+    if (dir.exists()) {
+      for (File f : dir.listFiles()) f.delete();
+    }
+    dir.mkdirs();
+    for (int i = 0; i < nfiles; i++) {
+      String ncml = template.replace("<values start=\"1\" increment=\"3\"/>", "<values start=\"" + (3 * i) + "\" increment=\"1\"/>");
+      IO.writeToFile(ncml, new File(dir, String.format("point%02d.ncml", i)));
+    }
+    return dir;
+  }
+
+  private PointFeatureCollection open(File dir) throws IOException {
+    Formatter errlog = new Formatter();
+    MFileCollectionManager dcm = new MFileCollectionManager("TestCompositePointPrefetch", dir.getPath() + "/.*ncml$", errlog, logger);
+    FeatureDatasetPoint fd = (FeatureDatasetPoint) CompositeDatasetFactory.factory("test", FeatureType.POINT, dcm, errlog);
+    assertNotNull(errlog.toString(), fd);
+    return (PointFeatureCollection) fd.getPointFeatureCollectionList().get(0);
+  }
+
+  private List<Float> read(PointFeatureCollection pfc, int max) throws IOException {
+    List<Float> result = new ArrayList<Float>();
+    PointFeatureIterator iter = pfc.getPointFeatureIterator(-1);
+    try {
+      while (iter.hasNext() && result.size() < max) {
+        PointFeature pf = iter.next();
+        result.add(pf.getData().getScalarFloat("data"));
+      }
+    } finally {
+      iter.finish();
+    }
+    return result;
+  }
+
+  @Test
+  public void testSameOrder() throws IOException {
+    File dir = makeCollectionDir();
+    List<Float> serial = read(open(dir), Integer.MAX_VALUE);
+    assertEquals(3 * nfiles, serial.size());
+    for (int i = 0; i < serial.size(); i++)
+      assertEquals(i, serial.get(i), 0.0);
+
+    ExecutorService exec = Executors.newFixedThreadPool(3);
+    try {
+      CompositePointCollection.setExecutor(exec);
+      for (int nfeatures : new int[] {0, 2, 1000}) {
+        CompositePointCollection.setPrefetch(4, nfeatures);
+        assertEquals("nfeatures=" + nfeatures, serial, read(open(dir), Integer.MAX_VALUE));
+      }
+    } finally {
+      exec.shutdown();
+    }
+  }
+
+  // stop early, while datasets are being opened ahead
+  @Test
+  public void testFinishEarly() throws IOException {
+    File dir = makeCollectionDir();
+    ExecutorService exec = Executors.newFixedThreadPool(3);
+    try {
+      CompositePointCollection.setExecutor(exec);
+      CompositePointCollection.setPrefetch(5, 1000);
+      PointFeatureCollection pfc = open(dir);
+      for (int max : new int[] {1, 4, 20})
+        assertEquals(max, read(pfc, max).size());
+    } finally {
+      exec.shutdown();
+    }
+  }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.ft.point.remote;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import ucar.ma2.*;
+import ucar.nc2.ft.PointFeature;
+import ucar.nc2.ft.PointFeatureIterator;
+import ucar.nc2.ft.point.PointFeatureImpl;
+import ucar.nc2.stream.NcStream;
+import ucar.nc2.units.DateUnit;
+import ucar.unidata.geoloc.EarthLocationImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Round trip PointFeatures through the point stream, one at a time and in column-wise batches.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestPointStreamBatch {
+
+  static private class MyPointFeature extends PointFeatureImpl {
+    StructureData sdata;
+
+    MyPointFeature(int i, DateUnit timeUnit, StructureData sdata) {
+      super(new EarthLocationImpl(40.0 + i * .01, -105.0 - i * .01, (i % 3 == 0) ? Double.NaN : i), 1000.0 + i, 1000.0 + i, timeUnit);
+      this.sdata = sdata;
+    }
+
+    public StructureData getData() throws IOException {
+      return sdata;
+    }
+  }
+
+  private List<PointFeature> makeFeatures(int n) throws Exception {
+    StructureMembers sm = new StructureMembers("obs");
+    sm.addMember("temp", "temperature", "K", DataType.FLOAT, new int[0]);
+    sm.addMember("count", null, null, DataType.INT, new int[0]);
+    sm.addMember("id", null, null, DataType.LONG, new int[0]);
+    sm.addMember("level", null, null, DataType.SHORT, new int[0]);
+    sm.addMember("flag", null, null, DataType.BYTE, new int[0]);
+    sm.addMember("name", null, null, DataType.CHAR, new int[]{8});
+    sm.addMember("vals", null, null, DataType.DOUBLE, new int[]{3});
+    sm.addMember("report", null, null, DataType.STRING, new int[0]);
+
+    ArrayStructureMA as = new ArrayStructureMA(sm, new int[]{n});
+    float[] temp = new float[n];
+    int[] count = new int[n];
+    long[] id = new long[n];
+    short[] level = new short[n];
+    byte[] flag = new byte[n];
+    ArrayChar.D2 name = new ArrayChar.D2(n, 8);
+    double[] vals = new double[3 * n];
+    String[] report = new String[n];
+    for (int i = 0; i < n; i++) {
+      temp[i] = 273.15f + i;
+      count[i] = i * 11;
+      id[i] = 1000000000000L + i;
+      level[i] = (short) (i * 3);
+      flag[i] = (byte) (i % 128);
+      name.setString(i, "stn" + i);
+      for (int j = 0; j < 3; j++) vals[3 * i + j] = i + j * .5;
+      report[i] = (i % 4 == 0) ? "" : "METAR K" + i + " °C";
+    }
+    as.setMemberArray("temp", Array.factory(DataType.FLOAT, new int[]{n}, temp));
+    as.setMemberArray("count", Array.factory(DataType.INT, new int[]{n}, count));
+    as.setMemberArray("id", Array.factory(DataType.LONG, new int[]{n}, id));
+    as.setMemberArray("level", Array.factory(DataType.SHORT, new int[]{n}, level));
+    as.setMemberArray("flag", Array.factory(DataType.BYTE, new int[]{n}, flag));
+    as.setMemberArray("name", name);
+    as.setMemberArray("vals", Array.factory(DataType.DOUBLE, new int[]{n, 3}, vals));
+    as.setMemberArray("report", Array.factory(DataType.STRING, new int[]{n}, report));
+
+    DateUnit timeUnit = new DateUnit("seconds since 1970-01-01");
+    List<PointFeature> result = new ArrayList<PointFeature>(n);
+    for (int i = 0; i < n; i++)
+      result.add(new MyPointFeature(i, timeUnit, as.getStructureData(i)));
+    return result;
+  }
+
+  // write the collection, then nsingle features one at a time, the rest in batches
+  private byte[] write(List<PointFeature> pfs, int nsingle, int batchSize) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] b = PointStream.encodePointFeatureCollection("test", pfs.get(0)).toByteArray();
+    PointStream.writeMagic(out, PointStream.MessageType.PointFeatureCollection);
+    NcStream.writeVInt(out, b.length);
+    out.write(b);
+
+    StructureMembers sm = pfs.get(0).getData().getStructureMembers();
+    assertTrue(PointStream.canBatch(sm));
+    PointStream.PointFeatureBatchWriter batchWriter = new PointStream.PointFeatureBatchWriter(out, sm, batchSize);
+    for (int i = 0; i < pfs.size(); i++) {
+      if (i < nsingle) {
+        b = PointStream.encodePointFeature(pfs.get(i)).toByteArray();
+        PointStream.writeMagic(out, PointStream.MessageType.PointFeature);
+        NcStream.writeVInt(out, b.length);
+        out.write(b);
+      } else {
+        batchWriter.add(pfs.get(i));
+      }
+    }
+    batchWriter.flush();
+    PointStream.writeMagic(out, PointStream.MessageType.End);
+    return out.toByteArray();
+  }
+
+  private void readAndCompare(byte[] stream, List<PointFeature> expect, int nsingle) throws IOException {
+    readAndCompare(stream, expect, nsingle, new HashSet<Integer>());
+  }
+
+  // for the features in odd, only temp is compared
+  private void readAndCompare(byte[] stream, List<PointFeature> expect, int nsingle, Set<Integer> odd) throws IOException {
+    InputStream in = new ByteArrayInputStream(stream);
+    assertEquals(PointStream.MessageType.PointFeatureCollection, PointStream.readMagic(in));
+    byte[] b = new byte[NcStream.readVInt(in)];
+    NcStream.readFully(in, b);
+    PointStreamProto.PointFeatureCollection pfc = PointStreamProto.PointFeatureCollection.parseFrom(b);
+
+    PointFeatureIterator iter = new RemotePointFeatureIterator(in, new PointStream.ProtobufPointFeatureMaker(pfc));
+    int count = 0;
+    while (iter.hasNext()) {
+      PointFeature got = iter.next();
+      PointFeature want = expect.get(count);
+      assertEquals(want.getObservationTime(), got.getObservationTime(), 0.0);
+      assertEquals(want.getNominalTime(), got.getNominalTime(), 0.0);
+      assertEquals(want.getLocation().getLatitude(), got.getLocation().getLatitude(), 0.0);
+      assertEquals(want.getLocation().getLongitude(), got.getLocation().getLongitude(), 0.0);
+      if (count >= nsingle && !odd.contains(count)) // single features dont send NaN altitude
+        assertEquals(want.getLocation().getAltitude(), got.getLocation().getAltitude(), 0.0);
+
+      StructureData wantData = want.getData();
+      StructureData gotData = got.getData();
+      assertEquals(wantData.getScalarFloat("temp"), gotData.getScalarFloat("temp"), 0.0f);
+      if (odd.contains(count)) {
+        count++;
+        continue;
+      }
+      assertEquals(wantData.getScalarInt("count"), gotData.getScalarInt("count"));
+      assertEquals(wantData.getScalarLong("id"), gotData.getScalarLong("id"));
+      assertEquals(wantData.getScalarShort("level"), gotData.getScalarShort("level"));
+      assertEquals(wantData.getScalarByte("flag"), gotData.getScalarByte("flag"));
+      assertEquals(wantData.getScalarString("name"), gotData.getScalarString("name"));
+      assertArrayEquals(wantData.getJavaArrayDouble("vals"), gotData.getJavaArrayDouble("vals"), 0.0);
+      assertEquals(wantData.getScalarString("report"), gotData.getScalarString("report"));
+      count++;
+    }
+    assertEquals(expect.size(), count);
+  }
+
+  @Test
+  public void testBatches() throws Exception {
+    List<PointFeature> pfs = makeFeatures(25);
+    readAndCompare(write(pfs, 0, 7), pfs, 0);   // last batch is partial
+    readAndCompare(write(pfs, 0, 25), pfs, 0);  // exactly one batch
+    readAndCompare(write(pfs, 0, 100), pfs, 0);
+  }
+
+  @Test
+  public void testMixed() throws Exception {
+    List<PointFeature> pfs = makeFeatures(25);
+    readAndCompare(write(pfs, 5, 8), pfs, 5);
+    readAndCompare(write(pfs, 25, 8), pfs, 25); // no batches
+  }
+
+  // a feature with different members is written by itself, between batches
+  @Test
+  public void testMembersDiffer() throws Exception {
+    List<PointFeature> pfs = makeFeatures(25);
+    DateUnit timeUnit = new DateUnit("seconds since 1970-01-01");
+
+    StructureMembers sm = new StructureMembers("obs");  // only temp
+    sm.addMember("temp", null, null, DataType.FLOAT, new int[0]);
+    ArrayStructureMA as = new ArrayStructureMA(sm, new int[]{1});
+    as.setMemberArray("temp", Array.factory(DataType.FLOAT, new int[]{1}, new float[]{-1.0f}));
+    pfs.set(7, new MyPointFeature(7, timeUnit, as.getStructureData(0)));
+
+    sm = new StructureMembers("obs");  // count is a double
+    sm.addMember("temp", null, null, DataType.FLOAT, new int[0]);
+    sm.addMember("count", null, null, DataType.DOUBLE, new int[0]);
+    sm.addMember("id", null, null, DataType.LONG, new int[0]);
+    sm.addMember("level", null, null, DataType.SHORT, new int[0]);
+    sm.addMember("flag", null, null, DataType.BYTE, new int[0]);
+    sm.addMember("name", null, null, DataType.CHAR, new int[]{8});
+    sm.addMember("vals", null, null, DataType.DOUBLE, new int[]{3});
+    sm.addMember("report", null, null, DataType.STRING, new int[0]);
+    as = new ArrayStructureMA(sm, new int[]{1});
+    as.setMemberArray("temp", Array.factory(DataType.FLOAT, new int[]{1}, new float[]{-2.0f}));
+    as.setMemberArray("count", Array.factory(DataType.DOUBLE, new int[]{1}, new double[]{99.5}));
+    as.setMemberArray("id", Array.factory(DataType.LONG, new int[]{1}, new long[]{1}));
+    as.setMemberArray("level", Array.factory(DataType.SHORT, new int[]{1}, new short[]{1}));
+    as.setMemberArray("flag", Array.factory(DataType.BYTE, new int[]{1}, new byte[]{1}));
+    as.setMemberArray("name", new ArrayChar.D2(1, 8));
+    as.setMemberArray("vals", Array.factory(DataType.DOUBLE, new int[]{1, 3}, new double[3]));
+    as.setMemberArray("report", Array.factory(DataType.STRING, new int[]{1}, new String[]{"x"}));
+    pfs.set(12, new MyPointFeature(12, timeUnit, as.getStructureData(0)));
+
+    Set<Integer> odd = new HashSet<Integer>();
+    odd.add(7);
+    odd.add(12);
+    readAndCompare(write(pfs, 0, 5), pfs, 0, odd);
+    readAndCompare(write(pfs, 0, 100), pfs, 0, odd);
+  }
+
+  @Test
+  public void testBatchIsSmaller() throws Exception {
+    List<PointFeature> pfs = makeFeatures(1000);
+    int single = write(pfs, pfs.size(), 100).length;
+    int batched = write(pfs, 0, 100).length;
+    System.out.printf("1000 features: one at a time = %d bytes, batched = %d bytes%n", single, batched);
+    assertTrue(batched < single);
+  }
+
+  @Test
+  public void testCantBatchNested() {
+    StructureMembers sm = new StructureMembers("obs");
+    sm.addMember("temp", null, null, DataType.FLOAT, new int[0]);
+    sm.addMember("nested", null, null, DataType.STRUCTURE, new int[0]);
+    assertFalse(PointStream.canBatch(sm));
+  }
+
+}
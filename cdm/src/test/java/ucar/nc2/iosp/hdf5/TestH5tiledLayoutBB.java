@@ -0,0 +1,182 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.iosp.hdf5;
+
+import org.junit.Test;
+import ucar.unidata.io.InMemoryRandomAccessFile;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+/**
+ * Test the HDF5 chunk filters and the decoded chunk cache, without needing a compressed file.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestH5tiledLayoutBB {
+
+  private byte[] makeData(int n) {
+    byte[] data = new byte[n];
+    Random r = new Random(n);
+    for (int i = 0; i < n; i++) data[i] = (byte) ((i % 37) + r.nextInt(3)); // compressible
+    return data;
+  }
+
+  private byte[] deflate(byte[] data) {
+    Deflater deflater = new Deflater();
+    deflater.setInput(data);
+    deflater.finish();
+    byte[] buff = new byte[data.length + 100];
+    int n = deflater.deflate(buff);
+    deflater.end();
+    return Arrays.copyOf(buff, n);
+  }
+
+  // what the HDF5 shuffle filter does when writing
+  private byte[] shuffle(byte[] data, int n) {
+    byte[] result = data.clone();
+    int m = data.length / n;
+    for (int i = 0; i < m; i++)
+      for (int j = 0; j < n; j++)
+        result[j * m + i] = data[i * n + j];
+    return result;
+  }
+
+  @Test
+  public void testInflate() throws IOException {
+    byte[] data = makeData(10000);
+    byte[] compressed = deflate(data);
+
+    // expected size right, too small, too big
+    for (int expected : new int[]{10000, 100, 1, 50000}) {
+      byte[] result = H5tiledLayoutBB.inflate(compressed, compressed.length, expected);
+      assert Arrays.equals(data, result) : expected;
+    }
+
+    // only use len bytes of the input
+    byte[] padded = Arrays.copyOf(compressed, compressed.length + 4);
+    assert Arrays.equals(data, H5tiledLayoutBB.inflate(padded, compressed.length, 10000));
+  }
+
+  @Test
+  public void testInflateTruncated() {
+    byte[] compressed = deflate(makeData(10000));
+    try {
+      H5tiledLayoutBB.inflate(compressed, compressed.length / 2, 10000);
+      assert false : "expected IOException";
+    } catch (IOException ioe) {
+      // ok
+    }
+  }
+
+  @Test
+  public void testUnshuffle() {
+    for (int n : new int[]{1, 2, 4, 8}) {
+      byte[] data = makeData(4000);
+      byte[] shuffled = shuffle(data, n);
+      H5tiledLayoutBB.unshuffle(shuffled, shuffled.length, n);
+      assert Arrays.equals(data, shuffled) : n;
+    }
+
+    // trailing bytes not part of a whole element are left alone
+    byte[] data = makeData(4003);
+    byte[] shuffled = shuffle(data, 4);
+    H5tiledLayoutBB.unshuffle(shuffled, shuffled.length, 4);
+    assert Arrays.equals(data, shuffled);
+
+    // only len bytes are unshuffled
+    data = makeData(400);
+    byte[] padded = Arrays.copyOf(shuffle(data, 4), 404);
+    H5tiledLayoutBB.unshuffle(padded, 400, 4);
+    assert Arrays.equals(data, Arrays.copyOf(padded, 400));
+  }
+
+  @Test
+  public void testChunkCache() {
+    RandomAccessFile raf = new InMemoryRandomAccessFile("file", new byte[0]);
+    H5tiledLayoutBB.ChunkCache cache = new H5tiledLayoutBB.ChunkCache(250);
+    ByteBuffer b1 = ByteBuffer.allocate(100);
+    ByteBuffer b2 = ByteBuffer.allocate(100);
+    ByteBuffer b3 = ByteBuffer.wrap(new byte[120], 0, 100);
+
+    cache.put(raf, 1000, b1);
+    cache.put(raf, 2000, b2);
+    assert cache.get(raf, 1000) == b1; // now 2000 is the least recently used
+    cache.put(raf, 3000, b3);
+
+    assert cache.size() == 2;
+    assert cache.getBytes() == 200;
+    assert cache.get(raf, 1000) == b1;
+    assert cache.get(raf, 2000) == null;
+    assert cache.get(raf, 3000) == b3;
+
+    cache.put(raf, 4000, ByteBuffer.allocate(300)); // too big to keep
+    assert cache.get(raf, 4000) == null;
+    assert cache.size() == 2;
+  }
+
+  @Test
+  public void testChunkCacheRelease() {
+    // the same file opened twice is two different files to the cache
+    RandomAccessFile raf1 = new InMemoryRandomAccessFile("file", new byte[0]);
+    RandomAccessFile raf2 = new InMemoryRandomAccessFile("file", new byte[0]);
+    H5tiledLayoutBB.ChunkCache cache = new H5tiledLayoutBB.ChunkCache(1000);
+    ByteBuffer b1 = ByteBuffer.allocate(100);
+    ByteBuffer b2 = ByteBuffer.allocate(200);
+
+    cache.put(raf1, 1000, b1);
+    cache.put(raf2, 1000, b2);
+    assert cache.get(raf1, 1000) == b1;
+    assert cache.get(raf2, 1000) == b2;
+
+    cache.release(raf1);
+    assert cache.get(raf1, 1000) == null;
+    assert cache.get(raf2, 1000) == b2;
+    assert cache.size() == 1;
+    assert cache.getBytes() == 200;
+  }
+
+  @Test
+  public void testChunkCacheOff() {
+    assert H5tiledLayoutBB.getChunkCache() == null; // off by default
+    H5iosp.setChunkCacheSize(1000);
+    assert H5tiledLayoutBB.getChunkCache() != null;
+    H5iosp.setChunkCacheSize(0);
+    assert H5tiledLayoutBB.getChunkCache() == null;
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.ncml;
+
+import org.junit.After;
+import org.junit.Test;
+import ucar.ma2.*;
+import ucar.nc2.*;
+import ucar.nc2.util.CancelTask;
+import ucar.unidata.test.util.CompareNetcdf;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Test that section reads of outer dimension aggregations give the same answer when the nested datasets are read concurrently.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestAggReadConcurrent {
+  private ExecutorService exec;
+
+  @After
+  public void after() {
+    Aggregation.setExecutor(null);
+    Aggregation.setMaxReadTasks(8);
+    if (exec != null) exec.shutdownNow();
+  }
+
+  @Test
+  public void testJoinExisting() throws IOException, InvalidRangeException {
+    compare("aggExisting.xml", "T", new String[]{"0:58,0:2,0:3", "10:40,1,1:3", "28:32,:,:", "1:57:7,0:2:2,3", "30,2,2"});
+  }
+
+  @Test
+  public void testJoinNew() throws IOException, InvalidRangeException {
+    compare("aggSynthetic.xml", "T", new String[]{"0:2,:,:", "1:2,1,:", "0:2:2,0:2,1:3", "2,:,:"});
+  }
+
+  // the nested aggregations must not wait for tasks in the executor that is running them
+  @Test(timeout = 60 * 1000)
+  public void testNestedAggregation() throws IOException, InvalidRangeException {
+    String nested =
+        "    <netcdf>\n" +
+        "      <aggregation dimName='time' type='joinExisting'>\n" +
+        "        <netcdf location='file:src/test/data/ncml/nc/jan.nc'/>\n" +
+        "        <netcdf location='file:src/test/data/ncml/nc/feb.nc'/>\n" +
+        "      </aggregation>\n" +
+        "    </netcdf>\n";
+    String ncml =
+        "<?xml version='1.0' encoding='UTF-8'?>\n" +
+        "<netcdf xmlns='http://www.unidata.ucar.edu/namespaces/netcdf/ncml-2.2'>\n" +
+        "  <aggregation dimName='time' type='joinExisting'>\n" +
+        nested + nested +
+        "  </aggregation>\n" +
+        "</netcdf>";
+
+    exec = Executors.newFixedThreadPool(1);
+    Aggregation.setExecutor(exec);
+    Aggregation.setMaxReadTasks(2);
+    NetcdfFile ncfile = NcMLReader.readNcML(new StringReader(ncml), null);
+    try {
+      Variable v = ncfile.findVariable("T");
+      Array data = v.read("0:117,1,1");
+      assert data.getSize() == 118 : data.getSize();
+      CompareNetcdf.compareData(v.read("0:58,1,1"), v.read("59:117,1,1"));
+    } finally {
+      ncfile.close();
+    }
+  }
+
+  @Test
+  public void testCancel() throws IOException, InvalidRangeException {
+    exec = Executors.newFixedThreadPool(2);
+    Aggregation.setExecutor(exec);
+
+    NetcdfFile ncfile = NcMLReader.readNcML("file:./" + TestNcML.topDir + "aggExisting.xml", null);
+    try {
+      Variable v = ncfile.findVariable("T");
+      CancelTask cancel = new CancelTask() {
+        public boolean isCancel() { return true; }
+        public void setError(String msg) { }
+        public void setProgress(String msg, int progress) { }
+      };
+      assert v.getProxyReader().reallyRead(v, new Section("10:40,1,1:3"), cancel) == null;
+    } finally {
+      ncfile.close();
+    }
+  }
+
+  private void compare(String ncml, String varName, String[] sections) throws IOException, InvalidRangeException {
+    String filename = "file:./" + TestNcML.topDir + ncml;
+
+    Array[] serial = new Array[sections.length];
+    NetcdfFile ncfile = NcMLReader.readNcML(filename, null);
+    try {
+      Variable v = ncfile.findVariable(varName);
+      for (int i = 0; i < sections.length; i++)
+        serial[i] = v.read(sections[i]);
+    } finally {
+      ncfile.close();
+    }
+
+    exec = Executors.newFixedThreadPool(4);
+    Aggregation.setExecutor(exec);
+    for (int maxTasks : new int[]{1, 2, 8}) {
+      Aggregation.setMaxReadTasks(maxTasks);
+      ncfile = NcMLReader.readNcML(filename, null);
+      try {
+        Variable v = ncfile.findVariable(varName);
+        for (int i = 0; i < sections.length; i++) {
+          Array concurrent = v.read(sections[i]);
+          assert Arrays.equals(serial[i].getShape(), concurrent.getShape()) : ncml + " " + sections[i];
+          CompareNetcdf.compareData(serial[i], concurrent);
+        }
+      } finally {
+        ncfile.close();
+      }
+    }
+  }
+}
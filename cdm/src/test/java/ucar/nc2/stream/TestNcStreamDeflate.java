@@ -0,0 +1,193 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.nc2.stream;
+
+import static org.junit.Assert.*;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import ucar.ma2.*;
+import ucar.nc2.*;
+import ucar.nc2.constants.CDM;
+
+import java.io.*;
+
+/**
+ * Test ncstream data messages deflated in chunks, with the data read in slabs.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestNcStreamDeflate {
+  static private File file, streamFile;
+  static private NetcdfFile ncfile;
+
+  @BeforeClass
+  static public void makeFile() throws IOException, InvalidRangeException {
+    file = File.createTempFile("TestNcStreamDeflate", ".nc");
+    NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, file.getPath());
+    writer.addDimension(null, "x", 300);
+    writer.addDimension(null, "y", 1000);
+    writer.addDimension(null, "a", 100);
+    writer.addDimension(null, "b", 50);
+    Variable big = writer.addVariable(null, "big", DataType.FLOAT, "x y"); // 1.2 Mbytes, more than one slab
+    Variable small = writer.addVariable(null, "small", DataType.INT, "a b");
+    writer.addVariableAttribute(small, new Attribute(CDM.COMPRESS, CDM.COMPRESS_DEFLATE));
+    writer.create();
+
+    Array bigData = Array.factory(DataType.FLOAT, big.getShape());
+    IndexIterator ii = bigData.getIndexIterator();
+    int count = 0;
+    while (ii.hasNext()) ii.setFloatNext((count++ % 1000) * 0.5f);
+    writer.write(big, bigData);
+
+    Array smallData = Array.factory(DataType.INT, small.getShape());
+    ii = smallData.getIndexIterator();
+    count = 0;
+    while (ii.hasNext()) ii.setIntNext(count++);
+    writer.write(small, smallData);
+    writer.close();
+
+    ncfile = NetcdfFile.open(file.getPath());
+  }
+
+  @AfterClass
+  static public void cleanup() throws IOException {
+    if (ncfile != null) ncfile.close();
+    if (file != null) file.delete();
+    if (streamFile != null) streamFile.delete();
+  }
+
+  private Array roundTrip(String varName, Section section, boolean deflate) throws IOException, InvalidRangeException {
+    Variable v = ncfile.findVariable(varName);
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    NcStreamWriter writer = new NcStreamWriter(ncfile, null);
+    long size = writer.sendData(v, section, bout, deflate);
+    assertEquals(bout.size(), size);
+
+    InputStream in = new ByteArrayInputStream(bout.toByteArray());
+    NcStreamReader reader = new NcStreamReader();
+    NcStreamReader.DataResult result = reader.readData(in, ncfile);
+    assertEquals(0, in.available()); // entire message consumed
+    assertEquals(v.getFullNameEscaped(), result.varNameFullEsc);
+    return result.data;
+  }
+
+  private void compare(Array expect, Array got) {
+    assertEquals(expect.getSize(), got.getSize());
+    IndexIterator ei = expect.getIndexIterator();
+    IndexIterator gi = got.getIndexIterator();
+    while (ei.hasNext())
+      assertEquals(ei.getDoubleNext(), gi.getDoubleNext(), 0.0);
+  }
+
+  @Test
+  public void testDeflateRoundTrip() throws IOException, InvalidRangeException {
+    Variable v = ncfile.findVariable("small");
+    compare(v.read(), roundTrip("small", v.getShapeAsSection(), true));
+  }
+
+  @Test
+  public void testDeflateSlabs() throws IOException, InvalidRangeException {
+    Variable v = ncfile.findVariable("big");
+    Array data = roundTrip("big", v.getShapeAsSection(), true);
+    compare(v.read(), data);
+    assertArrayEquals(v.getShape(), data.getShape());
+  }
+
+  @Test
+  public void testSlabsWithinSection() throws IOException, InvalidRangeException {
+    Variable v = ncfile.findVariable("big");
+    Section section = new Section("10:299:2,5:904");
+    compare(v.read(section), roundTrip("big", section, false));
+    compare(v.read(section), roundTrip("big", section, true));
+  }
+
+  @Test
+  public void testChunkedStreams() throws IOException {
+    byte[] data = new byte[10000];
+    for (int i = 0; i < data.length; i++) data[i] = (byte) i;
+
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    NcStream.ChunkedOutputStream cout = new NcStream.ChunkedOutputStream(bout, 999);
+    cout.write(data, 0, 5000);
+    cout.write(data[5000]);
+    cout.write(data, 5001, data.length - 5001);
+    cout.finish();
+    assertEquals(bout.size(), cout.getCount());
+    bout.write(42); // following message
+
+    InputStream in = new ByteArrayInputStream(bout.toByteArray());
+    NcStream.ChunkedInputStream cin = new NcStream.ChunkedInputStream(in);
+    byte[] result = new byte[data.length];
+    assertEquals(data.length, NcStream.readFully(cin, result));
+    assertArrayEquals(data, result);
+    assertEquals(-1, cin.read());
+    assertEquals(42, in.read());
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncated() throws IOException {
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    NcStream.ChunkedOutputStream cout = new NcStream.ChunkedOutputStream(bout, 100);
+    cout.write(new byte[250]);
+    cout.finish();
+    byte[] truncated = new byte[bout.size() - 50];
+    System.arraycopy(bout.toByteArray(), 0, truncated, 0, truncated.length);
+
+    NcStream.ChunkedInputStream cin = new NcStream.ChunkedInputStream(new ByteArrayInputStream(truncated));
+    cin.drain();
+  }
+
+  @Test
+  public void testStreamFile() throws IOException, InvalidRangeException {
+    streamFile = File.createTempFile("TestNcStreamDeflate", ".ncs");
+    OutputStream out = new BufferedOutputStream(new FileOutputStream(streamFile));
+    try {
+      NcStreamWriter writer = new NcStreamWriter(ncfile, null);
+      writer.streamAll(out);
+    } finally {
+      out.close();
+    }
+
+    NetcdfFile ncs = NetcdfFile.open(streamFile.getPath());
+    try {
+      assertEquals("ncstream", ncs.getFileTypeId());
+      compare(ncfile.findVariable("small").read(), ncs.findVariable("small").read());
+    } finally {
+      ncs.close();
+    }
+  }
+}
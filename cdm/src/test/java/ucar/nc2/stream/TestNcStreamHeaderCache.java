@@ -0,0 +1,218 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.nc2.stream;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.util.CompareNetcdf2;
+import ucar.nc2.util.IO;
+import ucar.unidata.test.util.TestDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Formatter;
+
+/**
+ * Test NcStreamHeaderCache with netCDF-3 files.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestNcStreamHeaderCache {
+  private File cacheDir, dataFile;
+
+  @Before
+  public void setup() throws IOException {
+    cacheDir = File.createTempFile("TestNcStreamHeaderCache", "");
+    cacheDir.delete();
+    NcStreamHeaderCache.enable(cacheDir.getPath(), 1000 * 1000);
+
+    dataFile = File.createTempFile("TestNcStreamHeaderCache", ".nc");
+    IO.copyFile(TestDir.cdmLocalTestDataDir + "testStructures.nc", dataFile.getPath());
+  }
+
+  @After
+  public void cleanup() {
+    NcStreamHeaderCache.disable();
+    File[] files = cacheDir.listFiles();
+    if (files != null)
+      for (File f : files) f.delete();
+    cacheDir.delete();
+    dataFile.delete();
+  }
+
+  private NetcdfFile open() throws IOException {
+    return NetcdfFile.open(dataFile.getPath());
+  }
+
+  @Test
+  public void testReopenFromCache() throws IOException {
+    long hits = NcStreamHeaderCache.getHits();
+    NetcdfFile parsed = open();
+    assertEquals(hits, NcStreamHeaderCache.getHits());
+
+    NetcdfFile cached = open();
+    try {
+      assertEquals(hits + 1, NcStreamHeaderCache.getHits());
+      assertEquals(parsed.toString(), cached.toString()); // same CDL
+      Formatter f = new Formatter();
+      assertTrue(f.toString(), CompareNetcdf2.compareFiles(parsed, cached, f, true, false, false));
+    } finally {
+      parsed.close();
+      cached.close();
+    }
+  }
+
+  @Test
+  public void testRecordStructure() throws IOException {
+    open().close();
+    NcStreamHeaderCache.disable();
+    NetcdfFile parsed = NetcdfFile.open(dataFile.getPath(), -1, null, NetcdfFile.IOSP_MESSAGE_ADD_RECORD_STRUCTURE);
+    NcStreamHeaderCache.enable(cacheDir.getPath(), 1000 * 1000);
+
+    long hits = NcStreamHeaderCache.getHits();
+    NetcdfFile cached = NetcdfFile.open(dataFile.getPath(), -1, null, NetcdfFile.IOSP_MESSAGE_ADD_RECORD_STRUCTURE);
+    try {
+      assertEquals(hits + 1, NcStreamHeaderCache.getHits());
+      assertNotNull(cached.findVariable("record"));
+      Formatter f = new Formatter();
+      assertTrue(f.toString(), CompareNetcdf2.compareFiles(parsed, cached, f, true, false, false));
+    } finally {
+      parsed.close();
+      cached.close();
+    }
+  }
+
+  @Test
+  public void testFileChanged() throws IOException {
+    open().close();
+    long hits = NcStreamHeaderCache.getHits();
+    assertTrue(dataFile.setLastModified(dataFile.lastModified() - 10000));
+
+    NetcdfFile ncfile = open(); // stale entry not used
+    ncfile.close();
+    assertEquals(hits, NcStreamHeaderCache.getHits());
+
+    open().close(); // replaced
+    assertEquals(hits + 1, NcStreamHeaderCache.getHits());
+  }
+
+  // same length and last modified, but the number of records in the header is different
+  @Test
+  public void testHeaderChangedSameSecond() throws IOException {
+    open().close();
+    long hits = NcStreamHeaderCache.getHits();
+    long lastModified = dataFile.lastModified();
+
+    java.io.RandomAccessFile raf = new java.io.RandomAccessFile(dataFile, "rw");
+    raf.seek(4);
+    int numrecs = raf.readInt();
+    raf.seek(4);
+    raf.writeInt(numrecs - 1);
+    raf.close();
+    assertTrue(dataFile.setLastModified(lastModified));
+
+    NetcdfFile ncfile = open();
+    try {
+      assertEquals(hits, NcStreamHeaderCache.getHits());
+      assertEquals(numrecs - 1, ncfile.getUnlimitedDimension().getLength());
+    } finally {
+      ncfile.close();
+    }
+  }
+
+  // the layout in the entry doesnt match the metadata: parse the header, and replace the entry
+  @Test
+  public void testCorruptEntry() throws IOException {
+    NetcdfFile parsed = open();
+    int nvars = parsed.getVariables().size();
+    File[] files = cacheDir.listFiles();
+    assertEquals(1, files.length);
+
+    // the layout is at the end of the entry: 46 bytes, nvars, then 25 bytes per variable
+    java.io.RandomAccessFile raf = new java.io.RandomAccessFile(files[0], "rw");
+    raf.seek(raf.length() - 25 * nvars - 4);
+    assertEquals(nvars, raf.readInt());
+    raf.seek(raf.length() - 25 * nvars - 4);
+    raf.writeInt(nvars + 1);
+    raf.close();
+
+    long hits = NcStreamHeaderCache.getHits();
+    NetcdfFile reparsed = open();
+    NetcdfFile cached = null;
+    try {
+      assertEquals(hits + 1, NcStreamHeaderCache.getHits()); // the entry was read, but not used
+      Formatter f = new Formatter();
+      assertTrue(f.toString(), CompareNetcdf2.compareFiles(parsed, reparsed, f, true, false, false));
+
+      cached = open(); // entry was rewritten
+      assertEquals(hits + 2, NcStreamHeaderCache.getHits());
+      f = new Formatter();
+      assertTrue(f.toString(), CompareNetcdf2.compareFiles(parsed, cached, f, true, false, false));
+    } finally {
+      parsed.close();
+      reparsed.close();
+      if (cached != null) cached.close();
+    }
+  }
+
+  @Test
+  public void testSizeBound() throws IOException {
+    open().close();
+    File[] files = cacheDir.listFiles();
+    assertEquals(1, files.length);
+    long entrySize = files[0].length();
+
+    NcStreamHeaderCache.enable(cacheDir.getPath(), entrySize * 5 / 2);
+    File[] copies = new File[5];
+    try {
+      for (int i = 0; i < copies.length; i++) {
+        copies[i] = File.createTempFile("TestNcStreamHeaderCache", ".nc");
+        IO.copyFile(dataFile.getPath(), copies[i].getPath());
+        NetcdfFile.open(copies[i].getPath()).close();
+      }
+      long total = 0;
+      for (File f : cacheDir.listFiles()) total += f.length();
+      assertTrue(total <= entrySize * 5 / 2);
+
+    } finally {
+      for (File f : copies)
+        if (f != null) f.delete();
+    }
+  }
+}
@@ -226,9 +226,78 @@ public class TestNetcdfFileCache extends TestCase {
     }
 
     cache.showCache(new Formatter(System.out));    
+    cache.cleanup(10); // the hand clears the referenced bits of the files just closed, and gets down to the maximum
+    cache.cleanup(10); // the rest have not been used since, so can go
+  }
+
+
+  public void testStatsAndEviction() throws IOException {
+    FileCache cache = new FileCache(0, 10, -1);
+    String location = TestLocal.cdmTestDataDir + "testWrite.nc";
+
+    FileCacheable f1 = cache.acquire(factory, location, null); // miss
+    f1.close();
+    FileCacheable f2 = cache.acquire(factory, location, null); // hit
+    assert f2 == f1;
+    FileCacheable f3 = cache.acquire(factory, location, null); // in cache but locked
+    assert f3 != f1;
+    f2.close();
+    f3.close();
+
+    // both were just released, so the first sweep only clears their referenced bits
+    cache.cleanup(10);
+    Map<Object, FileCache.CacheElement> map = cache.getCache();
+    assert map.values().size() == 1 : map.values().size();
+    cache.cleanup(10);
+    assert map.values().size() == 0 : map.values().size();
+
+    Formatter f = new Formatter();
+    cache.showStats(f);
+    String stats = f.toString();
+    System.out.printf("%s", stats);
+    assert stats.contains("hits= 1 miss= 2 nfiles= 0 elems= 0") : stats;
+    assert stats.contains("contention= 1 evictions= 2 cleanups= 2") : stats;
+  }
+
+  public void testRecentlyUsedSurvives() throws IOException {
+    FileCache cache = new FileCache(0, 10, -1);
+    String[] names = new String[] {"jan.nc", "feb.nc", "testWrite.nc"};
+    for (String name : names)
+      cache.acquire(factory, TestLocal.cdmTestDataDir + name, null).close();
+
+    cache.cleanup(10); // clears the referenced bits
+    Map<Object, FileCache.CacheElement> map = cache.getCache();
+    assert map.values().size() == 3 : map.values().size();
+
+    String recent = TestLocal.cdmTestDataDir + names[1];
+    cache.acquire(factory, recent, null).close(); // hit, sets its referenced bit again
+    cache.cleanup(10);
+    assert map.values().size() == 1 : map.values().size();
+    assert map.get(recent) != null : map.keySet();
+
     cache.cleanup(10);
+    assert map.values().size() == 0 : map.values().size();
   }
 
+  // files taken out of the cache dont stay in the clock, even when cleanup never runs its sweep
+  public void testRemovedLeaveClock() throws IOException {
+    FileCache cache = new FileCache(10, 20, -1);
+    String[] names = new String[] {"jan.nc", "feb.nc", "testWrite.nc"};
+    for (int i = 0; i < 10; i++) {
+      for (String name : names)
+        cache.acquire(factory, TestLocal.cdmTestDataDir + name, null).close();
+      cache.cleanup(20); // below minElements, does nothing
+      for (String name : names)
+        cache.remove(TestLocal.cdmTestDataDir + name);
+      assert cache.getClockSize() == 0 : cache.getClockSize();
+    }
+
+    for (String name : names)
+      cache.acquire(factory, TestLocal.cdmTestDataDir + name, null).close();
+    assert cache.getClockSize() == 3 : cache.getClockSize();
+    cache.clearCache(false);
+    assert cache.getClockSize() == 0 : cache.getClockSize();
+  }
 
   //////////////////////////////////////////////////////////////////////////////////
   int N = 10000;
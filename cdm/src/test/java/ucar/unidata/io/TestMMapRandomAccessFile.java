@@ -0,0 +1,177 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.unidata.io;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.TestLocal;
+import ucar.unidata.test.util.CompareNetcdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+/**
+ * Compare MMapRandomAccessFile with RandomAccessFile, using small segments so that reads span segments.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestMMapRandomAccessFile {
+  static final String filename = TestLocal.cdmTestDataDir + "testWrite.nc";
+
+  @Test
+  public void testReadBytes() throws IOException {
+    RandomAccessFile want = new RandomAccessFile(filename, "r");
+    RandomAccessFile got = new MMapRandomAccessFile(filename, 100, 1000);
+    try {
+      assertEquals(want.length(), got.length());
+      int len = (int) want.length();
+      assertArrayEquals(want.readBytes(len), got.readBytes(len));
+      assertTrue(got.isAtEndOfFile());
+      assertEquals(-1, got.read());
+
+      for (long pos : new long[] {0, 3, 999, 1000, 1001, len - 17}) {
+        want.seek(pos);
+        got.seek(pos);
+        int n = Math.min(2500, (int) (len - pos));
+        assertArrayEquals(want.readBytes(n), got.readBytes(n));
+        assertEquals(want.getFilePointer(), got.getFilePointer());
+      }
+    } finally {
+      want.close();
+      got.close();
+    }
+  }
+
+  @Test
+  public void testReadPrimitives() throws IOException {
+    RandomAccessFile want = new RandomAccessFile(filename, "r");
+    RandomAccessFile got = new MMapRandomAccessFile(filename, 100, 1000);
+    try {
+      for (int endian : new int[] {RandomAccessFile.BIG_ENDIAN, RandomAccessFile.LITTLE_ENDIAN}) {
+        want.order(endian);
+        got.order(endian);
+        for (long pos : new long[] {0, 3, 990, 1001}) {
+          want.seek(pos);
+          got.seek(pos);
+          assertEquals(want.readInt(), got.readInt());
+          assertEquals(want.readShort(), got.readShort());
+          assertEquals(want.readLong(), got.readLong());
+
+          // within a segment, and across a segment boundary
+          for (int n : new int[] {2, 200}) {
+            float[] wantf = new float[n];
+            float[] gotf = new float[n];
+            want.readFloat(wantf, 0, n);
+            got.readFloat(gotf, 0, n);
+            assertArrayEquals(wantf, gotf, 0.0f);
+
+            double[] wantd = new double[n];
+            double[] gotd = new double[n];
+            want.readDouble(wantd, 0, n);
+            got.readDouble(gotd, 0, n);
+            assertArrayEquals(wantd, gotd, 0.0);
+            assertEquals(want.getFilePointer(), got.getFilePointer());
+          }
+        }
+      }
+    } finally {
+      want.close();
+      got.close();
+    }
+  }
+
+  @Test
+  public void testReadToByteChannel() throws IOException {
+    RandomAccessFile want = new RandomAccessFile(filename, "r");
+    RandomAccessFile got = new MMapRandomAccessFile(filename, 100, 1000);
+    try {
+      ByteArrayOutputStream wantOut = new ByteArrayOutputStream();
+      ByteArrayOutputStream gotOut = new ByteArrayOutputStream();
+      assertEquals(want.readToByteChannel(Channels.newChannel(wantOut), 900, 1500),
+          got.readToByteChannel(Channels.newChannel(gotOut), 900, 1500));
+      assertArrayEquals(wantOut.toByteArray(), gotOut.toByteArray());
+    } finally {
+      want.close();
+      got.close();
+    }
+  }
+
+  @Test
+  public void testSearchForward() throws IOException {
+    RandomAccessFile want = new RandomAccessFile(filename, "r");
+    RandomAccessFile got = new MMapRandomAccessFile(filename, 100, 1000);
+    try {
+      want.seek(want.length() - 20);
+      KMPMatch match = new KMPMatch(want.readBytes(4));
+      want.seek(0);
+      got.seek(17);
+      assertEquals(want.searchForward(match, -1), got.searchForward(match, -1));
+      assertEquals(want.getFilePointer(), got.getFilePointer());
+    } finally {
+      want.close();
+      got.close();
+    }
+  }
+
+  @Test
+  public void testWriteFails() throws IOException {
+    RandomAccessFile got = new MMapRandomAccessFile(filename, 100, 1000);
+    try {
+      got.write(1);
+      got.flush();
+      fail("write to MMapRandomAccessFile should fail");
+    } catch (IOException e) {
+      // expected
+    } finally {
+      got.close();
+    }
+  }
+
+  @Test
+  public void testOpenNetcdf() throws IOException {
+    NetcdfFile want = NetcdfFile.open(filename);
+    NetcdfFile got = NetcdfFile.open("mmap:" + filename);
+    try {
+      assertTrue(CompareNetcdf.compareFiles(want, got, true, false, false));
+    } finally {
+      want.close();
+      got.close();
+    }
+  }
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.unidata.io;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import ucar.nc2.TestLocal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Check the primitive array reads in RandomAccessFile against the single value reads,
+ * for both byte orders, with reads that start inside the buffer and span past it.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestRandomAccessFileBulkRead {
+  static final int N = 100 * 1000;   // 800K bytes of doubles, larger than RandomAccessFile.bulkBufferSize
+  static File beFile, leFile;
+
+  @BeforeClass
+  static public void makeFiles() throws IOException {
+    beFile = makeFile("bulkBE.dat", ByteOrder.BIG_ENDIAN);
+    leFile = makeFile("bulkLE.dat", ByteOrder.LITTLE_ENDIAN);
+  }
+
+  static private File makeFile(String name, ByteOrder order) throws IOException {
+    ByteBuffer bb = ByteBuffer.allocate(8 * N + 3).order(order);
+    bb.put((byte) 1).put((byte) 2).put((byte) 3); // so that nothing is aligned
+    for (int i = 0; i < N; i++)
+      bb.putLong(i * 0x0102030405060708L + i);
+
+    File f = new File(TestLocal.temporaryDataDir, name);
+    OutputStream out = new FileOutputStream(f);
+    try {
+      out.write(bb.array());
+    } finally {
+      out.close();
+    }
+    return f;
+  }
+
+  private RandomAccessFile open(File f, int endian, int bufferSize) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(f.getPath(), "r", bufferSize);
+    raf.order(endian);
+    return raf;
+  }
+
+  @Test
+  public void testBigEndian() throws IOException {
+    for (int bufferSize : new int[] {100, 8092, 1024 * 1024})
+      checkAll(beFile, RandomAccessFile.BIG_ENDIAN, bufferSize);
+  }
+
+  @Test
+  public void testLittleEndian() throws IOException {
+    for (int bufferSize : new int[] {100, 8092, 1024 * 1024})
+      checkAll(leFile, RandomAccessFile.LITTLE_ENDIAN, bufferSize);
+  }
+
+  @Test
+  public void testInMemory() throws IOException {
+    RandomAccessFile raf = open(leFile, RandomAccessFile.LITTLE_ENDIAN, 8092);
+    byte[] data = raf.readBytes((int) raf.length());
+    raf.close();
+
+    RandomAccessFile mem = new InMemoryRandomAccessFile("bulkLE", data);
+    mem.order(RandomAccessFile.LITTLE_ENDIAN);
+    RandomAccessFile want = open(leFile, RandomAccessFile.LITTLE_ENDIAN, 8092);
+    try {
+      checkFloats(want, mem, 3, N);
+      checkDoubles(want, mem, 3, N);
+    } finally {
+      want.close();
+      mem.close();
+    }
+  }
+
+  private void checkAll(File f, int endian, int bufferSize) throws IOException {
+    RandomAccessFile want = open(f, endian, bufferSize);
+    RandomAccessFile got = open(f, endian, bufferSize);
+    try {
+      for (int start : new int[] {0, 3, 50, 8000}) {
+        checkShorts(want, got, start, 3);
+        checkShorts(want, got, start, 4 * N - start / 2);
+        checkInts(want, got, start, 7);
+        checkInts(want, got, start, 2 * N - start / 4);
+        checkFloats(want, got, start, 2 * N - start / 4);
+        checkLongs(want, got, start, N - start / 8);
+        checkDoubles(want, got, start, N - start / 8);
+      }
+    } finally {
+      want.close();
+      got.close();
+    }
+  }
+
+  private void checkShorts(RandomAccessFile want, RandomAccessFile got, long start, int n) throws IOException {
+    want.seek(start);
+    got.seek(start);
+    short[] result = new short[n + 1];
+    got.readShort(result, 1, n);
+    for (int i = 0; i < n; i++)
+      assertEquals(want.readShort(), result[i + 1]);
+    assertEquals(want.getFilePointer(), got.getFilePointer());
+  }
+
+  private void checkInts(RandomAccessFile want, RandomAccessFile got, long start, int n) throws IOException {
+    want.seek(start);
+    got.seek(start);
+    int[] result = new int[n + 1];
+    got.readInt(result, 1, n);
+    for (int i = 0; i < n; i++)
+      assertEquals(want.readInt(), result[i + 1]);
+    assertEquals(want.getFilePointer(), got.getFilePointer());
+  }
+
+  private void checkFloats(RandomAccessFile want, RandomAccessFile got, long start, int n) throws IOException {
+    want.seek(start);
+    got.seek(start);
+    float[] result = new float[n + 1];
+    got.readFloat(result, 1, n);
+    for (int i = 0; i < n; i++)
+      assertEquals(Float.floatToRawIntBits(want.readFloat()), Float.floatToRawIntBits(result[i + 1]));
+    assertEquals(want.getFilePointer(), got.getFilePointer());
+  }
+
+  private void checkLongs(RandomAccessFile want, RandomAccessFile got, long start, int n) throws IOException {
+    want.seek(start);
+    got.seek(start);
+    long[] result = new long[n + 1];
+    got.readLong(result, 1, n);
+    for (int i = 0; i < n; i++)
+      assertEquals(want.readLong(), result[i + 1]);
+    assertEquals(want.getFilePointer(), got.getFilePointer());
+  }
+
+  private void checkDoubles(RandomAccessFile want, RandomAccessFile got, long start, int n) throws IOException {
+    want.seek(start);
+    got.seek(start);
+    double[] result = new double[n + 1];
+    got.readDouble(result, 1, n);
+    for (int i = 0; i < n; i++)
+      assertEquals(Double.doubleToRawLongBits(want.readDouble()), Double.doubleToRawLongBits(result[i + 1]));
+    assertEquals(want.getFilePointer(), got.getFilePointer());
+  }
+
+  @Test(expected = java.io.EOFException.class)
+  public void testEof() throws IOException {
+    RandomAccessFile raf = open(beFile, RandomAccessFile.BIG_ENDIAN, 8092);
+    try {
+      raf.seek(raf.length() - 10);
+      raf.readInt(new int[3], 0, 3);
+    } finally {
+      raf.close();
+    }
+  }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.unidata.io;
+
+import static org.junit.Assert.*;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import ucar.nc2.TestLocal;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Positional reads, and ViewRandomAccessFile, with many threads sharing one RandomAccessFile.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestRandomAccessFilePositional {
+  static final int N = 200 * 1000;  // number of ints in the file
+  static File file;
+
+  @BeforeClass
+  static public void makeFile() throws IOException {
+    ByteBuffer bb = ByteBuffer.allocate(4 * N); // big endian
+    for (int i = 0; i < N; i++)
+      bb.putInt(i);
+
+    file = new File(TestLocal.temporaryDataDir, "positional.dat");
+    OutputStream out = new FileOutputStream(file);
+    try {
+      out.write(bb.array());
+    } finally {
+      out.close();
+    }
+  }
+
+  private void checkInts(RandomAccessFile raf, int first, int n) throws IOException {
+    int[] result = new int[n];
+    raf.readInt(4L * first, result, 0, n);
+    for (int i = 0; i < n; i++)
+      assertEquals(first + i, result[i]);
+
+    float[] fresult = new float[n];
+    raf.readFloat(4L * first, fresult, 0, n);
+    for (int i = 0; i < n; i++)
+      assertEquals(first + i, Float.floatToRawIntBits(fresult[i]));
+  }
+
+  @Test
+  public void testPositional() throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r");
+    raf.order(RandomAccessFile.BIG_ENDIAN);
+    try {
+      raf.seek(100);
+      checkInts(raf, 0, N);
+      checkInts(raf, 1234, 5678);
+      assertEquals(100, raf.getFilePointer()); // file position not changed
+      assertEquals(25, raf.readInt());
+
+      byte[] b = new byte[10];
+      assertEquals(4, raf.read(raf.length() - 4, b, 0, 10));
+      assertEquals(-1, raf.read(raf.length(), b, 0, 10));
+    } finally {
+      raf.close();
+    }
+  }
+
+  @Test(expected = EOFException.class)
+  public void testPositionalEof() throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r");
+    try {
+      raf.readFully(raf.length() - 4, new byte[8], 0, 8);
+    } finally {
+      raf.close();
+    }
+  }
+
+  @Test
+  public void testInMemory() throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r");
+    byte[] data = raf.readBytes((int) raf.length());
+    raf.close();
+
+    RandomAccessFile mem = new InMemoryRandomAccessFile("positional", data);
+    mem.order(RandomAccessFile.BIG_ENDIAN);
+    checkInts(mem, 17, N - 17);
+    assertEquals(-1, mem.read(mem.length(), new byte[10], 0, 10));
+  }
+
+  @Test
+  public void testConcurrentViews() throws Exception {
+    final RandomAccessFile shared = new RandomAccessFile(file.getPath(), "r");
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+      for (int task = 0; task < 100; task++) {
+        final int first = (task * 1931) % (N - 1000);
+        results.add(pool.submit(new Callable<Boolean>() {
+          public Boolean call() throws Exception {
+            RandomAccessFile view = new ViewRandomAccessFile(shared, 100);
+            view.order(RandomAccessFile.BIG_ENDIAN);
+            view.seek(4L * first);
+            for (int i = 0; i < 1000; i++)
+              assertEquals(first + i, view.readInt());
+            checkInts(view, first, 1000);
+            view.close();
+            return true;
+          }
+        }));
+      }
+      for (Future<Boolean> f : results)
+        assertTrue(f.get());
+    } finally {
+      pool.shutdown();
+      shared.close();
+    }
+  }
+
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.unidata.io.http;
+
+import static org.junit.Assert.*;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.util.Formatter;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test HTTPRandomAccessFile block cache, read ahead and request merging, against a local server that counts requests.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestHTTPRandomAccessFile {
+  static private final int size = 1000 * 1000;
+  static private volatile byte[] content;
+  static private volatile String etag = "\"v1\"";
+  static private HttpServer server;
+  static private String url;
+  static private final AtomicInteger nrequests = new AtomicInteger();
+
+  @BeforeClass
+  static public void startServer() throws IOException {
+    content = makeContent(size, 7);
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/data.bin", new RangeHandler());
+    server.start();
+    url = "http://127.0.0.1:" + server.getAddress().getPort() + "/data.bin";
+  }
+
+  @AfterClass
+  static public void stopServer() {
+    server.stop(0);
+  }
+
+  static private byte[] makeContent(int n, int mult) {
+    byte[] result = new byte[n];
+    for (int i = 0; i < n; i++)
+      result[i] = (byte) (i * mult + i / 251);
+    return result;
+  }
+
+  @Before
+  public void setup() {
+    HTTPRandomAccessFile.setBlockCacheSize(16 * 1000 * 1000);
+  }
+
+  @After
+  public void reset() {
+    HTTPRandomAccessFile.setBlockCacheSize(0);
+  }
+
+  // serves content, with Range and If-Range requests; counts the GETs
+  static private class RangeHandler implements HttpHandler {
+    public void handle(HttpExchange exchange) throws IOException {
+      byte[] data = content;
+      exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+      exchange.getResponseHeaders().set("ETag", etag);
+      if (exchange.getRequestMethod().equals("HEAD")) {
+        exchange.getResponseHeaders().set("Content-Length", Integer.toString(data.length));
+        exchange.sendResponseHeaders(200, -1);
+        exchange.close();
+        return;
+      }
+
+      nrequests.incrementAndGet();
+      OutputStream out;
+      String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+      if (ifRange != null && !ifRange.equals(etag)) { // changed, so send it all
+        exchange.sendResponseHeaders(200, data.length);
+        out = exchange.getResponseBody();
+        out.write(data);
+        out.close();
+        return;
+      }
+
+      String range = exchange.getRequestHeaders().getFirst("Range");
+      String[] startEnd = range.substring("bytes=".length()).split("-");
+      int start = Integer.parseInt(startEnd[0]);
+      int end = Math.min(Integer.parseInt(startEnd[1]), data.length - 1);
+      int len = end - start + 1;
+      exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + data.length);
+      exchange.sendResponseHeaders(206, len);
+      out = exchange.getResponseBody();
+      out.write(data, start, len);
+      out.close();
+    }
+  }
+
+  private void checkBytes(byte[] b, long pos) {
+    checkBytes(content, b, pos);
+  }
+
+  private void checkBytes(byte[] want, byte[] b, long pos) {
+    for (int i = 0; i < b.length; i++)
+      if (b[i] != want[(int) pos + i])
+        fail("byte " + (pos + i) + " = " + b[i] + " should be " + want[(int) pos + i]);
+  }
+
+  @Test
+  public void testSequentialReadAhead() throws IOException {
+    nrequests.set(0);
+    HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url);
+    try {
+      assertEquals(size, raf.length());
+      byte[] b = new byte[1000];
+      for (long pos = 0; pos < size; pos += b.length) {
+        raf.readFully(b);
+        checkBytes(b, pos);
+      }
+    } finally {
+      raf.close();
+    }
+    int nblocks = (size + HTTPRandomAccessFile.blockSize - 1) / HTTPRandomAccessFile.blockSize;
+    System.out.printf("sequential read of %d blocks took %d requests%n", nblocks, nrequests.get());
+    assertTrue("requests = " + nrequests.get(), nrequests.get() <= 6);
+
+    // a second open of the same url is served from the cache
+    nrequests.set(0);
+    raf = new HTTPRandomAccessFile(url);
+    try {
+      byte[] b = new byte[size];
+      raf.readFully(0, b, 0, size);
+      checkBytes(b, 0);
+    } finally {
+      raf.close();
+    }
+    assertEquals(0, nrequests.get());
+  }
+
+  @Test
+  public void testSmallRandomReads() throws IOException {
+    HTTPRandomAccessFile.clearBlockCache();
+    nrequests.set(0);
+    HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url);
+    try {
+      // all within the first block, like reading a header
+      long[] positions = {100, 8, 4000, 520, 60000, 12};
+      for (long pos : positions) {
+        byte[] b = new byte[16];
+        raf.readFully(pos, b, 0, b.length);
+        checkBytes(b, pos);
+      }
+    } finally {
+      raf.close();
+    }
+    assertEquals(1, nrequests.get());
+  }
+
+  @Test
+  public void testMergeRequests() throws IOException {
+    HTTPRandomAccessFile.clearBlockCache();
+    int bs = HTTPRandomAccessFile.blockSize;
+    HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url);
+    try {
+      byte[] b = new byte[10];
+      raf.readFully(3 * bs + 10, b, 0, b.length);
+      raf.readFully(bs + 10, b, 0, b.length);
+
+      // blocks 0, 2 and 4 are missing, but one request gets them all
+      nrequests.set(0);
+      byte[] big = new byte[4 * bs];
+      raf.readFully(100, big, 0, big.length);
+      checkBytes(big, 100);
+      assertEquals(1, nrequests.get());
+    } finally {
+      raf.close();
+    }
+  }
+
+  @Test
+  public void testReadToByteChannel() throws IOException {
+    HTTPRandomAccessFile.clearBlockCache();
+    HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url);
+    try {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      long n = raf.readToByteChannel(Channels.newChannel(bos), 12345, 300000);
+      assertEquals(300000, n);
+      checkBytes(bos.toByteArray(), 12345);
+    } finally {
+      raf.close();
+    }
+  }
+
+  @Test
+  public void testCacheOff() throws IOException {
+    HTTPRandomAccessFile.setBlockCacheSize(0);
+    nrequests.set(0);
+    HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url);
+    try {
+      byte[] b = new byte[50000];
+      raf.readFully(size - b.length, b, 0, b.length);
+      checkBytes(b, size - b.length);
+
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      assertEquals(100000, raf.readToByteChannel(Channels.newChannel(bos), 777, 100000));
+      checkBytes(bos.toByteArray(), 777);
+    } finally {
+      raf.close();
+    }
+    assertEquals(2, nrequests.get());
+  }
+
+  @Test
+  public void testCacheOffByDefault() throws IOException {
+    HTTPRandomAccessFile.setBlockCacheSize(0);
+    Formatter f = new Formatter();
+    HTTPRandomAccessFile.showBlockCache(f);
+    assertTrue(f.toString(), f.toString().contains("off"));
+  }
+
+  @Test
+  public void testRemoteFileChanged() throws IOException {
+    HTTPRandomAccessFile.clearBlockCache();
+    byte[] old = content;
+    HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url);
+    try {
+      byte[] b = new byte[100];
+      raf.readFully(size - b.length, b, 0, b.length); // caches the short last block
+      checkBytes(b, size - b.length);
+
+      // the file grows and is rewritten
+      byte[] grown = makeContent(size + 5000, 3);
+      content = grown;
+      etag = "\"v2\"";
+
+      // the open file does not mix in blocks of the new version
+      try {
+        raf.readFully(0, b, 0, b.length);
+        fail("read of a changed file should fail");
+      } catch (IOException e) {
+        // expected
+      }
+
+      // a new open gets only the new version, including where the old last block was
+      HTTPRandomAccessFile raf2 = new HTTPRandomAccessFile(url);
+      try {
+        assertEquals(grown.length, raf2.length());
+        byte[] b2 = new byte[2000];
+        raf2.readFully(size - 1000, b2, 0, b2.length);
+        checkBytes(grown, b2, size - 1000);
+      } finally {
+        raf2.close();
+      }
+
+    } finally {
+      content = old;
+      etag = "\"v1\"";
+      raf.close();
+    }
+  }
+
+  @Test
+  public void testEndOfFile() throws IOException {
+    HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url);
+    try {
+      byte[] b = new byte[100];
+      assertEquals(-1, raf.read(size, b, 0, b.length));
+      assertEquals(40, raf.read(size - 40, b, 0, b.length));
+      raf.seek(size - 10);
+      assertEquals(10, raf.read(b));
+      assertEquals(-1, raf.read(b));
+    } finally {
+      raf.close();
+    }
+  }
+
+}
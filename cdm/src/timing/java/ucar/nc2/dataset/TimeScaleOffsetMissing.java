@@ -35,7 +35,10 @@ package ucar.nc2.dataset;
 
 import ucar.ma2.InvalidRangeException;
 import ucar.ma2.*;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
 import ucar.nc2.TestAll;
+import ucar.nc2.constants.CDM;
 import ucar.nc2.Variable;
 import ucar.nc2.NetcdfFile;
 
@@ -153,4 +156,41 @@ public class TimeScaleOffsetMissing extends TestCase {
 
   }
 
+  // compare the array conversion with the element by element conversion through an iterator
+  public void testConvertArray() {
+    int n = 10 * 1000 * 1000;
+    for (DataType dt : new DataType[] {DataType.BYTE, DataType.SHORT, DataType.INT}) {
+      NetcdfDataset ncd = new NetcdfDataset();
+      ncd.addDimension(null, new Dimension("x", n));
+      VariableDS v = new VariableDS(ncd, null, null, "packed", dt, "x", null, null);
+      v.addAttribute(new Attribute(CDM.SCALE_FACTOR, 0.01f));
+      v.addAttribute(new Attribute(CDM.ADD_OFFSET, 273.0f));
+      v.addAttribute(new Attribute(CDM.MISSING_VALUE, -1));
+      EnhanceScaleMissingImpl sm = new EnhanceScaleMissingImpl(v, true, true, true, true);
+
+      Array packed = Array.factory(dt, new int[] {n});
+      for (int i = 0; i < n; i++)
+        packed.setInt(i, i % 10000 - 1);
+
+      Average perElem = new Average();
+      Average perArray = new Average();
+      for (int i = 0; i < N; i++) {
+        long start = System.nanoTime();
+        Array out = Array.factory(DataType.FLOAT, packed.getShape());
+        IndexIterator iterIn = packed.getIndexIterator();
+        IndexIterator iterOut = out.getIndexIterator();
+        while (iterIn.hasNext())
+          iterOut.setDoubleNext(sm.convertScaleOffsetMissing(iterIn.getDoubleNext()));
+        perElem.add((double) (System.nanoTime() - start) / n);
+
+        start = System.nanoTime();
+        sm.convertScaleOffsetMissing(packed);
+        perArray.add((double) (System.nanoTime() - start) / n);
+      }
+
+      System.out.printf("%s nanosecs/elem: per element=%s%n", dt, perElem);
+      System.out.printf("%s nanosecs/elem: per array  =%s%n", dt, perArray);
+    }
+  }
+
 }
@@ -48,6 +48,7 @@ import ucar.nc2.util.cache.FileCacheable;
 import ucar.nc2.util.cache.FileFactory;
 import ucar.unidata.geoloc.LatLonPoint;
 import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.io.ViewRandomAccessFile;
 import ucar.unidata.util.Parameter;
 import ucar.unidata.util.StringUtil2;
 
@@ -72,6 +73,8 @@ public abstract class GribCollection implements FileCacheable {
   // object cache for data files - these are opened only as raf, not netcdfFile
   private static FileCache dataRafCache;
   private static DiskCache2 diskCache;
+  private static final int dataRafBufferSize = 8092;
+  private static final Map<String, SharedDataRaf> sharedDataRafs = new HashMap<String, SharedDataRaf>(); // data files in use
 
   static public void initDataRafCache(int minElementsInMemory, int maxElementsInMemory, int period) {
     dataRafCache = new ucar.nc2.util.cache.FileCache("GribCollectionDataRafCache ", minElementsInMemory, maxElementsInMemory, -1, period);
@@ -83,7 +86,7 @@ public abstract class GribCollection implements FileCacheable {
 
   static private final ucar.nc2.util.cache.FileFactory dataRafFactory = new FileFactory() {
     public FileCacheable open(String location, int buffer_size, CancelTask cancelTask, Object iospMessage) throws IOException {
-      return new RandomAccessFile(location, "r");
+      return RandomAccessFile.openReadOnly(location, buffer_size > 0 ? buffer_size : dataRafBufferSize);
     }
   };
 
@@ -366,6 +369,14 @@ public abstract class GribCollection implements FileCacheable {
   //////////////////////////////////////////////////////////////////////////////////////////////////
   // stuff for Iosp
 
+  /**
+   * Get a RandomAccessFile for one of the data files, positioned for big endian reading. Call close() when done.
+   * Concurrent callers asking for the same file get their own view of one open file.
+   *
+   * @param fileno index into the files of this collection
+   * @return RandomAccessFile for the data file
+   * @throws IOException on read error, or if the data file is missing
+   */
   public RandomAccessFile getDataRaf(int fileno) throws IOException {
     // absolute location
     MFile mfile = files.get(fileno);
@@ -392,11 +403,74 @@ public abstract class GribCollection implements FileCacheable {
     return want;
   }
 
+  // Concurrent readers of the same data file share one open RandomAccessFile, each through its own view.
+  // The shared file is acquired from the dataRafCache (so is locked there) until the last view is closed.
   private RandomAccessFile getDataRaf(String location) throws IOException {
-    if (dataRafCache != null) {
-      return (RandomAccessFile) dataRafCache.acquire(dataRafFactory, location, null);
-    } else {
-      return new RandomAccessFile(location, "r");
+    SharedDataRaf shared;
+    synchronized (sharedDataRafs) {
+      shared = sharedDataRafs.get(location);
+      if (shared != null) shared.nusers++;
+    }
+
+    if (shared == null) {
+      RandomAccessFile raf;
+      if (dataRafCache != null) {
+        raf = (RandomAccessFile) dataRafCache.acquire(dataRafFactory, location, null);
+      } else {
+        raf = RandomAccessFile.openReadOnly(location, dataRafBufferSize);
+      }
+
+      RandomAccessFile notNeeded = null;
+      synchronized (sharedDataRafs) {
+        shared = sharedDataRafs.get(location);
+        if (shared != null) { // another thread got there first
+          shared.nusers++;
+          notNeeded = raf;
+        } else {
+          shared = new SharedDataRaf(location, raf);
+          sharedDataRafs.put(location, shared);
+        }
+      }
+      if (notNeeded != null) notNeeded.close();
+    }
+
+    return new SharedDataRafView(shared);
+  }
+
+  static private void releaseDataRaf(SharedDataRaf shared) throws IOException {
+    boolean last;
+    synchronized (sharedDataRafs) {
+      last = (--shared.nusers == 0);
+      if (last) sharedDataRafs.remove(shared.location);
+    }
+    if (last) shared.raf.close(); // release to the cache, or really close
+  }
+
+  static private class SharedDataRaf {
+    final String location;
+    final RandomAccessFile raf;
+    int nusers = 1; // guarded by sharedDataRafs
+
+    SharedDataRaf(String location, RandomAccessFile raf) {
+      this.location = location;
+      this.raf = raf;
+    }
+  }
+
+  static private class SharedDataRafView extends ViewRandomAccessFile {
+    private SharedDataRaf shared;
+
+    SharedDataRafView(SharedDataRaf shared) {
+      super(shared.raf, dataRafBufferSize);
+      this.shared = shared;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (shared == null) return; // already closed
+      SharedDataRaf s = shared;
+      shared = null;
+      releaseDataRaf(s);
     }
   }
 
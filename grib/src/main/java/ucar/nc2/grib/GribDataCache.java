@@ -0,0 +1,269 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Formatter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of decoded GRIB records, shared by Grib1Iosp and Grib2Iosp.
+ * A record is identified by its data file and its position in that file (Grib1: start of message, Grib2: drsPos).
+ * The last modified time and length of the data file are part of the key, so a file that is replaced or rewritten
+ * does not get the old data; the stale records are evicted in time.
+ * The cache is bounded by the number of bytes of decoded data it holds, and evicts the least recently used record.
+ * <p/>
+ * The decoded values can optionally be kept off-heap in direct buffers, so a large cache doesn't burden the garbage collector.
+ * In that case a copy is made on each hit.
+ * <p/>
+ * The float arrays returned from get() are shared and must not be modified.
+ * Off by default, turn on with GribDataCache.init().
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+@ThreadSafe
+public class GribDataCache {
+  static private GribDataCache instance = null;
+
+  /**
+   * Turn on the cache of decoded GRIB records.
+   *
+   * @param maxBytes maximum size of the decoded data kept in the cache; if <= 0, turn the cache off
+   * @param offHeap  keep the decoded data in direct buffers instead of on the heap
+   */
+  static public synchronized void init(long maxBytes, boolean offHeap) {
+    instance = (maxBytes > 0) ? new GribDataCache(maxBytes, offHeap) : null;
+  }
+
+  /**
+   * Turn off the cache, releasing all records.
+   */
+  static public synchronized void disable() {
+    instance = null;
+  }
+
+  /**
+   * Get the cache.
+   * @return the cache, or null if it is turned off
+   */
+  static public synchronized GribDataCache getInstance() {
+    return instance;
+  }
+
+  ///////////////////////////////////////////////////////
+
+  private final long maxBytes;
+  private final boolean offHeap;
+
+  @GuardedBy("this")
+  private final LinkedHashMap<Key, Entry> map = new LinkedHashMap<Key, Entry>(100, .75f, true); // access order
+  @GuardedBy("this")
+  private long bytes;
+  @GuardedBy("this")
+  private long hits, misses, evictions;
+
+  GribDataCache(long maxBytes, boolean offHeap) {
+    this.maxBytes = maxBytes;
+    this.offHeap = offHeap;
+  }
+
+  /**
+   * Find a decoded record.
+   *
+   * @param location     data file location
+   * @param lastModified last modified time of the data file
+   * @param length       length of the data file
+   * @param pos          position of the record in the data file
+   * @return the decoded data, or null if not in the cache
+   */
+  public float[] get(String location, long lastModified, long length, long pos) {
+    Entry entry;
+    synchronized (this) {
+      entry = map.get(new Key(location, lastModified, length, pos));
+      if (entry == null) {
+        misses++;
+        return null;
+      }
+      hits++;
+    }
+    return entry.getData();
+  }
+
+  /**
+   * Add a decoded record. Records bigger than the cache are not kept.
+   *
+   * @param location     data file location
+   * @param lastModified last modified time of the data file
+   * @param length       length of the data file
+   * @param pos          position of the record in the data file
+   * @param data         the decoded data, must not be modified after this call
+   */
+  public void put(String location, long lastModified, long length, long pos, float[] data) {
+    Entry entry = offHeap ? new OffHeapEntry(data) : new HeapEntry(data);
+    long size = entry.size();
+    if (size > maxBytes) return;
+
+    synchronized (this) {
+      Entry old = map.put(new Key(location, lastModified, length, pos), entry);
+      if (old != null) bytes -= old.size();
+      bytes += size;
+
+      Iterator<Entry> iter = map.values().iterator();
+      while (bytes > maxBytes && iter.hasNext()) {
+        bytes -= iter.next().size();
+        iter.remove();
+        evictions++;
+      }
+    }
+  }
+
+  /**
+   * Remove all records, reset the statistics.
+   */
+  public synchronized void clearCache() {
+    map.clear();
+    bytes = 0;
+    hits = 0;
+    misses = 0;
+    evictions = 0;
+  }
+
+  public synchronized int getNumberOfRecords() {
+    return map.size();
+  }
+
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  public synchronized void showCache(Formatter format) {
+    long accesses = hits + misses;
+    double ratio = (accesses == 0) ? 0.0 : ((double) hits) / accesses;
+    format.format("GribDataCache %s: nrecords= %d bytes= %d maxBytes= %d%n", offHeap ? "(off-heap)" : "",
+            map.size(), bytes, maxBytes);
+    format.format("  hits= %d misses= %d hitRatio= %.3f evictions= %d%n", hits, misses, ratio, evictions);
+  }
+
+  ///////////////////////////////////////////////////////
+
+  static private class Key {
+    private final String location;
+    private final long lastModified, length, pos;
+
+    Key(String location, long lastModified, long length, long pos) {
+      this.location = location;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.pos = pos;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      Key key = (Key) o;
+      return pos == key.pos && lastModified == key.lastModified && length == key.length && location.equals(key.location);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = location.hashCode();
+      result = 31 * result + (int) (lastModified ^ (lastModified >>> 32));
+      result = 31 * result + (int) (length ^ (length >>> 32));
+      result = 31 * result + (int) (pos ^ (pos >>> 32));
+      return result;
+    }
+  }
+
+  private interface Entry {
+    float[] getData();
+    long size();
+  }
+
+  static private class HeapEntry implements Entry {
+    private final float[] data;
+
+    HeapEntry(float[] data) {
+      this.data = data;
+    }
+
+    public float[] getData() {
+      return data;
+    }
+
+    public long size() {
+      return 4L * data.length;
+    }
+  }
+
+  static private class OffHeapEntry implements Entry {
+    private final FloatBuffer buffer;
+
+    OffHeapEntry(float[] data) {
+      buffer = ByteBuffer.allocateDirect(4 * data.length).order(ByteOrder.nativeOrder()).asFloatBuffer();
+      buffer.put(data);
+    }
+
+    public float[] getData() {
+      float[] data = new float[buffer.capacity()];
+      FloatBuffer dup = buffer.duplicate(); // position is not shared between threads
+      dup.clear();
+      dup.get(data);
+      return data;
+    }
+
+    public long size() {
+      return 4L * buffer.capacity();
+    }
+  }
+}
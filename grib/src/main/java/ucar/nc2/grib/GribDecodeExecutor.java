@@ -0,0 +1,277 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib;
+
+import net.jcip.annotations.ThreadSafe;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes the records of a GRIB data request using a bounded number of threads.
+ * Records are handed out in the order given (sorted by file and position), so the files are still read in order,
+ * while the CPU bound decoding (eg JPEG 2000) runs in parallel.
+ * The calling thread always takes part, so a request with nthreads uses at most nthreads - 1 threads from the
+ * shared pool, which is itself bounded by the number of processors.
+ * <p/>
+ * Each thread gets its own Worker, which keeps its own open data files, and must write its results into a part of
+ * the result that no other record writes to.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+@ThreadSafe
+public class GribDecodeExecutor {
+  static private int defaultThreads = 1;
+  static private ExecutorService pool;
+
+  /**
+   * Set the number of threads a request uses to decode records, unless the iosp has been told otherwise
+   * with the "gribDecodeThreads=n" iosp message. Default is 1, which decodes in the calling thread.
+   *
+   * @param nthreads number of threads per request
+   */
+  static public void setDefaultThreads(int nthreads) {
+    defaultThreads = Math.max(1, nthreads);
+  }
+
+  static public int getDefaultThreads() {
+    return defaultThreads;
+  }
+
+  /**
+   * Shut down the thread pool, if it was started.
+   */
+  static public synchronized void shutdown() {
+    if (pool != null)
+      pool.shutdown();
+    pool = null;
+  }
+
+  static private synchronized ExecutorService getPool() {
+    if (pool == null) {
+      final AtomicInteger count = new AtomicInteger();
+      pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "GribDecode-" + count.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        }
+      });
+    }
+    return pool;
+  }
+
+  /**
+   * Decodes records, each thread uses its own Worker.
+   */
+  public interface Worker {
+    /**
+     * Decode one record and add it to the result.
+     * @param index which record
+     * @throws IOException on read error
+     */
+    void decode(int index) throws IOException;
+
+    /**
+     * Release anything held by this worker, eg open files.
+     * @throws IOException on error
+     */
+    void close() throws IOException;
+  }
+
+  public interface WorkerFactory {
+    Worker makeWorker() throws IOException;
+  }
+
+  /**
+   * Reads the data records of a request, see readRecords().
+   * @param <R> the record type
+   */
+  public interface RecordReader<R> {
+    /**
+     * @param record the record
+     * @return true if there is no data for the record, it is skipped
+     */
+    boolean isMissing(R record);
+
+    /**
+     * @param r1 one record
+     * @param r2 another record
+     * @return true if both records are in the same data file
+     */
+    boolean sameFile(R r1, R r2);
+
+    /**
+     * Open the data file of a record. It is closed by readRecords().
+     * @param record the record
+     * @return the open data file
+     * @throws IOException on error
+     */
+    RandomAccessFile openFile(R record) throws IOException;
+
+    /**
+     * Decode one record and add it to the result.
+     * @param raf    the data file of the record, from openFile()
+     * @param record the record
+     * @throws IOException on read error
+     */
+    void readRecord(RandomAccessFile raf, R record) throws IOException;
+  }
+
+  // pulls the next record until there are none left
+  static private class DecodeTask implements Callable<Void> {
+    private final int nrecords;
+    private final AtomicInteger next;
+    private final WorkerFactory factory;
+
+    DecodeTask(int nrecords, AtomicInteger next, WorkerFactory factory) {
+      this.nrecords = nrecords;
+      this.next = next;
+      this.factory = factory;
+    }
+
+    public Void call() throws IOException {
+      Worker worker = factory.makeWorker();
+      try {
+        int index;
+        while ((index = next.getAndIncrement()) < nrecords)
+          worker.decode(index);
+      } catch (IOException ioe) {
+        next.set(nrecords); // tell the others to stop
+        throw ioe;
+      } catch (RuntimeException re) {
+        next.set(nrecords);
+        throw re;
+      } finally {
+        worker.close();
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Decode records 0 to nrecords-1, using up to nthreads threads, including the calling thread.
+   * Returns when all are done. If any record fails, the rest are abandoned and the first exception is rethrown.
+   *
+   * @param nrecords number of records
+   * @param nthreads thread budget for this request
+   * @param factory  makes one Worker for each thread
+   * @throws IOException on read error
+   */
+  static public void decode(int nrecords, int nthreads, WorkerFactory factory) throws IOException {
+    final AtomicInteger next = new AtomicInteger();
+    DecodeTask task = new DecodeTask(nrecords, next, factory);
+
+    nthreads = Math.min(nthreads, nrecords);
+    if (nthreads <= 1) {
+      task.call();
+      return;
+    }
+
+    ExecutorService exec = getPool();
+    List<Future<Void>> helpers = new ArrayList<Future<Void>>(nthreads - 1);
+    for (int i = 0; i < nthreads - 1; i++)
+      helpers.add(exec.submit(task));
+
+    Throwable error = null;
+    try {
+      task.call();
+    } catch (Throwable t) {
+      error = t;
+    }
+
+    for (Future<Void> helper : helpers) {
+      if (helper.cancel(false)) continue; // never started, work is already done
+      try {
+        helper.get();
+      } catch (InterruptedException e) {
+        next.set(nrecords);
+        Thread.currentThread().interrupt();
+        if (error == null) error = new InterruptedIOException("GRIB decode interrupted");
+      } catch (ExecutionException e) {
+        if (error == null) error = e.getCause();
+      } catch (CancellationException e) {
+        // ok
+      }
+    }
+
+    if (error instanceof IOException) throw (IOException) error;
+    if (error instanceof RuntimeException) throw (RuntimeException) error;
+    if (error instanceof Error) throw (Error) error;
+    if (error != null) throw new IOException(error);
+  }
+
+  /**
+   * Read the records of a request, using up to nthreads threads, including the calling thread.
+   * Each thread keeps the data file of its last record open, and opens another when the file changes,
+   * so the records should be sorted by file and position.
+   *
+   * @param records  the records, in the order to be read
+   * @param nthreads thread budget for this request
+   * @param reader   opens the data files and decodes the records
+   * @param <R>      the record type
+   * @throws IOException on read error
+   */
+  static public <R> void readRecords(final List<R> records, int nthreads, final RecordReader<R> reader) throws IOException {
+    decode(records.size(), nthreads, new WorkerFactory() {
+      public Worker makeWorker() {
+        return new Worker() {
+          R curr = null; // the record that rafData was opened for
+          RandomAccessFile rafData = null;
+
+          public void decode(int index) throws IOException {
+            R record = records.get(index);
+            if (reader.isMissing(record)) return;
+            if (rafData == null || !reader.sameFile(curr, record)) {
+              if (rafData != null) rafData.close();
+              rafData = null;
+              rafData = reader.openFile(record);
+              curr = record;
+            }
+            reader.readRecord(rafData, record);
+          }
+
+          public void close() throws IOException {
+            if (rafData != null) rafData.close();
+          }
+        };
+      }
+    });
+  }
+}
@@ -137,6 +137,23 @@ public abstract class GribIndex {
   public static GribIndex readOrCreateIndexFromSingleFile(boolean isGrib1, boolean createCollectionIndex,
          MFile mfile, FeatureCollectionConfig.GribConfig config, CollectionManager.Force force, org.slf4j.Logger logger) throws IOException {
 
+    GribIndex index = readOrCreateIndex(isGrib1, mfile, force, logger);
+    if (createCollectionIndex)
+      readOrCreateCollectionIndex(isGrib1, mfile, config, force, logger);
+    return index;
+  }
+
+  /**
+   * Read or create the gbx9 index for a single grib1 or grib2 file.
+   * Does not use the grib tables, so may be called from multiple threads on different files.
+   *
+   * @param isGrib1 true if grib1
+   * @param mfile the grib file
+   * @param force  force writing index
+   * @return the resulting GribIndex
+   * @throws IOException on io error
+   */
+  public static GribIndex readOrCreateIndex(boolean isGrib1, MFile mfile, CollectionManager.Force force, org.slf4j.Logger logger) throws IOException {
     GribIndex index = isGrib1 ? new Grib1Index() : new Grib2Index();
 
     if (!index.readIndex(mfile.getPath(), mfile.getLastModified(), force)) { // heres where the index date is checked against the data file
@@ -145,8 +162,20 @@ public abstract class GribIndex {
     } else if (debug) {
       logger.debug("  Index read: {} == {} records", mfile.getName() + GBX9_IDX, index.getNRecords());
     }
+    return index;
+  }
 
-    if (!createCollectionIndex) return index;
+  /**
+   * Read or create the ncx index for a single grib1 or grib2 file, whose gbx9 index already exists.
+   *
+   * @param isGrib1 true if grib1
+   * @param mfile the grib file
+   * @param config  special configuration
+   * @param force  force writing index
+   * @throws IOException on io error
+   */
+  public static void readOrCreateCollectionIndex(boolean isGrib1, MFile mfile, FeatureCollectionConfig.GribConfig config,
+         CollectionManager.Force force, org.slf4j.Logger logger) throws IOException {
 
      // heres where the ncx file date is checked against the data file
     GribCollection gc;
@@ -155,8 +184,6 @@ public abstract class GribIndex {
     else
       gc = Grib2CollectionBuilder.readOrCreateIndexFromSingleFile(mfile, force, config, logger);
     gc.close(); // dont need this right now
-
-    return index;
   }
 
   /**
@@ -0,0 +1,258 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib;
+
+import thredds.featurecollection.FeatureCollectionConfig;
+import thredds.inventory.CollectionManager;
+import thredds.inventory.MFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Iterates over the files of a collection, reading or creating each file's gbx9 index.
+ * With more than one thread, the indexes of the next few files are read or created in the background,
+ * but they are always handed back in the order of the files, so the collection built from them is the same
+ * as with a single thread. At most nthreads indexes are being made or waiting to be used at one time.
+ * <p/>
+ * Only the gbx9 step runs in the background. The per-file ncx index, if wanted, is made on the calling thread,
+ * since it uses the grib tables, which are not thread safe.
+ * <pre>
+ * GribIndexExecutor iter = new GribIndexExecutor(...);
+ * try {
+ *   while (iter.hasNext()) {
+ *     MFile mfile = iter.next();
+ *     GribIndex index = iter.getIndex(); // rethrows the IOException for this file
+ *     ...
+ *   }
+ * } finally {
+ *   iter.close();
+ * }
+ * </pre>
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class GribIndexExecutor implements Closeable {
+  static private int defaultThreads = 1;
+  static private int progressEvery = 1000;
+  static private ExecutorService pool;
+
+  /**
+   * Set the number of threads used to index the files of a collection. Default is 1, which indexes in the calling thread.
+   *
+   * @param nthreads number of threads per collection
+   */
+  static public void setDefaultThreads(int nthreads) {
+    defaultThreads = Math.max(1, nthreads);
+  }
+
+  static public int getDefaultThreads() {
+    return defaultThreads;
+  }
+
+  /**
+   * Shut down the thread pool, if it was started.
+   */
+  static public synchronized void shutdown() {
+    if (pool != null)
+      pool.shutdown();
+    pool = null;
+  }
+
+  // the number of threads is bounded by each iterator, so the pool does not have to be
+  static private synchronized ExecutorService getPool() {
+    if (pool == null) {
+      final AtomicInteger count = new AtomicInteger();
+      pool = Executors.newCachedThreadPool(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "GribIndex-" + count.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        }
+      });
+    }
+    return pool;
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////
+
+  private final boolean isGrib1;
+  private final boolean createCollectionIndex;
+  private final FeatureCollectionConfig.GribConfig config;
+  private final CollectionManager.Force force;
+  private final String name;
+  private final org.slf4j.Logger logger;
+  private final int nthreads;
+
+  private final List<MFile> files = new ArrayList<MFile>();
+  private final LinkedList<Future<GribIndex>> pending = new LinkedList<Future<GribIndex>>();
+  private int nsubmitted, nextFile;
+  private MFile current;
+  private Future<GribIndex> currentFuture;
+
+  // progress
+  private final long start = System.currentTimeMillis();
+  private int ndone, nfailed;
+  private long nrecords;
+
+  /**
+   * Constructor, using the default number of threads.
+   *
+   * @param isGrib1 true if grib1
+   * @param mfiles  the files, in the order they are to be used
+   * @param createCollectionIndex true if you also want the ncx file of each file to be created
+   * @param config  special configuration
+   * @param force   force writing index
+   * @param name    collection name, for logging
+   * @param logger  log progress here
+   */
+  public GribIndexExecutor(boolean isGrib1, Iterable<MFile> mfiles, boolean createCollectionIndex, FeatureCollectionConfig.GribConfig config,
+                           CollectionManager.Force force, String name, org.slf4j.Logger logger) {
+    this(isGrib1, mfiles, createCollectionIndex, config, force, name, logger, defaultThreads);
+  }
+
+  public GribIndexExecutor(boolean isGrib1, Iterable<MFile> mfiles, boolean createCollectionIndex, FeatureCollectionConfig.GribConfig config,
+                           CollectionManager.Force force, String name, org.slf4j.Logger logger, int nthreads) {
+    this.isGrib1 = isGrib1;
+    this.createCollectionIndex = createCollectionIndex;
+    this.config = config;
+    this.force = force;
+    this.name = name;
+    this.logger = logger;
+    for (MFile mfile : mfiles) files.add(mfile);
+    this.nthreads = Math.max(1, Math.min(nthreads, files.size()));
+  }
+
+  public boolean hasNext() {
+    return nextFile < files.size();
+  }
+
+  /**
+   * Go to the next file.
+   * @return the next file
+   */
+  public MFile next() {
+    if (nthreads > 1) {
+      // keep nthreads files in the works
+      while (nsubmitted < files.size() && nsubmitted - nextFile < nthreads)
+        pending.add(getPool().submit(new IndexTask(files.get(nsubmitted++))));
+      currentFuture = pending.removeFirst();
+    }
+    current = files.get(nextFile++);
+    return current;
+  }
+
+  /**
+   * Get the gbx9 index of the current file, waiting for it if needed.
+   * @return the index of the file returned by the last call to next()
+   * @throws IOException if the index could not be read or created
+   */
+  public GribIndex getIndex() throws IOException {
+    try {
+      GribIndex index = (currentFuture == null) ? GribIndex.readOrCreateIndex(isGrib1, current, force, logger) : waitFor(currentFuture);
+      if (createCollectionIndex)
+        GribIndex.readOrCreateCollectionIndex(isGrib1, current, config, force, logger);
+
+      nrecords += index.getNRecords();
+      return index;
+
+    } catch (IOException ioe) {
+      nfailed++;
+      throw ioe;
+
+    } finally {
+      currentFuture = null;
+      ndone++;
+      if (ndone % progressEvery == 0 && logger.isInfoEnabled())
+        logger.info("GribIndexExecutor {}: {}", name, getStatistics());
+    }
+  }
+
+  private GribIndex waitFor(Future<GribIndex> future) throws IOException {
+    try {
+      return future.get();
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("GRIB indexing interrupted for " + current.getPath());
+
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * Progress so far: files done, failures, records and rate.
+   * @return progress as a String
+   */
+  public String getStatistics() {
+    double secs = (System.currentTimeMillis() - start) * .001;
+    double rate = (secs > 0) ? ndone / secs : 0.0;
+    return String.format("%d/%d files indexed (%d failed), %d records, %.1f secs (%.1f files/sec) nthreads=%d",
+            ndone, files.size(), nfailed, nrecords, secs, rate, nthreads);
+  }
+
+  /**
+   * Cancel any indexing that has not started yet; indexes being made are finished in the background.
+   */
+  public void close() {
+    for (Future<GribIndex> future : pending)
+      future.cancel(false);
+    pending.clear();
+    if (logger.isDebugEnabled())
+      logger.debug("GribIndexExecutor {}: {}", name, getStatistics());
+  }
+
+  private class IndexTask implements Callable<GribIndex> {
+    private final MFile mfile;
+
+    IndexTask(MFile mfile) {
+      this.mfile = mfile;
+    }
+
+    public GribIndex call() throws IOException {
+      return GribIndex.readOrCreateIndex(isGrib1, mfile, force, logger);
+    }
+  }
+}
@@ -52,6 +52,13 @@ public abstract class GribIosp extends AbstractIOServiceProvider {
   // store custom tables in here
   protected FeatureCollectionConfig.GribConfig gribConfig = new FeatureCollectionConfig.GribConfig();
 
+  // number of threads used to decode records in one read, if < 1 use GribDecodeExecutor.getDefaultThreads()
+  protected int decodeThreads = -1;
+
+  protected int getDecodeThreads() {
+    return (decodeThreads > 0) ? decodeThreads : GribDecodeExecutor.getDefaultThreads();
+  }
+
   public void setParamTable(Element paramTable) {
     gribConfig.paramTable = paramTable;
   }
@@ -77,6 +84,11 @@ public abstract class GribIosp extends AbstractIOServiceProvider {
         int pos = s.indexOf("=");
         if (pos > 0)
           gribConfig.paramTablePath = s.substring(pos+1).trim();
+
+      } else if (s.startsWith("gribDecodeThreads")) {
+        int pos = s.indexOf("=");
+        if (pos > 0)
+          decodeThreads = Integer.parseInt(s.substring(pos+1).trim());
       }
 
       if (debug) System.out.printf("GRIB got IOSP message=%s%n", special);
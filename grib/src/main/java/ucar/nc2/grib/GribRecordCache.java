@@ -0,0 +1,211 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib;
+
+import net.jcip.annotations.ThreadSafe;
+import thredds.inventory.CollectionManager;
+import thredds.inventory.MFile;
+
+import java.util.*;
+
+/**
+ * Keeps the records of each file of a GRIB collection in memory between index rebuilds, so that when files are
+ * added to (or removed from) a collection, only the gbx9 indexes of the new or changed files are read.
+ * A file's records are reused only if its last modified date has not changed.
+ * <p/>
+ * The ncx index is still completely rewritten, since the variable record maps and coordinates cover all the records.
+ * But that is cheap compared to opening and reading every gbx9 file of a large collection.
+ * <p/>
+ * Off by default. The memory is bounded by the total number of records kept; the least recently
+ * rebuilt collections are dropped first.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+@ThreadSafe
+public class GribRecordCache {
+  static private int maxRecords = 0;
+  static private final LinkedHashMap<String, Entry<?>> collections = new LinkedHashMap<String, Entry<?>>(16, .75f, true);
+
+  /**
+   * Set the maximum number of records kept in memory, over all collections.
+   * @param max max number of records; 0 turns off the cache.
+   */
+  static public synchronized void setMaxRecords(int max) {
+    maxRecords = Math.max(0, max);
+    if (maxRecords == 0) collections.clear();
+    else evict(null);
+  }
+
+  static public synchronized int getMaxRecords() {
+    return maxRecords;
+  }
+
+  /**
+   * Get the cached records for this collection. Callers that mutate the records (eg Record.setFile())
+   * must synchronize on the Entry while building the collection.
+   *
+   * @param dcm the collection
+   * @param recordType the type of the records, eg Grib2Record
+   * @return the Entry for this collection, or null if the cache is off
+   */
+  static public synchronized <T> Entry<T> get(CollectionManager dcm, Class<T> recordType) {
+    if (maxRecords == 0) return null;
+    String key = dcm.getRoot() + "#" + dcm.getCollectionName() + "#" + recordType.getName();
+    Entry<?> entry = collections.get(key);
+    if (entry == null) {
+      Entry<T> result = new Entry<T>(recordType);
+      collections.put(key, result);
+      return result;
+    }
+    return entry.as(recordType);
+  }
+
+  static private synchronized void update(Entry<?> entry) {
+    evict(entry);
+  }
+
+  // must hold lock
+  static private void evict(Entry<?> keep) {
+    long total = 0;
+    for (Entry<?> e : collections.values()) total += e.nrecords;
+
+    Iterator<Entry<?>> iter = collections.values().iterator(); // least recently used first
+    while (total > maxRecords && iter.hasNext()) {
+      Entry<?> e = iter.next();
+      if (e == keep || e.nrecords == 0) continue; // empty entries may be in the middle of their first build
+      total -= e.nrecords;
+      iter.remove(); // dont lock e here, it may be in the middle of a build
+    }
+    if (keep != null && keep.nrecords > maxRecords) // too big to keep at all
+      keep.clear();  // called only by the thread building keep
+  }
+
+  static public synchronized void showCache(Formatter f) {
+    f.format("GribRecordCache maxRecords=%d%n", maxRecords);
+    for (Map.Entry<String, Entry<?>> e : collections.entrySet())
+      f.format("  %s: %d files %d records%n", e.getKey(), e.getValue().files.size(), e.getValue().nrecords);
+  }
+
+  /**
+   * The records of the files of one collection, by file path.
+   * @param <T> the type of the records, eg Grib2Record
+   */
+  static public class Entry<T> {
+    private final Class<T> recordType;
+    private Map<String, FileRecords<T>> files = new HashMap<String, FileRecords<T>>();
+    private Map<String, FileRecords<T>> building;
+    private volatile long nrecords;
+    private int nreused, nadded;
+
+    private static class FileRecords<T> {
+      final long lastModified;
+      final List<T> records;
+
+      FileRecords(long lastModified, List<T> records) {
+        this.lastModified = lastModified;
+        this.records = records;
+      }
+    }
+
+    private Entry(Class<T> recordType) {
+      this.recordType = recordType;
+    }
+
+    // the key includes the record type, so this always succeeds
+    @SuppressWarnings("unchecked")
+    private <R> Entry<R> as(Class<R> type) {
+      if (type != recordType)
+        throw new IllegalStateException("GribRecordCache has " + recordType.getName() + " records, not " + type.getName());
+      return (Entry<R>) this;
+    }
+
+    /**
+     * Start building the collection. Files not added or reused before done() is called are forgotten.
+     */
+    public synchronized void start() {
+      building = new HashMap<String, FileRecords<T>>(files.size() * 2 + 10);
+      nreused = 0;
+      nadded = 0;
+    }
+
+    /**
+     * Get the records of this file, if they are cached and the file has not changed.
+     * @param mfile the file
+     * @return the records, or null
+     */
+    public synchronized List<T> getRecords(MFile mfile) {
+      FileRecords<T> fr = files.get(mfile.getPath());
+      if (fr == null || fr.lastModified != mfile.getLastModified()) return null;
+      building.put(mfile.getPath(), fr);
+      nreused++;
+      return fr.records;
+    }
+
+    /**
+     * Add the records of a new or changed file.
+     * @param mfile the file
+     * @param records its records, must not be changed afterwards
+     */
+    public synchronized void addRecords(MFile mfile, List<T> records) {
+      building.put(mfile.getPath(), new FileRecords<T>(mfile.getLastModified(), records));
+      nadded++;
+    }
+
+    /**
+     * Finished building the collection; replaces the cached files with the ones used in this build.
+     * @return summary of what was reused, added and removed
+     */
+    public String done() {
+      String result;
+      synchronized (this) {
+        int nremoved = 0;
+        for (String path : files.keySet())
+          if (!building.containsKey(path)) nremoved++;
+
+        files = building;
+        building = null;
+        nrecords = 0;
+        for (FileRecords<T> fr : files.values()) nrecords += fr.records.size();
+        result = String.format("%d files reused, %d read, %d removed; %d records", nreused, nadded, nremoved, nrecords);
+      }
+      update(this);
+      return result;
+    }
+
+    private synchronized void clear() {
+      files = new HashMap<String, FileRecords<T>>();
+      nrecords = 0;
+    }
+  }
+}
@@ -442,8 +442,17 @@ public class Grib1CollectionBuilder extends GribCollectionBuilder {
     long start = System.currentTimeMillis();
 
     ArrayList<MFile> files = new ArrayList<MFile>();
-    List<Group> groups = makeAggregatedGroups(files);
-    createIndex(indexFile, groups, files);
+    GribRecordCache.Entry<Grib1Record> recordCache = isSingleFile ? null : GribRecordCache.get(dcm, Grib1Record.class);
+    if (recordCache == null) {
+      List<Group> groups = makeAggregatedGroups(files, null);
+      createIndex(indexFile, groups, files);
+
+    } else {
+      synchronized (recordCache) { // the cached records are shared, and gr.setFile() changes them
+        List<Group> groups = makeAggregatedGroups(files, recordCache);
+        createIndex(indexFile, groups, files);
+      }
+    }
 
     long took = System.currentTimeMillis() - start;
     if (logger.isDebugEnabled()) logger.debug("That took {} msecs", took);
@@ -455,6 +464,11 @@ public class Grib1CollectionBuilder extends GribCollectionBuilder {
   // each group has an arraylist of all records that belong to it.
   // for each group, run rectlizer to derive the coordinates and variables
   public List<Group> makeAggregatedGroups(ArrayList<MFile> files) throws IOException {
+    return makeAggregatedGroups(files, null);
+  }
+
+  // recordCache: if not null, reuse the records of unchanged files from the last time this collection was built
+  private List<Group> makeAggregatedGroups(ArrayList<MFile> files, GribRecordCache.Entry<Grib1Record> recordCache) throws IOException {
     Map<Integer, Group> gdsMap = new HashMap<Integer, Group>();
     Map<Integer, Integer> gdsConvert = null;
     Map<String, Boolean> pdsConvert = null;
@@ -471,44 +485,69 @@ public class Grib1CollectionBuilder extends GribCollectionBuilder {
     FeatureCollectionConfig.GribIntvFilter intvMap = (config != null) ?  config.intvFilter : null;
     // intvMerge = (config == null) || (config.intvMerge == null) ? intvMergeDefault : config.intvMerge;
 
+    // only the files not in the recordCache need their gbx9 index read
+    List<MFile> allFiles = new ArrayList<MFile>();
+    List<MFile> readFiles = new ArrayList<MFile>();
+    Map<String, List<Grib1Record>> cachedRecords = new HashMap<String, List<Grib1Record>>();
+    if (recordCache != null) recordCache.start();
     for (MFile mfile : dcm.getFiles()) {
-      // f.format("%3d: %s%n", fileno, mfile.getPath());
+      allFiles.add(mfile);
+      List<Grib1Record> records = (recordCache == null) ? null : recordCache.getRecords(mfile);
+      if (records != null) cachedRecords.put(mfile.getPath(), records);
+      else readFiles.add(mfile);
+    }
 
-      Grib1Index index;
-      try {
-        index = (Grib1Index) GribIndex.readOrCreateIndexFromSingleFile(true, !isSingleFile, mfile, config, CollectionManager.Force.test, logger);
+    // the gbx9 indexes may be made in parallel, but they come back in file order
+    GribIndexExecutor iter = new GribIndexExecutor(true, readFiles, !isSingleFile, config, CollectionManager.Force.test, gc.getName(), logger);
+    try {
+      for (MFile mfile : allFiles) {
+        // f.format("%3d: %s%n", fileno, mfile.getPath());
+
+        List<Grib1Record> records = cachedRecords.get(mfile.getPath());
+        if (records == null) {
+          iter.next(); // same as mfile
+          try {
+            Grib1Index index = (Grib1Index) iter.getIndex();
+            records = index.getRecords();
+            if (recordCache != null) recordCache.addRecords(mfile, records);
+
+          } catch (IOException ioe) {
+            logger.error("Grib1CollectionBuilder "+gc.getName()+" : reading/Creating gbx9 index for file "+ mfile.getPath()+" failed", ioe);
+            continue;
+          }
+        }
         files.add(mfile);  // only add on success
 
-      } catch (IOException ioe) {
-        logger.error("Grib1CollectionBuilder "+gc.getName()+" : reading/Creating gbx9 index for file "+ mfile.getPath()+" failed", ioe);
-        continue;
-      }
-
-      for (Grib1Record gr : index.getRecords()) {
-        gr.setFile(fileno); // each record tracks which file it belongs to
-        int gdsHash = gr.getGDSsection().getGDS().hashCode();      // use GDS hash code to group records
-        if (gdsConvert != null && gdsConvert.get(gdsHash) != null) // allow external config to muck with gdsHash. Why? because of error in encoding
-          gdsHash = gdsConvert.get(gdsHash);                       // and we need exact hash matching
-        if (cust == null)
-          cust = Grib1Customizer.factory(gr, null);
-        if (config != null)
-          cust.setTimeUnitConverter(config.getTimeUnitConverter());
-        if (intvMap != null && filterOut(gr, intvMap)) {
-          stats.filter++;
-          continue; // skip
-        }
+        for (Grib1Record gr : records) {
+          gr.setFile(fileno); // each record tracks which file it belongs to
+          int gdsHash = gr.getGDSsection().getGDS().hashCode();      // use GDS hash code to group records
+          if (gdsConvert != null && gdsConvert.get(gdsHash) != null) // allow external config to muck with gdsHash. Why? because of error in encoding
+            gdsHash = gdsConvert.get(gdsHash);                       // and we need exact hash matching
+          if (cust == null)
+            cust = Grib1Customizer.factory(gr, null);
+          if (config != null)
+            cust.setTimeUnitConverter(config.getTimeUnitConverter());
+          if (intvMap != null && filterOut(gr, intvMap)) {
+            stats.filter++;
+            continue; // skip
+          }
 
-        Group g = gdsMap.get(gdsHash);
-        if (g == null) {
-          g = new Group(gr.getGDSsection(), gdsHash);
-          gdsMap.put(gdsHash, g);
-          //g.nameOverride = setGroupNameOverride(gdsHash, gdsNamer, groupNamer, mfile);
+          Group g = gdsMap.get(gdsHash);
+          if (g == null) {
+            g = new Group(gr.getGDSsection(), gdsHash);
+            gdsMap.put(gdsHash, g);
+            //g.nameOverride = setGroupNameOverride(gdsHash, gdsNamer, groupNamer, mfile);
+          }
+          g.records.add(gr);
         }
-        g.records.add(gr);
+        fileno++;
+        stats.recordsTotal += records.size();
       }
-      fileno++;
-      stats.recordsTotal += index.getRecords().size();
+    } finally {
+      iter.close();
     }
+    if (recordCache != null)
+      logger.info("GribCollection {}: {}", gc.getName(), recordCache.done());
 
     List<Group> result = new ArrayList<Group>(gdsMap.values());
     for (Group g : result) {
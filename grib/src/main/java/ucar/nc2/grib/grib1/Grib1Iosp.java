@@ -551,6 +551,22 @@ public class Grib1Iosp extends GribIosp {
     return dataReceiver.getArray();
   }
 
+  // read one record, using the GribDataCache if its turned on
+  static private float[] readData(RandomAccessFile rafData, long pos) throws IOException {
+    GribDataCache dataCache = GribDataCache.getInstance();
+    if (dataCache == null)
+      return Grib1Record.readData(rafData, pos);
+
+    long lastModified = rafData.getLastModified();
+    long length = rafData.length();
+    float[] data = dataCache.get(rafData.getLocation(), lastModified, length, pos);
+    if (data == null) {
+      data = Grib1Record.readData(rafData, pos);
+      dataCache.put(rafData.getLocation(), lastModified, length, pos, data);
+    }
+    return data;
+  }
+
   private class DataReaderPartitioned {
     List<DataRecord> records = new ArrayList<DataRecord>();
 
@@ -561,30 +577,37 @@ public class Grib1Iosp extends GribIosp {
       records.add(new DataRecord(partno, vindex, resultIndex, fileno, pos));
     }
 
-    void read(DataReceiver dataReceiver) throws IOException {
+    // records may be decoded by several threads, each with its own data files, into disjoint parts of the result
+    void read(final DataReceiver dataReceiver) throws IOException {
       Collections.sort(records);
 
-      int currPartno = -1;
-      int currFile = -1;
-      RandomAccessFile rafData = null;
-      for (DataRecord dr : records) {
-        if (dr.partno != currPartno || dr.fileno != currFile) {
-          if (rafData != null) rafData.close();
-          rafData = timePartition.getRaf(dr.partno, dr.fileno);
-          currFile = dr.fileno;
-          currPartno = dr.partno;
+      GribDecodeExecutor.readRecords(records, getDecodeThreads(), new GribDecodeExecutor.RecordReader<DataRecord>() {
+        public boolean isMissing(DataRecord dr) {
+          return dr.pos == GribCollection.MISSING_RECORD; // skip missing data
+        }
+
+        public boolean sameFile(DataRecord dr1, DataRecord dr2) {
+          return dr1.partno == dr2.partno && dr1.fileno == dr2.fileno;
+        }
+
+        public RandomAccessFile openFile(DataRecord dr) throws IOException {
+          return timePartition.getRaf(dr.partno, dr.fileno);
         }
-        if (dr.pos == GribCollection.MISSING_RECORD) continue; // skip missing data
 
-        if (debugRead) {
-          rafData.seek(dr.pos);
-          show(new Grib1Record(rafData), dr.pos);
+        public void readRecord(RandomAccessFile rafData, DataRecord dr) throws IOException {
+          DataReaderPartitioned.this.readRecord(rafData, dr, dataReceiver);
         }
+      });
+    }
 
-        float[] data = Grib1Record.readData(rafData, dr.pos);
-        dataReceiver.addData(data, dr.resultIndex, dr.vindex.group.hcs.nx);
+    private void readRecord(RandomAccessFile rafData, DataRecord dr, DataReceiver dataReceiver) throws IOException {
+      if (debugRead) {
+        rafData.seek(dr.pos);
+        show(new Grib1Record(rafData), dr.pos);
       }
-      if (rafData != null) rafData.close();
+
+      float[] data = readData(rafData, dr.pos);
+      dataReceiver.addData(data, dr.resultIndex, dr.vindex.group.hcs.nx);
     }
 
     private class DataRecord implements Comparable<DataRecord> {
@@ -664,29 +687,37 @@ public class Grib1Iosp extends GribIosp {
       records.add(new DataRecord(timeIdx, ensIdx, levIdx, resultIndex, record.fileno, record.pos));
     }
 
-    void read(DataReceiver dataReceiver) throws IOException {
+    // records may be decoded by several threads, each with its own data files, into disjoint parts of the result
+    void read(final DataReceiver dataReceiver) throws IOException {
       Collections.sort(records);
 
-      int currFile = -1;
-      RandomAccessFile rafData = null;
-      for (DataRecord dr : records) {
-        if (dr.fileno != currFile) {
-          if (rafData != null) rafData.close();
-          rafData = gribCollection.getDataRaf(dr.fileno);
-          currFile = dr.fileno;
+      GribDecodeExecutor.readRecords(records, getDecodeThreads(), new GribDecodeExecutor.RecordReader<DataRecord>() {
+        public boolean isMissing(DataRecord dr) {
+          return dr.pos == GribCollection.MISSING_RECORD;
         }
 
-        if (dr.pos == GribCollection.MISSING_RECORD) continue;
+        public boolean sameFile(DataRecord dr1, DataRecord dr2) {
+          return dr1.fileno == dr2.fileno;
+        }
 
-        if (debugRead) {
-          rafData.seek(dr.pos);
-          show(new Grib1Record(rafData), dr.pos);
+        public RandomAccessFile openFile(DataRecord dr) throws IOException {
+          return gribCollection.getDataRaf(dr.fileno);
         }
 
-        float[] data = Grib1Record.readData(rafData, dr.pos);
-        dataReceiver.addData(data, dr.resultIndex, vindex.group.hcs.nx);
+        public void readRecord(RandomAccessFile rafData, DataRecord dr) throws IOException {
+          DataReader.this.readRecord(rafData, dr, dataReceiver);
+        }
+      });
+    }
+
+    private void readRecord(RandomAccessFile rafData, DataRecord dr, DataReceiver dataReceiver) throws IOException {
+      if (debugRead) {
+        rafData.seek(dr.pos);
+        show(new Grib1Record(rafData), dr.pos);
       }
-      if (rafData != null) rafData.close();
+
+      float[] data = readData(rafData, dr.pos);
+      dataReceiver.addData(data, dr.resultIndex, vindex.group.hcs.nx);
     }
 
     private class DataRecord implements Comparable<DataRecord> {
@@ -431,8 +431,17 @@ public class Grib2CollectionBuilder extends GribCollectionBuilder {
     long start = System.currentTimeMillis();
 
     ArrayList<MFile> files = new ArrayList<MFile>();
-    List<Group> groups = makeAggregatedGroups(files);
-    createIndex(indexFile, groups, files);
+    GribRecordCache.Entry<Grib2Record> recordCache = isSingleFile ? null : GribRecordCache.get(dcm, Grib2Record.class);
+    if (recordCache == null) {
+      List<Group> groups = makeAggregatedGroups(files, null);
+      createIndex(indexFile, groups, files);
+
+    } else {
+      synchronized (recordCache) { // the cached records are shared, and gr.setFile() changes them
+        List<Group> groups = makeAggregatedGroups(files, recordCache);
+        createIndex(indexFile, groups, files);
+      }
+    }
 
     long took = System.currentTimeMillis() - start;
     logger.debug("That took {} msecs", took);
@@ -444,6 +453,11 @@ public class Grib2CollectionBuilder extends GribCollectionBuilder {
   // each group has an arraylist of all records that belong to it.
   // for each group, run rectlizer to derive the coordinates and variables
   public List<Group> makeAggregatedGroups(List<MFile> files) throws IOException {
+    return makeAggregatedGroups(files, null);
+  }
+
+  // recordCache: if not null, reuse the records of unchanged files from the last time this collection was built
+  private List<Group> makeAggregatedGroups(List<MFile> files, GribRecordCache.Entry<Grib2Record> recordCache) throws IOException {
     Map<Integer, Group> gdsMap = new HashMap<Integer, Group>();
     Map<String, Boolean> pdsConvert = null;
 
@@ -462,45 +476,70 @@ public class Grib2CollectionBuilder extends GribCollectionBuilder {
     //intvMerge = (config == null) || (config.intvMerge == null) ? intvMergeDefault : config.intvMerge;
     //useGenType = (config == null) || (config.useGenType == null) ? false : config.useGenType;
 
+    // only the files not in the recordCache need their gbx9 index read
+    List<MFile> allFiles = new ArrayList<MFile>();
+    List<MFile> readFiles = new ArrayList<MFile>();
+    Map<String, List<Grib2Record>> cachedRecords = new HashMap<String, List<Grib2Record>>();
+    if (recordCache != null) recordCache.start();
     for (MFile mfile : dcm.getFiles()) {
-      if (showFiles) logger.debug("{}: {}", fileno, mfile.getPath());
+      allFiles.add(mfile);
+      List<Grib2Record> records = (recordCache == null) ? null : recordCache.getRecords(mfile);
+      if (records != null) cachedRecords.put(mfile.getPath(), records);
+      else readFiles.add(mfile);
+    }
 
-      Grib2Index index = null;
-      try {
-        index = (Grib2Index) GribIndex.readOrCreateIndexFromSingleFile(false, !isSingleFile, mfile, config, CollectionManager.Force.test, logger);
+    // the gbx9 indexes may be made in parallel, but they come back in file order
+    GribIndexExecutor iter = new GribIndexExecutor(false, readFiles, !isSingleFile, config, CollectionManager.Force.test, gc.getName(), logger);
+    try {
+      for (MFile mfile : allFiles) {
+        if (showFiles) logger.debug("{}: {}", fileno, mfile.getPath());
+
+        List<Grib2Record> records = cachedRecords.get(mfile.getPath());
+        if (records == null) {
+          iter.next(); // same as mfile
+          try {
+            Grib2Index index = (Grib2Index) iter.getIndex();
+            records = index.getRecords();
+            if (recordCache != null) recordCache.addRecords(mfile, records);
+
+          } catch (IOException ioe) {
+            logger.error("Grib2CollectionBuilder "+gc.getName()+" : reading/Creating gbx9 index for file "+ mfile.getPath()+" failed", ioe);
+            continue;
+          }
+        }
         files.add(mfile);  // add on success
 
-      } catch (IOException ioe) {
-        logger.error("Grib2CollectionBuilder "+gc.getName()+" : reading/Creating gbx9 index for file "+ mfile.getPath()+" failed", ioe);
-        continue;
-      }
-
-      for (Grib2Record gr : index.getRecords()) {
-        if (this.tables == null) {
-          Grib2SectionIdentification ids = gr.getId(); // so all records must use the same table (!)
-          this.tables = Grib2Customizer.factory(ids.getCenter_id(), ids.getSubcenter_id(), ids.getMaster_table_version(), ids.getLocal_table_version());
-          if (config != null) tables.setTimeUnitConverter(config.getTimeUnitConverter());
-        }
-        if (intvMap != null && filterOut(gr, intvMap)) {
-          stats.filter++;
-          continue; // skip
-        }
+        for (Grib2Record gr : records) {
+          if (this.tables == null) {
+            Grib2SectionIdentification ids = gr.getId(); // so all records must use the same table (!)
+            this.tables = Grib2Customizer.factory(ids.getCenter_id(), ids.getSubcenter_id(), ids.getMaster_table_version(), ids.getLocal_table_version());
+            if (config != null) tables.setTimeUnitConverter(config.getTimeUnitConverter());
+          }
+          if (intvMap != null && filterOut(gr, intvMap)) {
+            stats.filter++;
+            continue; // skip
+          }
 
-        gr.setFile(fileno); // each record tracks which file it belongs to
-        int gdsHash = gr.getGDSsection().getGDS().hashCode();  // use GDS hash code to group records
-        if (gdsConvert != null && gdsConvert.get(gdsHash) != null) // allow external config to muck with gdsHash. Why? because of error in encoding
-          gdsHash = gdsConvert.get(gdsHash);             // and we need exact hash matching
+          gr.setFile(fileno); // each record tracks which file it belongs to
+          int gdsHash = gr.getGDSsection().getGDS().hashCode();  // use GDS hash code to group records
+          if (gdsConvert != null && gdsConvert.get(gdsHash) != null) // allow external config to muck with gdsHash. Why? because of error in encoding
+            gdsHash = gdsConvert.get(gdsHash);             // and we need exact hash matching
 
-        Group g = gdsMap.get(gdsHash);
-        if (g == null) {
-          g = new Group(gr.getGDSsection(), gdsHash);
-          gdsMap.put(gdsHash, g);
+          Group g = gdsMap.get(gdsHash);
+          if (g == null) {
+            g = new Group(gr.getGDSsection(), gdsHash);
+            gdsMap.put(gdsHash, g);
+          }
+          g.records.add(gr);
         }
-        g.records.add(gr);
+        fileno++;
+        stats.recordsTotal += records.size();
       }
-      fileno++;
-        stats.recordsTotal += index.getRecords().size();
+    } finally {
+      iter.close();
     }
+    if (recordCache != null)
+      logger.info("GribCollection {}: {}", gc.getName(), recordCache.done());
 
     List<Group> result = new ArrayList<Group>(gdsMap.values());
     for (Group g : result) {
@@ -33,6 +33,7 @@
 package ucar.nc2.grib.grib2;
 
 import ucar.jpeg.jj2000.j2k.decoder.Grib2JpegDecoder;
+import ucar.ma2.Range;
 import ucar.nc2.grib.GribNumbers;
 import ucar.nc2.grib.QuasiRegular;
 import ucar.nc2.iosp.BitReader;
@@ -67,6 +68,7 @@ public class Grib2DataReader {
   private final int dataLength;
 
   private byte[] bitmap;
+  private Range yRange, xRange; // horizontal subset, null means decode everything
 
   public Grib2DataReader(int dataTemplate, int totalNPoints, int dataNPoints, int scanMode, int nx, long startPos, int dataLength) {
     this.dataTemplate = dataTemplate;
@@ -80,13 +82,77 @@ public class Grib2DataReader {
 
   public float[] getData(RandomAccessFile raf, byte[] bitmap, Grib2Drs gdrs) throws IOException {
     this.bitmap = bitmap;
+    this.yRange = null;
+    this.xRange = null;
+    return readData(raf, gdrs);
+  }
+
+  /**
+   * Read just the data for a horizontal subset, decoding as little as possible.
+   * Simple packing (template 0) seeks directly to the wanted points of each wanted row.
+   * Complex packing (templates 2 and 3) stops decoding after the last wanted row.
+   * JPEG 2000 (template 40) always decodes the whole field.
+   *
+   * @param raf    read from here
+   * @param bitmap bitmap, may be null
+   * @param gdrs   data representation
+   * @param yRange wanted rows (after the scan mode is applied)
+   * @param xRange wanted columns (after the scan mode is applied)
+   * @return the subset as float[yRange.length() * xRange.length()], in row-major order
+   * @throws IOException on read error
+   */
+  public float[] getData(RandomAccessFile raf, byte[] bitmap, Grib2Drs gdrs, Range yRange, Range xRange) throws IOException {
+    this.bitmap = bitmap;
+    this.yRange = null;
+    this.xRange = null;
+    if (!canSubset(yRange, xRange))
+      return extractSubset(readData(raf, gdrs), nx, yRange, xRange);
+
+    this.yRange = yRange;
+    this.xRange = xRange;
+    if ((dataTemplate == 0) && ((long) totalNPoints * gdrs.getNBits() <= Integer.MAX_VALUE)) {
+      checkBitmap();
+      return getData0Subset(raf, (Grib2Drs.Type0) gdrs);
+    }
+
+    return extractSubset(readData(raf, gdrs), nx, yRange, xRange);
+  }
+
+  /**
+   * Pull a horizontal subset out of a complete field.
+   *
+   * @param data   the complete field
+   * @param nx     length of a row
+   * @param yRange wanted rows
+   * @param xRange wanted columns
+   * @return the subset as float[yRange.length() * xRange.length()], in row-major order. May be data itself.
+   */
+  static float[] extractSubset(float[] data, int nx, Range yRange, Range xRange) {
+    if ((yRange.first() == 0) && (yRange.stride() == 1) && (xRange.first() == 0) && (xRange.stride() == 1) &&
+        (xRange.length() == nx) && (yRange.length() * nx == data.length))
+      return data;
+
+    float[] result = new float[yRange.length() * xRange.length()];
+    int count = 0;
+    for (int y = yRange.first(); y <= yRange.last(); y += yRange.stride()) {
+      for (int x = xRange.first(); x <= xRange.last(); x += xRange.stride())
+        result[count++] = data[y * nx + x];
+    }
+    return result;
+  }
 
+  private void checkBitmap() {
     if (bitmap != null) { // is bitmap ok ?
       if (bitmap.length * 8 < totalNPoints) { // gdsNumberPoints == nx * ny ??
         System.out.printf("Bitmap section length = %d != grid length %d (%d,%d)", bitmap.length, totalNPoints, nx, totalNPoints/nx);
         throw new IllegalStateException("Bitmap section length!= grid length %");
       }
     }
+  }
+
+  // the whole field; templates 2 and 3 stop after the last wanted row if yRange is set
+  private float[] readData(RandomAccessFile raf, Grib2Drs gdrs) throws IOException {
+    checkBitmap();
 
     raf.seek(startPos+5); // skip past first 5 bytes in data section, now ready to read
 
@@ -132,6 +198,35 @@ public class Grib2DataReader {
     return mv;
   }
 
+  // subsetting is done on the rows as stored, so need a regular grid with adjacent points in the x direction
+  private boolean canSubset(Range yRange, Range xRange) {
+    if ((yRange == null) || (xRange == null)) return false;
+    if ((nx <= 0) || (totalNPoints % nx != 0)) return false;
+    if ((scanMode & 32) != 0) return false;
+    int ny = totalNPoints / nx;
+    if ((yRange.last() >= ny) || (xRange.last() >= nx)) return false;
+    return (yRange.length() < ny) || (xRange.length() < nx); // otherwise want the whole thing
+  }
+
+  // true if scanningModeCheck() will reverse this row
+  private boolean isRowReversed(int row) {
+    if ((scanMode == 0) || (scanMode == 64)) return false;
+    if ((scanMode == 128) || (scanMode == 192)) return true;
+    return (row % 2 == 1);
+  }
+
+  // when decoding sequentially, the index of the last encoded value needed for the subset
+  private int lastEncodedIndex() {
+    if (yRange == null) return Integer.MAX_VALUE;
+    int lastPoint = (yRange.last() + 1) * nx - 1; // to the end of the row, since it may be reversed
+    if (bitmap == null) return lastPoint;
+    int count = 0;
+    for (int i = 0; i <= lastPoint; i++) {
+      if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0) count++;
+    }
+    return count - 1;
+  }
+
 
   // Grid point data - simple packing
   private float[] getData0(RandomAccessFile raf, Grib2Drs.Type0 gdrs) throws IOException {
@@ -175,6 +270,55 @@ public class Grib2DataReader {
     return data;
   }
 
+  // Grid point data - simple packing, only the wanted points of the wanted rows
+  private float[] getData0Subset(RandomAccessFile raf, Grib2Drs.Type0 gdrs) throws IOException {
+    int nb = gdrs.numberOfBits;
+    int D = gdrs.decimalScaleFactor;
+    float DD = (float) java.lang.Math.pow((double) 10, (double) D);
+    float R = gdrs.referenceValue;
+    int E = gdrs.binaryScaleFactor;
+    float EE = (float) java.lang.Math.pow( 2.0, (double) E);
+
+    float[] data = new float[yRange.length() * xRange.length()];
+    int count = 0;
+
+    // the wanted columns, as stored in the file, are decoded into row
+    float[] row = new float[xRange.last() - xRange.first() + 1];
+
+    // every value takes nb bits, so the nth encoded value starts at bit offset n * nb
+    BitReader reader = new BitReader(raf, startPos+5);
+    int bitIdx = 0; // bitmap position
+    int nencoded = 0; // number of encoded values before bitIdx
+    for (int y = yRange.first(); y <= yRange.last(); y += yRange.stride()) {
+      boolean reversed = isRowReversed(y);
+      int start = y * nx + (reversed ? nx - 1 - xRange.last() : xRange.first());
+
+      if (bitmap == null) {
+        reader.setBitOffset(start * nb);
+        for (int i = 0; i < row.length; i++)
+          row[i] = (R + reader.bits2UInt(nb) * EE) / DD;
+
+      } else {
+        for (; bitIdx < start; bitIdx++) {
+          if ((bitmap[bitIdx / 8] & GribNumbers.bitmask[bitIdx % 8]) != 0) nencoded++;
+        }
+        reader.setBitOffset(nencoded * nb);
+        for (int i = 0; i < row.length; i++) {
+          int pt = start + i;
+          if ((bitmap[pt / 8] & GribNumbers.bitmask[pt % 8]) != 0)
+            row[i] = (R + reader.bits2UInt(nb) * EE) / DD;
+          else
+            row[i] = staticMissingValue;
+        }
+      }
+
+      for (int x = xRange.first(); x <= xRange.last(); x += xRange.stride())
+        data[count++] = reversed ? row[xRange.last() - x] : row[x - xRange.first()];
+    }
+
+    return data;
+  }
+
   // Grid point data - complex packing
   private float[] getData2(RandomAccessFile raf, Grib2Drs.Type2 gdrs) throws IOException {
     int mvm = gdrs.missingValueManagement;
@@ -239,8 +383,10 @@ public class Grib2DataReader {
 //                     E = THE BINARY SCALE FACTOR
 //                     D = THE DECIMAL SCALE FACTOR
     int count = 0;
+    int lastEncoded = lastEncodedIndex(); // stop when past the subset
     reader.incrByte();
     for (int i = 0; i < NG; i++) {
+      if (count > lastEncoded) break;
       for (int j = 0; j < L[i]; j++) {
         if (NB[i] == 0) {
           if (mvm == 0) {  // X2 = 0
@@ -423,11 +569,13 @@ public class Grib2DataReader {
 //                     E = THE BINARY SCALE FACTOR
 //                     D = THE DECIMAL SCALE FACTOR
     int count = 0;
+    int lastEncoded = lastEncodedIndex(); // stop when past the subset
     reader.incrByte();
     int dataSize = 0;
     boolean[] dataBitMap = null;
     if (mvm == 0) {
       for (int i = 0; i < NG; i++) {
+        if (count > lastEncoded) break;
         if (NB[i] != 0) {
           for (int j = 0; j < L[i]; j++)
             data[count++] = (int) reader.bits2UInt(NB[i]) + X1[i];
@@ -442,6 +590,7 @@ public class Grib2DataReader {
       dataBitMap = new boolean[totalNPoints];
       dataSize = 0;
       for (int i = 0; i < NG; i++) {
+        if (count > lastEncoded) break;
         if (NB[i] != 0) {
           int msng1 = bitsmv1[NB[i]];
           int msng2 = msng1 - 1;
@@ -484,7 +633,7 @@ public class Grib2DataReader {
       data[0] = ival1;
       int itemp;
       if (mvm == 0) {           // no missing values
-        itemp = totalNPoints;
+        itemp = Math.min(totalNPoints, count); // count < totalNPoints if we stopped early
       } else {
         itemp = dataSize;
       }
@@ -497,7 +646,7 @@ public class Grib2DataReader {
       data[1] = ival2;
       int itemp;
       if (mvm == 0) {           // no missing values
-        itemp = totalNPoints;
+        itemp = Math.min(totalNPoints, count); // count < totalNPoints if we stopped early
       } else {
         itemp = dataSize;
       }
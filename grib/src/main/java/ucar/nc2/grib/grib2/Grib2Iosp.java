@@ -811,6 +811,23 @@ public class Grib2Iosp extends GribIosp {
     return dataReceiver.getArray();
   }
 
+  // read one record, return only the horizontal subset
+  static private float[] readData(RandomAccessFile rafData, long drsPos, long bmsPos, GdsHorizCoordSys hcs, Range yRange, Range xRange) throws IOException {
+    GribDataCache dataCache = GribDataCache.getInstance();
+    if (dataCache == null) // only decode the horizontal subset
+      return Grib2Record.readData(rafData, drsPos, bmsPos, hcs.gdsNumberPoints, hcs.scanMode, hcs.nxRaw, hcs.nyRaw, hcs.nptsInLine, yRange, xRange);
+
+    // decode and keep the entire record, since other requests may want a different subset
+    long lastModified = rafData.getLastModified();
+    long length = rafData.length();
+    float[] data = dataCache.get(rafData.getLocation(), lastModified, length, drsPos);
+    if (data == null) {
+      data = Grib2Record.readData(rafData, drsPos, bmsPos, hcs.gdsNumberPoints, hcs.scanMode, hcs.nxRaw, hcs.nyRaw, hcs.nptsInLine);
+      dataCache.put(rafData.getLocation(), lastModified, length, drsPos, data);
+    }
+    return Grib2DataReader.extractSubset(data, hcs.nx, yRange, xRange);
+  }
+
   private class DataReaderPartitioned {
     List<DataRecord> records = new ArrayList<DataRecord>();
 
@@ -821,31 +838,36 @@ public class Grib2Iosp extends GribIosp {
       records.add(new DataRecord(partno, vindex, resultIndex, fileno, drsPos, bmsPos));
     }
 
-    void read(DataReceiver dataReceiver) throws IOException {
+    // records may be decoded by several threads, each with its own data files, into disjoint parts of the result
+    void read(final DataReceiver dataReceiver) throws IOException {
       Collections.sort(records);
 
-      int currPartno = -1;
-      int currFile = -1;
-      RandomAccessFile rafData = null;
-      for (DataRecord dr : records) {
-        if (dr.partno != currPartno || dr.fileno != currFile) {
-          if (rafData != null) rafData.close();
-          rafData = timePartition.getRaf(dr.partno, dr.fileno);
-          currFile = dr.fileno;
-          currPartno = dr.partno;
+      GribDecodeExecutor.readRecords(records, getDecodeThreads(), new GribDecodeExecutor.RecordReader<DataRecord>() {
+        public boolean isMissing(DataRecord dr) {
+          return dr.drsPos == GribCollection.MISSING_RECORD;
         }
 
-        if (dr.drsPos == GribCollection.MISSING_RECORD) continue;
+        public boolean sameFile(DataRecord dr1, DataRecord dr2) {
+          return dr1.partno == dr2.partno && dr1.fileno == dr2.fileno;
+        }
 
-        if (debugRead) { // for validation
-          show( Grib2RecordScanner.findRecordByDrspos(rafData, dr.drsPos), dr.drsPos);
+        public RandomAccessFile openFile(DataRecord dr) throws IOException {
+          return timePartition.getRaf(dr.partno, dr.fileno);
         }
 
-        float[] data = Grib2Record.readData(rafData, dr.drsPos, dr.bmsPos, dr.vindex.group.hcs.gdsNumberPoints, dr.vindex.group.hcs.scanMode,
-                dr.vindex.group.hcs.nxRaw,  dr.vindex.group.hcs.nyRaw, dr.vindex.group.hcs.nptsInLine);
-        dataReceiver.addData(data, dr.resultIndex, dr.vindex.group.hcs.nx);
+        public void readRecord(RandomAccessFile rafData, DataRecord dr) throws IOException {
+          DataReaderPartitioned.this.readRecord(rafData, dr, dataReceiver);
+        }
+      });
+    }
+
+    private void readRecord(RandomAccessFile rafData, DataRecord dr, DataReceiver dataReceiver) throws IOException {
+      if (debugRead) { // for validation
+        show( Grib2RecordScanner.findRecordByDrspos(rafData, dr.drsPos), dr.drsPos);
       }
-      if (rafData != null) rafData.close();
+
+      float[] data = readData(rafData, dr.drsPos, dr.bmsPos, dr.vindex.group.hcs, dataReceiver.getYRange(), dataReceiver.getXRange());
+      dataReceiver.addData(data, dr.resultIndex);
     }
 
     private class DataRecord implements Comparable<DataRecord> {
@@ -962,29 +984,38 @@ public class Grib2Iosp extends GribIosp {
       records.add(new DataRecord(timeIdx, ensIdx, levIdx, resultIndex, record.fileno, record.pos, record.bmsPos));
     }
 
-    void read(DataReceiverIF dataReceiver) throws IOException {
+    void read(final DataReceiverIF dataReceiver) throws IOException {
       Collections.sort(records);
 
-      int currFile = -1;
-      RandomAccessFile rafData = null;
-      for (DataRecord dr : records) {
-        if (dr.fileno != currFile) {
-          if (rafData != null) rafData.close();
-          rafData = gribCollection.getDataRaf(dr.fileno);
-          currFile = dr.fileno;
+      // records may be decoded by several threads, each with its own data files, into disjoint parts of the result,
+      // but streaming must be done in order
+      int nthreads = (dataReceiver instanceof DataReceiver) ? getDecodeThreads() : 1;
+      GribDecodeExecutor.readRecords(records, nthreads, new GribDecodeExecutor.RecordReader<DataRecord>() {
+        public boolean isMissing(DataRecord dr) {
+          return dr.drsPos == GribCollection.MISSING_RECORD;
+        }
+
+        public boolean sameFile(DataRecord dr1, DataRecord dr2) {
+          return dr1.fileno == dr2.fileno;
         }
 
-        if (dr.drsPos == GribCollection.MISSING_RECORD) continue;
+        public RandomAccessFile openFile(DataRecord dr) throws IOException {
+          return gribCollection.getDataRaf(dr.fileno);
+        }
 
-        if (debugRead) { // for validation
-          show(Grib2RecordScanner.findRecordByDrspos(rafData, dr.drsPos), dr.drsPos);
+        public void readRecord(RandomAccessFile rafData, DataRecord dr) throws IOException {
+          DataReader.this.readRecord(rafData, dr, dataReceiver);
         }
+      });
+    }
 
-        float[] data = Grib2Record.readData(rafData, dr.drsPos, dr.bmsPos, vindex.group.hcs.gdsNumberPoints, vindex.group.hcs.scanMode,
-                vindex.group.hcs.nxRaw, vindex.group.hcs.nyRaw, vindex.group.hcs.nptsInLine);
-        dataReceiver.addData(data, dr.resultIndex, vindex.group.hcs.nx);
+    private void readRecord(RandomAccessFile rafData, DataRecord dr, DataReceiverIF dataReceiver) throws IOException {
+      if (debugRead) { // for validation
+        show(Grib2RecordScanner.findRecordByDrspos(rafData, dr.drsPos), dr.drsPos);
       }
-      if (rafData != null) rafData.close();
+
+      float[] data = readData(rafData, dr.drsPos, dr.bmsPos, vindex.group.hcs, dataReceiver.getYRange(), dataReceiver.getXRange());
+      dataReceiver.addData(data, dr.resultIndex);
     }
 
     private class DataRecord implements Comparable<DataRecord> {
@@ -1014,7 +1045,9 @@ public class Grib2Iosp extends GribIosp {
   }
 
   private interface DataReceiverIF {
-    void addData(float[] data, int resultIndex, int nx) throws IOException;
+    void addData(float[] data, int resultIndex) throws IOException; // data is the horizontal subset, in row-major order
+    Range getYRange();
+    Range getXRange();
   }
 
   private class DataReceiver implements DataReceiverIF {
@@ -1034,23 +1067,23 @@ public class Grib2Iosp extends GribIosp {
         iter.setFloatNext(Float.NaN);
     }
 
-    public void addData(float[] data, int resultIndex, int nx) throws IOException {
+    public void addData(float[] data, int resultIndex) throws IOException {
       int start = resultIndex * horizSize;
-      int count = 0;
-      for (int y = yRange.first(); y <= yRange.last(); y += yRange.stride()) {
-        for (int x = xRange.first(); x <= xRange.last(); x += xRange.stride()) {
-          int dataIdx = y * nx + x;
-          if (dataIdx >= data.length)
-            System.out.println("HEY");
-          dataArray.setFloat(start + count, data[dataIdx]);
-          count++;
-        }
-      }
+      for (int count = 0; count < horizSize; count++)
+        dataArray.setFloat(start + count, data[count]);
     }
 
     Array getArray() {
       return dataArray;
     }
+
+    public Range getYRange() {
+      return yRange;
+    }
+
+    public Range getXRange() {
+      return xRange;
+    }
   }
 
   private class ChannelReceiver implements DataReceiverIF {
@@ -1065,17 +1098,21 @@ public class Grib2Iosp extends GribIosp {
       this.xRange = xRange;
     }
 
-    public void addData(float[] data, int resultIndex, int nx) throws IOException {
+    public void addData(float[] data, int resultIndex) throws IOException {
        // LOOK: write some ncstream header
       // outStream.write(header);
 
       // now write the data
-      for (int y = yRange.first(); y <= yRange.last(); y += yRange.stride()) {
-        for (int x = xRange.first(); x <= xRange.last(); x += xRange.stride()) {
-          int dataIdx = y * nx + x;
-          outStream.writeFloat(data[dataIdx]);
-        }
-      }
+      for (float val : data)
+        outStream.writeFloat(val);
+    }
+
+    public Range getYRange() {
+      return yRange;
+    }
+
+    public Range getXRange() {
+      return xRange;
     }
   }
 
@@ -1,5 +1,6 @@
 package ucar.nc2.grib.grib2;
 
+import ucar.ma2.Range;
 import ucar.nc2.grib.QuasiRegular;
 import ucar.nc2.time.CalendarDate;
 import ucar.unidata.io.RandomAccessFile;
@@ -291,4 +292,45 @@ public class Grib2Record {
     return data;
   }
 
+  /**
+   * Read the data for a horizontal subset, only decoding as much as is needed.
+   * Thin (quasi-regular) grids are decoded and converted completely, then subsetted.
+   *
+   * @param raf             from this RandomAccessFile
+   * @param drsPos          Grib2SectionDataRepresentation starts here
+   * @param bmsPos          if non-zero, use the bms that starts here
+   * @param gdsNumberPoints gdss.getNumberPoints()
+   * @param scanMode        gds.scanMode
+   * @param nx              gds.nx
+   * @param yRange          wanted rows
+   * @param xRange          wanted columns
+   * @return the subset as float[yRange.length() * xRange.length()] array, in row-major order
+   * @throws IOException on read error
+   */
+  static public float[] readData(RandomAccessFile raf, long drsPos, long bmsPos, int gdsNumberPoints, int scanMode, int nx, int ny, int[] nptsInLine,
+                                 Range yRange, Range xRange) throws IOException {
+    raf.seek(drsPos);
+    Grib2SectionDataRepresentation drs = new Grib2SectionDataRepresentation(raf);
+    Grib2SectionBitMap bms = new Grib2SectionBitMap(raf);
+    Grib2SectionData dataSection = new Grib2SectionData(raf);
+
+    if (bmsPos > 0)
+      bms = Grib2SectionBitMap.factory(raf, bmsPos);
+
+    Grib2DataReader reader = new Grib2DataReader(drs.getDataTemplate(), gdsNumberPoints, drs.getDataPoints(),
+            scanMode, nx, dataSection.getStartingPosition(), dataSection.getMsgLength());
+
+    byte[] bitmap = bms.getBitmap(raf);
+    Grib2Drs gdrs = drs.getDrs(raf);
+
+    if (nptsInLine != null) {
+      float[] data = reader.getData(raf, bitmap, gdrs);
+      data = QuasiRegular.convertQuasiGrid(data, nptsInLine, nx, ny);
+      int nxConverted = (nx < 0) ? data.length / nptsInLine.length : nx;
+      return Grib2DataReader.extractSubset(data, nxConverted, yRange, xRange);
+    }
+
+    return reader.getData(raf, bitmap, gdrs, yRange, xRange);
+  }
+
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib;
+
+import org.junit.Test;
+
+import java.util.Formatter;
+
+/**
+ * Test GribDataCache
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestGribDataCache {
+  static final long MOD = 1382112000000L, LEN = 100000;
+
+  private float[] makeData(int n, float val) {
+    float[] data = new float[n];
+    for (int i = 0; i < n; i++) data[i] = val + i;
+    return data;
+  }
+
+  @Test
+  public void testHitsAndMisses() {
+    GribDataCache cache = new GribDataCache(1000, false);
+    assert cache.get("file1", MOD, LEN, 100) == null;
+
+    float[] data = makeData(10, 1);
+    cache.put("file1", MOD, LEN, 100, data);
+    assert cache.get("file1", MOD, LEN, 100) == data;
+    assert cache.get("file1", MOD, LEN, 200) == null;
+    assert cache.get("file2", MOD, LEN, 100) == null;
+
+    assert cache.getHits() == 1;
+    assert cache.getMisses() == 3;
+    assert cache.getBytes() == 40;
+
+    Formatter f = new Formatter();
+    cache.showCache(f);
+    assert f.toString().contains("hits= 1 misses= 3 hitRatio= 0.250") : f;
+  }
+
+  @Test
+  public void testChangedFile() {
+    GribDataCache cache = new GribDataCache(1000, false);
+    cache.put("file", MOD, LEN, 100, makeData(10, 1));
+    assert cache.get("file", MOD, LEN, 100) != null;
+    assert cache.get("file", MOD + 1000, LEN, 100) == null; // rewritten in place
+    assert cache.get("file", MOD, LEN + 500, 100) == null;  // appended to
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    GribDataCache cache = new GribDataCache(100, false); // room for two records of 10 floats
+    cache.put("file", MOD, LEN, 1, makeData(10, 1));
+    cache.put("file", MOD, LEN, 2, makeData(10, 2));
+    assert cache.get("file", MOD, LEN, 1) != null; // now 2 is the least recently used
+
+    cache.put("file", MOD, LEN, 3, makeData(10, 3));
+    assert cache.getNumberOfRecords() == 2;
+    assert cache.getBytes() == 80;
+    assert cache.getEvictions() == 1;
+    assert cache.get("file", MOD, LEN, 1) != null;
+    assert cache.get("file", MOD, LEN, 2) == null;
+    assert cache.get("file", MOD, LEN, 3) != null;
+
+    // replacing a record doesnt count twice
+    cache.put("file", MOD, LEN, 3, makeData(10, 4));
+    assert cache.getBytes() == 80;
+    assert cache.get("file", MOD, LEN, 3)[0] == 4.0f;
+
+    // too big to keep
+    cache.put("file", MOD, LEN, 5, makeData(100, 5));
+    assert cache.get("file", MOD, LEN, 5) == null;
+    assert cache.getNumberOfRecords() == 2;
+
+    cache.clearCache();
+    assert cache.getNumberOfRecords() == 0;
+    assert cache.getBytes() == 0;
+    assert cache.getHits() == 0;
+  }
+
+  @Test
+  public void testOffHeap() {
+    GribDataCache cache = new GribDataCache(1000, true);
+    float[] data = makeData(50, 7);
+    cache.put("file", MOD, LEN, 1, data);
+
+    float[] got = cache.get("file", MOD, LEN, 1);
+    assert got != data;
+    assert got.length == data.length;
+    for (int i = 0; i < data.length; i++)
+      assert got[i] == data[i] : i;
+    assert cache.getBytes() == 200;
+  }
+
+  @Test
+  public void testInit() {
+    GribDataCache.init(1000, false);
+    assert GribDataCache.getInstance() != null;
+    GribDataCache.init(0, false);
+    assert GribDataCache.getInstance() == null;
+    GribDataCache.disable();
+    assert GribDataCache.getInstance() == null;
+  }
+}
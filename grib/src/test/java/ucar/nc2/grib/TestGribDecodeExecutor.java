@@ -0,0 +1,151 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib;
+
+import org.junit.Test;
+import ucar.unidata.io.InMemoryRandomAccessFile;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Test GribDecodeExecutor
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestGribDecodeExecutor {
+
+  private class CountingFactory implements GribDecodeExecutor.WorkerFactory {
+    final AtomicIntegerArray decoded;
+    final AtomicInteger opened = new AtomicInteger();
+    final AtomicInteger closed = new AtomicInteger();
+    final int failAt;
+
+    CountingFactory(int nrecords, int failAt) {
+      this.decoded = new AtomicIntegerArray(nrecords);
+      this.failAt = failAt;
+    }
+
+    public GribDecodeExecutor.Worker makeWorker() {
+      opened.incrementAndGet();
+      return new GribDecodeExecutor.Worker() {
+        public void decode(int index) throws IOException {
+          if (index == failAt) throw new IOException("bad record " + index);
+          decoded.incrementAndGet(index);
+        }
+
+        public void close() {
+          closed.incrementAndGet();
+        }
+      };
+    }
+  }
+
+  @Test
+  public void testEachRecordOnce() throws IOException {
+    for (int nthreads : new int[]{1, 2, 4, 16}) {
+      int nrecords = 1000;
+      CountingFactory factory = new CountingFactory(nrecords, -1);
+      GribDecodeExecutor.decode(nrecords, nthreads, factory);
+
+      for (int i = 0; i < nrecords; i++)
+        assert factory.decoded.get(i) == 1 : "nthreads=" + nthreads + " record " + i + " decoded " + factory.decoded.get(i);
+      assert factory.opened.get() <= nthreads : factory.opened.get();
+      assert factory.opened.get() == factory.closed.get();
+    }
+  }
+
+  @Test
+  public void testFewerRecordsThanThreads() throws IOException {
+    CountingFactory factory = new CountingFactory(2, -1);
+    GribDecodeExecutor.decode(2, 8, factory);
+    assert factory.decoded.get(0) == 1;
+    assert factory.decoded.get(1) == 1;
+    assert factory.opened.get() <= 2 : factory.opened.get();
+  }
+
+  // record i is in file i / 100, every 10th record is missing
+  @Test
+  public void testReadRecords() throws IOException {
+    for (int nthreads : new int[]{1, 4}) {
+      int nrecords = 1000;
+      List<Integer> records = new ArrayList<Integer>(nrecords);
+      for (int i = 0; i < nrecords; i++) records.add(i);
+      final AtomicIntegerArray read = new AtomicIntegerArray(nrecords);
+      final AtomicInteger opened = new AtomicInteger();
+
+      GribDecodeExecutor.readRecords(records, nthreads, new GribDecodeExecutor.RecordReader<Integer>() {
+        public boolean isMissing(Integer record) {
+          return record % 10 == 0;
+        }
+
+        public boolean sameFile(Integer r1, Integer r2) {
+          return r1 / 100 == r2 / 100;
+        }
+
+        public RandomAccessFile openFile(Integer record) {
+          opened.incrementAndGet();
+          return new InMemoryRandomAccessFile("file" + record / 100, new byte[0]);
+        }
+
+        public void readRecord(RandomAccessFile raf, Integer record) {
+          assert raf.getLocation().equals("file" + record / 100) : raf.getLocation() + " " + record;
+          read.incrementAndGet(record);
+        }
+      });
+
+      for (int i = 0; i < nrecords; i++)
+        assert read.get(i) == (i % 10 == 0 ? 0 : 1) : "nthreads=" + nthreads + " record " + i + " read " + read.get(i);
+      if (nthreads == 1) assert opened.get() == 10 : opened.get(); // once for each file
+    }
+  }
+
+  @Test
+  public void testErrorIsRethrown() {
+    for (int nthreads : new int[]{1, 4}) {
+      CountingFactory factory = new CountingFactory(100, 17);
+      try {
+        GribDecodeExecutor.decode(100, nthreads, factory);
+        assert false : "expected IOException";
+      } catch (IOException ioe) {
+        assert ioe.getMessage().equals("bad record 17") : ioe.getMessage();
+      }
+      assert factory.opened.get() == factory.closed.get();
+    }
+  }
+}
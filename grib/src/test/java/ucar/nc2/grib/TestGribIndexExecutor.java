@@ -0,0 +1,172 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib;
+
+import org.junit.Test;
+import thredds.inventory.CollectionManager;
+import thredds.inventory.MFile;
+import thredds.inventory.MFileCollectionManager;
+import ucar.nc2.grib.grib2.Grib2CollectionBuilder;
+import ucar.nc2.util.IO;
+import ucar.unidata.test.util.TestDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.List;
+
+/**
+ * Test GribIndexExecutor
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestGribIndexExecutor {
+  static private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(TestGribIndexExecutor.class);
+  static private final String gribFile = "../tds/src/test/resources/WEB-INF/altContent/startup/public/testdata/testData2.grib2";
+  static private final int nfiles = 7;
+
+  private File makeCollectionDir() throws IOException {
+    File dir = new File(TestDir.temporaryLocalDataDir + "TestGribIndexExecutor/");
+    if (dir.exists()) {
+      for (File f : dir.listFiles()) f.delete();
+    }
+    dir.mkdirs();
+    for (int i = 0; i < nfiles; i++)
+      IO.copyFile(gribFile, dir.getPath() + "/file" + i + ".grib2");
+    return dir;
+  }
+
+  private void deleteIndexes(File dir) {
+    for (File f : dir.listFiles()) {
+      if (f.getName().endsWith(".gbx9") || f.getName().endsWith(".ncx"))
+        f.delete();
+    }
+  }
+
+  private MFileCollectionManager makeCollection(File dir) throws IOException {
+    Formatter errlog = new Formatter();
+    MFileCollectionManager dcm = new MFileCollectionManager("TestGribIndexExecutor", dir.getPath() + "/.*grib2$", errlog, logger);
+    dcm.scan(false);
+    return dcm;
+  }
+
+  @Test
+  public void testFileOrder() throws IOException {
+    File dir = makeCollectionDir();
+    MFileCollectionManager dcm = makeCollection(dir);
+    List<MFile> want = new ArrayList<MFile>();
+    for (MFile mfile : dcm.getFiles()) want.add(mfile);
+    assert want.size() == nfiles;
+
+    for (int nthreads : new int[] {1, 3, 20}) {
+      deleteIndexes(dir);
+      GribIndexExecutor iter = new GribIndexExecutor(false, dcm.getFiles(), false, null, CollectionManager.Force.test, "test", logger, nthreads);
+      try {
+        int count = 0;
+        while (iter.hasNext()) {
+          MFile mfile = iter.next();
+          assert mfile.getPath().equals(want.get(count).getPath());
+          GribIndex index = iter.getIndex();
+          assert index.getNRecords() > 0;
+          assert new File(mfile.getPath() + GribIndex.GBX9_IDX).exists();
+          count++;
+        }
+        assert count == nfiles;
+        System.out.printf("nthreads=%d %s%n", nthreads, iter.getStatistics());
+      } finally {
+        iter.close();
+      }
+    }
+  }
+
+  @Test
+  public void testFailedFile() throws IOException {
+    File dir = makeCollectionDir();
+    IO.writeToFile("not a grib file", new File(dir, "file3.grib2"));  // no GRIB records in it
+    MFileCollectionManager dcm = makeCollection(dir);
+    assert new File(dir, "file5.grib2").delete();  // cant be read at all
+
+    GribIndexExecutor iter = new GribIndexExecutor(false, dcm.getFiles(), false, null, CollectionManager.Force.always, "test", logger, 4);
+    try {
+      List<String> indexed = new ArrayList<String>();
+      List<String> empty = new ArrayList<String>();
+      List<String> failed = new ArrayList<String>();
+      while (iter.hasNext()) {
+        MFile mfile = iter.next();
+        try {
+          GribIndex index = iter.getIndex();
+          if (index.getNRecords() == 0) {
+            empty.add(mfile.getName());
+          } else {
+            assert new File(mfile.getPath() + GribIndex.GBX9_IDX).exists() : mfile.getName();
+            indexed.add(mfile.getName());
+          }
+        } catch (IOException ioe) {
+          failed.add(mfile.getName());
+        }
+      }
+      assert empty.equals(Arrays.asList("file3.grib2")) : empty;
+      assert failed.equals(Arrays.asList("file5.grib2")) : failed;
+      assert indexed.equals(Arrays.asList("file0.grib2", "file1.grib2", "file2.grib2", "file4.grib2", "file6.grib2")) : indexed;
+      assert iter.getStatistics().contains("(1 failed)") : iter.getStatistics();
+    } finally {
+      iter.close();
+    }
+  }
+
+  // the collection index must be the same no matter how many threads made it
+  @Test
+  public void testSameCollectionIndex() throws IOException {
+    File dir = makeCollectionDir();
+    byte[] serial = null;
+
+    for (int nthreads : new int[] {1, 4}) {
+      deleteIndexes(dir);
+      int save = GribIndexExecutor.getDefaultThreads();
+      GribIndexExecutor.setDefaultThreads(nthreads);
+      try {
+        MFileCollectionManager dcm = makeCollection(dir);
+        File indexFile = new File(dir, "collection" + nthreads + ".ncx");
+        assert Grib2CollectionBuilder.writeIndexFile(indexFile, dcm, logger);
+        byte[] result = IO.readFileToByteArray(indexFile.getPath());
+        if (serial == null) serial = result;
+        else assert Arrays.equals(serial, result) : "nthreads=" + nthreads;
+      } finally {
+        GribIndexExecutor.setDefaultThreads(save);
+      }
+    }
+  }
+}
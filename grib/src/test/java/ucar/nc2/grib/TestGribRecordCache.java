@@ -0,0 +1,117 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib;
+
+import org.junit.After;
+import org.junit.Test;
+import thredds.inventory.MFileCollectionManager;
+import ucar.nc2.grib.grib2.Grib2CollectionBuilder;
+import ucar.nc2.util.IO;
+import ucar.unidata.test.util.TestDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Formatter;
+
+/**
+ * Test GribRecordCache
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestGribRecordCache {
+  static private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(TestGribRecordCache.class);
+  static private final String gribFile = "../tds/src/test/resources/WEB-INF/altContent/startup/public/testdata/testData2.grib2";
+
+  @After
+  public void turnOff() {
+    GribRecordCache.setMaxRecords(0);
+  }
+
+  private File makeCollectionDir(int nfiles) throws IOException {
+    File dir = new File(TestDir.temporaryLocalDataDir + "TestGribRecordCache/");
+    if (dir.exists()) {
+      for (File f : dir.listFiles()) f.delete();
+    }
+    dir.mkdirs();
+    for (int i = 0; i < nfiles; i++)
+      IO.copyFile(gribFile, dir.getPath() + "/file" + i + ".grib2");
+    return dir;
+  }
+
+  private byte[] makeIndex(File dir, String name) throws IOException {
+    Formatter errlog = new Formatter();
+    MFileCollectionManager dcm = new MFileCollectionManager("TestGribRecordCache", dir.getPath() + "/.*grib2$", errlog, logger);
+    dcm.scan(false);
+    File indexFile = new File(dir, name + ".ncx");
+    assert Grib2CollectionBuilder.writeIndexFile(indexFile, dcm, logger);
+    return IO.readFileToByteArray(indexFile.getPath());
+  }
+
+  // the collection index made with reused records must be the same as one made from scratch
+  @Test
+  public void testIncrementalSameAsFull() throws IOException {
+    File dir = makeCollectionDir(4);
+    GribRecordCache.setMaxRecords(1000 * 1000);
+    makeIndex(dir, "first");
+
+    // add a file
+    IO.copyFile(gribFile, dir.getPath() + "/file4.grib2");
+    byte[] incr = makeIndex(dir, "added");
+    GribRecordCache.setMaxRecords(0);
+    byte[] full = makeIndex(dir, "addedFull");
+    assert Arrays.equals(incr, full);
+
+    // remove a file
+    GribRecordCache.setMaxRecords(1000 * 1000);
+    makeIndex(dir, "fill");
+    assert new File(dir, "file1.grib2").delete();
+    incr = makeIndex(dir, "removed");
+    GribRecordCache.setMaxRecords(0);
+    full = makeIndex(dir, "removedFull");
+    assert Arrays.equals(incr, full);
+  }
+
+  @Test
+  public void testTooManyRecords() throws IOException {
+    File dir = makeCollectionDir(2);
+    GribRecordCache.setMaxRecords(1);
+    makeIndex(dir, "first");
+
+    Formatter f = new Formatter();
+    GribRecordCache.showCache(f);
+    System.out.printf("%s", f);
+    assert f.toString().contains(" 0 files 0 records") : f;
+  }
+}
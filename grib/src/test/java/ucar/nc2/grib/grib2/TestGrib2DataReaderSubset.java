@@ -0,0 +1,224 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib.grib2;
+
+import org.junit.Test;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+import ucar.unidata.io.InMemoryRandomAccessFile;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Check that decoding a horizontal subset gives the same values as decoding the whole field.
+ * Uses synthetic data sections, so doesnt need any test files.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TestGrib2DataReaderSubset {
+  static private final int nx = 37, ny = 23, npts = nx * ny;
+
+  @Test
+  public void testSimplePacking() throws IOException, InvalidRangeException {
+    for (int scanMode : new int[]{0, 64, 128, 16}) {
+      checkSubsets(makeSimple(null), 0, scanMode, null);
+      byte[] bitmap = makeBitmap();
+      checkSubsets(makeSimple(bitmap), 0, scanMode, bitmap);
+    }
+  }
+
+  @Test
+  public void testComplexPacking() throws IOException, InvalidRangeException {
+    for (int scanMode : new int[]{0, 128, 16}) {
+      checkSubsets(makeComplex(), 2, scanMode, null);
+    }
+  }
+
+  private void checkSubsets(byte[] message, int template, int scanMode, byte[] bitmap) throws IOException, InvalidRangeException {
+    check(message, template, scanMode, bitmap, new Range(5, 9), new Range(10, 20));
+    check(message, template, scanMode, bitmap, new Range(7, 7), new Range(3, 3));      // a point
+    check(message, template, scanMode, bitmap, new Range(0, 0), new Range(0, nx - 1)); // first row
+    check(message, template, scanMode, bitmap, new Range(ny - 1, ny - 1), new Range(nx - 1, nx - 1)); // last point
+    check(message, template, scanMode, bitmap, new Range(1, 21, 4), new Range(2, 30, 7)); // strided
+    check(message, template, scanMode, bitmap, new Range(0, ny - 1), new Range(0, nx - 1)); // everything
+  }
+
+  private void check(byte[] message, int template, int scanMode, byte[] bitmap, Range yRange, Range xRange) throws IOException {
+    RandomAccessFile raf = new InMemoryRandomAccessFile("test", message);
+    raf.order(RandomAccessFile.BIG_ENDIAN);
+    raf.seek(0);
+    Grib2Drs gdrs = Grib2Drs.factory(template, raf);
+    int nencoded = (bitmap == null) ? npts : countBits(bitmap);
+    long startPos = raf.getFilePointer();
+    int dataLength = (int) (message.length - startPos);
+
+    Grib2DataReader reader = new Grib2DataReader(template, npts, nencoded, scanMode, nx, startPos, dataLength);
+    float[] all = reader.getData(raf, bitmap, gdrs);
+    reader = new Grib2DataReader(template, npts, nencoded, scanMode, nx, startPos, dataLength);
+    float[] subset = reader.getData(raf, bitmap, gdrs, yRange, xRange);
+
+    assert subset.length == yRange.length() * xRange.length();
+    int count = 0;
+    for (int y = yRange.first(); y <= yRange.last(); y += yRange.stride()) {
+      for (int x = xRange.first(); x <= xRange.last(); x += xRange.stride()) {
+        int idx = y * nx + x;
+        assert Float.compare(all[idx], subset[count]) == 0 :
+                String.format("template %d scanMode %d (%d,%d): %f != %f", template, scanMode, y, x, all[idx], subset[count]);
+        count++;
+      }
+    }
+  }
+
+  // DRS template 0 followed by the data section
+  private byte[] makeSimple(byte[] bitmap) throws IOException, InvalidRangeException {
+    int nb = 13;
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bos);
+    out.writeFloat(100.0f); // reference value
+    out.writeShort(1);      // binary scale factor
+    out.writeShort(1);      // decimal scale factor
+    out.write(nb);
+    out.write(0);
+
+    BitWriter bits = new BitWriter(bos);
+    bits.skipDataSectionHeader();
+    for (int i = 0; i < npts; i++) {
+      if ((bitmap == null) || isSet(bitmap, i))
+        bits.write((i * 7919) % (1 << nb), nb);
+    }
+    bits.flush();
+    return bos.toByteArray();
+  }
+
+  // DRS template 2 followed by the data section, no missing values
+  private byte[] makeComplex() throws IOException {
+    int ngroups = 86, groupLength = 10;
+    int lastLength = npts - (ngroups - 1) * groupLength;
+    int nbX1 = 10, nbWidths = 4;
+    Random r = new Random(17);
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bos);
+    out.writeFloat(-50.0f); // reference value
+    out.writeShort(0);      // binary scale factor
+    out.writeShort(2);      // decimal scale factor
+    out.write(nbX1);        // bits for group reference values
+    out.write(0);
+    out.write(1);           // splitting method
+    out.write(0);           // missing value management
+    out.writeFloat(0.0f);
+    out.writeFloat(0.0f);
+    out.writeInt(ngroups);
+    out.write(0);           // reference for group widths
+    out.write(nbWidths);
+    out.writeInt(groupLength);
+    out.write(1);           // length increment
+    out.writeInt(lastLength);
+    out.write(1);           // bits for scaled group lengths
+
+    BitWriter bits = new BitWriter(bos);
+    bits.skipDataSectionHeader();
+    int[] widths = new int[ngroups];
+    for (int i = 0; i < ngroups; i++)
+      bits.write((i * 31) % (1 << nbX1), nbX1);
+    bits.flush();
+    for (int i = 0; i < ngroups; i++) {
+      widths[i] = i % 7; // some groups with zero width
+      bits.write(widths[i], nbWidths);
+    }
+    bits.flush();
+    for (int i = 0; i < ngroups; i++)
+      bits.write(0, 1); // all groups have the reference length
+    bits.flush();
+    for (int i = 0; i < ngroups; i++) {
+      int len = (i == ngroups - 1) ? lastLength : groupLength;
+      if (widths[i] == 0) continue;
+      for (int j = 0; j < len; j++)
+        bits.write(r.nextInt(1 << widths[i]), widths[i]);
+    }
+    bits.flush();
+    return bos.toByteArray();
+  }
+
+  private byte[] makeBitmap() {
+    byte[] bitmap = new byte[(npts + 7) / 8];
+    for (int i = 0; i < npts; i++) {
+      if (i % 3 != 1) bitmap[i / 8] |= (byte) (0x80 >> (i % 8));
+    }
+    return bitmap;
+  }
+
+  private boolean isSet(byte[] bitmap, int i) {
+    return (bitmap[i / 8] & (0x80 >> (i % 8))) != 0;
+  }
+
+  private int countBits(byte[] bitmap) {
+    int count = 0;
+    for (int i = 0; i < npts; i++)
+      if (isSet(bitmap, i)) count++;
+    return count;
+  }
+
+  // big endian bit packer, flush() pads to a byte boundary
+  private static class BitWriter {
+    private final ByteArrayOutputStream out;
+    private int buf, nbits;
+
+    BitWriter(ByteArrayOutputStream out) {
+      this.out = out;
+    }
+
+    void skipDataSectionHeader() {
+      for (int i = 0; i < 5; i++) out.write(0);
+    }
+
+    void write(int value, int nb) {
+      for (int i = nb - 1; i >= 0; i--) {
+        buf = (buf << 1) | ((value >> i) & 1);
+        if (++nbits == 8) {
+          out.write(buf);
+          buf = nbits = 0;
+        }
+      }
+    }
+
+    void flush() {
+      if (nbits > 0) write(0, 8 - nbits);
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib.grib2;
+
+import ucar.ma2.Range;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.*;
+
+/**
+ * Latency of a point query against a 0.25 degree global field (1440 x 721), decoding the whole field
+ * versus pushing the horizontal subset down into Grib2DataReader.
+ * The field is synthetic, simple packing (DRS template 0) with 16 bits per value, written to a temporary file.
+ * Run: java ucar.nc2.grib.grib2.TimeGrib2PointRead [nqueries]
+ * <pre>
+ * 10/18/2026 jdk 1.8.0_392, 1000 point queries at random points, after warmup, file in the page cache:
+ * whole field    1000 queries 15137.3 msecs =  15.137 msecs/query
+ * subset         1000 queries    12.2 msecs =   0.012 msecs/query
+ * </pre>
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+public class TimeGrib2PointRead {
+  static final int nx = 1440, ny = 721, npts = nx * ny, nbits = 16;
+
+  static File makeFile() throws IOException {
+    File f = File.createTempFile("TimeGrib2PointRead", ".drs");
+    f.deleteOnExit();
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)));
+    try {
+      out.writeFloat(200.0f); // DRS template 0: reference value
+      out.writeShort(0);      // binary scale factor
+      out.writeShort(2);      // decimal scale factor
+      out.write(nbits);
+      out.write(0);
+      out.write(new byte[5]); // data section header
+      for (int i = 0; i < npts; i++)
+        out.writeShort(i % 10000); // 16 bits, so no bit packing needed
+    } finally {
+      out.close();
+    }
+    return f;
+  }
+
+  static double time(RandomAccessFile raf, boolean subset, int nqueries, java.util.Random r) throws Exception {
+    long start = System.nanoTime();
+    for (int q = 0; q < nqueries; q++) {
+      int y = r.nextInt(ny);
+      int x = r.nextInt(nx);
+      raf.seek(0);
+      Grib2Drs gdrs = Grib2Drs.factory(0, raf);
+      long startPos = raf.getFilePointer();
+      Grib2DataReader reader = new Grib2DataReader(0, npts, npts, 64, nx, startPos, (int) (raf.length() - startPos));
+      float val;
+      if (subset) {
+        val = reader.getData(raf, null, gdrs, new Range(y, y), new Range(x, x))[0];
+      } else {
+        val = reader.getData(raf, null, gdrs)[y * nx + x];
+      }
+      if (val != (200.0f + (y * nx + x) % 10000) / 100.0f)
+        throw new IllegalStateException("wrong value at " + y + "," + x);
+    }
+    return (System.nanoTime() - start) / 1000.0 / 1000.0;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int nqueries = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+    File f = makeFile();
+    RandomAccessFile raf = new RandomAccessFile(f.getPath(), "r");
+    raf.order(RandomAccessFile.BIG_ENDIAN);
+    try {
+      java.util.Random r = new java.util.Random(1234);
+      time(raf, false, 20, r); // warmup
+      time(raf, true, 200, r);
+
+      double msecs = time(raf, false, nqueries, r);
+      System.out.printf("whole field  %6d queries %7.1f msecs = %7.3f msecs/query%n", nqueries, msecs, msecs / nqueries);
+      msecs = time(raf, true, nqueries, r);
+      System.out.printf("subset       %6d queries %7.1f msecs = %7.3f msecs/query%n", nqueries, msecs, msecs / nqueries);
+    } finally {
+      raf.close();
+    }
+  }
+}
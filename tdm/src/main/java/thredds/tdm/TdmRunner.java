@@ -51,6 +51,8 @@ import thredds.inventory.*;
 import thredds.util.LoggerFactorySpecial;
 import thredds.util.ThreddsConfigReader;
 import ucar.nc2.grib.GribCollection;
+import ucar.nc2.grib.GribIndexExecutor;
+import ucar.nc2.grib.GribRecordCache;
 import ucar.nc2.grib.TimePartition;
 import ucar.nc2.time.CalendarDate;
 import ucar.nc2.time.CalendarPeriod;
@@ -443,7 +445,7 @@ public class TdmRunner {
 
     for (int i = 0; i < args.length; i++) {
       if (args[i].equalsIgnoreCase("-help")) {
-        System.out.printf("usage: <Java> <Java_OPTS> -contentDir <contentDir> [-catalog <cat>] [-tds <tdsServer>] [-cred <user:passwd>] [-showOnly] [-log level]%n");
+        System.out.printf("usage: <Java> <Java_OPTS> -contentDir <contentDir> [-catalog <cat>] [-tds <tdsServer>] [-cred <user:passwd>] [-nthreads n] [-indexThreads n] [-recordCacheMax n] [-showOnly] [-log level]%n");
         System.out.printf("example: /opt/jdk/bin/java -d64 -Xmx8g -server -jar tdm-4.3.jar -catalog /tomcat/webapps/thredds/WEB-INF/altContent/idd/thredds/catalog.xml -cred user:passwd%n");
         System.exit(0);
       }
@@ -483,6 +485,16 @@ public class TdmRunner {
         driver.setNThreads(n);
       }
 
+      else if (args[i].equalsIgnoreCase("-indexThreads")) { // threads used to index the files of one collection
+        int n = Integer.parseInt(args[i + 1]);
+        GribIndexExecutor.setDefaultThreads(n);
+      }
+
+      else if (args[i].equalsIgnoreCase("-recordCacheMax")) { // keep records in memory, only read new or changed files
+        int n = Integer.parseInt(args[i + 1]);
+        GribRecordCache.setMaxRecords(n);
+      }
+
       else if (args[i].equalsIgnoreCase("-showOnly")) {
         driver.setShowOnly(true);
       }
@@ -183,7 +183,7 @@ public class CdmRemoteController extends AbstractCommandController implements La
           StringTokenizer stoke = new StringTokenizer(query, ";"); // need UTF/%decode
           while (stoke.hasMoreTokens()) {
             ParsedSectionSpec cer = ParsedSectionSpec.parseVariableSection(ncfile, stoke.nextToken());
-            size += ncWriter.sendData(cer.v, cer.section, out, false);
+            size += ncWriter.sendData(cer.v, cer.section, out, qb.isDeflate());
           }
         }
       } // end switch on req type
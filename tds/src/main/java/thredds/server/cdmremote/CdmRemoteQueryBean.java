@@ -76,6 +76,9 @@ public class CdmRemoteQueryBean {
   private String variables; // (forms) all some
   private String var;
 
+  // compress data responses
+  private boolean deflate;
+
   //// spatial selection
   private String spatial; // (forms) all, bb, point, stns
   private TemporalSelection temporalSelection;
@@ -376,6 +379,14 @@ public class CdmRemoteQueryBean {
     return var;
   }
 
+  public void setDeflate(boolean deflate) {
+    this.deflate = deflate;
+  }
+
+  public boolean isDeflate() {
+    return deflate;
+  }
+
   public String[] getVarNames() {
     return (var == null) ? null : var.split(",");
   }
@@ -48,6 +48,7 @@ import javax.xml.stream.XMLStreamWriter;
 import thredds.server.cdmremote.params.CdmrfQueryBean;
 import ucar.ma2.Array;
 import ucar.ma2.StructureData;
+import ucar.ma2.StructureMembers;
 import ucar.nc2.Attribute;
 import ucar.nc2.VariableSimpleIF;
 import ucar.nc2.constants.CDM;
@@ -335,6 +336,7 @@ public class PointWriter {
 
   class WriterNcstream extends Writer {
     OutputStream out;
+    PointStream.PointFeatureBatchWriter batchWriter; // if the client asked for batches
 
     WriterNcstream(OutputStream os) throws IOException {
       super(null);
@@ -346,6 +348,7 @@ public class PointWriter {
 
     public void trailer() {
       try {
+        if (batchWriter != null) batchWriter.flush();
         PointStream.writeMagic(out, PointStream.MessageType.End);
         out.flush();
       } catch (IOException e) {
@@ -363,13 +366,21 @@ public class PointWriter {
               PointStream.writeMagic(out, PointStream.MessageType.PointFeatureCollection);
               NcStream.writeVInt(out, b.length);
               out.write(b);
+
+              StructureMembers sm = pf.getData().getStructureMembers();
+              if (qb.getBatchSize() > 0 && PointStream.canBatch(sm))
+                batchWriter = new PointStream.PointFeatureBatchWriter(out, sm, qb.getBatchSize());
             }
 
-            PointStreamProto.PointFeature pfp = PointStream.encodePointFeature(pf);
-            byte[] b = pfp.toByteArray();
-            PointStream.writeMagic(out, PointStream.MessageType.PointFeature);
-            NcStream.writeVInt(out, b.length);
-            out.write(b);
+            if (batchWriter != null) {
+              batchWriter.add(pf);
+            } else {
+              PointStreamProto.PointFeature pfp = PointStream.encodePointFeature(pf);
+              byte[] b = pfp.toByteArray();
+              PointStream.writeMagic(out, PointStream.MessageType.PointFeature);
+              NcStream.writeVInt(out, b.length);
+              out.write(b);
+            }
             count++;
 
           } catch (Throwable t) {
@@ -49,6 +49,7 @@ import javax.xml.stream.XMLStreamWriter;
 import thredds.server.cdmremote.params.CdmrfQueryBean;
 import ucar.ma2.Array;
 import ucar.ma2.StructureData;
+import ucar.ma2.StructureMembers;
 import ucar.nc2.Attribute;
 import ucar.nc2.VariableSimpleIF;
 import ucar.nc2.constants.CDM;
@@ -58,6 +59,7 @@ import ucar.nc2.ft.PointFeatureCollection;
 import ucar.nc2.ft.StationTimeSeriesFeature;
 import ucar.nc2.ft.StationTimeSeriesFeatureCollection;
 import ucar.nc2.ft.point.StationPointFeature;
+import ucar.nc2.ft.point.StationTimeSeriesCollectionImpl;
 import ucar.nc2.ft.point.remote.PointStream;
 import ucar.nc2.ft.point.remote.PointStreamProto;
 import ucar.nc2.ft.point.writer.WriterCFStationCollection;
@@ -321,8 +323,14 @@ public class StationWriter {
    * @throws IOException if read error
    */
   public List<String> getStationNames(LatLonRect boundingBox) throws IOException {
-    LatLonPointImpl latlonPt = new LatLonPointImpl();
     ArrayList<String> result = new ArrayList<String>();
+    if (sfc instanceof StationTimeSeriesCollectionImpl) { // uses the station index
+      for (Station s : sfc.getStations(boundingBox))
+        result.add(s.getName());
+      return result;
+    }
+
+    LatLonPointImpl latlonPt = new LatLonPointImpl();
     for (Station s : sfc.getStations()) {
       latlonPt.set(s.getLatitude(), s.getLongitude());
       if (boundingBox.contains(latlonPt)) {
@@ -343,6 +351,11 @@ public class StationWriter {
    * @throws IOException if read error
    */
   public Station findClosestStation(LatLonPoint pt) throws IOException {
+    if (sfc instanceof StationTimeSeriesCollectionImpl) { // uses the station index
+      Station s = ((StationTimeSeriesCollectionImpl) sfc).getNearestStation(pt);
+      if (s != null) return s;
+    }
+
     double lat = pt.getLatitude();
     double lon = pt.getLongitude();
     double cos = Math.cos(Math.toRadians(lat));
@@ -780,6 +793,7 @@ public class StationWriter {
 
   class WriterNcstream extends Writer {
     OutputStream out;
+    PointStream.PointFeatureBatchWriter batchWriter; // if the client asked for batches
 
     WriterNcstream(OutputStream os) throws IOException {
       super(null);
@@ -791,6 +805,7 @@ public class StationWriter {
     }
 
     public void trailer() throws IOException {
+        if (batchWriter != null) batchWriter.flush();
         PointStream.writeMagic(out, PointStream.MessageType.End);
         out.flush();
     }
@@ -805,13 +820,21 @@ public class StationWriter {
               PointStream.writeMagic(out, PointStream.MessageType.PointFeatureCollection);
               NcStream.writeVInt(out, b.length);
               out.write(b);
+
+              StructureMembers sm = pf.getData().getStructureMembers();
+              if (qb.getBatchSize() > 0 && PointStream.canBatch(sm))
+                batchWriter = new PointStream.PointFeatureBatchWriter(out, sm, qb.getBatchSize());
             }
 
-            PointStreamProto.PointFeature pfp = PointStream.encodePointFeature(pf);
-            byte[] b = pfp.toByteArray();
-            PointStream.writeMagic(out, PointStream.MessageType.PointFeature);
-            NcStream.writeVInt(out, b.length);
-            out.write(b);
+            if (batchWriter != null) {
+              batchWriter.add(pf);
+            } else {
+              PointStreamProto.PointFeature pfp = PointStream.encodePointFeature(pf);
+              byte[] b = pfp.toByteArray();
+              PointStream.writeMagic(out, PointStream.MessageType.PointFeature);
+              NcStream.writeVInt(out, b.length);
+              out.write(b);
+            }
             count++;
 
           } catch (Throwable t) {
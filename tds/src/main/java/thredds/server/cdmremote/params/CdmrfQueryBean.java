@@ -99,6 +99,10 @@ public class CdmrfQueryBean {
   private String time_start, time_end, time_duration;
   private String time;
 
+  // ncstream point features in batches of this size; older clients dont send it
+  private String batch;
+  static private final int MAX_BATCH = 10000;
+
   // parsed quantities
   private DateRange dateRange;
   private DateType timePoint;
@@ -428,6 +432,27 @@ public class CdmrfQueryBean {
 	  this.latlonPoint = point;
   }
 
+  public void setBatch(String batch) {
+    this.batch = batch;
+  }
+
+  public String getBatch() {
+    return batch;
+  }
+
+  /**
+   * Number of point features the client wants in each PointFeatureBatch message.
+   * @return batch size, or 0 if the client wants one PointFeature message per feature
+   */
+  public int getBatchSize() {
+    if (batch == null) return 0;
+    try {
+      return Math.min(Math.max(0, Integer.parseInt(batch.trim())), MAX_BATCH);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
   @Override
   public String toString() {
     Formatter f = new Formatter();
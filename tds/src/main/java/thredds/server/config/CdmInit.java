@@ -37,6 +37,8 @@ import java.io.File;
 import java.util.Calendar;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.log4j.Level;
 import org.slf4j.MDC;
@@ -57,10 +59,16 @@ import thredds.servlet.ThreddsConfig;
 import thredds.util.LoggerFactorySpecial;
 import ucar.nc2.dataset.NetcdfDataset;
 import ucar.nc2.grib.GribCollection;
+import ucar.nc2.grib.GribDataCache;
+import ucar.nc2.grib.GribDecodeExecutor;
+import ucar.nc2.grib.GribIndexExecutor;
+import ucar.nc2.grib.GribRecordCache;
 import ucar.nc2.grib.TimePartition;
 import ucar.nc2.iosp.grid.GridServiceProvider;
 import ucar.nc2.jni.netcdf.Nc4Iosp;
+import ucar.nc2.ft.point.collection.CompositePointCollection;
 import ucar.nc2.ncml.Aggregation;
+import ucar.nc2.stream.NcStreamHeaderCache;
 import ucar.nc2.thredds.ThreddsDataFactory;
 import ucar.nc2.util.DiskCache;
 import ucar.nc2.util.DiskCache2;
@@ -81,6 +89,8 @@ public class CdmInit implements InitializingBean,  DisposableBean{
 
   private DiskCache2 aggCache, gribCache, cdmrCache;
   private Timer timer;
+  private ExecutorService aggExecutor;
+  private ExecutorService pointExecutor;
   private thredds.inventory.MController cacheManager;
   
   @Autowired
@@ -205,6 +215,19 @@ public class CdmInit implements InitializingBean,  DisposableBean{
       startupLog.info("CdmInit: GribCollection.initDataRafCache= ["+min+","+max+"] scour = "+secs);
     }
 
+    // GribCollection data reads : default is to decode records in the request thread
+    int decodeThreads = ThreddsConfig.getInt("GribCollection.decodeThreads", 1);
+    GribDecodeExecutor.setDefaultThreads(decodeThreads);
+    startupLog.info("CdmInit: GribDecodeExecutor.setDefaultThreads= "+decodeThreads);
+
+    // GribCollection decoded records : default is off
+    long dataCacheSize = ThreddsConfig.getBytes("GribCollection.dataCacheSize", 0);
+    boolean dataCacheOffHeap = ThreddsConfig.getBoolean("GribCollection.dataCacheOffHeap", false);
+    if (dataCacheSize > 0) {
+      GribDataCache.init(dataCacheSize, dataCacheOffHeap);
+      startupLog.info("CdmInit: GribDataCache.init= "+dataCacheSize+" offHeap = "+dataCacheOffHeap);
+    }
+
     // HTTP file access : // allow 10 - 20 open datasets, cleanup every 17 minutes
     min = ThreddsConfig.getInt("HTTPFileCache.minFiles", 10);
     max = ThreddsConfig.getInt("HTTPFileCache.maxFiles", 20);
@@ -226,6 +249,16 @@ public class CdmInit implements InitializingBean,  DisposableBean{
     ucar.nc2.iosp.grid.GridServiceProvider.setIndexAlwaysInCache( alwaysUseCache );
     startupLog.info("CdmInit: GribIndexing.alwaysUseCache= "+alwaysUseCache);
 
+    // GribCollection index building : default is to index the files one at a time
+    int indexThreads = ThreddsConfig.getInt("GribIndexing.indexThreads", 1);
+    GribIndexExecutor.setDefaultThreads(indexThreads);
+    startupLog.info("CdmInit: GribIndexExecutor.setDefaultThreads= "+indexThreads);
+
+    // GribCollection index building : default is to read all the gbx9 indexes each time
+    int recordCacheMax = ThreddsConfig.getInt("GribIndexing.recordCacheMax", 0);
+    GribRecordCache.setMaxRecords(recordCacheMax);
+    startupLog.info("CdmInit: GribRecordCache.setMaxRecords= "+recordCacheMax);
+
     // optimization: netcdf-3 files can only grow, not have metadata changes
     ucar.nc2.NetcdfFile.setProperty("syncExtendOnly", "true");
 
@@ -237,11 +270,40 @@ public class CdmInit implements InitializingBean,  DisposableBean{
     Aggregation.setPersistenceCache(aggCache);
     startupLog.info("CdmInit:  AggregationCache= "+dir+" scour = "+scourSecs+" maxAgeSecs = "+maxAgeSecs);
 
+    // persistent cache of parsed file headers : default is off
+    long headerCacheSize = ThreddsConfig.getBytes("HeaderCache.maxSize", 0);
+    if (headerCacheSize > 0) {
+      dir = ThreddsConfig.get("HeaderCache.dir", new File( tdsContext.getContentDirectory().getPath(), "/cache/header/").getPath());
+      NcStreamHeaderCache.enable(dir, headerCacheSize);
+      startupLog.info("CdmInit:  HeaderCache= "+dir+" maxSize = "+headerCacheSize);
+    }
+
     // how to choose the typical dataset ?
     String typicalDataset = ThreddsConfig.get("Aggregation.typicalDataset", "penultimate");
     Aggregation.setTypicalDatasetMode(typicalDataset);
     startupLog.info("CdmInit: Aggregation.setTypicalDatasetMode= "+typicalDataset);
 
+    // Aggregation reads : default is to read the nested datasets one at a time
+    int aggThreads = ThreddsConfig.getInt("Aggregation.readThreads", 0);
+    if (aggThreads > 0) {
+      aggExecutor = Executors.newFixedThreadPool(aggThreads);
+      Aggregation.setExecutor(aggExecutor);
+      int maxReadTasks = ThreddsConfig.getInt("Aggregation.maxReadTasks", aggThreads);
+      Aggregation.setMaxReadTasks(maxReadTasks);
+      startupLog.info("CdmInit: Aggregation.setExecutor nthreads= "+aggThreads+" maxReadTasks= "+maxReadTasks);
+    }
+
+    // Point feature collections : default is to open the datasets one at a time
+    int pointThreads = ThreddsConfig.getInt("PointCollection.prefetchThreads", 0);
+    if (pointThreads > 0) {
+      pointExecutor = Executors.newFixedThreadPool(pointThreads);
+      CompositePointCollection.setExecutor(pointExecutor);
+      int prefetchDatasets = ThreddsConfig.getInt("PointCollection.prefetchDatasets", 2);
+      int prefetchFeatures = ThreddsConfig.getInt("PointCollection.prefetchFeatures", 1000);
+      CompositePointCollection.setPrefetch(prefetchDatasets, prefetchFeatures);
+      startupLog.info("CdmInit: CompositePointCollection.setExecutor nthreads= "+pointThreads+" prefetchDatasets= "+prefetchDatasets+" prefetchFeatures= "+prefetchFeatures);
+    }
+
     // Nj22 disk cache
     dir = ThreddsConfig.get("DiskCache.dir", new File( tdsContext.getContentDirectory(), "/cache/cdm/" ).getPath());
     boolean alwaysUse = ThreddsConfig.getBoolean("DiskCache.alwaysUse", false);
@@ -286,6 +348,10 @@ public class CdmInit implements InitializingBean,  DisposableBean{
   public void destroy() throws Exception {
     if (timer != null) timer.cancel();
     FileCache.shutdown();
+    GribDecodeExecutor.shutdown();
+    GribIndexExecutor.shutdown();
+    if (aggExecutor != null) aggExecutor.shutdownNow();
+    if (pointExecutor != null) pointExecutor.shutdownNow();
     if (aggCache != null) aggCache.exit();
     if (gribCache != null) gribCache.exit();
     if (cdmrCache != null) cdmrCache.exit();
@@ -39,7 +39,10 @@ import ucar.nc2.*;
 
 import opendap.servers.*;
 import opendap.dap.BaseType;
+import opendap.dap.BaseTypePrimitiveVector;
+import opendap.dap.BytePrimitiveVector;
 import opendap.dap.DArrayDimension;
+import opendap.dap.NoSuchVariableException;
 import opendap.dap.PrimitiveVector;
 
 import java.io.IOException;
@@ -58,6 +61,16 @@ import java.util.List;
 public class NcSDArray extends SDArray implements HasNetcdfVariable {
   static private org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(NcSDArray.class);
 
+  static private int maxChunkBytes = 8 * 1000 * 1000;
+
+  /**
+   * Set the maximum number of bytes read at one time when streaming a DAP2 response.
+   * @param maxBytes max bytes in each chunk
+   */
+  static public void setMaxChunkBytes(int maxBytes) {
+    maxChunkBytes = maxBytes;
+  }
+
   private boolean debug = false, debugRead = false;
   private Variable ncVar = null;
   //ignore protected BaseType elemType;
@@ -144,6 +157,92 @@ public class NcSDArray extends SDArray implements HasNetcdfVariable {
     return (false);
   }
 
+  /**
+   * Write the data values to the DAP2 data stream.
+   * Unlike SDArray.serialize(), the data is not read into memory all at once.
+   * Instead it is read and written in contiguous chunks of at most maxChunkBytes, split across the inner dimensions
+   * when a slice of the outer dimension is too big, so the data is still sent in row-major order.
+   * The data is left unread, so a cached dataset does not hold on to it.
+   * Strings and Structures, and arrays that have already been read, are sent by SDArray.serialize().
+   */
+  @Override
+  public void serialize(String dataset, DataOutputStream sink, CEEvaluator ce, Object specialO)
+          throws NoSuchVariableException, DAP2ServerSideException, IOException {
+
+    if (isRead() || !isStreamable()) {
+      super.serialize(dataset, sink, ce, specialO);
+      return;
+    }
+    if (!ce.evalClauses(specialO)) return;
+
+    long tstart = System.currentTimeMillis();
+    PrimitiveVector pv = getPrimitiveVector();
+    Object saveStorage = pv.getInternalStorage();
+    boolean isByte = (pv instanceof BytePrimitiveVector);
+
+    try {
+      int n = numDimensions();
+      List<Range> ranges = new ArrayList<Range>(n);
+      long length = 1;
+      for (int i = 0; i < n; i++) {
+        Range r = new Range(getStart(i), getStop(i), getStride(i));
+        ranges.add(r);
+        length *= r.length();
+      }
+
+      // same as DVector.externalize(): the length is written twice for primitive types
+      sink.writeInt((int) length);
+      sink.writeInt((int) length);
+
+      Section section = new Section(ranges);
+      long maxChunkElems = Math.max(1, maxChunkBytes / ncVar.getElementSize());
+      FileWriter2.ChunkingIndex index = new FileWriter2.ChunkingIndex(section.getShape());
+      while (index.currentElement() < index.getSize()) {
+        int[] chunkOrigin = index.getCurrentCounter();
+        int[] chunkShape = index.computeChunkShape(maxChunkElems);
+        Array a = ncVar.read(section.compose(new Section(chunkOrigin, chunkShape))); // relative to the section
+        index.setCurrentCounter(index.currentElement() + (int) Index.computeSize(chunkShape));
+
+        if (isByte) {
+          sink.write((byte[]) a.get1DJavaArray(byte.class)); // pad at the end, not every chunk
+        } else {
+          pv.setInternalStorage(a.get1DJavaArray(a.getElementType()));
+          pv.externalize(sink);
+        }
+      }
+
+      if (isByte) {
+        int modFour = (int) (length % 4);
+        int pad = (modFour != 0) ? (4 - modFour) : 0;
+        for (int i = 0; i < pad; i++)
+          sink.writeByte(0);
+      }
+
+    } catch (InvalidDimensionException e) {
+      log.error(getRequestedRange(), e);
+      throw new IllegalStateException("NcSDArray InvalidDimensionException=" + e.getMessage());
+
+    } catch (InvalidRangeException e) {
+      log.error(getRequestedRange(), e);
+      throw new IllegalStateException("NcSDArray InvalidRangeException=" + e.getMessage());
+
+    } finally {
+      pv.setInternalStorage(saveStorage);
+    }
+
+    if (log.isDebugEnabled()) {
+      long tookTime = System.currentTimeMillis() - tstart;
+      log.debug("NcSDArray stream " + getEncodedName() + ": " + tookTime * .001 + " seconds");
+    }
+  }
+
+  private boolean isStreamable() {
+    PrimitiveVector pv = getPrimitiveVector();
+    if (pv instanceof BaseTypePrimitiveVector) return false;
+    if (pv instanceof BytePrimitiveVector) return ncVar.getDataType().getPrimitiveClassType() == byte.class;
+    return true;
+  }
+
   private String getRequestedRange() {
     try {
       StringBuilder sbuff = new StringBuilder();
@@ -39,6 +39,7 @@ import opendap.dap.BaseType;
 import opendap.dap.NoSuchVariableException;
 import ucar.nc2.Variable;
 
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 
@@ -74,4 +75,27 @@ public class NcSDGrid extends SDGrid {
     setRead(true);
     return(false);
   }
+
+  /**
+   * Same as SDGrid.serialize(), but does not read() all of the arrays first.
+   * Each projected array is read as it is written, so NcSDArray can stream its data.
+   */
+  @Override
+  public void serialize(String dataset, DataOutputStream sink, CEEvaluator ce, Object specialO)
+          throws NoSuchVariableException, DAP2ServerSideException, IOException {
+
+    if (isRead()) {
+      super.serialize(dataset, sink, ce, specialO);
+      return;
+    }
+
+    if (ce.evalClauses(specialO)) {
+      java.util.Enumeration vars = getVariables(); // array first, then maps
+      while (vars.hasMoreElements()) {
+        ServerMethods sm = (ServerMethods) vars.nextElement();
+        if (sm.isProject())
+          sm.serialize(dataset, sink, ce, specialO);
+      }
+    }
+  }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package thredds.server.wms;
+
+import java.util.Collections;
+import java.util.Formatter;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.dt.GridCoordSystem;
+import ucar.nc2.dt.GridDatatype;
+import ucar.nc2.util.HashMapLRU;
+import uk.ac.rdg.resc.edal.cdm.CdmUtils;
+import uk.ac.rdg.resc.edal.cdm.PixelMap;
+import uk.ac.rdg.resc.edal.coverage.domain.Domain;
+import uk.ac.rdg.resc.edal.coverage.grid.RegularGrid;
+import uk.ac.rdg.resc.edal.geometry.BoundingBox;
+import uk.ac.rdg.resc.edal.geometry.HorizontalPosition;
+
+/**
+ * A memory LRU cache of PixelMaps, keyed by the source horizontal grid and the target image grid.
+ * Building a PixelMap means transforming every target pixel into the source grid, which dominates
+ * GetMap time for small tiles. Clients panning a map ask for the same tiles over and over, so we keep the
+ * maps around.
+ * <p>
+ * The source grid is identified by the dataset location, its last modified time and the coordinate system name,
+ * so a rewritten file never hits a stale entry. Only RegularGrid targets (the GetMap case) are cached;
+ * transects and vertical sections have arbitrary point lists and are always computed.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+final class PixelMapCache {
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(PixelMapCache.class);
+
+  static public final int DEFAULT_MAX_ENTRIES = 100;
+
+  private static Map<String, PixelMap> cache = makeCache(DEFAULT_MAX_ENTRIES);
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Set the maximum number of PixelMaps to keep. Existing entries are discarded.
+   * @param maxEntries max entries, <= 0 disables caching
+   */
+  static synchronized void init(int maxEntries) {
+    cache = makeCache(maxEntries);
+    hits.set(0);
+    misses.set(0);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, PixelMap> makeCache(int maxEntries) {
+    if (maxEntries <= 0) return null;
+    return Collections.synchronizedMap(new HashMapLRU(Math.min(maxEntries, 100), maxEntries));
+  }
+
+  /**
+   * Get the PixelMap from the grid's horizontal coordinate system to the target domain, from the cache if possible.
+   * @param grid source grid
+   * @param targetDomain target points
+   * @return PixelMap, never null
+   */
+  static PixelMap getPixelMap(GridDatatype grid, Domain<HorizontalPosition> targetDomain) {
+    Map<String, PixelMap> useCache = cache;
+    String key = (useCache == null) ? null : makeKey(grid, targetDomain);
+    if (key == null)
+      return new PixelMap(CdmUtils.createHorizontalGrid(grid.getCoordinateSystem()), targetDomain);
+
+    PixelMap pixelMap = useCache.get(key);
+    if (pixelMap != null) {
+      hits.incrementAndGet();
+      return pixelMap;
+    }
+
+    misses.incrementAndGet();
+    pixelMap = new PixelMap(CdmUtils.createHorizontalGrid(grid.getCoordinateSystem()), targetDomain);
+    useCache.put(key, pixelMap);
+    if (log.isDebugEnabled()) log.debug("PixelMapCache add {}", key);
+    return pixelMap;
+  }
+
+  private static String makeKey(GridDatatype grid, Domain<HorizontalPosition> targetDomain) {
+    if (!(targetDomain instanceof RegularGrid)) return null;
+    RegularGrid target = (RegularGrid) targetDomain;
+
+    NetcdfFile ncfile = grid.getVariable().getParentGroup().getNetcdfFile();
+    if (ncfile == null || ncfile.getLocation() == null) return null;
+    GridCoordSystem gcs = grid.getCoordinateSystem();
+    BoundingBox bb = target.getExtent();
+
+    StringBuilder sbuff = new StringBuilder(200);
+    sbuff.append(ncfile.getLocation()).append('#').append(ncfile.getLastModified());
+    sbuff.append('#').append(gcs.getName());
+    sbuff.append('#').append(gcs.getXHorizAxis().getSize()).append('x').append(gcs.getYHorizAxis().getSize());
+    sbuff.append('#').append(target.getCoordinateReferenceSystem());
+    sbuff.append('#').append(bb.getMinX()).append(',').append(bb.getMinY()).append(',').append(bb.getMaxX()).append(',').append(bb.getMaxY());
+    sbuff.append('#').append(target.getXAxis().getSize()).append('x').append(target.getYAxis().getSize());
+    return sbuff.toString();
+  }
+
+  static void showCache(Formatter f) {
+    Map<String, PixelMap> useCache = cache;
+    if (useCache == null) {
+      f.format("PixelMapCache is disabled%n");
+      return;
+    }
+    f.format("PixelMapCache has %d entries, hits=%d misses=%d%n", useCache.size(), hits.get(), misses.get());
+  }
+}
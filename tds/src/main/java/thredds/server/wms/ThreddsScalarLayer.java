@@ -43,7 +43,9 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.joda.time.Chronology;
 import org.joda.time.DateTime;
@@ -52,6 +54,8 @@ import org.slf4j.LoggerFactory;
 
 import thredds.server.wms.config.LayerSettings;
 import thredds.server.wms.config.WmsDetailedConfig;
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
 import ucar.nc2.Attribute;
 import ucar.nc2.dt.GridDatatype;
 import uk.ac.rdg.resc.edal.cdm.CdmUtils;
@@ -60,6 +64,7 @@ import uk.ac.rdg.resc.edal.cdm.PixelMap;
 import uk.ac.rdg.resc.edal.coverage.CoverageMetadata;
 import uk.ac.rdg.resc.edal.coverage.domain.Domain;
 import uk.ac.rdg.resc.edal.coverage.domain.impl.HorizontalDomain;
+import uk.ac.rdg.resc.edal.coverage.grid.GridCoordinates;
 import uk.ac.rdg.resc.edal.coverage.grid.HorizontalGrid;
 import uk.ac.rdg.resc.edal.geometry.HorizontalPosition;
 import uk.ac.rdg.resc.edal.util.Range;
@@ -69,7 +74,6 @@ import uk.ac.rdg.resc.ncwms.wms.AbstractScalarLayer;
 
 /**
  * Wraps a GridDatatype as a ScalarLayer object
- * @todo Implement more efficient getTimeseries()
  * @author Jon
  */
 class ThreddsScalarLayer extends AbstractScalarLayer implements ThreddsLayer
@@ -105,8 +109,7 @@ class ThreddsScalarLayer extends AbstractScalarLayer implements ThreddsLayer
         zIndices.add(this.findAndCheckElevationIndex(el));
       }
     }
-    HorizontalGrid hg = CdmUtils.createHorizontalGrid(grid.getCoordinateSystem());
-    PixelMap pixelMap = new PixelMap(hg, targetDomain);
+    PixelMap pixelMap = PixelMapCache.getPixelMap(grid, targetDomain);
     return CdmUtils.readVerticalSection(null, grid, tIndex, zIndices, pixelMap, dataReadingStrategy, (int)targetDomain.size());
   }   
     
@@ -179,8 +182,7 @@ class ThreddsScalarLayer extends AbstractScalarLayer implements ThreddsLayer
         int tIndex = this.findAndCheckTimeIndex(time);
         int zIndex = this.findAndCheckElevationIndex(elevation);
         Domain<HorizontalPosition> targetDomain = points;
-        HorizontalGrid hg = CdmUtils.createHorizontalGrid(grid.getCoordinateSystem());
-        PixelMap pixelMap = new PixelMap(hg, targetDomain);
+        PixelMap pixelMap = PixelMapCache.getPixelMap(grid, targetDomain);
         List<Float> horizontalPoints = null;
         try{ 
         	horizontalPoints = CdmUtils.readHorizontalPoints(null, grid,  tIndex, zIndex, pixelMap, this.dataReadingStrategy, (int)targetDomain.size());
@@ -191,6 +193,82 @@ class ThreddsScalarLayer extends AbstractScalarLayer implements ThreddsLayer
         return horizontalPoints;
 	
     }
+
+    /**
+     * Read a timeseries at a single point, instead of reading a horizontal slice for each time.
+     * The sorted time indices are split into runs with an even spacing, and each run is read as one strided Range,
+     * so only the requested times are read, and aggregations and GRIB collections only touch the files / records they need.
+     */
+    @Override
+    public List<Float> readTimeseries(List<DateTime> times, double elevation, HorizontalPosition xy)
+        throws InvalidDimensionValueException, IOException
+    {
+        if (times.isEmpty() || grid.getTimeDimension() == null)
+            return super.readTimeseries(times, elevation, xy);
+
+        int[] tIndices = new int[times.size()];
+        int tmin = Integer.MAX_VALUE;
+        for (int i = 0; i < tIndices.length; i++) {
+            tIndices[i] = this.findAndCheckTimeIndex(times.get(i));
+            tmin = Math.min(tmin, tIndices[i]);
+        }
+        if (tmin < 0)
+            return super.readTimeseries(times, elevation, xy);
+        int zIndex = this.findAndCheckElevationIndex(elevation);
+
+        List<Float> result = new ArrayList<Float>(tIndices.length);
+        HorizontalGrid hg = CdmUtils.createHorizontalGrid(grid.getCoordinateSystem());
+        GridCoordinates gridCoords = hg.findNearestGridPoint(xy);
+        if (gridCoords == null) { // outside the grid
+            for (int i = 0; i < tIndices.length; i++) result.add(null);
+            return result;
+        }
+        int x = gridCoords.getCoordinateValue(0);
+        int y = gridCoords.getCoordinateValue(1);
+
+        int[] sorted = tIndices.clone();
+        Arrays.sort(sorted);
+        Map<Integer, Float> values = new HashMap<Integer, Float>(2 * sorted.length);
+        int start = 0;
+        while (start < sorted.length) {
+            // the longest run of evenly spaced indices from start
+            int end = start + 1;
+            while (end < sorted.length && sorted[end] == sorted[start]) end++; // duplicates
+            if (end < sorted.length) {
+                int stride = sorted[end] - sorted[start];
+                end++;
+                while (end < sorted.length && sorted[end] - sorted[end - 1] == stride) end++;
+                readTimeRun(sorted[start], sorted[end - 1], stride, zIndex, y, x, values);
+            } else {
+                readTimeRun(sorted[start], sorted[start], 1, zIndex, y, x, values);
+            }
+            start = end;
+        }
+
+        for (int t : tIndices) {
+            float val = values.get(t);
+            result.add(Float.isNaN(val) || grid.isMissingData(val) ? null : val);
+        }
+        return result;
+    }
+
+    // read time indices tfirst, tfirst + stride, ... tlast at a single point, put them into values
+    private void readTimeRun(int tfirst, int tlast, int stride, int zIndex, int y, int x, Map<Integer, Float> values)
+        throws IOException
+    {
+        try {
+            ucar.ma2.Range first = new ucar.ma2.Range(0, 0);  // same as readDataSlice(t, z, y, x)
+            ucar.ma2.Range tRange = new ucar.ma2.Range(tfirst, tlast, stride);
+            ucar.ma2.Range zRange = (zIndex < 0) ? null : new ucar.ma2.Range(zIndex, zIndex);
+            GridDatatype timeseries = grid.makeSubset(first, first, tRange, zRange, new ucar.ma2.Range(y, y), new ucar.ma2.Range(x, x));
+            Array arr = timeseries.readDataSlice(0, 0, -1, 0, 0, 0);
+            float[] data = (float[]) arr.get1DJavaArray(float.class);
+            for (int i = 0; i < data.length; i++)
+                values.put(tfirst + i * stride, data[i]);
+        } catch (InvalidRangeException e) {
+            throw new IOException(e);
+        }
+    }
     
 
     /*public List<Float> readHorizonalPoints(DateTime time, double elevation, Domain<HorizontalPosition> domain)
@@ -27,13 +27,16 @@
  */
 package thredds.server.wms;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,7 +44,9 @@ import org.springframework.web.servlet.ModelAndView;
 import thredds.server.dataset.TdsRequestedDataset;
 import thredds.server.wms.config.WmsDetailedConfig;
 import thredds.servlet.ServletUtil;
+import thredds.servlet.ThreddsConfig;
 import ucar.nc2.dt.GridDataset;
+import ucar.nc2.dt.GridDatatype;
 import uk.ac.rdg.resc.ncwms.controller.AbstractWmsController;
 import uk.ac.rdg.resc.ncwms.controller.RequestParams;
 import uk.ac.rdg.resc.ncwms.exceptions.LayerNotDefinedException;
@@ -104,9 +109,36 @@ public final class ThreddsWmsController extends AbstractWmsController
       }
       this.wmsConfig = WmsDetailedConfig.fromFile( wmsConfigFile );
       logServerStartup.info( "init(): Loaded WMS configuration from wmsConfig.xml" );
+      initCaches( tdsWmsServerConfig );
     }
   }
 
+  /**
+   * Configure the PixelMap and rendered tile caches from threddsConfig.xml.
+   */
+  private void initCaches( ThreddsServerConfig tdsWmsServerConfig )
+  {
+    int pixelMapEntries = ThreddsConfig.getInt( "WMS.pixelMapCache.maxEntries", PixelMapCache.DEFAULT_MAX_ENTRIES );
+    PixelMapCache.init( pixelMapEntries );
+    logServerStartup.info( "WMS:pixelMapCache.maxEntries= " + pixelMapEntries );
+
+    long maxMemoryBytes = ThreddsConfig.getBytes( "WMS.tileCache.maxSize", 20 * 1000 * 1000 );
+    String tileDir = null;
+    if ( ThreddsConfig.getBoolean( "WMS.tileCache.diskAllow", false ) )
+      tileDir = ThreddsConfig.get( "WMS.tileCache.dir", new File( tdsWmsServerConfig.getTdsContext().getContentDirectory().getPath(), "/cache/wms/" ).getPath() );
+    int maxAgeSecs = ThreddsConfig.getSeconds( "WMS.tileCache.maxAge", 24 * 60 * 60 );
+    TileCache.init( maxMemoryBytes, tileDir, Math.max( maxAgeSecs / 60, 1 ) );
+    logServerStartup.info( "WMS:tileCache.maxSize= " + maxMemoryBytes + " dir= " + tileDir + " maxAge= " + maxAgeSecs + " secs" );
+  }
+
+  /**
+   * Called by Spring when the controller is shut down.
+   */
+  public void destroy()
+  {
+    TileCache.exit();
+  }
+
   @Override
   protected ModelAndView dispatchWmsRequest(
           String request,
@@ -162,6 +194,28 @@ public final class ThreddsWmsController extends AbstractWmsController
       //  could be tricky when dealing with virtual layers (e.g. velocities).      
       //ThreddsDataset ds = new ThreddsDataset( reqDataset.getPath(), gd, this.wmsConfig );
       
+      // A rendered tile is valid as long as the dataset has not changed, so check the cache
+      // before doing the work of building the layers
+      TileCache tileCache = request.equals( "GetMap" ) ? TileCache.getInstance() : null;
+      String tileKey = null;
+      if ( tileCache != null && isTileCacheable( params, gd ) )
+      {
+        long lastModified = gd.getNetcdfFile().getLastModified();
+        if ( lastModified > 0 )
+        {
+          tileKey = TileCache.makeKey( reqDataset.getPath(), lastModified, httpServletRequest.getParameterMap() );
+          byte[] tile = tileCache.get( tileKey );
+          if ( tile != null )
+          {
+            httpServletResponse.setStatus( HttpServletResponse.SC_OK );
+            httpServletResponse.setContentType( TILE_FORMAT );
+            httpServletResponse.setContentLength( tile.length );
+            httpServletResponse.getOutputStream().write( tile );
+            return null;
+          }
+        }
+      }
+
       ThreddsDataset ds = ThreddsDataset.getThreddsDatasetForRequest(request, gd, reqDataset, this.wmsConfig, params );
       // Create an object that extracts layers from the dataset
       ThreddsLayerFactory layerFactory = new ThreddsLayerFactory( ds );
@@ -174,6 +228,10 @@ public final class ThreddsWmsController extends AbstractWmsController
         // In THREDDS we don't know the last update time so we use null
         modelAndView = getCapabilities( datasets, null, params, httpServletRequest, usageLogEntry );
       }
+      else if ( request.equals( "GetMap" ) && tileKey != null )
+      {
+        modelAndView = getMapAndCache( params, layerFactory, httpServletResponse, usageLogEntry, tileCache, tileKey );
+      }
       else if ( request.equals( "GetMap" ) )
       {
         modelAndView = getMap( params, layerFactory, httpServletResponse, usageLogEntry );
@@ -262,4 +320,107 @@ public final class ThreddsWmsController extends AbstractWmsController
     }
   }
 
+  private static final String TILE_FORMAT = "image/png";
+
+  // Only single frame PNG images are cached; animations and KMZ are rare and large.
+  // A missing or "current" TIME means the time step nearest to now, which changes without the dataset changing,
+  // so the time must be given unless none of the layers has a time dimension.
+  // A missing ELEVATION is the layer's default, which only changes with the dataset.
+  private static boolean isTileCacheable( RequestParams params, GridDataset gd )
+  {
+    String format = params.getString( "format" );
+    if ( format == null || !format.equalsIgnoreCase( TILE_FORMAT ) ) return false;
+    String time = params.getString( "time" );
+    if ( time != null && !time.trim().equalsIgnoreCase( "current" ) )
+      return time.indexOf( ',' ) < 0 && time.indexOf( '/' ) < 0;
+
+    String layers = params.getString( "layers" );
+    if ( layers == null ) return false;
+    for ( String layer : layers.split( "," ) )
+    {
+      GridDatatype grid = gd.findGridDatatype( layer.trim() );
+      if ( grid == null || grid.getTimeDimension() != null ) return false; // vector layers are not plain grids
+    }
+    return true;
+  }
+
+  /**
+   * Render the map into a buffer, add it to the tile cache if it is a complete PNG, then send it to the client.
+   */
+  private ModelAndView getMapAndCache( RequestParams params, LayerFactory layerFactory, HttpServletResponse httpServletResponse,
+                                       UsageLogEntry usageLogEntry, TileCache tileCache, String tileKey ) throws Exception
+  {
+    TileCaptureResponse capture = new TileCaptureResponse( httpServletResponse );
+    ModelAndView modelAndView = getMap( params, layerFactory, capture, usageLogEntry );
+    byte[] tile = capture.bout.toByteArray();
+    if ( modelAndView == null && capture.status == HttpServletResponse.SC_OK && TILE_FORMAT.equals( capture.getContentType() ) && tile.length > 0 )
+      tileCache.put( tileKey, tile );
+
+    httpServletResponse.setContentLength( tile.length );
+    httpServletResponse.getOutputStream().write( tile );
+    return modelAndView;
+  }
+
+  /**
+   * Buffers the image written by getMap(), everything else goes to the wrapped response.
+   */
+  private static final class TileCaptureResponse extends HttpServletResponseWrapper
+  {
+    private final ByteArrayOutputStream bout = new ByteArrayOutputStream( 32 * 1000 );
+    private int status = HttpServletResponse.SC_OK;
+    private String contentType;
+
+    TileCaptureResponse( HttpServletResponse response )
+    {
+      super( response );
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream()
+    {
+      return new ServletOutputStream()
+      {
+        @Override
+        public void write( int b ) { bout.write( b ); }
+
+        @Override
+        public void write( byte[] b, int off, int len ) { bout.write( b, off, len ); }
+      };
+    }
+
+    @Override
+    public void setContentType( String type )
+    {
+      this.contentType = type;
+      super.setContentType( type );
+    }
+
+    @Override
+    public String getContentType()
+    {
+      return this.contentType;
+    }
+
+    @Override
+    public void setStatus( int sc )
+    {
+      this.status = sc;
+      super.setStatus( sc );
+    }
+
+    @Override
+    public void sendError( int sc ) throws IOException
+    {
+      this.status = sc;
+      super.sendError( sc );
+    }
+
+    @Override
+    public void sendError( int sc, String msg ) throws IOException
+    {
+      this.status = sc;
+      super.sendError( sc, msg );
+    }
+  }
+
 }
@@ -0,0 +1,228 @@
+/*
+ * Copyright 1998-2013 University Corporation for Atmospheric Research/Unidata
+ *
+ * Portions of this software were developed by the Unidata Program at the
+ * University Corporation for Atmospheric Research.
+ *
+ * Access and use of this software shall impose the following obligations
+ * and understandings on the user. The user is granted the right, without
+ * any fee or cost, to use, copy, modify, alter, enhance and distribute
+ * this software, and any derivative works thereof, and its supporting
+ * documentation for any purpose whatsoever, provided that this entire
+ * notice appears in all copies of the software, derivative works and
+ * supporting documentation.  Further, UCAR requests that the user credit
+ * UCAR/Unidata in any publications that result from the use of this
+ * software or in any product that includes this software. The names UCAR
+ * and/or Unidata, however, may not be used in any advertising or publicity
+ * to endorse or promote any products or commercial entity unless specific
+ * written permission is obtained from UCAR/Unidata. The user also
+ * understands that UCAR/Unidata is not obligated to provide the user with
+ * any support, consulting, training or assistance of any kind with regard
+ * to the use, operation and performance of this software nor to provide
+ * the user with any updates, revisions, new versions or "bug fixes."
+ *
+ * THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ * INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ * FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ * NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ * WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package thredds.server.wms;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Formatter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import ucar.nc2.util.DiskCache2;
+import ucar.nc2.util.IO;
+
+/**
+ * A cache of rendered GetMap images, in memory and optionally on disk.
+ * <p>
+ * The key is made from the dataset path, the dataset's last modified time and all of the request parameters
+ * (layer, time, elevation, style, palette, color scale range, bbox, crs, size, ...), so a changed dataset
+ * is never served from the cache. Stale disk entries are no longer reachable, and are scoured by age.
+ * The memory cache is an LRU bounded by the total number of image bytes.
+ *
+ * @author agent
+ * @since 10/18/2026
+ */
+final class TileCache {
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(TileCache.class);
+  private static TileCache instance; // null means disabled
+
+  /**
+   * Configure the cache. Call exit() on the previous cache, if any.
+   * @param maxMemoryBytes max bytes kept in memory; <= 0 means no memory cache
+   * @param diskDir keep images in this directory, may be null for no disk cache
+   * @param maxAgeMinutes disk files older than this are scoured
+   */
+  static synchronized void init(long maxMemoryBytes, String diskDir, int maxAgeMinutes) {
+    exit();
+    if (maxMemoryBytes <= 0 && diskDir == null) return;
+    instance = new TileCache(maxMemoryBytes, diskDir, maxAgeMinutes);
+  }
+
+  static synchronized TileCache getInstance() {
+    return instance;
+  }
+
+  static synchronized void exit() {
+    if (instance != null && instance.diskCache != null)
+      instance.diskCache.exit();
+    instance = null;
+  }
+
+  /**
+   * Make the cache key for a GetMap request.
+   * @param datasetPath the dataset path from the request URL
+   * @param lastModified dataset last modified time
+   * @param params request parameters, as from ServletRequest.getParameterMap()
+   * @return cache key
+   */
+  static String makeKey(String datasetPath, long lastModified, Map<?, ?> params) {
+    // parameter names are case insensitive in WMS, and their order does not matter
+    Map<String, String> sorted = new TreeMap<String, String>();
+    for (Map.Entry<?, ?> entry : params.entrySet()) {
+      Object value = entry.getValue();
+      StringBuilder sbuff = new StringBuilder();
+      if (value instanceof String[]) {
+        for (String s : (String[]) value) sbuff.append(s).append(';');
+      } else {
+        sbuff.append(value);
+      }
+      sorted.put(entry.getKey().toString().toLowerCase(), sbuff.toString());
+    }
+
+    StringBuilder key = new StringBuilder(200);
+    key.append(datasetPath).append('#').append(lastModified);
+    for (Map.Entry<String, String> entry : sorted.entrySet())
+      key.append('&').append(entry.getKey()).append('=').append(entry.getValue());
+    return key.toString();
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////
+
+  private final long maxMemoryBytes;
+  private final LinkedHashMap<String, byte[]> memCache = new LinkedHashMap<String, byte[]>(100, .75f, true);
+  private long memoryBytes;
+  private final DiskCache2 diskCache;
+  private long hits, diskHits, misses;
+
+  private TileCache(long maxMemoryBytes, String diskDir, int maxAgeMinutes) {
+    this.maxMemoryBytes = maxMemoryBytes;
+    if (diskDir != null) {
+      diskCache = new DiskCache2(diskDir, false, maxAgeMinutes, Math.max(maxAgeMinutes / 2, 1));
+      diskCache.setAlwaysUseCache(true);
+    } else {
+      diskCache = null;
+    }
+  }
+
+  /**
+   * Find a cached image.
+   * @param key from makeKey()
+   * @return image bytes, or null if not in the cache
+   */
+  byte[] get(String key) {
+    synchronized (this) {
+      byte[] result = memCache.get(key);
+      if (result != null) {
+        hits++;
+        return result;
+      }
+    }
+
+    if (diskCache != null) {
+      File file = diskCache.getCacheFile(makeFilename(key));
+      if (file.exists()) {
+        try {
+          byte[] result = IO.readFileToByteArray(file.getPath());
+          synchronized (this) {
+            diskHits++;
+            putMemory(key, result);
+          }
+          return result;
+        } catch (IOException e) {
+          log.warn("Failed to read tile cache file " + file.getPath(), e);
+        }
+      }
+    }
+
+    synchronized (this) {
+      misses++;
+    }
+    return null;
+  }
+
+  /**
+   * Add an image to the cache.
+   * @param key from makeKey()
+   * @param image the image bytes
+   */
+  void put(String key, byte[] image) {
+    synchronized (this) {
+      putMemory(key, image);
+    }
+
+    if (diskCache != null) {
+      File file = diskCache.getCacheFile(makeFilename(key));
+      // write to a temporary file and rename, so readers never see a partial image
+      File tmp = new File(file.getPath() + ".tmp" + Thread.currentThread().getId());
+      try {
+        IO.writeToFile(image, tmp);
+        if (!tmp.renameTo(file)) {
+          if (!tmp.delete()) log.warn("Failed to delete " + tmp.getPath());
+        }
+      } catch (IOException e) {
+        log.warn("Failed to write tile cache file " + file.getPath(), e);
+      }
+    }
+  }
+
+  // must hold lock
+  private void putMemory(String key, byte[] image) {
+    if (image.length > maxMemoryBytes) return;
+    byte[] prev = memCache.put(key, image);
+    if (prev != null) memoryBytes -= prev.length;
+    memoryBytes += image.length;
+
+    Iterator<byte[]> iter = memCache.values().iterator(); // least recently used first
+    while (memoryBytes > maxMemoryBytes && iter.hasNext()) {
+      memoryBytes -= iter.next().length;
+      iter.remove();
+    }
+  }
+
+  private String makeFilename(String key) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("MD5");
+      byte[] digest = md.digest(key.getBytes("UTF-8"));
+      StringBuilder sbuff = new StringBuilder(40);
+      for (byte b : digest)
+        sbuff.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      return sbuff.append(".png").toString();
+
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    } catch (java.io.UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  synchronized void showCache(Formatter f) {
+    f.format("TileCache memory %d tiles, %d bytes (max %d); disk=%s%n", memCache.size(), memoryBytes, maxMemoryBytes,
+            diskCache == null ? "none" : diskCache.getRootDirectory());
+    f.format("  hits=%d diskHits=%d misses=%d%n", hits, diskHits, misses);
+  }
+}
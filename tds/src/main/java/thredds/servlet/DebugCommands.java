@@ -35,6 +35,7 @@ package thredds.servlet;
 
 import ucar.nc2.dataset.NetcdfDataset;
 import ucar.nc2.grib.GribCollection;
+import ucar.nc2.grib.GribDataCache;
 import ucar.nc2.grib.TimePartition;
 import ucar.nc2.util.IO;
 
@@ -84,6 +85,13 @@ public class DebugCommands {
           fc.showCache(f);
         }
 
+        GribDataCache dataCache = GribDataCache.getInstance();
+        if (dataCache == null) f.format("\nGribDataCache : turned off\n");
+        else {
+          f.format("%n%n");
+          dataCache.showCache(f);
+        }
+
         fc = TimePartition.getPartitionCache();
         if (fc == null) f.format("\nTimePartitionCache : turned off\n");
         else {
@@ -108,6 +116,7 @@ public class DebugCommands {
          NetcdfDataset.getNetcdfFileCache().clearCache(false);
          GribCollection.getDataRafCache().clearCache(false);
          TimePartition.getDataRafCache().clearCache(false);
+         if (GribDataCache.getInstance() != null) GribDataCache.getInstance().clearCache();
          ServletUtil.getFileCache().clearCache(false);
          e.pw.println("  ClearCache ok");
        }
@@ -146,6 +155,14 @@ public class DebugCommands {
     };
     debugHandler.addAction(act);
 
+    act = new DebugHandler.Action("disableGribDataCache", "Disable GribDataCache") {
+       public void doAction(DebugHandler.Event e) {
+         GribDataCache.disable();
+         e.pw.println("  Disable GribDataCache ok");
+       }
+     };
+     debugHandler.addAction(act);
+
     act = new DebugHandler.Action("disableTimePartitionCache", "Disable TimePartition Cache") {
        public void doAction(DebugHandler.Event e) {
          TimePartition.disableNetcdfFileCache();